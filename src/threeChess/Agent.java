@@ -1,5 +1,7 @@
 package threeChess;
 
+import java.util.SplittableRandom;
+
 /**
  * An interface for AI bots to implement.
  * They are simply given a Board object indicating the positions of all pieces, 
@@ -14,6 +16,8 @@ public abstract class Agent implements Runnable{
 
   private Board brd;
   private Position[] mv;
+  private volatile int ponderThreads;
+  private SplittableRandom random;
   
   /**
    * 0 argument constructor. 
@@ -31,6 +35,8 @@ public abstract class Agent implements Runnable{
    * Play a move in the game. 
    * The agent is given a Board Object representing the position of all pieces, 
    * the history of the game and whose turn it is. 
+   * The board is a read-only view, which does not change as the game goes on, and cannot be moved on;
+   * an agent that needs to make moves on it should take a clone, which is cheap.
    * They respond with a move represented by a pair (two element array) of positions: 
    * the start and the end position of the move.
    * @param board The representation of the game state.
@@ -53,6 +59,64 @@ public abstract class Agent implements Runnable{
    * **/
   public abstract void finalBoard(Board finalBoard);
 
+  /**
+   * Sets the number of threads the agent may keep searching with in the background,
+   * pondering the game while the other players move.
+   * This is set by the game loop at the start of each game.
+   * @param threads the number of threads, where 0 means the agent must not ponder.
+   * **/
+  public final void setPonderThreads(int threads){
+    ponderThreads = Math.max(0, threads);
+    onPonderThreads(ponderThreads);
+  }
+
+  /**
+   * Called by setPonderThreads with the number of threads the agent may now ponder with.
+   * An agent that plays through other agents should override this to pass the number on to them.
+   * @param threads the number of threads, where 0 means the agent must not ponder.
+   * **/
+  protected void onPonderThreads(int threads){}
+
+  /** @return the number of threads the agent may ponder with, 0 if it must not ponder. **/
+  public final int getPonderThreads(){return ponderThreads;}
+
+  /**
+   * Gives the agent the generator to make its random choices with.
+   * Tournaments give each agent a generator split from the seed of each game before the game starts,
+   * so a tournament run again with the same master seed plays the same games.
+   * @param random the generator, which only this agent uses.
+   * **/
+  public final void setRandom(SplittableRandom random){
+    this.random = random;
+    onRandom(random);
+  }
+
+  /**
+   * Called by setRandom with the agent's new generator.
+   * An agent that plays through other agents should override this to give each of them a generator split from it,
+   * so their choices are seeded too.
+   * @param random the generator given to the agent.
+   * **/
+  protected void onRandom(SplittableRandom random){}
+
+  /**
+   * Agents opt in to seeded games by making all their random choices with this generator.
+   * @return the generator given to the agent, or if none has been given, a generator with an arbitrary seed.
+   * **/
+  protected final SplittableRandom getRandom(){
+    if(random==null) random = new SplittableRandom();
+    return random;
+  }
+
+  /**
+   * Stops any search the agent is running in the background, returning once it has stopped.
+   * An agent that ponders after returning its move should override this, and stop pondering itself
+   * when it is next asked to move. The game loop calls it at the end of every game,
+   * and in timed games in which the agents may not ponder, before each other player's move,
+   * so the player on move has the processors to itself.
+   * **/
+  public void stopPondering(){}
+
   /**
    * For running threaded games.
    * **/
@@ -0,0 +1,134 @@
+package threeChess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.SplittableRandom;
+
+/**
+ * The child process of a SandboxedAgent, which runs one agent in its own JVM.
+ * It connects back to the SandboxedAgent over a local socket, creates the agent,
+ * and then keeps its own copy of the board of each game,
+ * updated with the moves made since the agent last moved rather than a whole serialised board.
+ * <p>
+ * The host sends the agent's name when it has created the agent, or an empty name followed by the error if it could not.
+ * Each message to the host starts with a type byte:
+ * GAME with a varint time limit in milliseconds starts a new game;
+ * MOVE with a varint count followed by that many moves, each a start and end Position ordinal byte and a varint time,
+ * updates the board and asks for a move, which is answered with the start and end ordinals (NO_MOVE if the agent gave none)
+ * and the varint number of microseconds the agent took;
+ * FINAL with moves as for MOVE updates the board and shows it to the agent as its final board, with no answer;
+ * PONDER with a varint sets the number of threads the agent may ponder with, with no answer;
+ * STOP_PONDERING stops the agent pondering, and is answered with a zero byte once it has stopped;
+ * SEED with a long gives the agent a generator with that seed, with no answer.
+ * Moves made after a player runs out of time are included, so the board reaches the same state.
+ * The host exits when the connection is closed.
+ * **/
+public final class AgentHost{
+
+  static final byte GAME = 1, MOVE = 2, FINAL = 3, PONDER = 4, STOP_PONDERING = 5, SEED = 6;
+  static final int NO_MOVE = 0xff;
+
+  private AgentHost(){}
+
+  /**
+   * Runs an agent for a SandboxedAgent.
+   * Run with the port the SandboxedAgent listens on and the fully qualified class name of the agent.
+   * **/
+  public static void main(String[] args) throws IOException{
+    try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))){
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      Agent agent;
+      try{
+        agent = TournamentWorker.newAgent(args[1]);
+      }catch(ReflectiveOperationException | RuntimeException | LinkageError e){
+        out.writeUTF("");
+        out.writeUTF(String.valueOf(e));
+        out.flush();
+        return;
+      }
+      out.writeUTF(agent.toString());
+      out.flush();
+      serve(agent, in, out);
+    }
+  }
+
+  //answers requests until the connection is closed
+  private static void serve(Agent agent, DataInputStream in, DataOutputStream out) throws IOException{
+    Board board = new Board(0);
+    Position[] positions = Position.values();
+    while(true){
+      int type = in.read();
+      if(type<0) return;
+      if(type==GAME){
+        board = new Board(readVarint(in));
+        continue;
+      }
+      if(type==PONDER){
+        agent.setPonderThreads(readVarint(in));
+        continue;
+      }
+      if(type==SEED){
+        agent.setRandom(new SplittableRandom(in.readLong()));
+        continue;
+      }
+      if(type==STOP_PONDERING){
+        agent.stopPondering();
+        out.writeByte(0);
+        out.flush();
+        continue;
+      }
+      for(int n = readVarint(in); n>0; n--){
+        Position start = positions[in.readUnsignedByte()], end = positions[in.readUnsignedByte()];
+        try{
+          board.move(start, end, readVarint(in));
+        }catch(ImpossiblePositionException e){throw new IOException("Out of step with the game: "+e.getMessage());}
+      }
+      if(type==FINAL){
+        agent.finalBoard(board.view());
+        continue;
+      }
+      long startTime = System.nanoTime();
+      Position[] move = null;
+      try{
+        move = agent.playMove(board.view());
+      }catch(RuntimeException | StackOverflowError e){e.printStackTrace();}//an illegal move, as for any other agent that fails
+      long micros = (System.nanoTime()-startTime)/1000;
+      boolean valid = move!=null && move.length==2 && move[0]!=null && move[1]!=null;
+      out.writeByte(valid ? move[0].ordinal() : NO_MOVE);
+      out.writeByte(valid ? move[1].ordinal() : NO_MOVE);
+      writeVarint(out, (int) Math.min(micros, Integer.MAX_VALUE));
+      out.flush();
+    }
+  }
+
+  //reads an unsigned varint
+  static int readVarint(InputStream in) throws IOException{
+    int value = 0;
+    for(int shift = 0; shift<35; shift += 7){
+      int b = in.read();
+      if(b<0) throw new EOFException();
+      value |= (b & 0x7f)<<shift;
+      if((b & 0x80)==0) return value;
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  //writes an unsigned varint
+  static void writeVarint(OutputStream out, int value) throws IOException{
+    while((value & ~0x7f)!=0){
+      out.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
@@ -9,23 +9,37 @@ import java.util.*;
  * or null is free. It also records previous moves, 
  * as well as whose move it is, and which pieces have been 
  * captured by which player.
+ * <p>
+ * Taking a view or a clone of a board takes constant time, whatever the length of the game:
+ * the pieces, captures and times are shared until either board moves, when the board moving copies them,
+ * and the moves played are kept in an array that only one of the boards sharing it may append to.
  * **/
 public class Board implements Cloneable, Serializable {
   
   /** Serial version UID for Board serialization and storage**/
-  private static final long serialVersionUID = -8547775276050612530L;
+  private static final long serialVersionUID = 3165271929402176385L;
   /** A map from board positions to the pieces at that position **/
   private HashMap<Position,Piece> board;
+  /**True if the pieces, captures and times may be shared with a view or clone, and must be copied before moving**/
+  private boolean shared = false;
+  /**True if this board is a read-only view, which cannot be moved on**/
+  private boolean readOnly = false;
   /**A flag that is true if and only if a King has been captured**/
   private boolean gameOver = false;
   /**The player whose turn it is**/
   private Colour turn = Colour.BLUE;//Blue goes first
   /**The moves taken so far, represented as an array of two positions, the start and end of the move**/
-  private ArrayList<Position[]> history;//can only be changed by taking moves
+  private Position[][] history;//can only be changed by taking moves, only the first moveCount entries are this board's
+  /**The number of moves taken so far**/
+  private int moveCount = 0;
+  /**True if this board may append to the history array, which no other board then appends to**/
+  private boolean ownsHistory = true;
   /**A map indicating which player has taken which piece, to support alternative scoring methods**/
   private HashMap<Colour,ArrayList<Piece>> captured;
   /**A Map representing the remaining time allowed for each player, in milliseconds**/
   private HashMap<Colour,Integer> timeLeft;
+  /**The Zobrist hash of the pieces on the board and whose turn it is, updated with each move**/
+  private long hash;
 
   /**
    * Initialises the board, placing all pieces at their initial position.
@@ -45,13 +59,14 @@ public class Board implements Cloneable, Serializable {
         }
       }
     }catch(ImpossiblePositionException e){}//no impossible positions in this code
-    history = new ArrayList<Position[]>();
+    history = new Position[64][];
     captured = new HashMap<Colour,ArrayList<Piece>>();
     timeLeft = new HashMap<Colour,Integer>();
     for(Colour c: Colour.values()){
       captured.put(c,new ArrayList<>());
       timeLeft.put(c,time);
     }
+    hash = Zobrist.hash(this);
   }
 
   /** @return whether in manual mode, the legal moves should be displayed on the board. **/
@@ -67,7 +82,7 @@ public class Board implements Cloneable, Serializable {
    * @return a Set of the positions that are occupied by a piece of the given colour.
    * **/
   public Set<Position> getPositions(Colour player){
-    HashSet<Position> positions = new HashSet<Position>();
+    HashSet<Position> positions = new LinkedHashSet<Position>();//in Position order, whatever the hash codes
     for(Position p : Position.values()){
       if(board.containsKey(p) && board.get(p).getColour()==player)
         positions.add(p);
@@ -259,38 +274,63 @@ public class Board implements Cloneable, Serializable {
    * @throws ImpossiblePositionException if the move is not legal
    * **/ 
   public void move(Position start, Position end, int time) throws ImpossiblePositionException{
+    if(readOnly) throw new UnsupportedOperationException("A view of a board cannot be moved on, move on a clone of it.");
     if(isLegalMove(start,end)){
+      if(shared) unshare();
       Piece mover = board.get(start);
       Piece taken = board.get(end);
       timeLeft.put(mover.getColour(),timeLeft.get(mover.getColour())-time);
       if(timeLeft.get(mover.getColour())<0) gameOver=true;
       else{
-        board.remove(start);//empty start square
+        set(start, null);//empty start square
         if(mover.getType()==PieceType.PAWN && end.getRow()==0 && end.getColour()!=mover.getColour())
-          board.put(end, new Piece(PieceType.QUEEN, mover.getColour()));//promote pawn if back rank
-        else board.put(end,mover);//move piece
+          set(end, new Piece(PieceType.QUEEN, mover.getColour()));//promote pawn if back rank
+        else set(end,mover);//move piece
         if(mover.getType()==PieceType.KING && start.getColumn()==4 && start.getRow()==0){
           if(end.getColumn()==2){//castle left, update rook
             Position rookPos = Position.get(mover.getColour(),0,0);
-            board.put(Position.get(mover.getColour(),0,3),board.get(rookPos));
-            board.remove(rookPos);
+            set(Position.get(mover.getColour(),0,3),board.get(rookPos));
+            set(rookPos, null);
           }else if(end.getColumn()==6){//castle right, update rook
             Position rookPos = Position.get(mover.getColour(),0,7);
-            board.put(Position.get(mover.getColour(),0,5),board.get(rookPos));
-            board.remove(rookPos);
+            set(Position.get(mover.getColour(),0,5),board.get(rookPos));
+            set(rookPos, null);
          }
         }
-        history.add(new Position[]{start,end});
+        if(!ownsHistory || moveCount==history.length){//another board may append to the array, or it is full
+          history = Arrays.copyOf(history, Math.max(64, 2*moveCount));
+          ownsHistory = true;
+        }
+        history[moveCount++] = new Position[]{start,end};
         if(taken !=null){
           captured.get(mover.getColour()).add(taken);
           if(taken.getType()==PieceType.KING) gameOver=true;
         }
-        turn = Colour.values()[(turn.ordinal()+1)%3];
+        Colour next = Colour.values()[(turn.ordinal()+1)%3];
+        hash ^= Zobrist.turn(turn)^Zobrist.turn(next);
+        turn = next;
       }
     }
     else throw new ImpossiblePositionException("Illegal Move: "+start+"-"+end);
   }
 
+  //copies the pieces, captures and times, so moving does not change the boards sharing them
+  private void unshare(){
+    board = new HashMap<Position,Piece>(board);
+    HashMap<Colour,ArrayList<Piece>> pieces = new HashMap<Colour,ArrayList<Piece>>();
+    for(Colour c: Colour.values()) pieces.put(c, new ArrayList<Piece>(captured.get(c)));
+    captured = pieces;
+    timeLeft = new HashMap<Colour,Integer>(timeLeft);
+    shared = false;
+  }
+
+  //puts a piece on a position, or empties it if the piece is null, updating the hash
+  private void set(Position position, Piece piece){
+    hash ^= Zobrist.piece(board.get(position), position)^Zobrist.piece(piece, position);
+    if(piece==null) board.remove(position);
+    else board.put(position, piece);
+  }
+
   /**
    * Executes a legal move. 
    * If a piece is taken it is replaced at that position by the taking piece.
@@ -318,7 +358,7 @@ public class Board implements Cloneable, Serializable {
    * @return the number of moves made in the game.
    * **/
   public int getMoveCount(){
-    return history.size();
+    return moveCount;
   }
 
   /**
@@ -329,7 +369,7 @@ public class Board implements Cloneable, Serializable {
    * **/
   public Position[] getMove(int index){
     if(0<=index && index<getMoveCount()){
-      return history.get(index).clone();
+      return history[index].clone();
     }
     else throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
   }
@@ -354,6 +394,17 @@ public class Board implements Cloneable, Serializable {
     return score;
   }
 
+  /**
+   * Gets a 64-bit hash of the position, for recognising positions that have been reached before.
+   * Positions with the same pieces on the same squares and the same player to move have the same hash,
+   * whatever moves led to them, and different positions almost certainly have different hashes.
+   * The hash is kept up to date as moves are made, so this takes constant time.
+   * @return the Zobrist hash of the position, as given by Zobrist.hash.
+   * **/
+  public long hash(){
+    return hash;
+  }
+
   /** 
    * @return true if the game has ended
    * **/
@@ -422,18 +473,45 @@ public class Board implements Cloneable, Serializable {
   }
 
   /**
-   * Returns a deep clone of the board state, 
+   * Returns a read-only view of the board state, as it is now, for handing to agents.
+   * The view does not change when this board moves, and it cannot be moved on:
+   * an agent that needs to make moves on the board should take a clone of the view.
+   * Taking a view takes constant time, as it shares the state of this board until this board moves.
+   * @return a read-only view of the board state, of the same class as this board.
+   * **/
+  public Board view(){
+    Board view = share();
+    view.readOnly = true;
+    return view;
+  }
+
+  /** @return true if this board is a read-only view, which cannot be moved on. **/
+  public boolean isReadOnly(){
+    return readOnly;
+  }
+
+  /**
+   * Returns a clone of the board state, 
    * such that no operations will affect the original board instance.
-   * @return a deep clone of the board state.
+   * The clone can be moved on even if this board is a read-only view.
+   * Taking a clone takes constant time, as the state is shared until either board moves,
+   * and the clone copies the moves played the first time it moves.
+   * @return a clone of the board state.
    * **/ 
   public Object clone() throws CloneNotSupportedException{
-    Board clone = (Board) super.clone();
-    clone.board = (HashMap<Position,Piece>)board.clone();
-    clone.history = new ArrayList<Position[]>();
-    for(Position[] move: history) clone.history.add(move.clone());
-    clone.timeLeft = (HashMap<Colour,Integer>) timeLeft.clone();
-    clone.captured = new HashMap<Colour,ArrayList<Piece>>();
-    for(Colour c: Colour.values()) clone.captured.put(c, (ArrayList<Piece>) captured.get(c).clone());
+    Board clone = share();
+    clone.readOnly = false;
     return clone;
   }
+
+  //a copy of this board sharing its state, which both boards copy before changing
+  private Board share(){
+    Board copy;
+    try{
+      copy = (Board) super.clone();
+    }catch(CloneNotSupportedException e){throw new AssertionError(e);}//Board is Cloneable
+    shared = copy.shared = true;
+    copy.ownsHistory = false;
+    return copy;
+  }
 }
@@ -0,0 +1,133 @@
+package threeChess;
+
+/**
+ * The screen coordinates of the squares of the board, drawn at a given size.
+ * They are computed once per size and shared, by the display's squares and by every thumbnail
+ * of a SpectatorGrid, which draws a smaller board by scaling the same geometry.
+ * A grid of the square under each pixel is also kept, so finding the square under the mouse is a lookup.
+ * All arrays are indexed by Position ordinal, and must not be modified.
+ * **/
+final class BoardGeometry{
+
+  private static final java.util.Map<Integer, BoardGeometry> geometries = new java.util.HashMap<Integer, BoardGeometry>();
+
+  /**The size of the board**/
+  final int size;
+  /**The x and y coordinates of the corners of each square: lower left, lower right, upper right, upper left**/
+  final int[][] xs = new int[96][], ys = new int[96][];
+  /**The x and y coordinates of the centre of each square**/
+  final int[][] centres = new int[96][];
+  /**The x and y coordinates of the corners of the polygon for highlighting each square**/
+  final int[][] highlightXs = new int[96][], highlightYs = new int[96][];
+  private final byte[] squareAt;//the ordinal of the square containing each pixel, plus 1, or 0 for none, indexed by y*size+x
+
+  private BoardGeometry(int size){
+    this.size = size;
+    int[][][] flanks = flanks(size);
+    for(Position pos: Position.values()){
+      //calculate coords for poly point and center
+      int r = pos.getRow();
+      int c = pos.getColumn();
+      int[] xs = new int[4], ys = new int[4]; //lower left, lower right, upper right, upper left.
+      int[] left = flanks[pos.getColour().ordinal()][(c<4?0:1)];//coords of left margin
+      int[] right = flanks[pos.getColour().ordinal()][(c<4?1:2)];//coords of right margin.
+      double[] baseLine = new double[4];
+      double[] topLine = new double[4];
+      baseLine[0] = left[0]+((left[2]-left[0])/4.0d)*r;
+      baseLine[1] = left[1]+((left[3]-left[1])/4.0d)*r;
+      baseLine[2] = right[0]+((right[2]-right[0])/4.0d)*r;
+      baseLine[3] = right[1]+((right[3]-right[1])/4.0d)*r;
+      topLine[0] = left[0]+((left[2]-left[0])/4.0d)*(r+1);
+      topLine[1] = left[1]+((left[3]-left[1])/4.0d)*(r+1);
+      topLine[2] = right[0]+((right[2]-right[0])/4.0d)*(r+1);
+      topLine[3] = right[1]+((right[3]-right[1])/4.0d)*(r+1);
+      //bottom left
+      xs[0] = (int) (baseLine[0]+((baseLine[2]-baseLine[0])/4.0d)*(c%4));
+      ys[0] = (int) (baseLine[1]+((baseLine[3]-baseLine[1])/4.0d)*(c%4));
+      //bottom right
+      xs[1] = (int) (baseLine[0]+((baseLine[2]-baseLine[0])/4.0d)*(c%4+1));
+      ys[1] = (int) (baseLine[1]+((baseLine[3]-baseLine[1])/4.0d)*(c%4+1));
+      //top right
+      xs[2] = (int) (topLine[0]+((topLine[2]-topLine[0])/4.0d)*(c%4+1));
+      ys[2] = (int) (topLine[1]+((topLine[3]-topLine[1])/4.0d)*(c%4+1));
+      //top left
+      xs[3] = (int) (topLine[0]+((topLine[2]-topLine[0])/4.0d)*(c%4));
+      ys[3] = (int) (topLine[1]+((topLine[3]-topLine[1])/4.0d)*(c%4));
+      // The centre of this square.
+      int[] centre = new int[] {(xs[0]+xs[1]+xs[2]+xs[3]) / 4, (ys[0]+ys[1]+ys[2]+ys[3]) / 4};
+      // Coordinates of polygon for highlighting the square.
+      int[] highlightXs = new int[4], highlightYs = new int[4];
+      for (int i=0; i<4; ++i) {
+        highlightXs[i] = centre[0] + (3 * (xs[i] - centre[0])) / 4;
+        highlightYs[i] = centre[1] + (3 * (ys[i] - centre[1])) / 4;
+      }
+      this.xs[pos.ordinal()] = xs;
+      this.ys[pos.ordinal()] = ys;
+      centres[pos.ordinal()] = centre;
+      this.highlightXs[pos.ordinal()] = highlightXs;
+      this.highlightYs[pos.ordinal()] = highlightYs;
+    }
+    squareAt = new byte[size*size];
+    for(int sq = 0; sq<96; sq++){
+      int[] xs = this.xs[sq], ys = this.ys[sq];
+      int minX = Math.max(0, Math.min(Math.min(xs[0], xs[1]), Math.min(xs[2], xs[3])));
+      int maxX = Math.min(size-1, Math.max(Math.max(xs[0], xs[1]), Math.max(xs[2], xs[3])));
+      int minY = Math.max(0, Math.min(Math.min(ys[0], ys[1]), Math.min(ys[2], ys[3])));
+      int maxY = Math.min(size-1, Math.max(Math.max(ys[0], ys[1]), Math.max(ys[2], ys[3])));
+      for(int y = minY; y<=maxY; y++)
+        for(int x = minX; x<=maxX; x++)
+          if(squareAt[y*size+x]==0 && contains(xs, ys, x, y)) squareAt[y*size+x] = (byte) (sq+1);//the first square containing it
+    }
+  }
+
+  /**
+   * @param x the x coordinate of a pixel.
+   * @param y the y coordinate of a pixel.
+   * @return the ordinal of the square containing the pixel, or -1 if there is none.
+   * **/
+  int squareAt(int x, int y){
+    if(x<0 || y<0 || x>=size || y>=size) return -1;
+    return squareAt[y*size+x]-1;
+  }
+
+  //whether a point falls within the quadrilateral with the given corners
+  private static boolean contains(int[] xs, int[] ys, int x, int y){
+    boolean result = false;
+    for (int i=0, j=3; i<4; j=i++) {
+      if ((ys[i] > y) != (ys[j] > y) && (x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j]-ys[i]) + xs[i])) {
+        result = !result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param size the width and height of the board in pixels.
+   * @return the geometry of a board of that size.
+   * **/
+  static synchronized BoardGeometry forSize(int size){
+    BoardGeometry geometry = geometries.get(size);
+    if(geometry==null){
+      geometry = new BoardGeometry(size);
+      geometries.put(size, geometry);
+    }
+    return geometry;
+  }
+
+  //calculates the coordinates of flanks for computing square coordinates.
+  private static int[][][] flanks(int size){
+    int h_unit = size/10;
+    int v_unit = (int) (h_unit*Math.sqrt(3));
+    int[][][] flanks = new int[3][3][4];
+    flanks[0][0][0] = 7*h_unit; flanks[0][0][1] = v_unit; flanks[0][0][2] = 8*h_unit; flanks[0][0][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the left flank of the blue section of board
+    flanks[0][1][0] = 5*h_unit; flanks[0][1][1] = v_unit; flanks[0][1][2] = 5*h_unit; flanks[0][1][3] = 3*v_unit;// (x1,y1,x2,y2) coords of the middle line of the blue section of board
+    flanks[0][2][0] = 3*h_unit; flanks[0][2][1] = v_unit; flanks[0][2][2] = 2*h_unit; flanks[0][2][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the right flank of the blue section of board
+    flanks[1][0][0] = 7*h_unit; flanks[1][0][1] = 5*v_unit; flanks[1][0][2] = 5*h_unit; flanks[1][0][3] = 5*v_unit;// (x1,y1,x2,y2) coords of the left flank of the green section of board
+    flanks[1][1][0] = 8*h_unit; flanks[1][1][1] = 4*v_unit; flanks[1][1][2] = 5*h_unit; flanks[1][1][3] = 3*v_unit;// (x1,y1,x2,y2) coords of the middle line of the green section of board
+    flanks[1][2][0] = 9*h_unit; flanks[1][2][1] = 3*v_unit; flanks[1][2][2] = 8*h_unit; flanks[1][2][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the right flank of the green section of board
+    flanks[2][0][0] = h_unit; flanks[2][0][1] = 3*v_unit; flanks[2][0][2] = 2*h_unit; flanks[2][0][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the left flank of the red section of board
+    flanks[2][1][0] = 2*h_unit; flanks[2][1][1] = 4*v_unit; flanks[2][1][2] = 5*h_unit; flanks[2][1][3] = 3*v_unit;// (x1,y1,x2,y2) coords of the middle line of the red section of board
+    flanks[2][2][0] = 3*h_unit; flanks[2][2][1] = 5*v_unit; flanks[2][2][2] = 5*h_unit; flanks[2][2][3] = 5*v_unit;// (x1,y1,x2,y2) coords of the right flank of the red section of board
+    return flanks;
+  }
+}
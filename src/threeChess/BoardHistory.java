@@ -0,0 +1,69 @@
+package threeChess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gives the position of a game before any of its moves, for browsing the history of a board.
+ * A snapshot is kept every CHECKPOINT_INTERVAL moves, so any position is found by replaying
+ * fewer than that many moves from the nearest earlier checkpoint, however long the game.
+ * Recently requested positions are cached, so repainting the same position does no work,
+ * and stepping forward from a cached position replays a single move.
+ * **/
+public final class BoardHistory{
+
+  /**The number of moves between checkpoints**/
+  public static final int CHECKPOINT_INTERVAL = 16;
+  private static final int CACHE_SIZE = 64;
+
+  private final Board board;
+  private final ArrayList<BoardSnapshot> checkpoints = new ArrayList<BoardSnapshot>();//the snapshot before move i*CHECKPOINT_INTERVAL
+  private final Map<Integer, BoardSnapshot> cache = new LinkedHashMap<Integer, BoardSnapshot>(16, 0.75f, true){
+    protected boolean removeEldestEntry(Map.Entry<Integer, BoardSnapshot> eldest){
+      return size()>CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Creates a history for a board. Moves made on the board later are included as they are needed.
+   * @param board the board whose history is browsed. It must have started from the standard position.
+   * **/
+  public BoardHistory(Board board){
+    this.board = board;
+    checkpoints.add(BoardSnapshot.initial());
+  }
+
+  /**
+   * Gets the position before a move was made.
+   * @param moveIndex the index of the move, from 0, or the number of moves made for the position after the last move.
+   * @return a snapshot of the position before the move.
+   * @throws ArrayIndexOutOfBoundsException if the index does not correspond to a move.
+   * **/
+  public synchronized BoardSnapshot get(int moveIndex){
+    if(moveIndex<0 || moveIndex>board.getMoveCount()) throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
+    BoardSnapshot snapshot = cache.get(moveIndex);
+    if(snapshot!=null) return snapshot;
+    BoardSnapshot previous = moveIndex>0 ? cache.get(moveIndex-1) : null;
+    if(previous!=null) snapshot = replay(previous, moveIndex-1, moveIndex);
+    else{
+      int checkpoint = moveIndex/CHECKPOINT_INTERVAL;
+      while(checkpoints.size()<=checkpoint){//extend the checkpoints as the game goes on
+        int last = checkpoints.size()-1;
+        checkpoints.add(replay(checkpoints.get(last), last*CHECKPOINT_INTERVAL, (last+1)*CHECKPOINT_INTERVAL));
+      }
+      snapshot = replay(checkpoints.get(checkpoint), checkpoint*CHECKPOINT_INTERVAL, moveIndex);
+    }
+    cache.put(moveIndex, snapshot);
+    return snapshot;
+  }
+
+  //replays the moves from index from up to index to
+  private BoardSnapshot replay(BoardSnapshot snapshot, int from, int to){
+    for(int index = from; index<to; ++index){
+      Position[] move = board.getMove(index);
+      snapshot = snapshot.apply(move[0], move[1]);
+    }
+    return snapshot;
+  }
+}
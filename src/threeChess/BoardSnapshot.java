@@ -0,0 +1,147 @@
+package threeChess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable copy of the state of a board that is needed to display it:
+ * the pieces on each position, whose turn it is, the pieces each player has captured,
+ * the time each player has left, and whether the game is over and who won and lost.
+ * Unlike a Board, a snapshot can be shared between threads and kept in a history cheaply.
+ * **/
+public final class BoardSnapshot{
+
+  private final Piece[] pieces;//indexed by Position ordinal
+  private final Colour turn;
+  private final int moveCount;
+  private final Position[] lastMove;//the move that led to this snapshot, or null
+  private final List<List<Piece>> captured;//indexed by Colour ordinal
+  private final int[] timeLeft;//indexed by Colour ordinal
+  private final boolean gameOver;
+  private final Colour winner;
+  private final Colour loser;
+
+  private BoardSnapshot(Piece[] pieces, Colour turn, int moveCount, Position[] lastMove, List<List<Piece>> captured,
+      int[] timeLeft, boolean gameOver, Colour winner, Colour loser){
+    this.pieces = pieces;
+    this.turn = turn;
+    this.moveCount = moveCount;
+    this.lastMove = lastMove;
+    this.captured = captured;
+    this.timeLeft = timeLeft;
+    this.gameOver = gameOver;
+    this.winner = winner;
+    this.loser = loser;
+  }
+
+  /**
+   * Takes a snapshot of a board.
+   * @param board the board to copy.
+   * @return a snapshot of the current state of the board.
+   * **/
+  public static BoardSnapshot of(Board board){
+    Piece[] pieces = new Piece[96];
+    for(Position p: Position.values()) pieces[p.ordinal()] = board.getPiece(p);
+    List<List<Piece>> captured = new ArrayList<List<Piece>>(3);
+    int[] timeLeft = new int[3];
+    for(Colour c: Colour.values()){
+      captured.add(Collections.unmodifiableList(new ArrayList<Piece>(board.getCaptured(c))));
+      timeLeft[c.ordinal()] = board.getTimeLeft(c);
+    }
+    int moves = board.getMoveCount();
+    return new BoardSnapshot(pieces, board.getTurn(), moves, moves>0 ? board.getMove(moves-1) : null,
+        Collections.unmodifiableList(captured), timeLeft, board.gameOver(), board.getWinner(), board.getLoser());
+  }
+
+  /**
+   * @return a snapshot of a board at the start of an untimed game.
+   * **/
+  public static BoardSnapshot initial(){
+    return of(new Board(0));
+  }
+
+  /**
+   * Makes a move without checking it is legal, as a CheatBoard would,
+   * so any recorded move can be replayed.
+   * Captures, promotion to Queen, castling and the end of the game on taking a King
+   * follow Board.move. The time left is unchanged.
+   * @param start the position of the piece to move.
+   * @param end the position to move it to.
+   * @return the snapshot after the move.
+   * **/
+  public BoardSnapshot apply(Position start, Position end){
+    Piece[] next = pieces.clone();
+    Piece mover = next[start.ordinal()];
+    Piece taken = next[end.ordinal()];
+    next[start.ordinal()] = null;
+    if(mover!=null && mover.getType()==PieceType.PAWN && end.getRow()==0 && end.getColour()!=mover.getColour())
+      next[end.ordinal()] = new Piece(PieceType.QUEEN, mover.getColour());//promote pawn if back rank
+    else next[end.ordinal()] = mover;
+    if(mover!=null && mover.getType()==PieceType.KING && start.getColumn()==4 && start.getRow()==0){
+      try{
+        if(end.getColumn()==2){//castle left, update rook
+          Position rookPos = Position.get(mover.getColour(),0,0);
+          next[Position.get(mover.getColour(),0,3).ordinal()] = next[rookPos.ordinal()];
+          next[rookPos.ordinal()] = null;
+        }else if(end.getColumn()==6){//castle right, update rook
+          Position rookPos = Position.get(mover.getColour(),0,7);
+          next[Position.get(mover.getColour(),0,5).ordinal()] = next[rookPos.ordinal()];
+          next[rookPos.ordinal()] = null;
+        }
+      }catch(ImpossiblePositionException e){}//not possible, back rank positions exist
+    }
+    List<List<Piece>> nextCaptured = captured;
+    boolean over = gameOver;
+    Colour win = winner, lose = loser;
+    if(taken!=null && mover!=null){
+      List<List<Piece>> copy = new ArrayList<List<Piece>>(captured);
+      List<Piece> mine = new ArrayList<Piece>(captured.get(mover.getColour().ordinal()));
+      mine.add(taken);
+      copy.set(mover.getColour().ordinal(), Collections.unmodifiableList(mine));
+      nextCaptured = Collections.unmodifiableList(copy);
+      if(taken.getType()==PieceType.KING){
+        over = true;
+        if(win==null){win = mover.getColour(); lose = taken.getColour();}
+      }
+    }
+    return new BoardSnapshot(next, Colour.values()[(turn.ordinal()+1)%3], moveCount+1, new Position[]{start, end},
+        nextCaptured, timeLeft, over, win, lose);
+  }
+
+  /**
+   * @param position a position on the board.
+   * @return the piece at the position, or null if it is vacant.
+   * **/
+  public Piece getPiece(Position position){return pieces[position.ordinal()];}
+
+  /** @return the player whose turn it is. **/
+  public Colour getTurn(){return turn;}
+
+  /** @return the number of moves made to reach this position. **/
+  public int getMoveCount(){return moveCount;}
+
+  /** @return the last move made, as a start and end position, or null if no move has been made. **/
+  public Position[] getLastMove(){return lastMove==null ? null : lastMove.clone();}
+
+  /**
+   * @param player the colour of a player.
+   * @return the pieces the player has captured, in the order they were taken.
+   * **/
+  public List<Piece> getCaptured(Colour player){return captured.get(player.ordinal());}
+
+  /**
+   * @param colour the colour of a player.
+   * @return the time the player had left, in milliseconds.
+   * **/
+  public int getTimeLeft(Colour colour){return timeLeft[colour.ordinal()];}
+
+  /** @return true if the game has ended. **/
+  public boolean gameOver(){return gameOver;}
+
+  /** @return the winner of the game, as given by Board.getWinner. **/
+  public Colour getWinner(){return winner;}
+
+  /** @return the loser of the game, as given by Board.getLoser. **/
+  public Colour getLoser(){return loser;}
+}
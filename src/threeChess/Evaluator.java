@@ -0,0 +1,264 @@
+package threeChess;
+
+/**
+ * Evaluation terms of a position for one player, and how each move of that player changes them,
+ * so an agent can evaluate every candidate move without cloning the board and playing it.
+ * Setting the position generates the moves of all three players once,
+ * giving an attack map of how many moves of each player end on each square,
+ * which all the candidate moves share.
+ * Moves are encoded as in MoveGenerator, and follow the rules of Board.move,
+ * including promotion and castling.
+ * **/
+public final class Evaluator{
+
+  private final PieceSquareTables tables;
+  private final Piece[] squares = new Piece[96];
+  private final int[][] moves = new int[3][MoveGenerator.MAX_MOVES];
+  private final int[] moveCount = new int[3];
+  private final int[][] attacks = new int[3][96];//the number of moves of each player ending on each square
+  private final int[] kings = new int[3];//the square of each player's King, or -1
+  private final int[] scratch = new int[MoveGenerator.MAX_MOVES];
+  private Colour player;
+  private Colour turn;
+  private int score;
+  private double positionValue;
+  private long occupied0, occupied1;//bit i set if square i is occupied, squares 64-95 in the second word
+
+  //for each opponent, the pieces that could take the player's King
+  private final int[] steppers = new int[3];//the number of pieces whose single step moves take the King
+  private final int[][] sliderSquares = new int[3][32];//the squares of pieces sliding along a ray to the King
+  private final long[][] paths0 = new long[3][32], paths1 = new long[3][32];//the squares along that ray before the King
+  private final int[] sliders = new int[3];
+
+  /**
+   * Creates an evaluator.
+   * @param tables the piece-square tables to value positions with.
+   * **/
+  public Evaluator(PieceSquareTables tables){
+    this.tables = tables;
+  }
+
+  /**
+   * Sets the position to evaluate, and the player it is evaluated for.
+   * @param board the position.
+   * @param player the player the evaluation terms are for, and whose moves are evaluated.
+   * **/
+  public void setPosition(Board board, Colour player){
+    this.player = player;
+    turn = board.getTurn();
+    score = board.score(player);
+    positionValue = 0;
+    occupied0 = occupied1 = 0;
+    kings[0] = kings[1] = kings[2] = -1;
+    for(Position p: Position.values()){
+      int sq = p.ordinal();
+      Piece piece = board.getPiece(p);
+      squares[sq] = piece;
+      if(piece==null) continue;
+      if(sq<64) occupied0 |= 1L<<sq; else occupied1 |= 1L<<(sq-64);
+      if(piece.getType()==PieceType.KING) kings[piece.getColour().ordinal()] = sq;
+      if(piece.getColour()==player) positionValue += tables.value(piece, p);
+    }
+    for(int c = 0; c<3; c++){
+      java.util.Arrays.fill(attacks[c], 0);
+      moveCount[c] = MoveGenerator.generate(squares, Colour.values()[c], moves[c]);
+      for(int i = 0; i<moveCount[c]; i++) attacks[c][moves[c][i]%96]++;
+    }
+    findKingAttackers();
+  }
+
+  //records the pieces of each opponent that take the player's King now, or could once the way is clear
+  private void findKingAttackers(){
+    int king = kings[player.ordinal()];
+    for(int c = 0; c<3; c++){
+      steppers[c] = sliders[c] = 0;
+      if(c==player.ordinal() || king<0) continue;
+      for(int sq = 0; sq<96; sq++){
+        Piece p = squares[sq];
+        if(p==null || p.getColour().ordinal()!=c) continue;
+        int[][] rays = MoveGenerator.rays(p.getType(), sq);
+        if(rays==null){
+          if(takes(c, sq*96+king)) steppers[c]++;
+          continue;
+        }
+        for(int[] ray: rays){
+          long path0 = 0, path1 = 0;
+          for(int to: ray){
+            if(to==king){
+              sliderSquares[c][sliders[c]] = sq;
+              paths0[c][sliders[c]] = path0;
+              paths1[c][sliders[c]++] = path1;
+              break;
+            }
+            if(to<64) path0 |= 1L<<to; else path1 |= 1L<<(to-64);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean takes(int colour, int move){
+    for(int i = 0; i<moveCount[colour]; i++) if(moves[colour][i]==move) return true;
+    return false;
+  }
+
+  /** @return the player's score, as given by Board.score. **/
+  public int score(){return score;}
+
+  /** @return the sum of the piece-square values of the player's pieces. **/
+  public double positionValue(){return positionValue;}
+
+  /**
+   * @param colour a player.
+   * @return the ordinal of the position of that player's King, or -1 if it has been taken.
+   * **/
+  public int kingSquare(Colour colour){return kings[colour.ordinal()];}
+
+  /**
+   * Counts the moves of a player ending on a square, from the shared attack map.
+   * As in Board.isLegalMove, only the player whose turn it is may move,
+   * so the count is 0 for the other players.
+   * @param colour the attacking player.
+   * @param square the ordinal of the attacked position, or -1 for no position.
+   * @return the number of legal moves of the player ending on the square.
+   * **/
+  public int attacks(Colour colour, int square){
+    return colour==turn && square>=0 ? attacks[colour.ordinal()][square] : 0;
+  }
+
+  /**
+   * Gets the moves of the player, if it is the player's turn.
+   * @param dest an array of at least MoveGenerator.MAX_MOVES elements to copy the encoded moves to.
+   * @return the number of moves copied.
+   * **/
+  public int getMoves(int[] dest){
+    if(player!=turn) return 0;
+    int c = player.ordinal();
+    System.arraycopy(moves[c], 0, dest, 0, moveCount[c]);
+    return moveCount[c];
+  }
+
+  /**
+   * Finds a move of the player that takes another player's King, if it is the player's turn.
+   * @param victim the player whose King is taken.
+   * @return the encoded move, or -1 if there is none.
+   * **/
+  public int kingCapture(Colour victim){
+    int king = kings[victim.ordinal()];
+    if(player!=turn || king<0) return -1;
+    int c = player.ordinal();
+    for(int i = 0; i<moveCount[c]; i++) if(moves[c][i]%96==king) return moves[c][i];
+    return -1;
+  }
+
+  /**
+   * @param move an encoded legal move of the player.
+   * @return the change in the player's score from making the move.
+   * **/
+  public int scoreDelta(int move){
+    Piece mover = squares[move/96], taken = squares[move%96];
+    int delta = taken==null ? 0 : taken.getValue();
+    if(promotes(mover, move%96)) delta += PieceType.QUEEN.getValue()-mover.getValue();
+    return delta;
+  }
+
+  /**
+   * @param move an encoded legal move of the player.
+   * @return the change in the sum of the player's piece-square values from making the move.
+   * **/
+  public double positionDelta(int move){
+    int from = move/96, to = move%96, c = player.ordinal();
+    Piece mover = squares[from];
+    int type = promotes(mover, to) ? PieceType.QUEEN.ordinal() : mover.getType().ordinal();
+    double delta = tables.value(type, c, to)-tables.value(mover.getType().ordinal(), c, from);
+    int rookFrom = castlingRook(move);
+    if(rookFrom>=0){
+      int rook = PieceType.ROOK.ordinal();
+      delta += tables.value(rook, c, castledRook(rookFrom))-tables.value(rook, c, rookFrom);
+    }
+    return delta;
+  }
+
+  /**
+   * Counts the moves of an opponent that would take the player's King after the player makes a move.
+   * Unless the King itself moves, this is found from the shared attack map and the rays to the King,
+   * without generating any moves.
+   * @param move an encoded legal move of the player.
+   * @param attacker the opponent.
+   * @return the number of the opponent's moves ending on the player's King after the move.
+   * **/
+  public int kingAttacksAfter(int move, Colour attacker){
+    int from = move/96, to = move%96, c = attacker.ordinal();
+    if(c==player.ordinal() || kings[player.ordinal()]<0) return 0;
+    if(from==kings[player.ordinal()]) return kingMoveAttacks(move, attacker);
+    int count = steppers[c];
+    if(squares[to]!=null && squares[to].getColour()==attacker && squares[to].getType()!=PieceType.QUEEN
+        && squares[to].getType()!=PieceType.ROOK && squares[to].getType()!=PieceType.BISHOP
+        && takes(c, to*96+kings[player.ordinal()]))
+      count--;//the attacker is taken
+    long occ0 = occupied0, occ1 = occupied1;
+    if(from<64) occ0 &= ~(1L<<from); else occ1 &= ~(1L<<(from-64));
+    if(to<64) occ0 |= 1L<<to; else occ1 |= 1L<<(to-64);
+    int last = -1;
+    for(int i = 0; i<sliders[c]; i++){
+      int sq = sliderSquares[c][i];
+      if(sq==to || sq==last) continue;//the slider is taken, or already counted along another ray
+      if((paths0[c][i]&occ0)==0 && (paths1[c][i]&occ1)==0){
+        count++;
+        last = sq;
+      }
+    }
+    return count;
+  }
+
+  //counts the attacks on the King after it moves, by making the move
+  private int kingMoveAttacks(int move, Colour attacker){
+    int from = move/96, to = move%96;
+    Piece king = squares[from], taken = squares[to];
+    int rookFrom = castlingRook(move), rookTo = -1;
+    squares[from] = null;
+    squares[to] = king;
+    if(rookFrom>=0){
+      rookTo = castledRook(rookFrom);
+      squares[rookTo] = squares[rookFrom];
+      squares[rookFrom] = null;
+    }
+    int n = MoveGenerator.generate(squares, attacker, scratch);
+    int count = 0;
+    for(int i = 0; i<n; i++) if(scratch[i]%96==to) count++;
+    if(rookFrom>=0){
+      squares[rookFrom] = squares[rookTo];
+      squares[rookTo] = null;
+    }
+    squares[from] = king;
+    squares[to] = taken;
+    return count;
+  }
+
+  /**
+   * @return true if the piece is a pawn that is promoted to a Queen by moving to the square, as in Board.move.
+   * **/
+  public static boolean promotes(Piece mover, int to){
+    return mover.getType()==PieceType.PAWN && (to&3)==0 && to/32!=mover.getColour().ordinal();
+  }
+
+  /**
+   * Finds the Rook moved by a castling move, as in Board.move.
+   * @param move an encoded move, which must be legal.
+   * @return the ordinal of the square the Rook moves from, or -1 if the move is not castling.
+   * **/
+  public int castlingRook(int move){
+    int from = move/96, to = move%96;
+    Piece mover = squares[from];
+    if(mover.getType()!=PieceType.KING || (from&3)!=0 || (from>>2&7)!=4) return -1;
+    int rank = 32*mover.getColour().ordinal();//column c of the back rank is at rank+4*c
+    if(to==rank+8 && squares[rank]!=null) return rank;
+    if(to==rank+24 && squares[rank+28]!=null) return rank+28;
+    return -1;
+  }
+
+  //the square a castling Rook moves to
+  private static int castledRook(int rookFrom){
+    return (rookFrom&31)==0 ? rookFrom+12 : rookFrom-8;
+  }
+}
@@ -0,0 +1,388 @@
+package threeChess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A store of recorded games that can be queried by position.
+ * It is a file of game records, written by GameRecordWriter, and an index built from it,
+ * which lists every position reached in every game by its Board.hash,
+ * with the game, the number of moves before it, and the move played from it.
+ * The index is sorted by hash and mapped into memory, so finding a position is a binary search of the mapping,
+ * and nothing is read from disk but the pages touched.
+ * <p>
+ * The index file starts with the bytes of MAGIC, the version, the hash of the initial position
+ * (to detect a change of Zobrist keys), the number of games and the number of entries.
+ * Then for each game there is the offset of its record, its three scores, its Termination and its number of moves,
+ * and then the entries, each a hash followed by the game number, the move number, and the start and end of the move,
+ * sorted by hash, then game, then move number.
+ * **/
+public final class GameDatabase implements Closeable{
+
+  /**The bytes at the start of an index file**/
+  public static final byte[] MAGIC = {'3','C','G','I'};
+  /**The version of the index format**/
+  public static final int VERSION = 1;
+  private static final int HEADER_SIZE = 28;//magic, version, initial hash, game count, entry count
+  private static final int GAME_SIZE = 12;//record offset, three scores, termination, move count
+  private static final int ENTRY_SIZE = 16;//hash, game, move number, start, end
+  private static final int SEGMENT_ENTRIES = 1<<26;//the entries in each mapping of the index, as a mapping is at most 2GB
+  private static final int CHUNK_ENTRIES = 1<<22;//the entries sorted in memory at once while building
+  private static final int NO_MOVE = 0xff;//the start and end of the entry for the last position of a game
+  private static final int MAX_PLY = 0xffff;//positions after this many moves are not indexed
+
+  private final GameRecordReader records;
+  private final FileChannel channel;
+  private final int gameCount;
+  private final long entryCount;
+  private final MappedByteBuffer games;
+  private final MappedByteBuffer[] entries;
+
+  /**
+   * Opens a database of games.
+   * @param recordFile the file of game records.
+   * @param indexFile the index built from it by build.
+   * @throws IOException if either file cannot be read, or the index is incomplete or out of date.
+   * **/
+  public GameDatabase(File recordFile, File indexFile) throws IOException{
+    records = new GameRecordReader(recordFile);
+    try{
+      channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+    }catch(IOException e){
+      records.close();
+      throw e;
+    }
+    try{
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while(header.hasRemaining() && channel.read(header, header.position())>=0);
+      header.flip();
+      byte[] magic = new byte[MAGIC.length];
+      if(header.remaining()<HEADER_SIZE) throw new IOException(indexFile+" is not a game index");
+      header.get(magic);
+      if(!Arrays.equals(magic, MAGIC)) throw new IOException(indexFile+" is not a game index");
+      int version = header.getInt();
+      if(version!=VERSION) throw new IOException(indexFile+" has unsupported version "+version);
+      if(header.getLong()!=new Board(0).hash()) throw new IOException(indexFile+" was built with different Zobrist keys");
+      gameCount = header.getInt();
+      entryCount = header.getLong();
+      long entriesStart = HEADER_SIZE+(long)gameCount*GAME_SIZE;
+      if(channel.size()!=entriesStart+entryCount*ENTRY_SIZE) throw new IOException(indexFile+" is incomplete");
+      games = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long)gameCount*GAME_SIZE);
+      entries = new MappedByteBuffer[(int) ((entryCount+SEGMENT_ENTRIES-1)/SEGMENT_ENTRIES)];
+      for(int s = 0; s<entries.length; s++){
+        long first = (long)s*SEGMENT_ENTRIES;
+        long count = Math.min(SEGMENT_ENTRIES, entryCount-first);
+        entries[s] = channel.map(FileChannel.MapMode.READ_ONLY, entriesStart+first*ENTRY_SIZE, count*ENTRY_SIZE);
+      }
+    }catch(IOException e){
+      close();
+      throw e;
+    }
+  }
+
+  /** @return the number of games in the database. **/
+  public int getGameCount(){return gameCount;}
+
+  /** @return the number of positions indexed, counting each time a position was reached. **/
+  public long getEntryCount(){return entryCount;}
+
+  /**
+   * @param game the number of a game, from 0, in the order the games were recorded.
+   * @return the record of the game.
+   * @throws ArrayIndexOutOfBoundsException if there is no such game.
+   * **/
+  public GameRecord getGame(int game){
+    if(game<0 || game>=gameCount) throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
+    return records.get(games.getInt(game*GAME_SIZE));
+  }
+
+  /**
+   * @param hash the hash of a position, as given by Board.hash.
+   * @return true if the position was reached in any game.
+   * **/
+  public boolean contains(long hash){
+    long i = lowerBound(hash);
+    return i<entryCount && hashAt(i)==hash;
+  }
+
+  /**
+   * Gathers what the database knows about a position.
+   * @param board the position.
+   * @return the games, outcomes and moves played from the position, which are empty if it was never reached.
+   * **/
+  public PositionStats lookup(Board board){
+    return lookup(board.hash());
+  }
+
+  /**
+   * Gathers what the database knows about a position.
+   * @param hash the hash of the position, as given by Board.hash.
+   * @return the games, outcomes and moves played from the position, which are empty if it was never reached.
+   * **/
+  public PositionStats lookup(long hash){
+    int occurrences = 0, gameTotal = 0;
+    int[] found = new int[8];
+    int[][] outcomes = new int[3][3];
+    Map<Integer, int[]> moves = new LinkedHashMap<Integer, int[]>();//move to count, wins, losses, draws
+    for(long i = lowerBound(hash); i<entryCount && hashAt(i)==hash; i++){
+      long payload = payloadAt(i);
+      int game = (int) (payload>>>32), ply = (int) (payload>>>16) & 0xffff;
+      int start = (int) (payload>>>8) & 0xff, end = (int) payload & 0xff;
+      occurrences++;
+      if(gameTotal==0 || found[gameTotal-1]!=game){//entries of a game are together
+        if(gameTotal==found.length) found = Arrays.copyOf(found, 2*gameTotal);
+        found[gameTotal++] = game;
+        for(int c = 0; c<3; c++) outcomes[c][outcome(game, c)]++;
+      }
+      if(start!=NO_MOVE){
+        int[] counts = moves.computeIfAbsent(start*96+end, k -> new int[4]);
+        counts[0]++;
+        counts[1+outcome(game, ply%3)]++;//the mover, as each move passes the turn on
+      }
+    }
+    List<PositionStats.MoveStats> moveStats = new ArrayList<PositionStats.MoveStats>();
+    Position[] positions = Position.values();
+    for(Map.Entry<Integer, int[]> e: moves.entrySet()){
+      int[] c = e.getValue();
+      moveStats.add(new PositionStats.MoveStats(positions[e.getKey()/96], positions[e.getKey()%96], c[0], c[1], c[2], c[3]));
+    }
+    moveStats.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+    return new PositionStats(hash, occurrences, Arrays.copyOf(found, gameTotal), outcomes, moveStats);
+  }
+
+  //0 if the player won the game, 1 if they lost, 2 if they drew
+  private int outcome(int game, int colour){
+    int score = games.get(game*GAME_SIZE+4+colour);
+    return score>0 ? 0 : score<0 ? 1 : 2;
+  }
+
+  //the index of the first entry with a hash at least the given hash
+  private long lowerBound(long hash){
+    long lo = 0, hi = entryCount;
+    while(lo<hi){
+      long mid = (lo+hi)>>>1;
+      if(hashAt(mid)<hash) lo = mid+1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  private long hashAt(long i){
+    return entries[(int) (i/SEGMENT_ENTRIES)].getLong((int) (i%SEGMENT_ENTRIES)*ENTRY_SIZE);
+  }
+
+  private long payloadAt(long i){
+    return entries[(int) (i/SEGMENT_ENTRIES)].getLong((int) (i%SEGMENT_ENTRIES)*ENTRY_SIZE+8);
+  }
+
+  /**
+   * Closes the files. Records already read remain usable until the mappings are garbage collected.
+   * @throws IOException if the files cannot be closed.
+   * **/
+  public void close() throws IOException{
+    try{
+      channel.close();
+    }finally{
+      records.close();
+    }
+  }
+
+  /**
+   * Builds the index of a file of game records, replaying every game to find the positions reached.
+   * Entries are sorted in chunks in memory and the chunks merged, so the index may be larger than memory.
+   * @param recordFile the file of game records.
+   * @param indexFile the index file to write, replacing any existing file.
+   * @throws IOException if a file cannot be read or written, or a recorded move is not legal.
+   * **/
+  public static void build(File recordFile, File indexFile) throws IOException{
+    List<File> chunks = new ArrayList<File>();
+    try(GameRecordReader reader = new GameRecordReader(recordFile)){
+      int[] offsets = reader.offsets();
+      ByteBuffer table = ByteBuffer.allocate(offsets.length*GAME_SIZE);
+      long[] hashes = new long[CHUNK_ENTRIES], payloads = new long[CHUNK_ENTRIES];
+      int n = 0;
+      long entryCount = 0;
+      for(int g = 0; g<offsets.length; g++){
+        GameRecord game = reader.get(offsets[g]);
+        table.putInt(offsets[g]);
+        for(Colour c: Colour.values()) table.put((byte) game.getResult(c));
+        table.put((byte) game.getTermination().ordinal());
+        table.putInt(game.getMoveCount());
+        Board board = new Board(game.getTimeLimit());
+        int moveCount = game.getMoveCount();
+        for(int i = 0; i<=moveCount && board.getMoveCount()<=MAX_PLY; i++){
+          long hash = board.hash();
+          int ply = board.getMoveCount();
+          int start = NO_MOVE, end = NO_MOVE;
+          if(i<moveCount){
+            Position[] move = game.getMove(i);
+            try{
+              board.move(move[0], move[1], game.getTime(i));
+            }catch(ImpossiblePositionException e){throw new IOException("Game "+g+" is not legal: "+e.getMessage());}
+            if(board.getMoveCount()==ply) continue;//the mover ran out of time, so this is still the last position
+            start = move[0].ordinal();
+            end = move[1].ordinal();
+          }
+          if(n==CHUNK_ENTRIES){
+            chunks.add(writeChunk(hashes, payloads, n));
+            n = 0;
+          }
+          hashes[n] = hash;
+          payloads[n++] = (long)g<<32 | (long)ply<<16 | start<<8 | end;
+          entryCount++;
+        }
+      }
+      if(!chunks.isEmpty()) chunks.add(writeChunk(hashes, payloads, n));
+      else sort(hashes, payloads, 0, n);
+      try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 1<<16))){
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(new Board(0).hash());
+        out.writeInt(offsets.length);
+        out.writeLong(entryCount);
+        out.write(table.array());
+        if(chunks.isEmpty()){
+          for(int i = 0; i<n; i++){
+            out.writeLong(hashes[i]);
+            out.writeLong(payloads[i]);
+          }
+        }
+        else merge(chunks, out);
+      }
+    }finally{
+      for(File chunk: chunks) chunk.delete();
+    }
+  }
+
+  //sorts entries and writes them to a temporary file
+  private static File writeChunk(long[] hashes, long[] payloads, int n) throws IOException{
+    sort(hashes, payloads, 0, n);
+    File chunk = File.createTempFile("threeChess-index", ".chunk");
+    chunk.deleteOnExit();
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(chunk), 1<<16))){
+      for(int i = 0; i<n; i++){
+        out.writeLong(hashes[i]);
+        out.writeLong(payloads[i]);
+      }
+    }
+    return chunk;
+  }
+
+  /** The next entry of a sorted chunk, while merging. **/
+  private static class ChunkReader{
+    private final DataInputStream in;
+    private long hash;
+    private long payload;
+
+    private ChunkReader(File chunk) throws IOException{
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(chunk), 1<<16));
+    }
+
+    /** Reads the next entry, returning false and closing the chunk at the end. **/
+    private boolean next() throws IOException{
+      try{
+        hash = in.readLong();
+        payload = in.readLong();
+        return true;
+      }catch(EOFException e){
+        in.close();
+        return false;
+      }
+    }
+  }
+
+  //merges sorted chunks into the index
+  private static void merge(List<File> chunks, DataOutputStream out) throws IOException{
+    PriorityQueue<ChunkReader> queue = new PriorityQueue<ChunkReader>(chunks.size(),
+        (a, b) -> a.hash!=b.hash ? Long.compare(a.hash, b.hash) : Long.compare(a.payload, b.payload));
+    try{
+      for(File chunk: chunks){
+        ChunkReader reader = new ChunkReader(chunk);
+        if(reader.next()) queue.add(reader);
+      }
+      while(!queue.isEmpty()){
+        ChunkReader reader = queue.poll();
+        out.writeLong(reader.hash);
+        out.writeLong(reader.payload);
+        if(reader.next()) queue.add(reader);
+      }
+    }finally{
+      for(ChunkReader reader: queue) reader.in.close();
+    }
+  }
+
+  //sorts entries from index from up to index to by hash, then payload
+  private static void sort(long[] hashes, long[] payloads, int from, int to){
+    while(to-from>16){
+      int mid = (from+to)>>>1;
+      //median of three as the pivot
+      if(less(hashes, payloads, mid, from)) swap(hashes, payloads, mid, from);
+      if(less(hashes, payloads, to-1, from)) swap(hashes, payloads, to-1, from);
+      if(less(hashes, payloads, to-1, mid)) swap(hashes, payloads, to-1, mid);
+      long pivotHash = hashes[mid], pivotPayload = payloads[mid];
+      int i = from, j = to-1;
+      while(i<=j){
+        while(compare(hashes[i], payloads[i], pivotHash, pivotPayload)<0) i++;
+        while(compare(hashes[j], payloads[j], pivotHash, pivotPayload)>0) j--;
+        if(i<=j) swap(hashes, payloads, i++, j--);
+      }
+      if(j-from<to-i){//recurse into the smaller part
+        sort(hashes, payloads, from, j+1);
+        from = i;
+      }else{
+        sort(hashes, payloads, i, to);
+        to = j+1;
+      }
+    }
+    for(int i = from+1; i<to; i++)
+      for(int j = i; j>from && less(hashes, payloads, j, j-1); j--) swap(hashes, payloads, j, j-1);
+  }
+
+  private static int compare(long hashA, long payloadA, long hashB, long payloadB){
+    return hashA!=hashB ? Long.compare(hashA, hashB) : Long.compare(payloadA, payloadB);
+  }
+
+  private static boolean less(long[] hashes, long[] payloads, int a, int b){
+    return compare(hashes[a], payloads[a], hashes[b], payloads[b])<0;
+  }
+
+  private static void swap(long[] hashes, long[] payloads, int a, int b){
+    long h = hashes[a]; hashes[a] = hashes[b]; hashes[b] = h;
+    long p = payloads[a]; payloads[a] = payloads[b]; payloads[b] = p;
+  }
+
+  /**
+   * Builds the index of a file of game records.
+   * Run with the record file and the index file to write.
+   * **/
+  public static void main(String[] args) throws IOException{
+    if(args.length<2){
+      System.out.println("Usage: GameDatabase recordFile indexFile");
+      return;
+    }
+    long start = System.currentTimeMillis();
+    build(new File(args[0]), new File(args[1]));
+    try(GameDatabase db = new GameDatabase(new File(args[0]), new File(args[1]))){
+      System.out.println("Indexed "+db.getEntryCount()+" positions of "+db.getGameCount()+" games in "
+          +(System.currentTimeMillis()-start)+"ms");
+    }
+  }
+}
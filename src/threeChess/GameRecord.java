@@ -0,0 +1,151 @@
+package threeChess;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A game in the compact binary record format written by GameRecordWriter and read by GameRecordReader.
+ * A record holds the names of the players, the time limit, the result and how the game ended,
+ * and every move given to Board.move with the time it took,
+ * so replaying the record reconstructs the board exactly, including its history and the time left.
+ * <p>
+ * The body of a record is:
+ * the three player names in the order blue, green, red, each as a varint length and UTF-8 bytes;
+ * the time limit in milliseconds as a varint; 
+ * the three scores as signed bytes; the ordinal of the Termination as a byte;
+ * the number of moves as a varint; 
+ * two bytes for each move, the ordinals of the start and end positions;
+ * and a varint for each move, the milliseconds it took.
+ * Varints are unsigned, seven bits a byte, least significant first, with the top bit set on all but the last byte.
+ * The moves are not interleaved with the times so that any move can be read directly.
+ * <p>
+ * A record read from a file is a view of the mapped file, and the moves and times are only decoded when asked for.
+ * **/
+public final class GameRecord{
+
+  private static final Position[] POSITIONS = Position.values();
+
+  private final ByteBuffer body;//positioned at the start of the record body
+  private final String[] players = new String[3];
+  private final int timeLimit;
+  private final int[] results = new int[3];
+  private final Termination termination;
+  private final int moveCount;
+  private final int movesOffset;//the offset of the moves in the body
+  private int[] times;//decoded when first needed
+
+  /**
+   * Reads the header of a record.
+   * @param body the body of a record, from its position to its limit, which is not modified.
+   * @throws IllegalArgumentException if the body is not a well formed record.
+   * **/
+  GameRecord(ByteBuffer body){
+    this.body = body.slice();
+    ByteBuffer in = this.body.duplicate();
+    try{
+      for(int c = 0; c<3; c++){
+        byte[] name = new byte[readVarint(in)];
+        in.get(name);
+        players[c] = new String(name, StandardCharsets.UTF_8);
+      }
+      timeLimit = readVarint(in);
+      for(int c = 0; c<3; c++) results[c] = in.get();
+      int t = in.get();
+      if(t<0 || t>=Termination.values().length) throw new IllegalArgumentException("Unknown termination "+t);
+      termination = Termination.values()[t];
+      moveCount = readVarint(in);
+      movesOffset = in.position();
+      if(moveCount<0 || movesOffset+2L*moveCount>in.limit()) throw new IllegalArgumentException("Truncated moves");
+    }catch(java.nio.BufferUnderflowException e){throw new IllegalArgumentException("Truncated game record");}
+  }
+
+  /**
+   * @param colour the colour of a player.
+   * @return the name of the agent playing that colour.
+   * **/
+  public String getPlayer(Colour colour){return players[colour.ordinal()];}
+
+  /** @return the time each player had for the game, in milliseconds, as given to the Board constructor. **/
+  public int getTimeLimit(){return timeLimit;}
+
+  /**
+   * @param colour the colour of a player.
+   * @return the player's score for the game, as returned by ThreeChess.play.
+   * **/
+  public int getResult(Colour colour){return results[colour.ordinal()];}
+
+  /** @return how the game ended. **/
+  public Termination getTermination(){return termination;}
+
+  /** 
+   * @return the number of moves given to Board.move, 
+   * which is one more than the moves in the board's history if the last move ran out of time. 
+   * **/
+  public int getMoveCount(){return moveCount;}
+
+  /**
+   * @param index the index of the move, from 0.
+   * @return an array containing the start position and the end position of the move, in that order.
+   * @throws ArrayIndexOutOfBoundsException if the index does not correspond to a move.
+   * **/
+  public Position[] getMove(int index){
+    if(index<0 || index>=moveCount) throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
+    int offset = movesOffset+2*index;
+    return new Position[]{position(body.get(offset)), position(body.get(offset+1))};
+  }
+
+  /**
+   * @param index the index of the move, from 0.
+   * @return the milliseconds the move took, as given to Board.move.
+   * @throws ArrayIndexOutOfBoundsException if the index does not correspond to a move.
+   * **/
+  public int getTime(int index){
+    if(index<0 || index>=moveCount) throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
+    if(times==null){
+      ByteBuffer in = body.duplicate();
+      in.position(movesOffset+2*moveCount);
+      int[] decoded = new int[moveCount];
+      for(int i = 0; i<moveCount; i++) decoded[i] = readVarint(in);
+      times = decoded;
+    }
+    return times[index];
+  }
+
+  /**
+   * Replays the game on a new board, making each move as it was made in the game.
+   * @return the board at the end of the game.
+   * @throws ImpossiblePositionException if a move in the record is not legal.
+   * **/
+  public Board replay() throws ImpossiblePositionException{
+    Board board = new Board(timeLimit);
+    for(int i = 0; i<moveCount; i++){
+      Position[] move = getMove(i);
+      board.move(move[0], move[1], getTime(i));
+    }
+    return board;
+  }
+
+  /** @return the body of the record, from its position to its limit. **/
+  ByteBuffer body(){return body.duplicate();}
+
+  private static Position position(byte ordinal){
+    int p = ordinal & 0xff;
+    if(p>=96) throw new IllegalArgumentException("Not a position: "+p);
+    return POSITIONS[p];
+  }
+
+  /**
+   * Reads an unsigned varint.
+   * @param in the buffer to read from, which is advanced past the varint.
+   * @return the value read.
+   * **/
+  static int readVarint(ByteBuffer in){
+    int value = 0;
+    for(int shift = 0; shift<35; shift += 7){
+      byte b = in.get();
+      value |= (b & 0x7f)<<shift;
+      if(b>=0) return value;
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+}
@@ -0,0 +1,150 @@
+package threeChess;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a file of binary game records written by GameRecordWriter, for analysing many games at once.
+ * The file is mapped into memory rather than read, and each record is a view of the mapping,
+ * so iterating over the games copies nothing but the player names,
+ * and the moves of a game are only decoded if they are asked for.
+ * A record left incomplete at the end of the file, by a writer that was stopped, is ignored.
+ * Files are limited to 2GB, the most that can be mapped at once.
+ * **/
+public final class GameRecordReader implements Iterable<GameRecord>, Closeable{
+
+  private final FileChannel channel;
+  private final MappedByteBuffer mapped;
+
+  /**
+   * Opens and maps a file of game records.
+   * @param file the file to read.
+   * @throws IOException if the file cannot be read, is too large, or is not a file of game records.
+   * **/
+  public GameRecordReader(File file) throws IOException{
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try{
+      if(channel.size()>Integer.MAX_VALUE) throw new IOException(file+" is too large to map");
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      byte[] magic = new byte[GameRecordWriter.MAGIC.length];
+      if(mapped.remaining()<magic.length+1) throw new IOException(file+" is not a file of game records");
+      mapped.get(magic);
+      if(!Arrays.equals(magic, GameRecordWriter.MAGIC)) throw new IOException(file+" is not a file of game records");
+      int version = mapped.get();
+      if(version!=GameRecordWriter.VERSION) throw new IOException(file+" has unsupported version "+version);
+    }catch(IOException e){
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Iterates over the games in the file, in the order they were written.
+   * Each iterator reads the file independently.
+   * @return an iterator over the records.
+   * @throws IllegalArgumentException from next, if a record is not well formed.
+   * **/
+  public Iterator<GameRecord> iterator(){
+    ByteBuffer in = mapped.duplicate();
+    return new Iterator<GameRecord>(){
+      private int next = -1;//the length of the next record, once found
+
+      public boolean hasNext(){
+        if(next>=0) return true;
+        int start = in.position();
+        try{
+          int length = GameRecord.readVarint(in);
+          if(length>=0 && length<=in.remaining()){
+            next = length;
+            return true;
+          }
+        }catch(java.nio.BufferUnderflowException e){}
+        in.position(start);//an incomplete record
+        return false;
+      }
+
+      public GameRecord next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        ByteBuffer body = in.slice();
+        body.limit(next);
+        in.position(in.position()+next);
+        next = -1;
+        return new GameRecord(body);
+      }
+    };
+  }
+
+  /**
+   * Counts the games in the file, skipping over each record without reading it.
+   * @return the number of complete records.
+   * **/
+  public int count(){
+    ByteBuffer in = mapped.duplicate();
+    int count = 0;
+    try{
+      while(in.hasRemaining()){
+        int length = GameRecord.readVarint(in);
+        if(length<0 || length>in.remaining()) break;
+        in.position(in.position()+length);
+        count++;
+      }
+    }catch(java.nio.BufferUnderflowException e){}//an incomplete record
+    return count;
+  }
+
+  /**
+   * Finds where each complete record starts in the file, skipping over each record without reading it,
+   * so the records can be read in any order with get.
+   * @return the offsets of the records, in the order they were written.
+   * **/
+  public int[] offsets(){
+    ByteBuffer in = mapped.duplicate();
+    int[] offsets = new int[16];
+    int count = 0;
+    try{
+      while(in.hasRemaining()){
+        int offset = in.position();
+        int length = GameRecord.readVarint(in);
+        if(length<0 || length>in.remaining()) break;
+        in.position(in.position()+length);
+        if(count==offsets.length) offsets = Arrays.copyOf(offsets, 2*count);
+        offsets[count++] = offset;
+      }
+    }catch(java.nio.BufferUnderflowException e){}//an incomplete record
+    return Arrays.copyOf(offsets, count);
+  }
+
+  /**
+   * Reads the record starting at an offset in the file.
+   * @param offset the offset of the record, as given by offsets.
+   * @return the record.
+   * @throws IllegalArgumentException if there is no complete, well formed record at the offset.
+   * **/
+  public GameRecord get(int offset){
+    ByteBuffer in = mapped.duplicate();
+    try{
+      in.position(offset);
+      int length = GameRecord.readVarint(in);
+      if(length<0 || length>in.remaining()) throw new IllegalArgumentException("No complete record at "+offset);
+      ByteBuffer body = in.slice();
+      body.limit(length);
+      return new GameRecord(body);
+    }catch(java.nio.BufferUnderflowException e){throw new IllegalArgumentException("No complete record at "+offset);}
+  }
+
+  /**
+   * Closes the file. Records already read remain usable until the mapping is garbage collected.
+   * @throws IOException if the file cannot be closed.
+   * **/
+  public void close() throws IOException{
+    channel.close();
+  }
+}
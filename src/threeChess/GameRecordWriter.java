@@ -0,0 +1,158 @@
+package threeChess;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes games to a file of binary game records, as they are played.
+ * The file starts with the bytes of MAGIC and a version byte,
+ * followed by each game as a varint length and a record body in the format described by GameRecord.
+ * The moves of the game being played are kept in memory until it ends,
+ * and records are written through a large buffer, so recording costs little more than copying the moves.
+ * A writer records one game at a time, and is not safe for use by several threads.
+ * **/
+public final class GameRecordWriter implements Closeable{
+
+  /**The bytes at the start of a file of game records**/
+  public static final byte[] MAGIC = {'3','C','G','R'};
+  /**The version of the format written**/
+  public static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 1<<16;
+
+  private final OutputStream out;
+  private final ByteArrayOutputStream header = new ByteArrayOutputStream();//the players and time limit of the game being played
+  private final ByteArrayOutputStream moves = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream times = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream prefix = new ByteArrayOutputStream(5);
+  private int moveCount = -1;//the number of moves of the game being played, or -1 if none is being played
+
+  /**
+   * Creates a file of game records, replacing any existing file.
+   * @param file the file to write.
+   * @throws IOException if the file cannot be created.
+   * **/
+  public GameRecordWriter(File file) throws IOException{
+    this(new FileOutputStream(file));
+  }
+
+  /**
+   * Writes game records to a stream.
+   * @param stream the stream to write to, which is closed when the writer is closed.
+   * @throws IOException if the stream cannot be written.
+   * **/
+  public GameRecordWriter(OutputStream stream) throws IOException{
+    out = new BufferedOutputStream(stream, BUFFER_SIZE);
+    out.write(MAGIC);
+    out.write(VERSION);
+  }
+
+  /**
+   * Starts recording a game.
+   * @param blue the name of the agent playing the blue pieces.
+   * @param green the name of the agent playing the green pieces.
+   * @param red the name of the agent playing the red pieces.
+   * @param timeLimit the time each player has for the game, in milliseconds, as given to the Board constructor.
+   * @throws IllegalStateException if a game is already being recorded.
+   * **/
+  public void startGame(String blue, String green, String red, int timeLimit){
+    if(moveCount>=0) throw new IllegalStateException("The last game has not ended.");
+    header.reset(); moves.reset(); times.reset();
+    for(String name: new String[]{blue, green, red}){
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      writeVarint(header, bytes.length);
+      header.write(bytes, 0, bytes.length);
+    }
+    writeVarint(header, timeLimit);
+    moveCount = 0;
+  }
+
+  /**
+   * Records a move of the game, as given to Board.move.
+   * @param start the starting position of the move.
+   * @param end the ending position of the move.
+   * @param time the number of milliseconds taken to play the move.
+   * @throws IllegalStateException if no game is being recorded.
+   * **/
+  public void move(Position start, Position end, int time){
+    if(moveCount<0) throw new IllegalStateException("No game has been started.");
+    moves.write(start.ordinal());
+    moves.write(end.ordinal());
+    writeVarint(times, time);
+    moveCount++;
+  }
+
+  /**
+   * Ends the game being recorded and writes its record.
+   * @param results the scores for blue, green and red, in that order, as returned by ThreeChess.play.
+   * @param termination how the game ended.
+   * @throws IOException if the record cannot be written.
+   * @throws IllegalStateException if no game is being recorded.
+   * **/
+  public void endGame(int[] results, Termination termination) throws IOException{
+    if(moveCount<0) throw new IllegalStateException("No game has been started.");
+    record.reset();
+    header.writeTo(record);
+    for(int c = 0; c<3; c++) record.write(results[c]);
+    record.write(termination.ordinal());
+    writeVarint(record, moveCount);
+    moves.writeTo(record);
+    times.writeTo(record);
+    writeLength(record.size());
+    record.writeTo(out);
+    moveCount = -1;
+  }
+
+  /**
+   * Writes a record that has already been made, such as one read from another file.
+   * @param game the record to write.
+   * @throws IOException if the record cannot be written.
+   * @throws IllegalStateException if a game is being recorded.
+   * **/
+  public void write(GameRecord game) throws IOException{
+    if(moveCount>=0) throw new IllegalStateException("The last game has not ended.");
+    ByteBuffer body = game.body();
+    writeLength(body.remaining());
+    if(body.hasArray()) out.write(body.array(), body.arrayOffset()+body.position(), body.remaining());
+    else while(body.hasRemaining()) out.write(body.get());
+  }
+
+  /**
+   * Writes any buffered records to the file.
+   * @throws IOException if the records cannot be written.
+   * **/
+  public void flush() throws IOException{
+    out.flush();
+  }
+
+  /**
+   * Writes any buffered records and closes the file. A game still being recorded is not written.
+   * @throws IOException if the records cannot be written.
+   * **/
+  public void close() throws IOException{
+    out.close();
+  }
+
+  //writes the length of a record before it
+  private void writeLength(int length) throws IOException{
+    prefix.reset();
+    writeVarint(prefix, length);
+    prefix.writeTo(out);
+  }
+
+  //writes an unsigned varint
+  private static void writeVarint(ByteArrayOutputStream out, int value){
+    while((value & ~0x7f)!=0){
+      out.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
@@ -0,0 +1,46 @@
+package threeChess;
+
+/**
+ * The result of a game: the score of each player, and how the game ended.
+ * Scores are as returned by ThreeChess.play: +1 for a win, -1 for a loss, 0 for a draw,
+ * and -2 for attempting an illegal move.
+ * **/
+public final class GameResult{
+
+  private final int[] scores;//indexed by Colour ordinal
+  private final Termination termination;
+  private final int moves;
+
+  /**
+   * @param scores the scores of blue, green and red, in that order.
+   * @param termination how the game ended.
+   * @param moves the number of moves played.
+   * **/
+  public GameResult(int[] scores, Termination termination, int moves){
+    this.scores = scores.clone();
+    this.termination = termination;
+    this.moves = moves;
+  }
+
+  /** @return the scores of blue, green and red, in that order. **/
+  public int[] getScores(){return scores.clone();}
+
+  /**
+   * @param colour the colour of a player.
+   * @return the player's score for the game.
+   * **/
+  public int getScore(Colour colour){return scores[colour.ordinal()];}
+
+  /** @return how the game ended. **/
+  public Termination getTermination(){return termination;}
+
+  /** @return whether the result was decided by the rules for stopping a game, rather than by play. **/
+  public boolean isAdjudicated(){return termination.isAdjudicated();}
+
+  /** @return the number of moves played. **/
+  public int getMoves(){return moves;}
+
+  public String toString(){
+    return termination+" after "+moves+" moves, scores "+java.util.Arrays.toString(scores);
+  }
+}
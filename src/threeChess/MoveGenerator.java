@@ -0,0 +1,308 @@
+package threeChess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fast generation of legal moves, for agents that need many more moves than
+ * testing every pair of positions with Board.isLegalMove allows.
+ * The squares each piece can step to are precomputed from Board.step once,
+ * so generation only needs to look at the pieces on the board.
+ * Positions are stored as an array of 96 pieces indexed by Position ordinal,
+ * and a move is encoded as an int: from.ordinal()*96 + to.ordinal().
+ * The moves generated are exactly those Board.isLegalMove accepts,
+ * but for any colour, not just the player whose turn it is.
+ * **/
+public final class MoveGenerator{
+
+  /**An upper bound on the number of moves one player can have**/
+  public static final int MAX_MOVES = 1024;
+
+  private static final Position[] POSITIONS = Position.values();
+  private static final int[][] KNIGHT = new int[96][];//the squares a knight can step to from each square
+  private static final int[][] KING = new int[96][];//the squares a king can step to from each square, not castling
+  private static final int[][][] ROOK = new int[96][][];//for each square, the rays a rook can slide along
+  private static final int[][][] BISHOP = new int[96][][];
+  private static final int[][][] QUEEN = new int[96][][];
+  private static final int[][][] PAWN = new int[3][6][96];//the square reached by each pawn step, for each colour, or -1
+
+  static{
+    Board stepper = new Board(0);
+    for(Position p: POSITIONS){
+      int i = p.ordinal();
+      KNIGHT[i] = steps(stepper, new Piece(PieceType.KNIGHT, Colour.BLUE), p);
+      KING[i] = steps(stepper, new Piece(PieceType.KING, Colour.BLUE), p);
+      ROOK[i] = rays(stepper, new Piece(PieceType.ROOK, Colour.BLUE), p);
+      BISHOP[i] = rays(stepper, new Piece(PieceType.BISHOP, Colour.BLUE), p);
+      QUEEN[i] = rays(stepper, new Piece(PieceType.QUEEN, Colour.BLUE), p);
+      for(Colour c: Colour.values()){
+        Direction[][] steps = PieceType.PAWN.getSteps();
+        for(int s = 0; s<steps.length; s++){
+          try{
+            PAWN[c.ordinal()][s][i] = stepper.step(new Piece(PieceType.PAWN, c), steps[s], p).ordinal();
+          }catch(ImpossiblePositionException e){PAWN[c.ordinal()][s][i] = -1;}
+        }
+      }
+    }
+  }
+
+  private MoveGenerator(){}
+
+  //the distinct squares reached by a single step of the piece
+  private static int[] steps(Board stepper, Piece piece, Position start){
+    long[] seen = new long[2];
+    int[] tmp = new int[32]; int n = 0;
+    for(Direction[] step: piece.getType().getSteps()){
+      try{
+        int t = stepper.step(piece, step, start).ordinal();
+        if(mark(seen, t)) tmp[n++] = t;
+      }catch(ImpossiblePositionException e){}//step went off board
+    }
+    return java.util.Arrays.copyOf(tmp, n);
+  }
+
+  //the squares along each iterated step of the piece, as Board.isLegalMove iterates them
+  private static int[][] rays(Board stepper, Piece piece, Position start){
+    Direction[][] steps = piece.getType().getSteps();
+    int[][] rays = new int[steps.length][];
+    for(int s = 0; s<steps.length; s++){
+      int[] ray = new int[32]; int n = 0;
+      long[] seen = new long[2];
+      try{
+        Position tmp = stepper.step(piece, steps[s], start);
+        while(tmp!=start && mark(seen, tmp.ordinal()) && n<ray.length){//guards against rays that loop back on themselves
+          ray[n++] = tmp.ordinal();
+          tmp = stepper.step(piece, steps[s], tmp, tmp.getColour()!=start.getColour());
+        }
+      }catch(ImpossiblePositionException e){}//ray left the board
+      rays[s] = java.util.Arrays.copyOf(ray, n);
+    }
+    return rays;
+  }
+
+  //sets the bit for square i, returning false if it was already set
+  private static boolean mark(long[] bits, int i){
+    long bit = 1L<<(i&63);
+    if((bits[i>>6]&bit)!=0) return false;
+    bits[i>>6] |= bit;
+    return true;
+  }
+
+  /**
+   * The squares a sliding piece passes along from a square, ignoring any pieces in the way.
+   * @param type the type of the piece.
+   * @param from the ordinal of the square the piece is on.
+   * @return the squares along each ray, in order, or null if the piece does not slide.
+   * **/
+  static int[][] rays(PieceType type, int from){
+    switch(type){
+      case ROOK: return ROOK[from];
+      case BISHOP: return BISHOP[from];
+      case QUEEN: return QUEEN[from];
+      default: return null;
+    }
+  }
+
+  /**
+   * The squares a stepping piece reaches from a square, ignoring any pieces on them, and not castling.
+   * @param type the type of the piece.
+   * @param from the ordinal of the square the piece is on.
+   * @return the distinct squares reached, or null if the piece is not a Knight or King.
+   * **/
+  static int[] steps(PieceType type, int from){
+    switch(type){
+      case KNIGHT: return KNIGHT[from];
+      case KING: return KING[from];
+      default: return null;
+    }
+  }
+
+  /**
+   * The square a pawn step reaches from a square. Steps 0 and 1 move forward, the rest capture.
+   * @param colour the colour of the pawn.
+   * @param step the index of the step, in PieceType.PAWN.getSteps().
+   * @param from the ordinal of the square the pawn is on.
+   * @return the ordinal of the square reached, or -1 if the step leaves the board.
+   * **/
+  static int pawnStep(Colour colour, int step, int from){
+    return PAWN[colour.ordinal()][step][from];
+  }
+
+  /** @return the encoding of the move from start to end. **/
+  public static int move(Position start, Position end){
+    return start.ordinal()*96+end.ordinal();
+  }
+
+  /** @return the start position of an encoded move. **/
+  public static Position from(int move){
+    return POSITIONS[move/96];
+  }
+
+  /** @return the end position of an encoded move. **/
+  public static Position to(int move){
+    return POSITIONS[move%96];
+  }
+
+  /**
+   * Copies the pieces of a board into an array indexed by Position ordinal.
+   * @param board the board to copy.
+   * @return an array of 96 pieces, with null for vacant positions.
+   * **/
+  public static Piece[] squares(Board board){
+    Piece[] squares = new Piece[96];
+    for(Position p: POSITIONS) squares[p.ordinal()] = board.getPiece(p);
+    return squares;
+  }
+
+  /**
+   * Generates all legal moves for a player.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param colour the player to generate moves for.
+   * @param moves an array of at least MAX_MOVES elements to write the encoded moves to.
+   * @return the number of moves generated.
+   * **/
+  public static int generate(Piece[] squares, Colour colour, int[] moves){
+    int n = 0;
+    for(int from = 0; from<96; from++){
+      Piece p = squares[from];
+      if(p!=null && p.getColour()==colour) n = generate(squares, from, moves, n, false);
+    }
+    return n;
+  }
+
+  /**
+   * Generates the legal moves for a player that capture a piece.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param colour the player to generate moves for.
+   * @param moves an array of at least MAX_MOVES elements to write the encoded moves to.
+   * @return the number of moves generated.
+   * **/
+  public static int generateCaptures(Piece[] squares, Colour colour, int[] moves){
+    int n = 0;
+    for(int from = 0; from<96; from++){
+      Piece p = squares[from];
+      if(p!=null && p.getColour()==colour) n = generate(squares, from, moves, n, true);
+    }
+    return n;
+  }
+
+  /**
+   * Generates the legal moves of the piece on a square.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param from the ordinal of the position of the piece to move.
+   * @param moves the array to write the encoded moves to.
+   * @param n the index in moves to write the first move to.
+   * @param capturesOnly whether only moves that capture a piece should be generated.
+   * @return the index after the last move written.
+   * **/
+  public static int generate(Piece[] squares, int from, int[] moves, int n, boolean capturesOnly){
+    Piece mover = squares[from];
+    Colour mCol = mover.getColour();
+    int base = from*96;
+    switch(mover.getType()){
+      case PAWN:
+        long[] seen = new long[2];//diagonal steps may reach the same square
+        int[][] steps = PAWN[mCol.ordinal()];
+        for(int s = 0; s<6; s++){
+          int to = steps[s][from];
+          if(to<0) continue;
+          Piece target = squares[to];
+          boolean legal;
+          if(s==0) legal = target==null && !capturesOnly;
+          else if(s==1) legal = target==null && !capturesOnly && POSITIONS[from].getColour()==mCol && POSITIONS[from].getRow()==1
+            && squares[(from&~3)+2]==null;//the square in front must be vacant, as Board.isLegalMove requires
+          else legal = target!=null && target.getColour()!=mCol;
+          if(legal && mark(seen, to)) moves[n++] = base+to;
+        }
+        break;
+      case KNIGHT:
+        n = steps(squares, KNIGHT[from], mCol, base, moves, n, capturesOnly);
+        break;
+      case KING:
+        n = steps(squares, KING[from], mCol, base, moves, n, capturesOnly);
+        if(!capturesOnly && from==32*mCol.ordinal()+16){//castling, from the King's initial position
+          int rank = 32*mCol.ordinal();//column c of the back rank is rank+4*c
+          Piece rook = squares[rank+28];
+          if(rook!=null && rook.getType()==PieceType.ROOK && rook.getColour()==mCol
+              && squares[rank+20]==null && squares[rank+24]==null && !contains(KING[from], rank+24))
+            moves[n++] = base+rank+24;
+          rook = squares[rank];
+          if(rook!=null && rook.getType()==PieceType.ROOK && rook.getColour()==mCol
+              && squares[rank+4]==null && squares[rank+8]==null && squares[rank+12]==null && !contains(KING[from], rank+8))
+            moves[n++] = base+rank+8;
+        }
+        break;
+      case ROOK:
+        n = rays(squares, ROOK[from], mCol, base, moves, n, capturesOnly);
+        break;
+      case BISHOP:
+        n = rays(squares, BISHOP[from], mCol, base, moves, n, capturesOnly);
+        break;
+      default:
+        n = rays(squares, QUEEN[from], mCol, base, moves, n, capturesOnly);
+        break;
+    }
+    return n;
+  }
+
+  private static boolean contains(int[] squares, int square){
+    for(int s: squares) if(s==square) return true;
+    return false;
+  }
+
+  private static int steps(Piece[] squares, int[] targets, Colour mCol, int base, int[] moves, int n, boolean capturesOnly){
+    for(int to: targets){
+      Piece target = squares[to];
+      if(target==null ? !capturesOnly : target.getColour()!=mCol) moves[n++] = base+to;
+    }
+    return n;
+  }
+
+  private static int rays(Piece[] squares, int[][] rays, Colour mCol, int base, int[] moves, int n, boolean capturesOnly){
+    long seen0 = 0, seen1 = 0;//different rays may reach the same square
+    for(int[] ray: rays){
+      for(int to: ray){
+        Piece target = squares[to];
+        if(target==null ? !capturesOnly : target.getColour()!=mCol){
+          long bit = 1L<<(to&63);
+          if(to<64 ? (seen0&bit)==0 : (seen1&bit)==0){
+            if(to<64) seen0 |= bit; else seen1 |= bit;
+            moves[n++] = base+to;
+          }
+        }
+        if(target!=null) break;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Counts the legal moves of a player that end on a square,
+   * i.e. the number of that player's pieces attacking it.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param colour the attacking player.
+   * @param square the ordinal of the attacked position.
+   * @return the number of moves of the player ending on the square.
+   * **/
+  public static int countAttacks(Piece[] squares, Colour colour, int square){
+    int[] moves = new int[MAX_MOVES];
+    int n = generate(squares, colour, moves);
+    int count = 0;
+    for(int i = 0; i<n; i++) if(moves[i]%96==square) count++;
+    return count;
+  }
+
+  /**
+   * A convenience method returning the legal moves of the player whose turn it is,
+   * in the two element array form used by agents.
+   * @param board the board to generate moves for.
+   * @return a list of moves, each the start and end position of the move.
+   * **/
+  public static List<Position[]> legalMoves(Board board){
+    int[] moves = new int[MAX_MOVES];
+    int n = generate(squares(board), board.getTurn(), moves);
+    List<Position[]> list = new ArrayList<Position[]>(n);
+    for(int i = 0; i<n; i++) list.add(new Position[]{from(moves[i]), to(moves[i])});
+    return list;
+  }
+}
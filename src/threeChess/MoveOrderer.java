@@ -0,0 +1,140 @@
+package threeChess;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Orders the moves of a position for a search, so the moves most likely to be best are searched first
+ * and alpha-beta pruning cuts off the rest sooner.
+ * Each heuristic can be turned off, to measure what it is worth:
+ * the best move stored for the position in a transposition table is tried first;
+ * then captures, most valuable victim first and, among those, least valuable attacker first (MVV-LVA),
+ * by PieceType.getValue, with promotions counted as capturing the difference between a Queen and a pawn,
+ * except that captures that lose material by static exchange evaluation, as given by StaticExchange, come after the killers;
+ * then the killer moves of the ply, quiet moves that caused a cutoff at the same ply elsewhere in the tree;
+ * then other quiet moves by the history table, which adds the square of the remaining depth
+ * each time a move of a player causes a cutoff.
+ * Moves are encoded as in MoveGenerator. An orderer holds the killers and history of one search thread.
+ * **/
+public final class MoveOrderer{
+
+  /** The heuristics moves may be ordered by. **/
+  public enum Heuristic{HASH_MOVE, CAPTURES, EXCHANGES, KILLERS, HISTORY}
+
+  private static final int HASH_SCORE = 1<<30;
+  private static final int CAPTURE_SCORE = 1<<29;
+  private static final int KILLER_SCORE = 1<<28;
+  private static final int LOSING_CAPTURE_SCORE = KILLER_SCORE-(1<<16);//below the killers, above any history
+  private static final int HISTORY_LIMIT = 1<<27;//history is halved before reaching the killer scores
+
+  private final boolean hashMove, captures, exchanges, killers, history;
+  private final int[][] killerMoves = new int[SearchState.MAX_PLY][2];
+  private final int[][] historyScores;//indexed by Colour ordinal and encoded move, or empty without the history heuristic
+  private final int[][] scores = new int[SearchState.MAX_PLY][];//allocated as the search reaches each ply
+
+  /** Creates an orderer using every heuristic. **/
+  public MoveOrderer(){
+    this(EnumSet.allOf(Heuristic.class));
+  }
+
+  /**
+   * Creates an orderer using some of the heuristics.
+   * @param heuristics the heuristics to use. With none, moves are left in the order generated.
+   * **/
+  public MoveOrderer(Set<Heuristic> heuristics){
+    hashMove = heuristics.contains(Heuristic.HASH_MOVE);
+    captures = heuristics.contains(Heuristic.CAPTURES);
+    exchanges = heuristics.contains(Heuristic.EXCHANGES);
+    killers = heuristics.contains(Heuristic.KILLERS);
+    history = heuristics.contains(Heuristic.HISTORY);
+    historyScores = new int[history ? 3 : 0][96*96];
+    clear();
+  }
+
+  /**
+   * Sorts the moves of a position, best first.
+   * The sort is stable, so moves the heuristics do not tell apart stay in the order generated.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param moves the encoded moves of the player whose turn it is.
+   * @param n the number of moves.
+   * @param ply the distance of the position from the root of the search.
+   * @param bestMove the move stored for the position in the transposition table, or TranspositionTable.NO_MOVE.
+   * **/
+  public void order(Piece[] squares, int[] moves, int n, int ply, int bestMove){
+    if(n<2) return;
+    if(scores[ply]==null) scores[ply] = new int[MoveGenerator.MAX_MOVES];
+    int[] score = scores[ply];
+    int colour = squares[moves[0]/96].getColour().ordinal();
+    for(int i = 0; i<n; i++){
+      int move = moves[i];
+      int s = 0;
+      if(hashMove && move==bestMove) s = HASH_SCORE;
+      else{
+        int gain = captures ? gain(squares, move) : 0;
+        if(gain>0){
+          int attacker = squares[move/96].getValue();
+          s = CAPTURE_SCORE+gain*64-attacker;
+          if(exchanges && gain<attacker){//otherwise the exchange cannot lose material
+            int exchange = StaticExchange.evaluate(squares, move);
+            if(exchange<0) s = LOSING_CAPTURE_SCORE+exchange*64-attacker;
+          }
+        }
+        else if(killers && (move==killerMoves[ply][0] || move==killerMoves[ply][1])) s = move==killerMoves[ply][0] ? KILLER_SCORE+1 : KILLER_SCORE;
+        else if(history) s = historyScores[colour][move];
+      }
+      //insert into the sorted part
+      int j = i;
+      while(j>0 && score[j-1]<s){
+        score[j] = score[j-1];
+        moves[j] = moves[j-1];
+        j--;
+      }
+      score[j] = s;
+      moves[j] = move;
+    }
+  }
+
+  /**
+   * The value a move gains: the value of the piece captured, plus the gain of promoting to a Queen.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param move an encoded legal move.
+   * @return the value gained, or 0 for a quiet move.
+   * **/
+  public static int gain(Piece[] squares, int move){
+    Piece mover = squares[move/96], taken = squares[move%96];
+    int gain = taken==null ? 0 : taken.getValue();
+    if(Evaluator.promotes(mover, move%96)) gain += PieceType.QUEEN.getValue()-PieceType.PAWN.getValue();
+    return gain;
+  }
+
+  /**
+   * Records a move that caused a cutoff, as a killer of the ply and in the history of the player, if it is quiet.
+   * @param squares the pieces on the board before the move, indexed by Position ordinal.
+   * @param move the encoded move.
+   * @param ply the distance of the position from the root of the search.
+   * @param depth the depth remaining to search at the position.
+   * **/
+  public void cutoff(Piece[] squares, int move, int ply, int depth){
+    if(gain(squares, move)>0) return;
+    if(killerMoves[ply][0]!=move){
+      killerMoves[ply][1] = killerMoves[ply][0];
+      killerMoves[ply][0] = move;
+    }
+    if(!history) return;
+    int[] h = historyScores[squares[move/96].getColour().ordinal()];
+    h[move] += depth*depth;
+    if(h[move]>=HISTORY_LIMIT) for(int i = 0; i<h.length; i++) h[i] /= 2;
+  }
+
+  /** Ages the history and forgets the killers, for a search of a new position. **/
+  public void newSearch(){
+    for(int[] h: historyScores) for(int i = 0; i<h.length; i++) h[i] /= 2;
+    for(int[] k: killerMoves) k[0] = k[1] = TranspositionTable.NO_MOVE;
+  }
+
+  /** Forgets all killers and history. **/
+  public void clear(){
+    for(int[] h: historyScores) java.util.Arrays.fill(h, 0);
+    for(int[] k: killerMoves) k[0] = k[1] = TranspositionTable.NO_MOVE;
+  }
+}
@@ -0,0 +1,217 @@
+package threeChess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * An opening book: the moves played from early positions in recorded games, 
+ * weighted by how well they did for the player who made them,
+ * so an agent can play those positions instantly rather than spending its clock on them.
+ * Positions are found by Board.hash, with a binary search of a sorted array.
+ * <p>
+ * The weight of a move is 1 plus 2 for each game the mover won and 1 for each game the mover drew,
+ * capped at 65535, so moves that won are preferred but every move in the book may be played.
+ * <p>
+ * A book file starts with the bytes of MAGIC, the version and the number of entries,
+ * followed by the entries sorted by hash, then move, each a hash, the ordinals of the start and end of the move, 
+ * and its weight as an unsigned 16-bit integer.
+ * **/
+public final class OpeningBook{
+
+  /**The bytes at the start of a book file**/
+  public static final byte[] MAGIC = {'3','C','O','B'};
+  /**The version of the book format**/
+  public static final int VERSION = 1;
+  /**The number of moves from the start of each game included by default**/
+  public static final int DEFAULT_DEPTH = 24;
+  /**The number of times a move must have been played to be included by default**/
+  public static final int DEFAULT_MIN_COUNT = 2;
+  private static final Position[] POSITIONS = Position.values();
+
+  private final long[] hashes;//sorted
+  private final short[] moves;//start*96+end
+  private final char[] weights;
+
+  private OpeningBook(long[] hashes, short[] moves, char[] weights){
+    this.hashes = hashes;
+    this.moves = moves;
+    this.weights = weights;
+  }
+
+  /** @return the number of moves in the book. **/
+  public int size(){return hashes.length;}
+
+  /**
+   * @param board a position.
+   * @return true if the book has a move for the position.
+   * **/
+  public boolean contains(Board board){
+    int i = firstIndex(board.hash());
+    return i<hashes.length && hashes[i]==board.hash();
+  }
+
+  /**
+   * Chooses a move from the book for a position, at random in proportion to the weights of the moves.
+   * Only moves that are legal in the position are chosen, in case two positions share a hash.
+   * @param board the position.
+   * @param random the source of randomness for the choice.
+   * @return the start and end positions of the move, or null if the position is not in the book.
+   * **/
+  public Position[] probe(Board board, RandomGenerator random){
+    long hash = board.hash();
+    int first = firstIndex(hash), last = first;
+    long total = 0;
+    for(; last<hashes.length && hashes[last]==hash; last++)
+      if(board.isLegalMove(POSITIONS[moves[last]/96], POSITIONS[moves[last]%96])) total += weights[last];
+    if(total==0) return null;
+    long pick = (long) (random.nextDouble()*total);
+    for(int i = first; i<last; i++){
+      Position start = POSITIONS[moves[i]/96], end = POSITIONS[moves[i]%96];
+      if(!board.isLegalMove(start, end)) continue;
+      pick -= weights[i];
+      if(pick<0) return new Position[]{start, end};
+    }
+    return null;//not reached
+  }
+
+  //the index of the first entry with a hash at least the given hash
+  private int firstIndex(long hash){
+    int lo = 0, hi = hashes.length;
+    while(lo<hi){
+      int mid = (lo+hi)>>>1;
+      if(hashes[mid]<hash) lo = mid+1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  /**
+   * Builds a book from a file of game records, replaying the start of each game.
+   * @param recordFile the file of game records, as written by GameRecordWriter.
+   * @param depth the number of moves from the start of each game to include.
+   * @param minCount the number of times a move must have been played from a position to be included.
+   * @return the book.
+   * @throws IOException if the file cannot be read, or a recorded move is not legal.
+   * **/
+  public static OpeningBook build(File recordFile, int depth, int minCount) throws IOException{
+    Map<Long, Map<Integer, int[]>> stats = new HashMap<Long, Map<Integer, int[]>>();//hash to move to count and weight
+    try(GameRecordReader reader = new GameRecordReader(recordFile)){
+      for(GameRecord game: reader){
+        Board board = new Board(game.getTimeLimit());
+        for(int i = 0; i<game.getMoveCount() && board.getMoveCount()<depth && !board.gameOver(); i++){
+          long hash = board.hash();
+          Colour mover = board.getTurn();
+          Position[] move = game.getMove(i);
+          try{
+            board.move(move[0], move[1], game.getTime(i));
+          }catch(ImpossiblePositionException e){throw new IOException("A recorded move is not legal: "+e.getMessage());}
+          if(board.getMoveCount()==i) break;//the mover ran out of time
+          int[] counts = stats.computeIfAbsent(hash, k -> new HashMap<Integer, int[]>())
+            .computeIfAbsent(move[0].ordinal()*96+move[1].ordinal(), k -> new int[2]);
+          int result = game.getResult(mover);
+          counts[0]++;
+          counts[1] += result>0 ? 2 : result==0 ? 1 : 0;
+        }
+      }
+    }
+    int size = 0;
+    for(Map<Integer, int[]> position: stats.values())
+      for(int[] counts: position.values()) if(counts[0]>=minCount) size++;
+    long[] keys = new long[size];
+    int n = 0;
+    for(Map.Entry<Long, Map<Integer, int[]>> position: stats.entrySet())
+      for(Map.Entry<Integer, int[]> move: position.getValue().entrySet())
+        if(move.getValue()[0]>=minCount) keys[n++] = position.getKey();
+    Arrays.sort(keys);
+    long[] hashes = new long[size];
+    short[] moves = new short[size];
+    char[] weights = new char[size];
+    n = 0;
+    for(int i = 0; i<size; i++){
+      if(i>0 && keys[i]==keys[i-1]) continue;//the moves of this position are already added
+      Map<Integer, int[]> position = stats.get(keys[i]);
+      int[] sorted = position.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+      for(int move: sorted){
+        int[] counts = position.get(move);
+        if(counts[0]<minCount) continue;
+        hashes[n] = keys[i];
+        moves[n] = (short) move;
+        weights[n++] = (char) Math.min(0xffff, 1+counts[1]);
+      }
+    }
+    return new OpeningBook(hashes, moves, weights);
+  }
+
+  /**
+   * Reads a book file.
+   * @param file the file to read.
+   * @return the book.
+   * @throws IOException if the file cannot be read or is not a book.
+   * **/
+  public static OpeningBook read(File file) throws IOException{
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if(!Arrays.equals(magic, MAGIC)) throw new IOException(file+" is not an opening book");
+      int version = in.readInt();
+      if(version!=VERSION) throw new IOException(file+" has unsupported version "+version);
+      int size = in.readInt();
+      long[] hashes = new long[size];
+      short[] moves = new short[size];
+      char[] weights = new char[size];
+      for(int i = 0; i<size; i++){
+        hashes[i] = in.readLong();
+        int start = in.readUnsignedByte(), end = in.readUnsignedByte();
+        if(start>=96 || end>=96 || (i>0 && hashes[i]<hashes[i-1])) throw new IOException(file+" is corrupt");
+        moves[i] = (short) (start*96+end);
+        weights[i] = in.readChar();
+      }
+      return new OpeningBook(hashes, moves, weights);
+    }
+  }
+
+  /**
+   * Writes the book to a file.
+   * @param file the file to write, replacing any existing file.
+   * @throws IOException if the file cannot be written.
+   * **/
+  public void write(File file) throws IOException{
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))){
+      out.write(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(hashes.length);
+      for(int i = 0; i<hashes.length; i++){
+        out.writeLong(hashes[i]);
+        out.writeByte(moves[i]/96);
+        out.writeByte(moves[i]%96);
+        out.writeChar(weights[i]);
+      }
+    }
+  }
+
+  /**
+   * Builds a book from a file of game records and writes it.
+   * Run with the record file, the book file to write, and optionally the depth and minimum count.
+   * **/
+  public static void main(String[] args) throws IOException{
+    if(args.length<2){
+      System.out.println("Usage: OpeningBook recordFile bookFile [depth [minCount]]");
+      return;
+    }
+    int depth = args.length>2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+    int minCount = args.length>3 ? Integer.parseInt(args[3]) : DEFAULT_MIN_COUNT;
+    OpeningBook book = build(new File(args[0]), depth, minCount);
+    book.write(new File(args[1]));
+    System.out.println("Wrote "+book.size()+" moves to "+args[1]);
+  }
+}
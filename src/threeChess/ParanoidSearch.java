@@ -0,0 +1,375 @@
+package threeChess;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * An alpha-beta search of three player threeChess, under the paranoid assumption
+ * that both opponents play to minimise the score of the player to move at the root,
+ * which makes the game a two player game that alpha-beta can prune.
+ * Scores are in hundredths of a pawn, from the root player's point of view:
+ * its score by Board.score less half its opponents' scores, plus the piece-square values likewise,
+ * or WIN less the distance to the end of the game if the root player takes a King,
+ * and the negative of that if its King is taken.
+ * Positions are searched to increasing depths until a depth or a deadline is reached,
+ * with the moves at each node ordered by a MoveOrderer and the results stored in a TranspositionTable.
+ * A player with no legal move loses, as it would by playing an illegal move.
+ * <p>
+ * Beyond the depth searched, a quiescence search follows only captures until the position is quiet,
+ * so a position is not scored in the middle of an exchange. The player to move may stand pat,
+ * taking the static evaluation rather than capturing, and captures that could not bring the score
+ * back within the bounds, by the value of the piece taken and a margin for piece-square values, are pruned,
+ * as are captures whose exchange, by static exchange evaluation, leaves the root player worse off
+ * if it is the root player's capture, or better off if it is an opponent's.
+ * Captures of a King, which end the game, are never pruned.
+ * **/
+public final class ParanoidSearch{
+
+  /**The score of taking a King at the root**/
+  public static final int WIN = 1000000;
+  private static final int WIN_BOUND = WIN-SearchState.MAX_PLY;//scores beyond this are wins or losses
+  static final int INFINITY = WIN+1;
+  private static final int MAX_DEPTH = SearchState.MAX_PLY-1;
+  /**The most a capture may change the piece-square values by, for delta pruning**/
+  private static final int DELTA_MARGIN = 200;
+
+  private final TranspositionTable table;
+  private final MoveOrderer orderer;
+  private final boolean quiescence;
+  private final int[][] moves = new int[SearchState.MAX_PLY][];//allocated as the search reaches each ply
+  private final int[] gains = new int[3];
+  private volatile boolean stopped;
+  private long deadline;
+  private int root;
+  private long rootKey;
+  private long nodes;
+  private int score;
+  private int depth;
+
+  /**
+   * Creates a search with a quiescence search.
+   * @param table the table to store searched positions in, or null to store none.
+   * @param orderer the orderer of the moves at each node.
+   * **/
+  public ParanoidSearch(TranspositionTable table, MoveOrderer orderer){
+    this(table, orderer, true);
+  }
+
+  /**
+   * Creates a search.
+   * @param table the table to store searched positions in, or null to store none.
+   * @param orderer the orderer of the moves at each node.
+   * @param quiescence whether to search captures beyond the depth searched, or evaluate the positions there.
+   * **/
+  public ParanoidSearch(TranspositionTable table, MoveOrderer orderer, boolean quiescence){
+    this.table = table;
+    this.orderer = orderer;
+    this.quiescence = quiescence;
+  }
+
+  /**
+   * Searches for the best move of the player whose turn it is, to increasing depths.
+   * @param state the position to search, which is restored when the search returns.
+   * @param maxDepth the greatest depth to search to, in moves.
+   * @param deadline the value of System.nanoTime by which the search must stop, or Long.MAX_VALUE for none.
+   * The move found by the last complete depth is returned, and the search takes a little longer than the deadline to stop.
+   * @return the encoded best move, or TranspositionTable.NO_MOVE if there is no legal move.
+   * **/
+  public int search(SearchState state, int maxDepth, long deadline){
+    stopped = false;
+    if(table!=null) table.newSearch();
+    return search(state, 1, maxDepth, deadline);
+  }
+
+  /**
+   * Searches for the best move of the player whose turn it is, to increasing depths from a first depth,
+   * as one of several threads sharing a transposition table, which is searching in parallel by Lazy SMP.
+   * The table is not marked as starting a new search, which the caller does once for all the threads,
+   * and a stop is not cleared, so a search stopped before it starts returns at once; call resume first.
+   * @param state the position to search, which is restored when the search returns.
+   * @param firstDepth the first depth to search to, so threads may search different depths at once.
+   * @param maxDepth the greatest depth to search to, in moves.
+   * @param deadline the value of System.nanoTime by which the search must stop, or Long.MAX_VALUE for none.
+   * @return the encoded best move, or TranspositionTable.NO_MOVE if there is no legal move.
+   * **/
+  public int search(SearchState state, int firstDepth, int maxDepth, long deadline){
+    this.deadline = deadline;
+    nodes = 0;
+    root = state.turn();
+    rootKey = rootKey(root);
+    orderer.newSearch();
+    int[] rootMoves = moves(0);
+    int n = MoveGenerator.generate(state.squares(), Colour.values()[root], rootMoves);
+    if(n==0 || state.gameOver()) return TranspositionTable.NO_MOVE;
+    int best = rootMoves[0];
+    score = evaluate(state, root);
+    depth = 0;
+    for(int d = Math.max(1, firstDepth); d<=Math.min(maxDepth, MAX_DEPTH); d++){
+      int alpha = -INFINITY, move = TranspositionTable.NO_MOVE;
+      orderer.order(state.squares(), rootMoves, n, 0, best);
+      for(int i = 0; i<n; i++){
+        state.make(rootMoves[i]);
+        int v = alphaBeta(state, d-1, alpha, INFINITY, 1);
+        state.unmake();
+        if(stopped) break;
+        if(v>alpha){
+          alpha = v;
+          move = rootMoves[i];
+        }
+      }
+      if(stopped) break;
+      best = move;
+      score = alpha;
+      depth = d;
+      if(table!=null) table.store(state.hash()^rootKey, best, toTable(alpha, 0), d, TranspositionTable.EXACT);
+      if(alpha>=WIN_BOUND || alpha<=-WIN_BOUND) break;//the end of the game is found
+    }
+    return best;
+  }
+
+  /**
+   * Searches a position to a fixed depth, as part of a search split between tasks,
+   * without a deadline. The number of positions searched is then given by getNodes.
+   * @param state the position, which is restored when the search returns.
+   * @param root the ordinal of the colour of the player to move at the root, whom the score is for.
+   * @param depth the depth to search to.
+   * @param alpha the score the root player is already sure of.
+   * @param beta the score the opponents are already sure of holding the root player to.
+   * @param ply the distance of the position from the root.
+   * @return the score of the position, which is a bound if it is not between alpha and beta.
+   * **/
+  int search(SearchState state, int root, int depth, int alpha, int beta, int ply){
+    deadline = Long.MAX_VALUE;
+    stopped = false;
+    nodes = 0;
+    this.root = root;
+    rootKey = rootKey(root);
+    return alphaBeta(state, depth, alpha, beta, ply);
+  }
+
+  //the list to generate the moves of a ply in
+  private int[] moves(int ply){
+    if(moves[ply]==null) moves[ply] = new int[MoveGenerator.MAX_MOVES];
+    return moves[ply];
+  }
+
+  //searches a position below the root, returning its score for the root player
+  private int alphaBeta(SearchState state, int depth, int alpha, int beta, int ply){
+    nodes++;
+    if((nodes & 1023)==0 && System.nanoTime()>deadline) stopped = true;
+    if(stopped) return 0;
+    if(state.gameOver()) return terminal(state, ply);
+    if(depth==0 || ply>=MAX_DEPTH) return quiescence ? quiesce(state, alpha, beta, ply) : evaluate(state, root);
+    long key = state.hash()^rootKey;
+    int bestMove = TranspositionTable.NO_MOVE;
+    if(table!=null){
+      long entry = table.probe(key);
+      if(entry!=0){
+        bestMove = TranspositionTable.move(entry);
+        if(TranspositionTable.depth(entry)>=depth){
+          int s = fromTable(TranspositionTable.score(entry), ply);
+          int bound = TranspositionTable.bound(entry);
+          if(bound==TranspositionTable.EXACT || (bound==TranspositionTable.LOWER && s>=beta)
+              || (bound==TranspositionTable.UPPER && s<=alpha)) return s;
+        }
+      }
+    }
+    int turn = state.turn();
+    int[] list = moves(ply);
+    int n = MoveGenerator.generate(state.squares(), Colour.values()[turn], list);
+    if(n==0) return turn==root ? -WIN+ply : WIN-ply;//no legal move loses, as an illegal move would
+    orderer.order(state.squares(), list, n, ply, bestMove);
+    boolean maximising = turn==root;
+    int a = alpha, b = beta;
+    int best = maximising ? -INFINITY : INFINITY;
+    for(int i = 0; i<n; i++){
+      int move = list[i];
+      state.make(move);
+      int v = alphaBeta(state, depth-1, a, b, ply+1);
+      state.unmake();
+      if(stopped) return 0;
+      if(maximising ? v>best : v<best){
+        best = v;
+        bestMove = move;
+      }
+      if(maximising) a = Math.max(a, best);
+      else b = Math.min(b, best);
+      if(a>=b){
+        orderer.cutoff(state.squares(), move, ply, depth);
+        break;
+      }
+    }
+    if(table!=null){
+      int bound = best<=alpha ? TranspositionTable.UPPER : best>=beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+      table.store(key, bestMove, toTable(best, ply), depth, bound);
+    }
+    return best;
+  }
+
+  //searches the captures of a position until it is quiet, returning its score for the root player.
+  //The position has been counted as a node by the caller.
+  private int quiesce(SearchState state, int alpha, int beta, int ply){
+    if(state.gameOver()) return terminal(state, ply);
+    int standPat = evaluate(state, root);
+    if(ply>=MAX_DEPTH) return standPat;
+    int turn = state.turn();
+    boolean maximising = turn==root;
+    if(maximising ? standPat>=beta : standPat<=alpha) return standPat;
+    int a = maximising ? Math.max(alpha, standPat) : alpha, b = maximising ? beta : Math.min(beta, standPat);
+    Piece[] squares = state.squares();
+    int[] list = moves(ply);
+    int n = MoveGenerator.generateCaptures(squares, Colour.values()[turn], list);
+    orderer.order(squares, list, n, ply, TranspositionTable.NO_MOVE);
+    int best = standPat;
+    for(int i = 0; i<n; i++){
+      int move = list[i];
+      if(squares[move%96].getType()!=PieceType.KING){//delta pruning
+        int swing = swing(squares, move);
+        if(maximising ? standPat+swing+DELTA_MARGIN<=a : standPat+swing-DELTA_MARGIN>=b) continue;
+        if(squares[move/96].getValue()>MoveOrderer.gain(squares, move)){//otherwise the exchange cannot lose material
+          int exchange = exchange(squares, move);
+          if(maximising ? exchange<0 : exchange>0) continue;
+        }
+      }
+      state.make(move);
+      nodes++;
+      if((nodes & 1023)==0 && System.nanoTime()>deadline) stopped = true;
+      int v = stopped ? 0 : quiesce(state, a, b, ply+1);
+      state.unmake();
+      if(stopped) return 0;
+      if(maximising ? v>best : v<best) best = v;
+      if(maximising) a = Math.max(a, best);
+      else b = Math.min(b, best);
+      if(a>=b) break;
+    }
+    return best;
+  }
+
+  //the change in the evaluation from the material a capture changes hands
+  private int swing(Piece[] squares, int move){
+    Piece mover = squares[move/96], taken = squares[move%96];
+    int promotion = MoveOrderer.gain(squares, move)-taken.getValue();
+    int m = mover.getColour().ordinal(), t = taken.getColour().ordinal();
+    return (m==root ? 100 : -50)*(taken.getValue()+promotion)-(t==root ? 100 : -50)*taken.getValue();
+  }
+
+  //the change in the evaluation from the material the exchange after a capture changes hands
+  private int exchange(Piece[] squares, int move){
+    StaticExchange.evaluate(squares, move, gains);
+    int change = 0;
+    for(int c = 0; c<3; c++) change += (c==root ? 100 : -50)*gains[c];
+    return change;
+  }
+
+  //the score of a position in which a King has been taken
+  private int terminal(SearchState state, int ply){
+    if(state.winner()==root) return WIN-ply;
+    if(state.loser()==root) return -WIN+ply;
+    return 0;//the root player neither wins nor loses
+  }
+
+  /**
+   * The static evaluation of a position: the player's score by Board.score less half its opponents' scores,
+   * in hundredths of a pawn, plus its piece-square values less half its opponents'.
+   * @param state the position.
+   * @param player the ordinal of the colour of the player to evaluate for.
+   * @return the score of the position for the player.
+   * **/
+  public static int evaluate(SearchState state, int player){
+    double opponents = 0;
+    for(int c = 0; c<3; c++) if(c!=player) opponents += 100*state.score(c)+state.positionValue(c);
+    return (int) Math.round(100*state.score(player)+state.positionValue(player)-opponents/2);
+  }
+
+  //scores of the end of the game are stored as the distance from the position stored, not the root
+  private static int toTable(int score, int ply){
+    return score>=WIN_BOUND ? score+ply : score<=-WIN_BOUND ? score-ply : score;
+  }
+
+  private static int fromTable(int score, int ply){
+    return score>=WIN_BOUND ? score-ply : score<=-WIN_BOUND ? score+ply : score;
+  }
+
+  //the scores of a position depend on the root player, so each root player has its own keys
+  private static long rootKey(int root){
+    return (root+1)*0x9E3779B97F4A7C15L;
+  }
+
+  /** Stops the search as soon as possible, which then returns the move found by the last complete depth. **/
+  public void stop(){stopped = true;}
+
+  /** Clears a stop, so the search can be started again by search(state, firstDepth, maxDepth, deadline). **/
+  public void resume(){stopped = false;}
+
+  /** @return the number of positions visited by the last search. **/
+  public long getNodes(){return nodes;}
+
+  /** @return the score of the move returned by the last search. **/
+  public int getScore(){return score;}
+
+  /** @return the depth completed by the last search. **/
+  public int getDepth(){return depth;}
+
+  /**
+   * Measures how move ordering reduces the positions searched to a fixed depth.
+   * Positions are taken from games of random moves, and each is searched with each heuristic added in turn,
+   * with a new transposition table and orderer for each search, and no quiescence search,
+   * which without ordering would search far more captures than the rest of the tree.
+   * Run with the depth, which is 4 by default, and the number of positions, which is 20 by default.
+   * **/
+  public static void main(String[] args){
+    int depth = args.length>0 ? Integer.parseInt(args[0]) : 4;
+    int count = args.length>1 ? Integer.parseInt(args[1]) : 20;
+    List<Board> positions = randomPositions(count, new SplittableRandom(1));
+    List<EnumSet<MoveOrderer.Heuristic>> configurations = new ArrayList<EnumSet<MoveOrderer.Heuristic>>();
+    EnumSet<MoveOrderer.Heuristic> heuristics = EnumSet.noneOf(MoveOrderer.Heuristic.class);
+    configurations.add(heuristics.clone());
+    for(MoveOrderer.Heuristic h: new MoveOrderer.Heuristic[]{MoveOrderer.Heuristic.CAPTURES, MoveOrderer.Heuristic.EXCHANGES,
+        MoveOrderer.Heuristic.KILLERS,
+        MoveOrderer.Heuristic.HISTORY, MoveOrderer.Heuristic.HASH_MOVE}){
+      heuristics.add(h);
+      configurations.add(heuristics.clone());
+    }
+    PieceSquareTables tables = PieceSquareTables.getDefault();
+    long unordered = 0;
+    System.out.println("Depth "+depth+", "+positions.size()+" positions");
+    for(EnumSet<MoveOrderer.Heuristic> configuration: configurations){
+      long nodes = 0, time = System.nanoTime();
+      for(Board board: positions){
+        ParanoidSearch search = new ParanoidSearch(new TranspositionTable(16), new MoveOrderer(configuration), false);
+        search.search(new SearchState(board, tables), depth, Long.MAX_VALUE);
+        nodes += search.getNodes();
+      }
+      time = System.nanoTime()-time;
+      if(unordered==0) unordered = nodes;
+      System.out.printf("%-50s %12d nodes %6.1f%% of unordered %8.0f ms%n",
+          configuration.isEmpty() ? "[no ordering]" : configuration, nodes, 100.0*nodes/unordered, time/1e6);
+    }
+  }
+
+  /**
+   * Makes positions to measure searches on, from untimed games of random moves.
+   * @param count the number of positions.
+   * @param random the generator of the moves, so the same seed gives the same positions.
+   * @return the boards after 10 to 60 random moves, none of them of a finished game.
+   * **/
+  public static List<Board> randomPositions(int count, SplittableRandom random){
+    List<Board> positions = new ArrayList<Board>();
+    while(positions.size()<count){
+      Board board = new Board(0);
+      int length = 10+random.nextInt(51);
+      try{
+        for(int m = 0; m<length && !board.gameOver(); m++){
+          List<Position[]> legal = MoveGenerator.legalMoves(board);
+          if(legal.isEmpty()) break;
+          Position[] move = legal.get(random.nextInt(legal.size()));
+          board.move(move[0], move[1]);
+        }
+      }catch(ImpossiblePositionException e){continue;}//not possible, the moves are legal
+      if(!board.gameOver()) positions.add(board);
+    }
+    return positions;
+  }
+}
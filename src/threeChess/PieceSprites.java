@@ -0,0 +1,118 @@
+package threeChess;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The glyphs of the pieces, with their outlines, drawn once into images and then copied,
+ * rather than drawing nine strings for each piece each time it is drawn.
+ * There is an image for each type and colour of piece and each outline colour the displays use,
+ * made when first needed, for each font and scale the pieces are drawn at,
+ * so thumbnails are drawn from images of their own size rather than scaled ones.
+ * **/
+final class PieceSprites{
+
+  private static final Map<List<Object>, PieceSprites> sprites = new HashMap<List<Object>, PieceSprites>();
+  private static final int PAD = 2;//space around the glyph for the outline and antialiasing
+
+  private final Font font;
+  private final double scale;
+  private final Color[] outlines;
+  private final Sprite[][][] images;//indexed by PieceType ordinal, Colour ordinal and outline index
+
+  /** An image of a piece, and the pixel of the image at the centre of the glyph. **/
+  private static class Sprite{
+    private final BufferedImage image;
+    private final int anchorX, anchorY;
+
+    private Sprite(BufferedImage image, int anchorX, int anchorY){
+      this.image = image;
+      this.anchorX = anchorX;
+      this.anchorY = anchorY;
+    }
+  }
+
+  private PieceSprites(Font font, double scale, Color[] outlines){
+    this.font = font;
+    this.scale = scale;
+    this.outlines = outlines;
+    images = new Sprite[PieceType.values().length][3][outlines.length];
+  }
+
+  /**
+   * @param font the font to draw the glyphs in.
+   * @param scale the scale the glyphs are drawn at.
+   * @param outlines the outline colours to keep images for.
+   * @return the shared images for that font and scale.
+   * **/
+  static synchronized PieceSprites get(Font font, double scale, Color[] outlines){
+    List<Object> key = Arrays.asList(font, scale);
+    PieceSprites cached = sprites.get(key);
+    if(cached==null){
+      cached = new PieceSprites(font, scale, outlines.clone());
+      sprites.put(key, cached);
+    }
+    return cached;
+  }
+
+  /**
+   * Draws a piece centred on a point, as ThreeChessDisplay.drawPiece does.
+   * @param g the graphics to draw to, whose transform must be a translation and the scale of these images.
+   * @param piece the piece to draw.
+   * @param centre the point, in the coordinates of the graphics.
+   * @param outline the outline colour.
+   * @return false if there is no image for the outline colour, and nothing was drawn.
+   * **/
+  synchronized boolean draw(Graphics2D g, Piece piece, int[] centre, Color outline){
+    int o = 0;
+    while(o<outlines.length && !outlines[o].equals(outline)) o++;
+    if(o==outlines.length) return false;
+    Sprite sprite = images[piece.getType().ordinal()][piece.getColour().ordinal()][o];
+    if(sprite==null) sprite = images[piece.getType().ordinal()][piece.getColour().ordinal()][o] = render(piece, outline);
+    AffineTransform transform = g.getTransform();
+    Point2D point = transform.transform(new Point2D.Double(centre[0], centre[1]), null);
+    g.setTransform(new AffineTransform());
+    g.drawImage(sprite.image, (int) Math.round(point.getX())-sprite.anchorX, (int) Math.round(point.getY())-sprite.anchorY, null);
+    g.setTransform(transform);
+    return true;
+  }
+
+  //draws a piece into a new image, just large enough for the glyph and its outline
+  private Sprite render(Piece piece, Color outline){
+    BufferedImage probe = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+    Graphics2D pg = probe.createGraphics();
+    pg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    FontMetrics metrics = pg.getFontMetrics(font);
+    String pieceStr = Character.toString(piece.getType().getChar());
+    //the bounds of the glyph drawn where drawPiece would draw it for a centre at the origin
+    int x = -metrics.stringWidth(pieceStr)/2, y = -metrics.getHeight()/2+metrics.getAscent();
+    Rectangle bounds = font.createGlyphVector(pg.getFontRenderContext(), pieceStr).getPixelBounds(null, x, y);
+    pg.dispose();
+    bounds.grow(PAD, PAD);
+    int left = (int) Math.floor(bounds.x*scale), top = (int) Math.floor(bounds.y*scale);
+    int width = (int) Math.ceil((bounds.x+bounds.width)*scale)-left, height = (int) Math.ceil((bounds.y+bounds.height)*scale)-top;
+    BufferedImage image = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_ARGB_PRE);
+    Graphics2D g = image.createGraphics();
+    try{
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g.translate(-left, -top);
+      g.scale(scale, scale);
+      g.setFont(font);
+      ThreeChessDisplay.drawGlyph(g, piece, new int[]{0, 0}, outline);
+    }finally{
+      g.dispose();
+    }
+    return new Sprite(image, -left, -top);
+  }
+}
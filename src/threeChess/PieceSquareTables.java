@@ -0,0 +1,143 @@
+package threeChess;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Piece-square tables: the value of each type of piece on each square of the board,
+ * for each player, for use in evaluation functions.
+ * The tables are read from a text resource which gives them from the point of view of
+ * the piece's owner, and the tables for each colour are rotations of those.
+ * Values are stored in arrays indexed by PieceType ordinal, Colour ordinal and Position ordinal.
+ * **/
+public final class PieceSquareTables{
+
+  /**The resource the default tables are read from**/
+  public static final String RESOURCE = "piece-square-tables.txt";
+  //where the resource is found when running from a build that does not copy resources
+  private static final String SOURCE_FILE = "src/threeChess/"+RESOURCE;
+
+  private static PieceSquareTables defaultTables;
+
+  private final double[][][] values = new double[PieceType.values().length][3][96];
+
+  /**
+   * Creates tables from the values of pieces on each square from the point of view of their owner.
+   * @param own the values indexed by PieceType ordinal, then by the ordinal of the square as a Blue position.
+   * **/
+  public PieceSquareTables(double[][] own){
+    for(int t = 0; t<values.length; t++)
+      for(int c = 0; c<3; c++)
+        for(int sq = 0; sq<96; sq++)
+          values[t][c][rotate(sq, c)] = own[t][sq];
+  }
+
+  /**
+   * Rotates a square from Blue's point of view to another player's.
+   * @param square the ordinal of a position, as seen by Blue.
+   * @param colour the ordinal of the player to rotate to.
+   * @return the ordinal of the position in the same place relative to that player.
+   * **/
+  public static int rotate(int square, int colour){
+    return (square+32*colour)%96;
+  }
+
+  /**
+   * Returns the shared default tables, reading them from the resource the first time.
+   * If the resource cannot be found every value is 0.
+   * @return the default tables.
+   * **/
+  public static synchronized PieceSquareTables getDefault(){
+    if(defaultTables==null){
+      try(InputStream in = open()){
+        defaultTables = read(in);
+      }catch(IOException e){
+        System.out.println("Could not read the piece-square tables "+RESOURCE+": "+e.getMessage());
+        defaultTables = new PieceSquareTables(new double[PieceType.values().length][96]);
+      }
+    }
+    return defaultTables;
+  }
+
+  private static InputStream open() throws IOException{
+    InputStream in = PieceSquareTables.class.getResourceAsStream(RESOURCE);
+    return in!=null ? in : new FileInputStream(SOURCE_FILE);
+  }
+
+  /**
+   * Reads tables in the format of the resource:
+   * a line naming a PieceType, followed by 24 lines of four values,
+   * one line per column of each section of the board in Blue's Position order.
+   * Text after a # and blank lines are ignored.
+   * @param in the stream to read.
+   * @return the tables read.
+   * @throws IOException if the stream could not be read or is not in the expected format.
+   * **/
+  public static PieceSquareTables read(InputStream in) throws IOException{
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    double[][] own = new double[PieceType.values().length][96];
+    boolean[] seen = new boolean[own.length];
+    int type = -1, sq = 96;
+    String line;
+    while((line = reader.readLine())!=null){
+      int comment = line.indexOf('#');
+      if(comment>=0) line = line.substring(0,comment);
+      line = line.trim();
+      if(line.isEmpty()) continue;
+      if(sq==96){
+        try{
+          type = PieceType.valueOf(line).ordinal();
+        }catch(IllegalArgumentException e){throw new IOException("Expected a piece type but found: "+line);}
+        if(seen[type]) throw new IOException("Duplicate table for "+line);
+        seen[type] = true;
+        sq = 0;
+        continue;
+      }
+      String[] fields = line.split("\\s+");
+      if(fields.length!=4) throw new IOException("Expected four values but found: "+line);
+      try{
+        for(String f: fields) own[type][sq++] = Double.parseDouble(f);
+      }catch(NumberFormatException e){throw new IOException("Expected a number but found: "+line);}
+    }
+    if(sq!=96) throw new IOException("The table for "+PieceType.values()[type]+" is incomplete");
+    for(int t = 0; t<seen.length; t++)
+      if(!seen[t]) throw new IOException("No table for "+PieceType.values()[t]);
+    return new PieceSquareTables(own);
+  }
+
+  /**
+   * Gets the value of a piece on a square.
+   * @param type the ordinal of the type of the piece.
+   * @param colour the ordinal of the colour of the piece.
+   * @param square the ordinal of the position of the piece.
+   * @return the value of the piece on that square.
+   * **/
+  public double value(int type, int colour, int square){
+    return values[type][colour][square];
+  }
+
+  /**
+   * Gets the value of a piece on a square.
+   * @param piece the piece.
+   * @param position the position of the piece.
+   * @return the value of the piece on that square.
+   * **/
+  public double value(Piece piece, Position position){
+    return values[piece.getType().ordinal()][piece.getColour().ordinal()][position.ordinal()];
+  }
+
+  /**
+   * Gets the table for one type of piece of one player.
+   * The array is shared and must not be modified.
+   * @param type the type of the piece.
+   * @param colour the colour of the piece.
+   * @return the values of the piece indexed by Position ordinal.
+   * **/
+  public double[] table(PieceType type, Colour colour){
+    return values[type.ordinal()][colour.ordinal()];
+  }
+}
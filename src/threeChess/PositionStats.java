@@ -0,0 +1,96 @@
+package threeChess;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a GameDatabase knows about a position: how often it was reached, in which games,
+ * how those games ended for each player, and the moves played from it.
+ * Outcomes are counted once per game, however often the position was reached in the game;
+ * a score of 1 is a win, 0 a draw, and -1 or -2 (for an illegal move) a loss.
+ * **/
+public final class PositionStats{
+
+  /**
+   * A move played from the position, and how the games it was played in ended for the player who made it.
+   * **/
+  public static final class MoveStats{
+    private final Position start;
+    private final Position end;
+    private final int count;
+    private final int wins;
+    private final int losses;
+    private final int draws;
+
+    MoveStats(Position start, Position end, int count, int wins, int losses, int draws){
+      this.start = start;
+      this.end = end;
+      this.count = count;
+      this.wins = wins;
+      this.losses = losses;
+      this.draws = draws;
+    }
+
+    /** @return an array containing the start position and the end position of the move, in that order. **/
+    public Position[] getMove(){return new Position[]{start, end};}
+
+    /** @return the number of times the move was played from the position. **/
+    public int getCount(){return count;}
+
+    /** @return the number of times the move was played in a game the mover won. **/
+    public int getWins(){return wins;}
+
+    /** @return the number of times the move was played in a game the mover lost. **/
+    public int getLosses(){return losses;}
+
+    /** @return the number of times the move was played in a game the mover drew. **/
+    public int getDraws(){return draws;}
+
+    /** @return a String representation of the move and its counts. **/
+    public String toString(){return start+"-"+end+" played:"+count+" won:"+wins+" lost:"+losses+" drawn:"+draws;}
+  }
+
+  private final long hash;
+  private final int occurrences;
+  private final int[] games;
+  private final int[][] outcomes;//indexed by Colour ordinal, then win, loss, draw
+  private final List<MoveStats> moves;
+
+  PositionStats(long hash, int occurrences, int[] games, int[][] outcomes, List<MoveStats> moves){
+    this.hash = hash;
+    this.occurrences = occurrences;
+    this.games = games;
+    this.outcomes = outcomes;
+    this.moves = Collections.unmodifiableList(moves);
+  }
+
+  /** @return the hash of the position, as given by Board.hash. **/
+  public long getHash(){return hash;}
+
+  /** @return the number of times the position was reached, counting repetitions within a game. **/
+  public int getOccurrences(){return occurrences;}
+
+  /** @return the numbers of the games the position was reached in, in ascending order. **/
+  public int[] getGames(){return games.clone();}
+
+  /**
+   * @param colour the colour of a player.
+   * @return the number of games reaching the position that the player won.
+   * **/
+  public int getWins(Colour colour){return outcomes[colour.ordinal()][0];}
+
+  /**
+   * @param colour the colour of a player.
+   * @return the number of games reaching the position that the player lost.
+   * **/
+  public int getLosses(Colour colour){return outcomes[colour.ordinal()][1];}
+
+  /**
+   * @param colour the colour of a player.
+   * @return the number of games reaching the position that the player drew.
+   * **/
+  public int getDraws(Colour colour){return outcomes[colour.ordinal()][2];}
+
+  /** @return the moves played from the position, most played first. **/
+  public List<MoveStats> getMoves(){return moves;}
+}
@@ -0,0 +1,166 @@
+package threeChess;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Ratings of players from the results of three player games, updated one game at a time.
+ * Each player has a rating and a rating deviation, the uncertainty of the rating, as in the Glicko system.
+ * A three player game is treated as a game between each pair of its players: 
+ * the player with the higher score beats the other, and equal scores are a draw.
+ * So the winner beats both others, the loser loses to both, and after an illegal move
+ * the other two players, who both score 1, draw with each other.
+ * All three players are updated from their ratings before the game.
+ * <p>
+ * The deviations also drive adaptive pairing: nextGame picks the most uncertain player
+ * and the opponents whose results would tell the most about it, 
+ * so a ranking of many players converges in far fewer games than playing every triple.
+ * @param <P> the type of the players, such as Agent.
+ * **/
+public final class Ratings<P>{
+
+  /**The rating of a new player**/
+  public static final double INITIAL_RATING = 1500;
+  /**The rating deviation of a new player**/
+  public static final double INITIAL_DEVIATION = 350;
+  /**The smallest rating deviation, so ratings can still follow players that change**/
+  public static final double MIN_DEVIATION = 30;
+  private static final double Q = Math.log(10)/400;
+
+  /** The rating of one player. **/
+  public static final class Rating{
+    private double rating = INITIAL_RATING;
+    private double deviation = INITIAL_DEVIATION;
+    private int games;
+
+    /** @return the rating. **/
+    public double getRating(){return rating;}
+
+    /** @return the rating deviation: the true rating is within twice this of the rating with 95% confidence. **/
+    public double getDeviation(){return deviation;}
+
+    /** @return the rating less twice the deviation, for ranking players without overrating those with few games. **/
+    public double getConservativeRating(){return rating-2*deviation;}
+
+    /** @return the number of games rated. **/
+    public int getGames(){return games;}
+
+    /** @return a String representation of the rating. **/
+    public String toString(){return String.format("%.0f+-%.0f", rating, 2*deviation);}
+  }
+
+  private final Map<P, Rating> ratings = new HashMap<P, Rating>();
+  private final List<P> players = new ArrayList<P>();//in the order they were added, for deterministic pairing
+
+  /**
+   * Adds a player with the initial rating, if they are not already rated.
+   * @param player the player.
+   * @return the player's rating.
+   * **/
+  public Rating add(P player){
+    Rating rating = ratings.get(player);
+    if(rating==null){
+      rating = new Rating();
+      ratings.put(player, rating);
+      players.add(player);
+    }
+    return rating;
+  }
+
+  /**
+   * @param player a player.
+   * @return the player's rating, which is updated as games are rated, or null if the player has not been added.
+   * **/
+  public Rating get(P player){return ratings.get(player);}
+
+  /** @return the players, in the order they were added. **/
+  public List<P> getPlayers(){return new ArrayList<P>(players);}
+
+  /**
+   * Updates the ratings of the players of a game from its result. Players not yet rated are added.
+   * @param game the three players, in any order.
+   * @param scores the scores of the players in the same order, as returned by ThreeChess.play.
+   * **/
+  public void update(List<P> game, int[] scores){
+    int n = game.size();
+    Rating[] rated = new Rating[n];
+    for(int i = 0; i<n; i++) rated[i] = add(game.get(i));
+    double[] ratingsAfter = new double[n], deviationsAfter = new double[n];
+    for(int i = 0; i<n; i++){
+      double sum = 0, information = 0;
+      for(int j = 0; j<n; j++){
+        if(j==i) continue;
+        double g = g(rated[j].deviation), e = expected(rated[i], rated[j]);
+        double s = scores[i]>scores[j] ? 1 : scores[i]==scores[j] ? 0.5 : 0;
+        sum += g*(s-e);
+        information += Q*Q*g*g*e*(1-e);
+      }
+      double precision = 1/(rated[i].deviation*rated[i].deviation)+information;
+      ratingsAfter[i] = rated[i].rating+Q/precision*sum;
+      deviationsAfter[i] = Math.max(MIN_DEVIATION, Math.sqrt(1/precision));
+    }
+    for(int i = 0; i<n; i++){
+      rated[i].rating = ratingsAfter[i];
+      rated[i].deviation = deviationsAfter[i];
+      rated[i].games++;
+    }
+  }
+
+  /**
+   * Chooses the players of the next game, to reduce the uncertainty of the ratings the most.
+   * The player with the largest deviation plays the two opponents whose results against them
+   * are the least predictable, weighted by how uncertain those opponents are too.
+   * Ties are broken at random.
+   * @param random the source of randomness for breaking ties.
+   * @return three players, in no particular order.
+   * @throws IllegalStateException if fewer than three players have been added.
+   * **/
+  public List<P> nextGame(RandomGenerator random){
+    int n = players.size();
+    if(n<3) throw new IllegalStateException("Three players are needed for a game.");
+    int first = -1;
+    double mostUncertain = -1;
+    for(int i = 0, offset = random.nextInt(n); i<n; i++){
+      int p = (i+offset)%n;
+      double deviation = ratings.get(players.get(p)).deviation;
+      if(deviation>mostUncertain){
+        first = p;
+        mostUncertain = deviation;
+      }
+    }
+    Rating focus = ratings.get(players.get(first));
+    int second = -1, third = -1;
+    double best = -1, next = -1;
+    for(int i = 0, offset = random.nextInt(n); i<n; i++){
+      int p = (i+offset)%n;
+      if(p==first) continue;
+      Rating opponent = ratings.get(players.get(p));
+      double e = expected(focus, opponent), g = g(opponent.deviation);
+      double priority = g*g*e*(1-e)*opponent.deviation;
+      if(priority>best){
+        third = second; next = best;
+        second = p; best = priority;
+      }else if(priority>next){
+        third = p; next = priority;
+      }
+    }
+    List<P> game = new ArrayList<P>(3);
+    game.add(players.get(first));
+    game.add(players.get(second));
+    game.add(players.get(third));
+    return game;
+  }
+
+  //the reduction in the weight of a result against an opponent whose rating is uncertain
+  private static double g(double deviation){
+    return 1/Math.sqrt(1+3*Q*Q*deviation*deviation/(Math.PI*Math.PI));
+  }
+
+  //the expected score of a player against an opponent
+  private static double expected(Rating player, Rating opponent){
+    return 1/(1+Math.pow(10, -g(opponent.deviation)*(player.rating-opponent.rating)/400));
+  }
+}
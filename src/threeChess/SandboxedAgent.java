@@ -0,0 +1,287 @@
+package threeChess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import threeChess.agents.*;
+
+/**
+ * An agent that runs another agent in a child JVM, an AgentHost, so the agent cannot take down
+ * or interfere with the tournament: an agent that loops forever, runs out of memory or crashes
+ * loses its game by an illegal move, and its static state is its own.
+ * The child is started when the agent is created and kept running across moves and games,
+ * and is started again if it has to be stopped.
+ * <p>
+ * The child keeps its own copy of the board, so each move sends only the moves made since the agent last moved,
+ * a few bytes each, over a local socket. The agent keeps a copy of the board as the child has it,
+ * and starts the child's board again from the whole history if the board it is given does not follow on.
+ * The time a move takes beyond the time the agent spends choosing it is measured,
+ * and is well under a millisecond once the JVMs have warmed up.
+ * **/
+public class SandboxedAgent extends Agent implements Closeable{
+
+  /**The time in milliseconds a move may take beyond the time the player has left, if no move timeout is given**/
+  public static final int GRACE = 1000;
+  /**The time in milliseconds a move may take in an untimed game, if no move timeout is given, so an agent stuck in a loop is stopped**/
+  public static final int UNTIMED_MOVE_TIMEOUT = 300000;
+  private static final int START_TIMEOUT = 30000;
+
+  private final String className;
+  private final String[] jvmOptions;
+  private final int moveTimeout;
+  private String name;
+  private Process process;
+  private Socket socket;
+  private DataInputStream in;
+  private DataOutputStream out;
+  private Board shadow;//the board as the child has it, or null if it has no board yet
+  private final ByteArrayOutputStream message = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream moves = new ByteArrayOutputStream();
+  private final Position[] positions = Position.values();
+  private int childPonderThreads;//the threads the agent in the child may ponder with
+  private SplittableRandom childRandom;//the generator the child's seed was drawn from, or null if it has none
+  private int requests;
+  private long totalOverhead, maxOverhead;//in nanoseconds
+
+  /**
+   * Creates an agent running in a child JVM, with the default JVM options.
+   * Each move may take the time the player has left plus GRACE,
+   * or UNTIMED_MOVE_TIMEOUT in an untimed game.
+   * @param className the fully qualified class name of the agent, which must have a no argument constructor.
+   * @throws IllegalArgumentException if the child cannot be started or cannot create the agent.
+   * **/
+  public SandboxedAgent(String className){
+    this(className, 0);
+  }
+
+  /**
+   * Creates an agent running in a child JVM.
+   * @param className the fully qualified class name of the agent, which must have a no argument constructor.
+   * @param moveTimeout the time in milliseconds the child may take to answer a move before it is stopped,
+   * or 0 for the time the player has left plus GRACE, and UNTIMED_MOVE_TIMEOUT in an untimed game.
+   * @param jvmOptions options for the child JVM, such as "-Xmx256m" to limit its memory.
+   * @throws IllegalArgumentException if the child cannot be started or cannot create the agent.
+   * **/
+  public SandboxedAgent(String className, int moveTimeout, String... jvmOptions){
+    this.className = className;
+    this.moveTimeout = moveTimeout;
+    this.jvmOptions = jvmOptions.clone();
+    try{
+      start();
+    }catch(IOException e){throw new IllegalArgumentException("Could not start "+className+": "+e.getMessage());}
+  }
+
+  //starts the child, and waits for it to create the agent
+  private void start() throws IOException{
+    List<String> command = new ArrayList<String>();
+    command.add(System.getProperty("java.home")+File.separator+"bin"+File.separator+"java");
+    command.addAll(Arrays.asList(jvmOptions));
+    command.add("-XX:+ExitOnOutOfMemoryError");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(AgentHost.class.getName());
+    try(ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())){
+      server.setSoTimeout(START_TIMEOUT);
+      command.add(Integer.toString(server.getLocalPort()));
+      command.add(className);
+      process = new ProcessBuilder(command).inheritIO().start();
+      socket = server.accept();
+      socket.setTcpNoDelay(true);
+      socket.setSoTimeout(START_TIMEOUT);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      String reply = in.readUTF();
+      if(reply.isEmpty()) throw new IOException(in.readUTF());
+      name = reply;
+      shadow = null;
+    }catch(IOException e){
+      stop();
+      throw e;
+    }
+  }
+
+  //stops the child, which is started again when next needed
+  private void stop(){
+    try{
+      if(socket!=null) socket.close();
+    }catch(IOException e){}
+    if(process!=null) process.destroyForcibly();
+    socket = null;
+    process = null;
+    shadow = null;
+    childPonderThreads = 0;
+    childRandom = null;
+  }
+
+  /**
+   * Asks the agent in the child for a move.
+   * If the child cannot be started, fails or does not answer in time, it is stopped and no move is returned,
+   * which loses the game.
+   * @param board the representation of the game state.
+   * @return the agent's move, or null if it gave none.
+   * **/
+  public synchronized Position[] playMove(Board board){
+    try{
+      if(socket==null) start();
+      long startTime = System.nanoTime();
+      if(getPonderThreads()!=childPonderThreads){//sent with the move
+        out.write(AgentHost.PONDER);
+        AgentHost.writeVarint(out, getPonderThreads());
+        childPonderThreads = getPonderThreads();
+      }
+      if(getRandom()!=childRandom){//a new generator, given for a new game, seeds the child's
+        out.write(AgentHost.SEED);
+        out.writeLong(getRandom().nextLong());
+        childRandom = getRandom();
+      }
+      send(board, AgentHost.MOVE);
+      socket.setSoTimeout(moveTimeout>0 ? moveTimeout : untimed(board) ? UNTIMED_MOVE_TIMEOUT : Math.max(board.getTimeLeft(board.getTurn()), 0)+GRACE);
+      int start = in.readUnsignedByte(), end = in.readUnsignedByte();
+      long thinking = AgentHost.readVarint(in)*1000L;
+      long overhead = Math.max(System.nanoTime()-startTime-thinking, 0);
+      requests++;
+      totalOverhead += overhead;
+      maxOverhead = Math.max(maxOverhead, overhead);
+      if(start>=positions.length || end>=positions.length) return null;
+      return new Position[]{positions[start], positions[end]};
+    }catch(IOException e){
+      System.err.println(className+" stopped: "+e);
+      stop();
+      return null;
+    }
+  }
+
+  /**
+   * Shows the final board to the agent in the child, if it is running.
+   * @param finalBoard the end position of the board.
+   * **/
+  public synchronized void finalBoard(Board finalBoard){
+    if(socket==null) return;
+    try{
+      send(finalBoard, AgentHost.FINAL);
+    }catch(IOException e){stop();}
+  }
+
+  /**
+   * Stops the agent in the child pondering, if it may ponder, and waits for it to stop.
+   * If the child does not answer within GRACE, it is stopped.
+   * **/
+  public synchronized void stopPondering(){
+    if(socket==null || childPonderThreads==0) return;
+    try{
+      out.write(AgentHost.STOP_PONDERING);
+      out.flush();
+      socket.setSoTimeout(GRACE);
+      in.readUnsignedByte();
+    }catch(IOException e){
+      System.err.println(className+" stopped: "+e);
+      stop();
+    }
+  }
+
+  //whether the board is of an untimed game, in which no player has more than the millisecond ThreeChess.play gives them
+  private static boolean untimed(Board board){
+    for(Colour c: Colour.values()) if(board.getTimeLeft(c)>1) return false;
+    return true;
+  }
+
+  //sends the moves that bring the child's board up to the board, or the whole game if it does not follow on
+  private void send(Board board, byte type) throws IOException{
+    message.reset();
+    int n = shadow==null ? -1 : catchUp(board);
+    if(n<0){
+      int time = Integer.MIN_VALUE;//the time limit, assuming the player with most time left has used none
+      for(Colour c: Colour.values()) time = Math.max(time, board.getTimeLeft(c));
+      shadow = new Board(time);
+      message.write(AgentHost.GAME);
+      AgentHost.writeVarint(message, time);
+      n = Math.max(catchUp(board), 0);//if the board was not a standard game, the child's board is as near as can be made
+    }
+    message.write(type);
+    AgentHost.writeVarint(message, n);
+    moves.writeTo(message);
+    message.writeTo(out);
+    out.flush();
+  }
+
+  //makes the moves that bring the shadow board up to the board, recording them in moves,
+  //and returns the number of moves, or -1 if the board does not follow on from the shadow board
+  private int catchUp(Board board){
+    moves.reset();
+    int count = board.getMoveCount(), done = shadow.getMoveCount(), n = 0;
+    if(count<done || (done>0 && !Arrays.equals(board.getMove(done-1), shadow.getMove(done-1)))) return -1;
+    try{
+      for(int i = done; i<count; i++){
+        Position[] move = board.getMove(i);
+        Colour mover = Colour.values()[i%3];
+        //the time a player has used since the shadow was last updated is given to their last move
+        int time = i+3>=count ? shadow.getTimeLeft(mover)-board.getTimeLeft(mover) : 0;
+        if(time<0) return -1;
+        append(move[0], move[1], time);
+        n++;
+      }
+      if(board.gameOver() && !shadow.gameOver()){//the player ran out of time, and any legal move taking that long does the same
+        Colour turn = board.getTurn();
+        List<Position[]> legal = MoveGenerator.legalMoves(shadow);
+        int time = shadow.getTimeLeft(turn)-board.getTimeLeft(turn);
+        if(legal.isEmpty() || time<0) return -1;
+        append(legal.get(0)[0], legal.get(0)[1], time);
+        n++;
+      }
+    }catch(ImpossiblePositionException | IOException e){return -1;}//moves is in memory, so cannot fail to be written
+    if(shadow.hash()!=board.hash() || shadow.gameOver()!=board.gameOver()) return -1;
+    for(Colour c: Colour.values()) if(shadow.getTimeLeft(c)!=board.getTimeLeft(c)) return -1;
+    return n;
+  }
+
+  private void append(Position start, Position end, int time) throws ImpossiblePositionException, IOException{
+    shadow.move(start, end, time);
+    moves.write(start.ordinal());
+    moves.write(end.ordinal());
+    AgentHost.writeVarint(moves, time);
+  }
+
+  /** @return the number of moves the child has answered. **/
+  public synchronized int getRequests(){return requests;}
+
+  /** @return the mean time in microseconds a move took beyond the time the agent spent choosing it. **/
+  public synchronized double getMeanOverhead(){return requests==0 ? 0 : totalOverhead/1000.0/requests;}
+
+  /** @return the longest time in microseconds a move took beyond the time the agent spent choosing it. **/
+  public synchronized double getMaxOverhead(){return maxOverhead/1000.0;}
+
+  /** @return the name of the agent in the child. **/
+  public String toString(){return name;}
+
+  /** Stops the child. It is started again if the agent is asked for another move. **/
+  public synchronized void close(){stop();}
+
+  /**
+   * Plays games between sandboxed agents, and prints the time each move took beyond the time the agents spent choosing it.
+   * Run with the number of games, which is 20 by default.
+   * **/
+  public static void main(String[] args){
+    int games = args.length>0 ? Integer.parseInt(args[0]) : 20;
+    SandboxedAgent[] agents = {new SandboxedAgent(GreedyAgent.class.getName()), new SandboxedAgent(RandomAgent.class.getName()),
+        new SandboxedAgent(GreedyAgent.class.getName())};
+    java.io.PrintStream quiet = new java.io.PrintStream(java.io.OutputStream.nullOutputStream());
+    for(int g = 0; g<games; g++) ThreeChess.play(agents[g%3], agents[(g+1)%3], agents[(g+2)%3], 60, quiet, false);
+    for(SandboxedAgent a: agents){
+      System.out.printf("%s: %d moves, mean overhead %.1f us, max %.1f us%n", a, a.getRequests(), a.getMeanOverhead(), a.getMaxOverhead());
+      a.close();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package threeChess;
+
+/**
+ * A position for searching, which makes and unmakes encoded moves in place,
+ * rather than cloning a Board for every node of a search tree.
+ * Moves follow Board.move exactly, including promotion to Queen, castling and the end of the game
+ * when a King is taken, but take no time.
+ * The Zobrist hash, each player's score (as given by Board.score) and the sum of
+ * the piece-square values of each player's pieces are updated as moves are made.
+ * Moves are encoded as in MoveGenerator, and a state is not safe for use by several threads.
+ * **/
+public final class SearchState{
+
+  /**The most moves that can be made from the starting position before they are unmade**/
+  public static final int MAX_PLY = 128;
+
+  private static final Piece[] QUEENS = {new Piece(PieceType.QUEEN, Colour.BLUE),
+    new Piece(PieceType.QUEEN, Colour.GREEN), new Piece(PieceType.QUEEN, Colour.RED)};
+
+  private final PieceSquareTables tables;
+  private final Piece[] squares = new Piece[96];
+  private final int[] score = new int[3];
+  private final double[] position = new double[3];
+  private int turn;
+  private long hash;
+  private int winner = -1, loser = -1;
+  private int ply;
+
+  //the changes made by each move, to unmake it
+  private final int[][] changedSquares = new int[MAX_PLY][4];
+  private final Piece[][] changedPieces = new Piece[MAX_PLY][4];
+  private final int[] changes = new int[MAX_PLY];
+  private final int[][] savedScores = new int[MAX_PLY][3];
+  private final double[][] savedPositions = new double[MAX_PLY][3];
+  private final long[] savedHashes = new long[MAX_PLY];
+  private final int[] savedWinners = new int[MAX_PLY], savedLosers = new int[MAX_PLY];
+  private final int[] moves = new int[MAX_PLY];
+
+  /**
+   * Creates a state with the position of a board.
+   * @param board the board to copy.
+   * @param tables the piece-square tables to sum the values of each player's pieces with.
+   * **/
+  public SearchState(Board board, PieceSquareTables tables){
+    this.tables = tables;
+    for(Position p: Position.values()){
+      Piece piece = board.getPiece(p);
+      squares[p.ordinal()] = piece;
+      if(piece!=null) position[piece.getColour().ordinal()] += tables.value(piece, p);
+    }
+    for(Colour c: Colour.values()) score[c.ordinal()] = board.score(c);
+    turn = board.getTurn().ordinal();
+    hash = board.hash();
+    if(board.gameOver()){
+      winner = board.getWinner()==null ? -1 : board.getWinner().ordinal();
+      loser = board.getLoser()==null ? -1 : board.getLoser().ordinal();
+    }
+  }
+
+  /**
+   * Creates a copy of a state, with none of its moves to unmake, for another thread to search.
+   * @param state the state to copy.
+   * **/
+  public SearchState(SearchState state){
+    tables = state.tables;
+    System.arraycopy(state.squares, 0, squares, 0, 96);
+    System.arraycopy(state.score, 0, score, 0, 3);
+    System.arraycopy(state.position, 0, position, 0, 3);
+    turn = state.turn;
+    hash = state.hash;
+    winner = state.winner;
+    loser = state.loser;
+  }
+
+  /**
+   * Makes a legal move of the player whose turn it is.
+   * @param move the encoded move.
+   * @throws ArrayIndexOutOfBoundsException if MAX_PLY moves have been made and not unmade.
+   * **/
+  public void make(int move){
+    int from = move/96, to = move%96;
+    Piece mover = squares[from], taken = squares[to];
+    int c = mover.getColour().ordinal();
+    savedHashes[ply] = hash;
+    savedWinners[ply] = winner;
+    savedLosers[ply] = loser;
+    System.arraycopy(score, 0, savedScores[ply], 0, 3);
+    System.arraycopy(position, 0, savedPositions[ply], 0, 3);
+    moves[ply] = move;
+    changes[ply] = 0;
+    set(from, null);
+    if(mover.getType()==PieceType.PAWN && (to&3)==0 && to>>5!=c) set(to, QUEENS[c]);//promote pawn if back rank
+    else set(to, mover);
+    if(mover.getType()==PieceType.KING && (from&3)==0 && (from>>2&7)==4){//castling moves the rook, as in Board.move
+      int rank = 32*c, column = to>>2&7;
+      if(column==2){
+        set(rank+12, squares[rank]);
+        set(rank, null);
+      }else if(column==6){
+        set(rank+20, squares[rank+28]);
+        set(rank+28, null);
+      }
+    }
+    if(taken!=null){
+      score[c] += taken.getValue();
+      if(taken.getType()==PieceType.KING && winner<0){
+        winner = c;
+        loser = taken.getColour().ordinal();
+      }
+    }
+    int next = (turn+1)%3;
+    hash ^= Zobrist.turn(Colour.values()[turn])^Zobrist.turn(Colour.values()[next]);
+    turn = next;
+    ply++;
+  }
+
+  //puts a piece on a square, or empties it, recording the change and updating the hash, scores and positions
+  private void set(int square, Piece piece){
+    Piece old = squares[square];
+    changedSquares[ply][changes[ply]] = square;
+    changedPieces[ply][changes[ply]++] = old;
+    if(old!=null){
+      int c = old.getColour().ordinal();
+      hash ^= Zobrist.piece(old.getType().ordinal(), c, square);
+      score[c] -= old.getValue();
+      position[c] -= tables.value(old.getType().ordinal(), c, square);
+    }
+    if(piece!=null){
+      int c = piece.getColour().ordinal();
+      hash ^= Zobrist.piece(piece.getType().ordinal(), c, square);
+      score[c] += piece.getValue();
+      position[c] += tables.value(piece.getType().ordinal(), c, square);
+    }
+    squares[square] = piece;
+  }
+
+  /**
+   * Unmakes the last move made.
+   * @throws ArrayIndexOutOfBoundsException if there is no move to unmake.
+   * **/
+  public void unmake(){
+    ply--;
+    for(int i = changes[ply]-1; i>=0; i--) squares[changedSquares[ply][i]] = changedPieces[ply][i];
+    System.arraycopy(savedScores[ply], 0, score, 0, 3);
+    System.arraycopy(savedPositions[ply], 0, position, 0, 3);
+    hash = savedHashes[ply];
+    winner = savedWinners[ply];
+    loser = savedLosers[ply];
+    turn = (turn+2)%3;
+  }
+
+  /**
+   * The pieces on the board, indexed by Position ordinal, for MoveGenerator.
+   * The array is shared, changes as moves are made, and must not be modified.
+   * @return the pieces on the board.
+   * **/
+  public Piece[] squares(){return squares;}
+
+  /** @return the ordinal of the colour of the player whose turn it is. **/
+  public int turn(){return turn;}
+
+  /** @return the Zobrist hash of the position, equal to Board.hash for the same position. **/
+  public long hash(){return hash;}
+
+  /** @return the number of moves made that have not been unmade. **/
+  public int ply(){return ply;}
+
+  /**
+   * @param ply the index of a move made and not unmade, from 0.
+   * @return the encoded move.
+   * **/
+  public int move(int ply){return moves[ply];}
+
+  /**
+   * @param colour the ordinal of the colour of a player.
+   * @return the player's score, as Board.score gives it.
+   * **/
+  public int score(int colour){return score[colour];}
+
+  /**
+   * @param colour the ordinal of the colour of a player.
+   * @return the sum of the piece-square values of the player's pieces.
+   * **/
+  public double positionValue(int colour){return position[colour];}
+
+  /** @return true if a King has been taken. **/
+  public boolean gameOver(){return winner>=0;}
+
+  /** @return the ordinal of the colour of the player who took a King, or -1 if none has been taken. **/
+  public int winner(){return winner;}
+
+  /** @return the ordinal of the colour of the player whose King was taken, or -1 if none has been taken. **/
+  public int loser(){return loser;}
+}
@@ -0,0 +1,23 @@
+package threeChess;
+
+/**
+ * Something that watches games as they are played, such as a display.
+ * The game loop publishes a snapshot of the board after every move and carries on,
+ * so a spectator must not do any slow work in publish;
+ * it should hand the snapshot to its own thread, and may skip snapshots to keep up.
+ * **/
+public interface Spectator{
+
+  /**
+   * Called by the game loop with the state of the board after each move,
+   * and once with the initial board when the game starts.
+   * @param snapshot the state of the board.
+   * **/
+  void publish(BoardSnapshot snapshot);
+
+  /**
+   * Called by the game loop once the game has ended, however it ended, after the last snapshot has been published.
+   * A spectator with its own thread may stop it once the last snapshot is shown.
+   * **/
+  default void finish(){}
+}
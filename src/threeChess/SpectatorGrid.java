@@ -0,0 +1,297 @@
+package threeChess;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.*;
+
+/**
+ * A window showing many games at once, each as a thumbnail of the board in a grid on a single canvas.
+ * Every game gets a tile, which is a Spectator for that game.
+ * The empty board is drawn once, at thumbnail size, from the same geometry as the full size display,
+ * and one render thread draws at most MAX_FPS frames a second, redrawing only the tiles whose game has moved since.
+ * Clicking a tile opens a full size ThreeChessDisplay of that game, which is sent the game's moves until it is closed.
+ * Each tile keeps the moves of its game, so the display is opened on a board with the game's history so far.
+ * That board is not moved on once the display has it, as the display reads it from its own threads,
+ * so the moves made after the display is opened are shown, but only browsed once it is opened again.
+ * **/
+public class SpectatorGrid extends JFrame {
+
+  /** Serial version UID for SpectatorGrid serialization**/
+  private static final long serialVersionUID = 4584188034441485307L;
+
+  /**The most frames drawn each second**/
+  public static final int MAX_FPS = ThreeChessDisplay.MAX_FPS;
+  /**The width and height of each thumbnail of a board**/
+  public static final int TILE_SIZE = 240;
+
+  private static final int CAPTION_HEIGHT = 36;
+  private static final int CAPTION_FONTSIZE = 12;
+  private static final int AGENT_NAME_MAX_LENGTH = 12;
+  private final BoardGeometry geometry = BoardGeometry.forSize(800);
+  private final double scale = TILE_SIZE / 800.0;
+  private final int columns;
+  private final int rows;
+  private final Canvas canvas;
+  private final List<Tile> tiles = new ArrayList<Tile>();
+  private final BufferedImage emptyBoard;//the board layer at thumbnail size, shared by all the tiles
+  private final BufferedImage frame;//every tile as last drawn
+  private volatile boolean exposed = true;//whether the canvas needs the frame copied to it, even if no tile changed
+
+  /** A game shown in the grid. **/
+  private class Tile implements Spectator {
+    private final int index;
+    private final String[] players;
+    private final List<Position[]> moves = new ArrayList<Position[]>();//the moves of the game so far
+    private BoardSnapshot latest;//the latest snapshot published, or null if the game has not started
+    private boolean dirty;//whether the latest snapshot has not been drawn yet
+    private boolean finished;//whether the game has ended
+    private ThreeChessDisplay view;//the full size display of the game, or null if none is open
+
+    private Tile(int index, String[] players){
+      this.index = index;
+      this.players = players;
+    }
+
+    /**
+     * Records the latest state of the game for the render thread, and passes it on to the full size display if it is open.
+     * @param snapshot the state of the board after a move.
+     * **/
+    public void publish(BoardSnapshot snapshot){
+      ThreeChessDisplay display;
+      synchronized(this){
+        latest = snapshot;
+        dirty = true;
+        if(snapshot.getMoveCount()>moves.size()) moves.add(snapshot.getLastMove());
+        display = view;
+      }
+      if(display!=null) display.publish(snapshot);
+    }
+
+    /** Records that the game has ended, so the full size display can stop its render thread. **/
+    public void finish(){
+      ThreeChessDisplay display;
+      synchronized(this){
+        finished = true;
+        display = view;
+      }
+      if(display!=null) display.finish();
+    }
+
+    /** @return the latest snapshot if it has not been drawn, or null if the tile is up to date. **/
+    private synchronized BoardSnapshot take(){
+      if(!dirty) return null;
+      dirty = false;
+      return latest;
+    }
+
+    /** 
+     * Opens a full size display of the game, on a board with the moves so far, or brings it to the front if it is already open.
+     * The display is made without holding the tile's lock, so the game is not held up by publishing to the tile meanwhile.
+     * Closing the display stops its render thread.
+     * **/
+    private void open(){
+      List<Position[]> played;
+      synchronized(this){
+        if(view!=null){
+          view.toFront();
+          return;
+        }
+        played = new ArrayList<Position[]>(moves);
+      }
+      Board board = new Board(0);
+      for(Position[] move: played) replay(board, move);
+      ThreeChessDisplay display = new ThreeChessDisplay(board, players[0], players[1], players[2]);
+      display.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);//closing a game does not end the others
+      display.addWindowListener(new WindowAdapter(){
+        @Override
+        public void windowClosed(WindowEvent e){
+          display.stopRendering();
+          synchronized(Tile.this){view = null;}
+        }
+      });
+      synchronized(this){//so the game's later snapshots reach the display after this one
+        view = display;
+        if(latest!=null) display.publish(latest);
+        if(finished) display.finish();
+      }
+    }
+  }
+
+  //makes a move the game has already made on a board, untimed
+  private static void replay(Board board, Position[] move){
+    try{
+      board.move(move[0], move[1]);
+    }
+    catch(ImpossiblePositionException e){throw new IllegalStateException(e);}//the move was legal in the game
+  }
+
+  /**
+   * Creates a window to show a number of games.
+   * @param games the largest number of games that will be shown, which decides the layout of the grid.
+   * **/
+  public SpectatorGrid(int games){
+    super("ThreeChess");
+    columns = Math.max(1, (int) Math.ceil(Math.sqrt(games)));
+    rows = Math.max(1, (games + columns - 1) / columns);
+    int width = columns * TILE_SIZE, height = rows * (TILE_SIZE + CAPTION_HEIGHT);
+
+    emptyBoard = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = ThreeChessDisplay.getImageGraphics(emptyBoard);
+    try {
+      g.scale(scale, scale);
+      ThreeChessDisplay.drawBoardLayer(g, geometry, geometry.size, geometry.size);
+    } finally {
+      g.dispose();
+    }
+    frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    g = ThreeChessDisplay.getImageGraphics(frame);
+    try {
+      g.setColor(Color.LIGHT_GRAY);
+      g.fillRect(0, 0, width, height);
+    } finally {
+      g.dispose();
+    }
+
+    canvas = new Canvas() {
+      @Override
+      public void paint(Graphics g) {
+        exposed = true;
+      }
+    };
+    add(canvas);
+    canvas.setPreferredSize(new Dimension(width, height));
+    canvas.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        Tile tile = getTile(e.getX(), e.getY());
+        if (tile != null) tile.open();
+      }
+    });
+
+    pack();
+    setLocationRelativeTo(null);
+    setResizable(false);
+    setVisible(true);
+    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    canvas.createBufferStrategy(2);
+
+    Thread renderThread = new Thread(this::render, "SpectatorGrid-render");
+    renderThread.setDaemon(true);
+    renderThread.start();
+  }
+
+  /**
+   * Adds a game to the grid.
+   * @param bluePlayer the name of the blue player
+   * @param greenPlayer the name of the green player
+   * @param redPlayer the name of the red player
+   * @return the spectator to publish the game's snapshots to.
+   * @throws IllegalStateException if the grid is already full.
+   * **/
+  public Spectator newGame(String bluePlayer, String greenPlayer, String redPlayer){
+    synchronized (tiles) {
+      if (tiles.size() >= columns * rows) throw new IllegalStateException("The grid has room for only "+columns * rows+" games.");
+      Tile tile = new Tile(tiles.size(), new String[]{bluePlayer, greenPlayer, redPlayer});
+      tiles.add(tile);
+      return tile;
+    }
+  }
+
+  /** @return the tile at the given coordinates of the canvas, or null. **/
+  private Tile getTile(int x, int y) {
+    if (x < 0 || y < 0) return null;
+    int index = (y / (TILE_SIZE + CAPTION_HEIGHT)) * columns + x / TILE_SIZE;
+    synchronized (tiles) {
+      return x < columns * TILE_SIZE && index < tiles.size() ? tiles.get(index) : null;
+    }
+  }
+
+  //The render thread: each frame, redraws the tiles whose game has moved, and copies the frame to the canvas if anything changed.
+  private void render() {
+    long frameMillis = 1000 / MAX_FPS;
+    while (true) {
+      Tile[] current;
+      synchronized (tiles) {
+        current = tiles.toArray(new Tile[0]);
+      }
+      boolean changed = exposed;
+      exposed = false;
+      for (Tile tile: current) {
+        BoardSnapshot snapshot = tile.take();
+        if (snapshot == null) continue;
+        drawTile(tile, snapshot);
+        changed = true;
+      }
+      if (changed) showFrame();
+      try {
+        Thread.sleep(frameMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /** Draws a game to its tile of the frame: the board, the pieces and the last move, with a caption below. **/
+  private void drawTile(Tile tile, BoardSnapshot board) {
+    int x = (tile.index % columns) * TILE_SIZE, y = (tile.index / columns) * (TILE_SIZE + CAPTION_HEIGHT);
+    Graphics2D g = ThreeChessDisplay.getImageGraphics(frame);
+    try {
+      g.translate(x, y);
+      g.drawImage(emptyBoard, 0, 0, null);
+      AffineTransform unscaled = g.getTransform();
+      g.scale(scale, scale);
+      g.setStroke(new BasicStroke(3));
+      g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, ThreeChessDisplay.PIECE_FONTSIZE));
+      Position[] move = board.getLastMove();
+      if (move != null) {
+        g.setColor(Color.WHITE);
+        for (Position pos: move) g.drawPolygon(geometry.highlightXs[pos.ordinal()], geometry.highlightYs[pos.ordinal()], 4);
+      }
+      for (Position pos: Position.values()) {
+        Piece piece = board.getPiece(pos);
+        if (piece != null)
+          ThreeChessDisplay.drawPiece(g, piece, geometry.centres[pos.ordinal()], ThreeChessDisplay.getColour(pos.getColour(), false, false));
+      }
+
+      g.setTransform(unscaled);
+      g.setColor(Color.LIGHT_GRAY);
+      g.fillRect(0, TILE_SIZE, TILE_SIZE, CAPTION_HEIGHT);
+      g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, CAPTION_FONTSIZE));
+      FontMetrics metrics = g.getFontMetrics();
+      int textX = 4, textY = TILE_SIZE + metrics.getAscent() + 2;
+      for (Colour c: Colour.values()) {
+        String name = ThreeChessDisplay.truncateBelowLength(tile.players[c.ordinal()], AGENT_NAME_MAX_LENGTH);
+        boolean winner = board.gameOver() && c == board.getWinner();
+        g.setFont(new Font(g.getFont().getFontName(), winner ? Font.BOLD : Font.PLAIN, CAPTION_FONTSIZE));
+        g.setColor(ThreeChessDisplay.getColour(c, true, true));
+        g.drawString(name, textX, textY);
+        textX += TILE_SIZE / 3;
+      }
+      g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, CAPTION_FONTSIZE));
+      g.setColor(Color.BLACK);
+      String status = board.gameOver() ? "Game over after "+board.getMoveCount()+" moves, "+board.getWinner()+" won"
+          : "Move "+board.getMoveCount()+", "+board.getTurn()+" to play";
+      g.drawString(status, 4, textY + metrics.getHeight());
+    } finally {
+      g.dispose();
+    }
+  }
+
+  /** Copies the frame to the canvas. **/
+  private void showFrame() {
+    Graphics g = canvas.getBufferStrategy().getDrawGraphics();
+    try {
+      g.drawImage(frame, 0, 0, null);
+    } finally {
+      g.dispose();
+    }
+    canvas.getBufferStrategy().show();
+  }
+}
@@ -0,0 +1,224 @@
+package threeChess;
+
+/**
+ * Static exchange evaluation: the material each player wins or loses when the pieces attacking a square
+ * take on it in turn, found without making any moves on, or cloning, a board.
+ * The attackers of a square are found by reverse lookup, from tables of the squares
+ * each type of piece could attack it from, precomputed from MoveGenerator,
+ * and the pieces lined up behind a slider join in once the slider has taken.
+ * <p>
+ * Captures are resolved in turn order, BLUE, GREEN then RED, as in Board.move.
+ * After each capture, the next player may take with its least valuable attacker or let it be,
+ * and the player after that then has the same choice, so a third player may take the piece
+ * two players have just exchanged. The exchange ends when both players after the last capture let it be,
+ * or when a King is taken, which ends the game.
+ * Each player takes if that gains it more, by the end of the exchange, than letting the piece be.
+ * Gains are in PieceType values, as in Board.score, and a pawn that takes on another colour's back rank
+ * gains the difference between a Queen and a pawn. Moves are encoded as in MoveGenerator.
+ * **/
+public final class StaticExchange{
+
+  private static final int MAX_CAPTURES = 16;//the longest exchange resolved, which bounds the work done
+  private static final int MAX_ATTACKERS = 256;//more than the squares a square can be attacked from
+  //the kinds of attackers: a pawn of each colour, which capture in different directions, then the other types
+  private static final PieceType[] KINDS = {PieceType.PAWN, PieceType.PAWN, PieceType.PAWN,
+    PieceType.KNIGHT, PieceType.KING, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN};
+  private static final int[][] ATTACKERS = new int[96][];//for each square, a square it is attacked from, plus kind<<7
+  private static final long[][] PATHS0 = new long[96][], PATHS1 = new long[96][];//the squares between, which must be vacant
+  private static final Piece[] QUEENS = new Piece[3];//the Queen a pawn of each colour is promoted to
+
+  static{
+    int[][] attackers = new int[96][MAX_ATTACKERS];
+    long[][] paths0 = new long[96][MAX_ATTACKERS], paths1 = new long[96][MAX_ATTACKERS];
+    int[] count = new int[96];
+    for(int from = 0; from<96; from++){
+      for(int c = 0; c<3; c++){
+        for(int s = 2; s<PieceType.PAWN.getSteps().length; s++){
+          int to = MoveGenerator.pawnStep(Colour.values()[c], s, from);
+          if(to>=0 && !contains(attackers[to], count[to], from|c<<7)) attackers[to][count[to]++] = from|c<<7;
+        }
+      }
+      for(int kind = 3; kind<KINDS.length; kind++){
+        int[] steps = MoveGenerator.steps(KINDS[kind], from);
+        if(steps!=null){
+          for(int to: steps) attackers[to][count[to]++] = from|kind<<7;
+          continue;
+        }
+        for(int[] ray: MoveGenerator.rays(KINDS[kind], from)){
+          long path0 = 0, path1 = 0;
+          for(int to: ray){
+            paths0[to][count[to]] = path0;
+            paths1[to][count[to]] = path1;
+            attackers[to][count[to]++] = from|kind<<7;
+            if(to<64) path0 |= 1L<<to; else path1 |= 1L<<(to-64);
+          }
+        }
+      }
+    }
+    for(int sq = 0; sq<96; sq++){
+      ATTACKERS[sq] = java.util.Arrays.copyOf(attackers[sq], count[sq]);
+      PATHS0[sq] = java.util.Arrays.copyOf(paths0[sq], count[sq]);
+      PATHS1[sq] = java.util.Arrays.copyOf(paths1[sq], count[sq]);
+    }
+    for(Colour c: Colour.values()) QUEENS[c.ordinal()] = new Piece(PieceType.QUEEN, c);
+  }
+
+  private StaticExchange(){}
+
+  private static boolean contains(int[] entries, int n, int entry){
+    for(int i = 0; i<n; i++) if(entries[i]==entry) return true;
+    return false;
+  }
+
+  /**
+   * Finds the pieces of a player that attack a square, i.e. the pieces with a legal move ending there
+   * were the square occupied by another player's piece.
+   * @param squares the pieces on the board, indexed by Position ordinal.
+   * @param square the ordinal of the attacked position.
+   * @param colour the attacking player.
+   * @param dest an array of at least 32 elements to write the ordinals of the attackers' positions to.
+   * @return the number of attackers.
+   * **/
+  public static int attackers(Piece[] squares, int square, Colour colour, int[] dest){
+    long occ0 = 0, occ1 = 0;
+    for(int sq = 0; sq<96; sq++) if(squares[sq]!=null){if(sq<64) occ0 |= 1L<<sq; else occ1 |= 1L<<(sq-64);}
+    int n = 0;
+    for(int i: candidates(squares, square, occ0, occ1)){
+      int from = ATTACKERS[square][i]&127;
+      if(squares[from].getColour()==colour && (PATHS0[square][i]&occ0)==0 && (PATHS1[square][i]&occ1)==0
+          && !contains(dest, n, from))
+        dest[n++] = from;
+    }
+    return n;
+  }
+
+  /**
+   * Evaluates a move, and the exchange of captures on the square it moves to that follows it.
+   * The move need not capture: a quiet move to a square the opponents attack loses the piece moved,
+   * unless taking it costs them more. The Rook moved by castling is not accounted for.
+   * @param squares the pieces on the board before the move, indexed by Position ordinal. They are not changed.
+   * @param move an encoded legal move.
+   * @param gains an array of 3 elements to write the gain of each player to, indexed by Colour ordinal, or null.
+   * @return the gain of the player making the move, which is negative if the exchange loses it material.
+   * **/
+  public static int evaluate(Piece[] squares, int move, int[] gains){
+    int from = move/96, to = move%96;
+    long occ0 = 0, occ1 = 0;
+    for(int sq = 0; sq<96; sq++) if(squares[sq]!=null && sq!=from){if(sq<64) occ0 |= 1L<<sq; else occ1 |= 1L<<(sq-64);}
+    Piece mover = squares[from], taken = squares[to];
+    int m = mover.getColour().ordinal();
+    long g;
+    if(taken==null){
+      g = 0;
+      if(to<64) occ0 |= 1L<<to; else occ1 |= 1L<<(to-64);
+      Piece moved = mover;
+      if(Evaluator.promotes(mover, to)){
+        g = gain(m, PieceType.QUEEN.getValue()-PieceType.PAWN.getValue());
+        moved = QUEENS[m];
+      }
+      g += resolve(squares, to, moved, (m+1)%3, candidates(squares, to, occ0, occ1), occ0, occ1, 0);
+    }
+    else g = capture(squares, to, taken, mover, from, candidates(squares, to, occ0, occ1), occ0, occ1, 0);
+    if(gains!=null) for(int c = 0; c<3; c++) gains[c] = component(g, c);
+    return component(g, m);
+  }
+
+  /**
+   * Evaluates a move, and the exchange of captures on the square it moves to that follows it.
+   * @param squares the pieces on the board before the move, indexed by Position ordinal. They are not changed.
+   * @param move an encoded legal move.
+   * @return the gain of the player making the move, which is negative if the exchange loses it material.
+   * **/
+  public static int evaluate(Piece[] squares, int move){
+    return evaluate(squares, move, null);
+  }
+
+  /**
+   * Evaluates the exchange on a position, starting with the player whose turn it is,
+   * who may take with its least valuable attacker, or let the piece be.
+   * @param board the board, which is not changed.
+   * @param target the position taken on.
+   * @return the gain of the player whose turn it is, which is 0 if it is best not to take,
+   * or if the position is vacant or holds that player's piece.
+   * **/
+  public static int evaluate(Board board, Position target){
+    Piece[] squares = MoveGenerator.squares(board);
+    Piece occupant = squares[target.ordinal()];
+    int turn = board.getTurn().ordinal();
+    if(occupant==null || occupant.getColour().ordinal()==turn) return 0;
+    long occ0 = 0, occ1 = 0;
+    for(int sq = 0; sq<96; sq++) if(squares[sq]!=null){if(sq<64) occ0 |= 1L<<sq; else occ1 |= 1L<<(sq-64);}
+    int[] candidates = candidates(squares, target.ordinal(), occ0, occ1);
+    return component(resolve(squares, target.ordinal(), occupant, turn, candidates, occ0, occ1, 0), turn);
+  }
+
+  //the gains of the exchange on a square from the player's turn, where both players after the occupant's may take or not
+  private static long resolve(Piece[] squares, int square, Piece occupant, int player, int[] candidates,
+      long occ0, long occ1, int captures){
+    int owner = occupant.getColour().ordinal();
+    if(captures>=MAX_CAPTURES) return 0;
+    for(; player!=owner; player = (player+1)%3){
+      int from = leastAttacker(squares, square, player, candidates, occ0, occ1);
+      if(from<0) continue;//the player cannot take, so the next player may
+      long take = capture(squares, square, occupant, squares[from], from, candidates, occ0, occ1, captures);
+      int next = (player+1)%3;
+      long pass = next==owner ? 0 : resolve(squares, square, occupant, next, candidates, occ0, occ1, captures);
+      return component(take, player)>component(pass, player) ? take : pass;
+    }
+    return 0;
+  }
+
+  //the gains of taking the occupant of a square, and of the exchange that follows
+  private static long capture(Piece[] squares, int square, Piece occupant, Piece attacker, int from, int[] candidates,
+      long occ0, long occ1, int captures){
+    int a = attacker.getColour().ordinal(), value = occupant.getValue();
+    long g = gain(a, value)-gain(occupant.getColour().ordinal(), value);
+    Piece moved = attacker;
+    if(Evaluator.promotes(attacker, square)){
+      g += gain(a, PieceType.QUEEN.getValue()-PieceType.PAWN.getValue());
+      moved = QUEENS[a];
+    }
+    if(occupant.getType()==PieceType.KING) return g;//the game is over
+    if(from<64) occ0 &= ~(1L<<from); else occ1 &= ~(1L<<(from-64));
+    return g+resolve(squares, square, moved, (a+1)%3, candidates, occ0, occ1, captures+1);
+  }
+
+  //the attacker entries of a square with a piece of their kind on the board, the only pieces that may take there
+  private static int[] candidates(Piece[] squares, int square, long occ0, long occ1){
+    int[] entries = ATTACKERS[square], candidates = new int[entries.length];
+    int n = 0;
+    for(int i = 0; i<entries.length; i++){
+      int from = entries[i]&127, kind = entries[i]>>7;
+      if(from<64 ? (occ0&1L<<from)==0 : (occ1&1L<<(from-64))==0) continue;
+      Piece p = squares[from];
+      if(p.getType()==KINDS[kind] && (kind>=3 || kind==p.getColour().ordinal())) candidates[n++] = i;
+    }
+    return java.util.Arrays.copyOf(candidates, n);
+  }
+
+  //the square of the player's least valuable piece taking on the square, or -1 if there is none
+  private static int leastAttacker(Piece[] squares, int square, int colour, int[] candidates, long occ0, long occ1){
+    int best = -1, bestValue = Integer.MAX_VALUE;
+    for(int i: candidates){
+      int from = ATTACKERS[square][i]&127;
+      if(from<64 ? (occ0&1L<<from)==0 : (occ1&1L<<(from-64))==0) continue;//has already taken
+      Piece p = squares[from];
+      if(p.getColour().ordinal()==colour && p.getValue()<bestValue
+          && (PATHS0[square][i]&occ0)==0 && (PATHS1[square][i]&occ1)==0){
+        best = from;
+        bestValue = p.getValue();
+      }
+    }
+    return best;
+  }
+
+  //the gains of the three players are packed into a long, in 20 bit fields, so they can be added without allocating
+  private static long gain(int colour, int value){
+    return (long) value<<(20*colour);
+  }
+
+  private static int component(long gains, int colour){
+    for(int c = 0; c<colour; c++) gains = (gains-(gains<<44>>44))>>20;
+    return (int) (gains<<44>>44);
+  }
+}
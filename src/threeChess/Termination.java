@@ -0,0 +1,24 @@
+package threeChess;
+
+/**
+ * Enumeration of the ways a game can end
+ **/
+public enum Termination{
+  /**A King was taken**/
+  KING_TAKEN,
+  /**A player ran out of time**/
+  TIME_OUT,
+  /**A player attempted an illegal move, and lost**/
+  ILLEGAL_MOVE,
+  /**The game was stopped before it ended, such as a distributed game that was abandoned, and is not scored**/
+  UNFINISHED,
+  /**The game reached the move limit, and was scored on material**/
+  MOVE_LIMIT,
+  /**The same position occurred for the third time, and the game was drawn**/
+  REPETITION;
+
+  /** @return whether a game ending this way was adjudicated, rather than played out. **/
+  public boolean isAdjudicated(){
+    return this==MOVE_LIMIT || this==REPETITION;
+  }
+}
@@ -11,9 +11,14 @@ import threeChess.agents.*;
  * **/
 public class ThreeChess{
 
-  private final static int pause = 100;//The pause in milliseconds between updating the graphical board
+  private final static int pause = 100;//The playback delay in milliseconds between moves shown on the graphical board
   private final static int[][] perms = {{0,1,2},{0,2,1},{1,0,2},{1,2,0},{2,0,1},{2,1,0}};//to randomise play order
-  private final static Random random = new Random();
+  private static volatile Long masterSeed = null;//the seed of the tournaments run from now on, or null for a new seed each
+  private static volatile int ponderThreads = 0;//the threads each agent may ponder with while the others move
+  private static volatile int maxMoves = 0;//the moves after which a game is scored on material, or 0 for no limit
+  private static volatile boolean repetitionDraws = false;//whether the third occurrence of a position draws the game
+  /**The move limit set for the untimed tournaments run by main, a little over 200 moves for each player**/
+  public static final int DEFAULT_MAX_MOVES = 600;
   
   /**
    * A private class for representing the statistics of an agent in a tournament.
@@ -21,22 +26,26 @@ public class ThreeChess{
   private static class Statistics implements Comparable{
     private int won;
     private int lost;
+    private int illegal;
     private int pass;
+    private int adjudicated;
     private int played;
     private Agent agent;
+    private Ratings.Rating rating;
 
     /**
-     * Constructs a statistics object for the given agent
+     * Constructs a statistics object for the given agent, with its rating in the tournament
      * **/
-    public Statistics(Agent a){agent = a;}
+    public Statistics(Agent a, Ratings.Rating r){agent = a; rating = r;}
 
     /**
      * Updates the Statistics objects with the score from a game.
+     * An illegal move is counted separately from a loss, and costs twice as much in the average.
      * @param score -2 if an illegal move is attempt, -1 for a loss, 0 for a draw and +1 for a win.
      * **/
     public void update(int score){
       switch(score){
-        case -2: lost+=2; break;
+        case -2: illegal++; break;
         case -1: lost++;break;
         case 0: pass++;break;
         case 1: won++; break;
@@ -45,15 +54,28 @@ public class ThreeChess{
       played++;
     }
 
+    /**
+     * Updates the Statistics objects with the score from a game, as above,
+     * also counting the games whose result was adjudicated rather than played out.
+     * @param score -2 if an illegal move is attempt, -1 for a loss, 0 for a draw and +1 for a win.
+     * @param termination how the game ended.
+     * **/
+    public void update(int score, Termination termination){
+      update(score);
+      if(termination.isAdjudicated()) adjudicated++;
+    }
+
     /**
      * @return the average score of the player
      * **/
-    public double average(){return (1.0*(won-lost))/played;}
+    public double average(){return (1.0*(won-lost-2*illegal))/played;}
 
     /**
      * @return a JSON representation of the Statistics for an agent.
      * **/
-    public String toString(){return "name:"+ agent+", won:"+won+", lost:"+lost+", played:"+played+", avg:"+average();}
+    public String toString(){
+      return "name:"+ agent+", won:"+won+", lost:"+lost+", illegal:"+illegal+", adjudicated:"+adjudicated+", played:"+played+", avg:"+average()+", rating:"+rating;
+    }
 
     /**
      * @param o the object to compare to.
@@ -69,6 +91,37 @@ public class ThreeChess{
 
 
 
+  /**
+   * Sets the master seed of the tournaments run from now on, from which the order of play of each game,
+   * and the generators each agent is given with Agent.setRandom, are derived.
+   * A tournament run again with the same seed and agents is scheduled the same way, and in untimed games
+   * the agents that make all their random choices with Agent.getRandom play the same moves,
+   * whether the games are played in turn or by workers in parallel.
+   * By default each tournament has a new seed, which is logged so it can be run again.
+   * @param seed the master seed.
+   * **/
+  public static void setSeed(long seed){
+    masterSeed = seed;
+  }
+
+  //the generator of a tournament's seeds, logging its seed
+  private static SplittableRandom newMaster(PrintStream logger){
+    Long seed = masterSeed;
+    if(seed==null) seed = new SplittableRandom().nextLong();
+    logger.println("Seed: "+seed);
+    return new SplittableRandom(seed);
+  }
+
+  /**
+   * Gives each agent of a game a generator, split from the seed of the game in the order blue, green, red.
+   * @param game the agents playing blue, green and red.
+   * @param seed the seed of the game.
+   * **/
+  static void seedAgents(Agent[] game, long seed){
+    SplittableRandom random = new SplittableRandom(seed);
+    for(Agent agent: game) agent.setRandom(random.split());
+  }
+
   /**
    * Runs a tournament for a group of agents.
    * The games in the tournament will have the specified time limit.
@@ -80,38 +133,182 @@ public class ThreeChess{
    * @param logFile a FileName to print the game logs to. If this can't be found, or is null, System.out will be used instead.
    * **/
   public static void  tournament(Agent[] bots, int timeLimit, int numGames, Boolean displayOn, String logFile){
+    tournament(bots, timeLimit, numGames, displayOn, logFile, null);
+  }
+
+  /**
+   * Runs a tournament for a group of agents, as above, also recording every game to a file of binary game records,
+   * which can be read back with GameRecordReader.
+   * @param bots an array of Agents to compete in the contest.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param displayOn a boolean flag for whether the game should be graphically displayed
+   * @param logFile a FileName to print the game logs to. If this can't be found, or is null, System.out will be used instead.
+   * @param recordFile a FileName to record the games to. If this can't be created, or is null, the games are not recorded.
+   * **/
+  public static void  tournament(Agent[] bots, int timeLimit, int numGames, Boolean displayOn, String logFile, String recordFile){
     HashMap<Agent, Statistics> scoreboard = new HashMap<Agent,Statistics>();
-    PrintStream logger = System.out;
-    try{
-      if(logFile!=null) logger = new PrintStream(new File(logFile));
+    Ratings<Agent> ratings = new Ratings<Agent>();
+    PrintStream logger = openLog(logFile);
+    GameRecordWriter recorder = openRecorder(recordFile);
+    for(Agent a: bots) scoreboard.put(a, new Statistics(a, ratings.add(a)));
+    SplittableRandom master = newMaster(logger);
+    List<int[]> schedule = schedule(bots.length, numGames, master);
+    long[] seeds = master.longs(schedule.size()).toArray();//drawn before any game is played, as for distributed games
+    for(int g = 0; g<schedule.size(); g++){
+      int[] players = schedule.get(g);
+      Agent[] game = {bots[players[0]],bots[players[1]],bots[players[2]]};
+      playRated(game, timeLimit, logger, displayOn, recorder, scoreboard, ratings, seeds[g]);
     }
-    catch(IOException e){System.out.println(logFile+"not found: "+e.getMessage()+"\nUsing System.out instead.");}
-    for(Agent a: bots) scoreboard.put(a, new Statistics(a));
+    closeRecorder(recorder, logger);
+    printScoreboard(bots, scoreboard, null, logger);
+  }
+
+  /**
+   * Lists the games of a tournament, as described for tournament.
+   * @param agents the number of agents in the tournament.
+   * @param numGames the number of games, or 0 for every agent to play every other pair of agents.
+   * @param random the generator of the order of play in each game.
+   * @return for each game, the indexes of the agents playing blue, green and red, in that order.
+   * **/
+  static List<int[]> schedule(int agents, int numGames, SplittableRandom random){
+    List<int[]> games = new ArrayList<int[]>();
     if(numGames==0){//all combinations of three agents play each other. In each game the order is random.
-      for(int i = 0; i<bots.length; i++){
-        for(int j = i+1; j<bots.length; j++){
-          for(int k = j+1; k<bots.length; k++){
+      for(int i = 0; i<agents; i++){
+        for(int j = i+1; j<agents; j++){
+          for(int k = j+1; k<agents; k++){
             int[] players = {i,j,k};
             int[] ord = perms[random.nextInt(perms.length)];
-            int[] res = play(bots[players[ord[0]]],bots[players[ord[1]]],bots[players[ord[2]]], timeLimit, logger, displayOn);
-            for(int o = 0; o<3;o++)scoreboard.get(bots[players[ord[o]]]).update(res[o]);
+            games.add(new int[]{players[ord[0]],players[ord[1]],players[ord[2]]});
           }
         }
       }
     }
     else{//play randomly assigned games. Note agents may play themselves.
-      for(int g = 0; g<numGames; g++){
-        int[] res = play(bots[0],bots[1],bots[2], timeLimit, logger, displayOn);
-        for(int o = 0; o<3;o++)scoreboard.get(bots[o]).update(res[o]);
-      }
+      for(int g = 0; g<numGames; g++) games.add(new int[]{0,1,2});
+    }
+    return games;
+  }
+
+  /**
+   * Runs a tournament in which the agents in each game are chosen from their ratings so far,
+   * so a ranking of many agents converges in far fewer games than every agent playing every pair of others.
+   * Each game pairs the agent whose rating is least certain with the opponents that will tell the most about it,
+   * with the colours of the pieces randomly assigned.
+   * The agents are ranked by their conservative ratings.
+   * @param bots an array of at least three different Agents to compete in the contest.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param numGames the number of games to play.
+   * @param displayOn a boolean flag for whether the game should be graphically displayed
+   * @param logFile a FileName to print the game logs to. If this can't be found, or is null, System.out will be used instead.
+   * @param recordFile a FileName to record the games to. If this can't be created, or is null, the games are not recorded.
+   * **/
+  public static void adaptiveTournament(Agent[] bots, int timeLimit, int numGames, Boolean displayOn, String logFile, String recordFile){
+    HashMap<Agent, Statistics> scoreboard = new HashMap<Agent,Statistics>();
+    Ratings<Agent> ratings = new Ratings<Agent>();
+    PrintStream logger = openLog(logFile);
+    GameRecordWriter recorder = openRecorder(recordFile);
+    for(Agent a: bots) scoreboard.put(a, new Statistics(a, ratings.add(a)));
+    SplittableRandom master = newMaster(logger);
+    for(int g = 0; g<numGames; g++){
+      List<Agent> players = ratings.nextGame(master);
+      int[] ord = perms[master.nextInt(perms.length)];
+      Agent[] game = {players.get(ord[0]), players.get(ord[1]), players.get(ord[2])};
+      playRated(game, timeLimit, logger, displayOn, recorder, scoreboard, ratings, master.nextLong());
     }
+    closeRecorder(recorder, logger);
+    printScoreboard(bots, scoreboard, (a, b) -> Double.compare(b.rating.getConservativeRating(), a.rating.getConservativeRating()), logger);
+  }
+
+  /**
+   * Runs a tournament, as described for tournament, with the games played by TournamentWorker processes.
+   * Workers may be started on this host, or on other hosts given this host and the port,
+   * and a game is played again if the worker playing it crashes, up to TournamentCoordinator.MAX_ATTEMPTS times,
+   * after which it is abandoned and not scored.
+   * The agents are created by each worker from their class names, so each game starts with new agents.
+   * The games are adjudicated by the rules set with setAdjudication, which are sent to the workers with each game.
+   * @param agentClasses the fully qualified class names of at least three agents, each with a no argument constructor.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param numGames the number of games to play, or 0 for every agent to play every other pair of agents.
+   * @param logFile a FileName to print the game logs to. If this can't be found, or is null, System.out will be used instead.
+   * @param port the port to listen for workers on, or 0 for any free port.
+   * @param localWorkers the number of worker processes to start on this host.
+   * @throws ReflectiveOperationException if an agent class cannot be found or instantiated.
+   * @throws IOException if the port cannot be listened on.
+   * **/
+  public static void distributedTournament(String[] agentClasses, int timeLimit, int numGames, String logFile, int port, int localWorkers)
+      throws ReflectiveOperationException, IOException{
+    Agent[] bots = new Agent[agentClasses.length];//to name the agents in the scoreboard
+    for(int a = 0; a<bots.length; a++) bots[a] = TournamentWorker.newAgent(agentClasses[a]);
+    HashMap<Agent, Statistics> scoreboard = new HashMap<Agent,Statistics>();
+    Ratings<Agent> ratings = new Ratings<Agent>();
+    PrintStream logger = openLog(logFile);
+    for(Agent a: bots) scoreboard.put(a, new Statistics(a, ratings.add(a)));
+    SplittableRandom master = newMaster(logger);
+    List<int[]> schedule = schedule(bots.length, numGames, master);
+    long[] seeds = master.longs(schedule.size()).toArray();
+    TournamentCoordinator coordinator = new TournamentCoordinator(agentClasses, schedule, seeds, timeLimit, logger);
+    coordinator.setAdjudication(maxMoves, repetitionDraws);
+    int[] abandoned = {0};
+    coordinator.run(port, localWorkers, (players, res, termination) -> {
+      if(termination==Termination.UNFINISHED){//not scored, as nobody won or lost
+        abandoned[0]++;
+        return;
+      }
+      Agent[] game = {bots[players[0]],bots[players[1]],bots[players[2]]};
+      for(int o = 0; o<3;o++)scoreboard.get(game[o]).update(res[o], termination);
+      ratings.update(Arrays.asList(game), res);
+    });
+    if(abandoned[0]>0) logger.println(abandoned[0]+" games were abandoned, and are not scored.");
+    printScoreboard(bots, scoreboard, null, logger);
+  }
+
+  //plays a game of a tournament with its seed, and updates the statistics and ratings of its players
+  private static void playRated(Agent[] game, int timeLimit, PrintStream logger, boolean displayOn, GameRecordWriter recorder,
+      Map<Agent, Statistics> scoreboard, Ratings<Agent> ratings, long seed){
+    seedAgents(game, seed);
+    GameResult result = playGame(game[0], game[1], game[2], timeLimit, logger, displayOn, null, recorder);
+    int[] res = result.getScores();
+    for(int o = 0; o<3;o++)scoreboard.get(game[o]).update(res[o], result.getTermination());
+    ratings.update(Arrays.asList(game), res);
+  }
+
+  //prints the statistics of each agent of a tournament, then the table of results, ranked in the order given, or the natural order if null
+  private static void printScoreboard(Agent[] bots, Map<Agent, Statistics> scoreboard, Comparator<Statistics> order, PrintStream logger){
     for(Agent a: bots)logger.println(scoreboard.get(a));
-    logger.println("Rank\tAgent\t\tWon\tLost\tPlayed\tAvg\n");
-    Statistics[] results = (Statistics[]) scoreboard.values().toArray(new Statistics[0]);
-    Arrays.sort(results);
+    Statistics[] results = scoreboard.values().toArray(new Statistics[0]);
+    Arrays.sort(results, order);
+    logger.println("Rank\tAgent\t\tWon\tLost\tIllegal\tAdjud.\tPlayed\tAvg\tRating\n");
     int rank = 1;
     for(Statistics stat:results)
-      logger.println(rank++ +"\t"+stat.agent+"\t\t"+stat.won+"\t"+stat.lost+"\t"+stat.played+"\t"+stat.average()+"\n");
+      logger.println(rank++ +"\t"+stat.agent+"\t\t"+stat.won+"\t"+stat.lost+"\t"+stat.illegal+"\t"+stat.adjudicated+"\t"+stat.played+"\t"+stat.average()+"\t"+stat.rating+"\n");
+  }
+
+  //opens the log of a tournament, or System.out if there is no log file
+  private static PrintStream openLog(String logFile){
+    PrintStream logger = System.out;
+    try{
+      if(logFile!=null) logger = new PrintStream(new File(logFile));
+    }
+    catch(IOException e){System.out.println(logFile+"not found: "+e.getMessage()+"\nUsing System.out instead.");}
+    return logger;
+  }
+
+  //opens the record of a tournament, or returns null if there is no record file
+  private static GameRecordWriter openRecorder(String recordFile){
+    GameRecordWriter recorder = null;
+    try{
+      if(recordFile!=null) recorder = new GameRecordWriter(new File(recordFile));
+    }
+    catch(IOException e){System.out.println(recordFile+" could not be created: "+e.getMessage()+"\nThe games will not be recorded.");}
+    return recorder;
+  }
+
+  private static void closeRecorder(GameRecordWriter recorder, PrintStream logger){
+    if(recorder!=null){
+      try{
+        recorder.close();
+      }catch(IOException e){logger.println("The games could not be recorded: "+e.getMessage());}
+    }
   }
   
   /**
@@ -127,25 +324,91 @@ public class ThreeChess{
    * @return an array of three ints, the scores for blue, green and red, in that order.
    * **/
   public static int[] play(Agent blue, Agent green, Agent red, int timeLimit, PrintStream logger, boolean displayOn){
-    Board board = new Board(timeLimit>0?timeLimit*1000:1);
+    return play(blue, green, red, timeLimit, logger, displayOn, null, null);
+  }
+
+  /**
+   * Runs a threeChess game between three players, as above,
+   * publishing the initial board and the board after each move to a spectator, such as a tile of a SpectatorGrid.
+   * @param blue the agent playing the blue pieces.
+   * @param green the agent playing the green pieces.
+   * @param red the Agent playing the red pieces.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param logger a printStream to write the game moves to.
+   * @param displayOn a boolean flag for whether the game should be graphically displayed
+   * @param spectator a spectator to publish the game to, or null.
+   * @return an array of three ints, the scores for blue, green and red, in that order.
+   * **/
+  public static int[] play(Agent blue, Agent green, Agent red, int timeLimit, PrintStream logger, boolean displayOn, Spectator spectator){
+    return play(blue, green, red, timeLimit, logger, displayOn, spectator, null);
+  }
+
+  /**
+   * Runs a threeChess game between three players, as above, also recording it as a binary game record.
+   * @param blue the agent playing the blue pieces.
+   * @param green the agent playing the green pieces.
+   * @param red the Agent playing the red pieces.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param logger a printStream to write the game moves to.
+   * @param displayOn a boolean flag for whether the game should be graphically displayed
+   * @param spectator a spectator to publish the game to, or null.
+   * @param recorder a writer to record the game with, or null.
+   * @return an array of three ints, the scores for blue, green and red, in that order.
+   * **/
+  public static int[] play(Agent blue, Agent green, Agent red, int timeLimit, PrintStream logger, boolean displayOn, 
+      Spectator spectator, GameRecordWriter recorder){
+    return playGame(blue, green, red, timeLimit, logger, displayOn, spectator, recorder).getScores();
+  }
+
+  /**
+   * Runs a threeChess game between three players, as above, returning how the game ended with the scores.
+   * If a move limit has been set with setAdjudication, a game reaching it is stopped and scored on material,
+   * by Board.score: the player with the highest score wins and the player with the lowest loses,
+   * with no winner, or no loser, if the players tie. If repetition draws are set,
+   * a game is drawn when the same position, with the same player to move, occurs for the third time.
+   * @param blue the agent playing the blue pieces.
+   * @param green the agent playing the green pieces.
+   * @param red the Agent playing the red pieces.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param logger a printStream to write the game moves to.
+   * @param displayOn a boolean flag for whether the game should be graphically displayed
+   * @param spectator a spectator to publish the game to, or null.
+   * @param recorder a writer to record the game with, or null.
+   * @return the scores of the players, and how the game ended.
+   * **/
+  public static GameResult playGame(Agent blue, Agent green, Agent red, int timeLimit, PrintStream logger, boolean displayOn, 
+      Spectator spectator, GameRecordWriter recorder){
+    int limit = maxMoves;
+    boolean repetition = repetitionDraws;
+    HashMap<Long,Integer> occurrences = repetition ? new HashMap<Long,Integer>() : null;//of each position, by hash
+    int millis = timeLimit>0?timeLimit*1000:1;
+    Board board = new Board(millis);
     boolean timed = timeLimit>0;
     logger.println("======NEW GAME======");
     logger.println("BLUE: "+blue.toString());
     logger.println("GREEN: "+green.toString());
     logger.println("RED: "+red.toString());
+    Agent[] agents = {blue, green, red};
+    for(Agent agent: agents) agent.setPonderThreads(ponderThreads);
     ThreeChessDisplay display = null;
     if(displayOn) {
       display = new ThreeChessDisplay(board, blue.toString(), green.toString(), red.toString());
+      display.setPlaybackDelay(pause);
+      display.publish(BoardSnapshot.of(board));
       GUIAgent.currentDisplay = display;
     }
-    while(!board.gameOver()){//note in an untimed game, this loop can run infinitely.
+    if(spectator!=null) spectator.publish(BoardSnapshot.of(board));
+    if(recorder!=null) recorder.startGame(blue.toString(), green.toString(), red.toString(), millis);
+    if(repetition) occurrences.put(board.hash(), 1);
+    Termination adjudication = null;
+    while(!board.gameOver() && adjudication==null){//note in an untimed game, this loop can run infinitely.
       Colour colour = board.getTurn();
       Agent current = (colour==Colour.BLUE?blue:(colour==Colour.GREEN?green:red));
+      // A person choosing a move needs to see the current position, not the moves still being played back.
+      if(displayOn && !current.isAutonomous()) display.showLatest();
+      if(timed && ponderThreads==0) stopPondering(agents, current);//before the clock starts
       long startTime = System.nanoTime();
-      Position[] move = null;
-      try{
-        move = current.playMove((Board) board.clone());
-      }catch(CloneNotSupportedException e){}
+      Position[] move = current.playMove(board.view());
       //How to deal with infinite loops here?
       //make agents runnable abstract classes and provide a final method for running a move?
       //set board as a variable
@@ -156,33 +419,102 @@ public class ThreeChess{
         try{
           board.move(move[0],move[1],(timed?(int)time:0));
           logger.println(colour + ": " + move[0] + '-' + move[1] + " t:" + time);
-          if(displayOn){
-            // There's no point in sleeping if we have to wait for the user to input their move anyway.
-            if (current.isAutonomous()) {
-              try{Thread.sleep(pause);}
-              catch(InterruptedException e){}
-            }
-            display.repaintCanvas();
+          if(recorder!=null) recorder.move(move[0], move[1], (timed?(int)time:0));
+          if(displayOn || spectator!=null){
+            BoardSnapshot snapshot = BoardSnapshot.of(board);
+            if(displayOn) display.publish(snapshot);//drawn by the display's own thread
+            if(spectator!=null) spectator.publish(snapshot);
           }
+          if(repetition && !board.gameOver() && occurrences.merge(board.hash(), 1, Integer::sum)>=3) 
+            adjudication = Termination.REPETITION;
+          else if(limit>0 && !board.gameOver() && board.getMoveCount()>=limit) adjudication = Termination.MOVE_LIMIT;
         }
         catch(ImpossiblePositionException e){logger.println(e.getMessage());}
       }
       else{//Illegal move results in immediate loss, -2 penalty, and a win awarded to the other two players.
         int[] ret = {1,1,1};
         ret[board.getTurn().ordinal()] = -2;
-        return ret;
+        stopPondering(agents, null);
+        if(displayOn) display.finish();
+        if(spectator!=null) spectator.finish();
+        if(recorder!=null) endRecord(recorder, ret, Termination.ILLEGAL_MOVE, logger);
+        return new GameResult(ret, Termination.ILLEGAL_MOVE, board.getMoveCount());
       }
     }
     GUIAgent.currentDisplay = null;
-    logger.println("=====Game Over=====");
+    stopPondering(agents, null);
+    if(displayOn) display.finish();
+    if(spectator!=null) spectator.finish();
     int[] ret = {0,0,0};
-    ret[board.getWinner().ordinal()] = 1;
-    ret[board.getLoser().ordinal()] = -1;
+    Termination termination = adjudication;
+    if(termination==null){
+      logger.println("=====Game Over=====");
+      ret[board.getWinner().ordinal()] = 1;
+      ret[board.getLoser().ordinal()] = -1;
+      termination = Termination.KING_TAKEN;
+      for(Colour c:Colour.values()) if(board.getTimeLeft(c)<0) termination = Termination.TIME_OUT;
+    }
+    else{
+      logger.println("=====Game Adjudicated: "+termination+"=====");
+      if(termination==Termination.MOVE_LIMIT) ret = materialScores(board);
+    }
     for(Colour c:Colour.values())
-      logger.println(c+" score:"+ret[c.ordinal()]+" time:"+board.getTimeLeft(c)+" points:"+ ret[c.ordinal()]);
+      logger.println(c+" score:"+ret[c.ordinal()]+" time:"+board.getTimeLeft(c)+" points:"+ board.score(c));
+    if(recorder!=null) endRecord(recorder, ret, termination, logger);
+    return new GameResult(ret, termination, board.getMoveCount());
+  }
+
+  //scores a game on material: the player with a higher score than both others wins, and one with a lower score loses
+  static int[] materialScores(Board board){
+    int[] points = new int[3];
+    for(Colour c: Colour.values()) points[c.ordinal()] = board.score(c);
+    int[] ret = new int[3];
+    for(int c = 0; c<3; c++){
+      int a = points[(c+1)%3], b = points[(c+2)%3];
+      if(points[c]>a && points[c]>b) ret[c] = 1;
+      else if(points[c]<a && points[c]<b) ret[c] = -1;
+    }
     return ret;
   }
 
+  /**
+   * Sets the rules for stopping the games played from now on before a King is taken,
+   * so that untimed games, which may otherwise never end, have a bounded length.
+   * Adjudicated games are counted separately in the statistics of a tournament.
+   * Neither rule applies by default.
+   * @param moves the number of moves, over all players, after which a game is stopped and scored on material,
+   * or 0 for no limit.
+   * @param repetition whether a game is drawn when the same position occurs for the third time.
+   * **/
+  public static void setAdjudication(int moves, boolean repetition){
+    maxMoves = Math.max(0, moves);
+    repetitionDraws = repetition;
+  }
+
+  /**
+   * Sets the number of threads each agent may keep searching with while the other players move,
+   * in the games played from now on. With 0, the default, agents must not ponder, and in timed games
+   * any agent still searching is stopped before each move, so the player on move has the processors to itself.
+   * Above 0, the processors are split between the players: the player on move has what the two pondering
+   * players leave, so the number should be at most a third of the processors the games may use.
+   * @param threads the number of threads for each agent.
+   * **/
+  public static void setPonderThreads(int threads){
+    ponderThreads = Math.max(0, threads);
+  }
+
+  //stops the pondering of the agents other than one, which may be null
+  private static void stopPondering(Agent[] agents, Agent except){
+    for(Agent agent: agents) if(agent!=except) agent.stopPondering();
+  }
+
+  //writes the record of a finished game, logging rather than ending the tournament if it cannot be written
+  private static void endRecord(GameRecordWriter recorder, int[] results, Termination termination, PrintStream logger){
+    try{
+      recorder.endGame(results, termination);
+    }catch(IOException e){logger.println("The game could not be recorded: "+e.getMessage());}
+  }
+
   /**
    * Runs a timed threeChess game between three players
    * with a graphical board and moves logged to System.out.
@@ -205,6 +537,27 @@ public class ThreeChess{
   }
 
 
+  /**
+   * Plays several games at once, each on its own thread, shown together in a SpectatorGrid.
+   * Moves are not logged. Each game must have its own agents, as they play concurrently.
+   * @param games the agents for each game, in the order blue, green, red.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * **/
+  public static void spectate(Agent[][] games, int timeLimit){
+    SpectatorGrid grid = new SpectatorGrid(games.length);
+    Thread[] threads = new Thread[games.length];
+    for(int g = 0; g<games.length; g++){
+      Agent[] agents = games[g];
+      Spectator tile = grid.newGame(agents[0].toString(), agents[1].toString(), agents[2].toString());
+      PrintStream logger = new PrintStream(OutputStream.nullOutputStream());
+      threads[g] = new Thread(() -> play(agents[0], agents[1], agents[2], timeLimit, logger, false, tile), "ThreeChess-game-"+g);
+      threads[g].start();
+    }
+    try{
+      for(Thread t: threads) t.join();
+    }catch(InterruptedException e){}
+  }
+
   /** 
    * This plays a manual game where all rules are ignored.
    * This effectively allows you to move pieces around the board for simulating positions.
@@ -214,10 +567,7 @@ public class ThreeChess{
     Agent agent = new ManualAgent();
     ThreeChessDisplay display = new ThreeChessDisplay(board, "Blue", "Green", "Red");
     while(!board.gameOver()){//note in an untimed game, this loop can run infinitely.
-      Position[] move = null;
-      try{
-        move = agent.playMove((Board) board.clone());
-      }catch(CloneNotSupportedException e){}
+      Position[] move = agent.playMove(board.view());
       if(move!=null && move.length==2){
         try{
           board.move(move[0],move[1],0);
@@ -232,7 +582,11 @@ public class ThreeChess{
   /**
    * This method can be customised to run tournaments with agents added in the code (add them to array bots), 
    * or manual games between players, or a cheat mode which is effectively a board that can be freely manipulated.
-   * Run program with parameter "manual" for a game with moves added in the command line, "cheat" to ignore all rules, and no parameters to run a tournament between agents listed in bots.
+   * Run program with parameter "manual" for a game with moves added in the command line, "cheat" to ignore all rules, 
+   * "grid" to watch several games between agents at once, "adaptive" to rank the agents listed in bots with adaptive pairing, 
+   * "distributed" to run a tournament between the agents listed in bots in worker processes, optionally followed by a port to accept remote workers on,
+   * "sandboxed" to run a tournament with each of the agents listed in bots in its own JVM,
+   * and no parameters to run a tournament between agents listed in bots.
    **/
   public static void main(String[] args){
     Agent[] bots = { new GreedyAgent(), new RandomAgent(), new QLearningAgent()};
@@ -246,7 +600,35 @@ public class ThreeChess{
     }
     else if (args.length > 0 && args[0].equals("cheat")){
       playCheat();
+    }
+    else if (args.length > 0 && args[0].equals("adaptive")){
+      setAdjudication(DEFAULT_MAX_MOVES, true);
+      adaptiveTournament(bots,0,100,false,null,null);
+    }
+    else if (args.length > 0 && args[0].equals("grid")){
+      Agent[][] games = new Agent[9][];
+      for(int g = 0; g<games.length; g++){
+        Agent[] agents = {new GreedyAgent(), new RandomAgent(), new GreedyAgent()};
+        int[] ord = perms[g%perms.length];
+        games[g] = new Agent[] {agents[ord[0]], agents[ord[1]], agents[ord[2]]};
+      }
+      spectate(games, 60);
+    }
+    else if (args.length > 0 && args[0].equals("distributed")){
+      String[] classes = new String[bots.length];
+      for(int a = 0; a<bots.length; a++) classes[a] = bots[a].getClass().getName();
+      try{
+        distributedTournament(classes, 60, 0, null, args.length>1 ? Integer.parseInt(args[1]) : 0, 
+            Runtime.getRuntime().availableProcessors());
+      }catch(ReflectiveOperationException | IOException e){System.out.println("The tournament could not be run: "+e);}
+    }
+    else if (args.length > 0 && args[0].equals("sandboxed")){
+      SandboxedAgent[] sandboxed = new SandboxedAgent[bots.length];
+      for(int a = 0; a<bots.length; a++) sandboxed[a] = new SandboxedAgent(bots[a].getClass().getName());
+      tournament(sandboxed,60,0,false,null);
+      for(SandboxedAgent a: sandboxed) a.close();
     } else {
+        setAdjudication(DEFAULT_MAX_MOVES, true);
         tournament(bots,0,100,false,null);
     }
   }
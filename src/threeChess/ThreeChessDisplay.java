@@ -3,11 +3,29 @@ package threeChess;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayDeque;
 import java.util.List;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 
-public class ThreeChessDisplay extends JFrame {
+/**
+ * A graphical display of a threeChess board, which can also take moves from the user.
+ * As a Spectator it shows published snapshots of a game from its own render thread,
+ * at most MAX_FPS frames a second, so the game is never held up by drawing.
+ * With a playback delay the moves are shown one at a time, that long apart, 
+ * however fast the game is played, unless they fall more than MAX_BACKLOG moves behind; 
+ * otherwise the latest snapshot is shown.
+ * The render thread stops once the game is finished and its last snapshot shown, or when the window is closed.
+ * **/
+public class ThreeChessDisplay extends JFrame implements Spectator {
+
+  /**The most frames drawn each second when spectating**/
+  public static final int MAX_FPS = 60;
+  /**The most published snapshots waiting to be played back, beyond which all but the latest are skipped**/
+  public static final int MAX_BACKLOG = 4;
 
   private static final Color DARKRED = new Color(127,0,0);
   private static final Color RED = new Color(255,102,102);
@@ -20,9 +38,10 @@ public class ThreeChessDisplay extends JFrame {
   private static final Color LIGHTBLUE = new Color(204,204,255);
   private static final Color[] DARKCOLOURS = {DARKBLUE, DARKGREEN, DARKRED};
   private static final Color[] LIGHTCOLOURS = {LIGHTBLUE, LIGHTGREEN, LIGHTRED};
+  private static final Color[] OUTLINES = {LIGHTBLUE, LIGHTGREEN, LIGHTRED, Color.WHITE};//the outlines of pieces, on each colour of square or selected
   private static final int LABELS_FONTSIZE = 16;
   private static final int AGENTS_FONTSIZE = 24;
-  private static final int PIECE_FONTSIZE = 32;
+  static final int PIECE_FONTSIZE = 32;
   private static final int CAPTURED_FONTSIZE = 24;
   private static final int AGENT_NAME_MAX_LENGTH = 20;
   private static final int CAPTURED_PER_ROW = 11;
@@ -32,13 +51,22 @@ public class ThreeChessDisplay extends JFrame {
   private final String[] players;
   private final Canvas canvas;
   private final Board board;
+  private final BoardHistory history;
   private final int size = 800;
-  private static int[][][] flanks;
   private MoveFuture manualMoveFuture;
   private Position manualMoveFrom;
+  private long legalTargets0, legalTargets1;//the positions the selected piece can move to, bit i set for ordinal i, 64-95 in the second word
   private int lastMouseX = -1;
   private int lastMouseY = -1;
   private int historyMoveIndex = -1;
+  private BufferedImage boardLayer;//the parts of the board that never change: background, coordinates and empty squares
+  private BufferedImage frame;//the board layer with the squares as last drawn
+  private final ArrayDeque<BoardSnapshot> published = new ArrayDeque<BoardSnapshot>();//snapshots waiting to be shown
+  private volatile int playbackDelay = 0;
+  private BoardSnapshot shown;//the published snapshot being shown, or null to show the board
+  private Thread renderThread;//guarded by published, null when not running
+  private boolean finished;//whether the game has ended, so the render thread stops when there is nothing left to show
+  private boolean closed;//whether the window has been closed, so nothing more is shown
 
   /** To represent each square of the board. **/
   private class Square{
@@ -51,78 +79,52 @@ public class ThreeChessDisplay extends JFrame {
     private final boolean coloured;// for white or not
     private final Colour colour;
     private Piece piece; //piece in the square or null if empty
+    private final Rectangle bounds;//the area the square and its piece may be drawn in
+    private boolean drawn;//whether the square has been drawn to the frame
+    private Piece drawnPiece;//the piece in the square when it was last drawn to the frame
+    private boolean drawnHighlighted;//whether the square was highlighted when it was last drawn
+    private boolean drawnSelected;//whether the square was selected when it was last drawn
 
     /**
      * Constructs a square corresponding to the position given.
-     * This calculates the cartesian coordinates of the corners of the position, 
+     * This looks up the cartesian coordinates of the corners of the position, 
      * and records the squares colour and parity
      * **/
     public Square(Position pos){
       this.pos = pos;
       colour = pos.getColour();
       coloured = pos.evenParity();
-      //calculate coords for poly point and center
-      int r = pos.getRow();
-      int c = pos.getColumn();
-      xs = new int[4]; ys = new int[4]; //lower left, lower right, upper right, upper left.
-      int[] left = flanks[colour.ordinal()][(c<4?0:1)];//coords of left margin
-      int[] right = flanks[colour.ordinal()][(c<4?1:2)];//coords of right margin.
-      double[] baseLine = new double[4];
-      double[] topLine = new double[4];
-      baseLine[0] = left[0]+((left[2]-left[0])/4.0d)*r;
-      baseLine[1] = left[1]+((left[3]-left[1])/4.0d)*r;
-      baseLine[2] = right[0]+((right[2]-right[0])/4.0d)*r;
-      baseLine[3] = right[1]+((right[3]-right[1])/4.0d)*r;
-      topLine[0] = left[0]+((left[2]-left[0])/4.0d)*(r+1);
-      topLine[1] = left[1]+((left[3]-left[1])/4.0d)*(r+1);
-      topLine[2] = right[0]+((right[2]-right[0])/4.0d)*(r+1);
-      topLine[3] = right[1]+((right[3]-right[1])/4.0d)*(r+1);
-      //bottom left
-      xs[0] = (int) (baseLine[0]+((baseLine[2]-baseLine[0])/4.0d)*(c%4));
-      ys[0] = (int) (baseLine[1]+((baseLine[3]-baseLine[1])/4.0d)*(c%4));
-      //bottom right
-      xs[1] = (int) (baseLine[0]+((baseLine[2]-baseLine[0])/4.0d)*(c%4+1));
-      ys[1] = (int) (baseLine[1]+((baseLine[3]-baseLine[1])/4.0d)*(c%4+1));
-      //top right
-      xs[2] = (int) (topLine[0]+((topLine[2]-topLine[0])/4.0d)*(c%4+1));
-      ys[2] = (int) (topLine[1]+((topLine[3]-topLine[1])/4.0d)*(c%4+1));
-      //top left
-      xs[3] = (int) (topLine[0]+((topLine[2]-topLine[0])/4.0d)*(c%4));
-      ys[3] = (int) (topLine[1]+((topLine[3]-topLine[1])/4.0d)*(c%4));
-      // The centre of this square.
-      centre = new int[] {(xs[0]+xs[1]+xs[2]+xs[3]) / 4, (ys[0]+ys[1]+ys[2]+ys[3]) / 4};
-      // Coordinates of polygon for highlighting the square.
-      highlightXs = new int[4];
-      highlightYs = new int[4];
-      for (int i=0; i<4; ++i) {
-        highlightXs[i] = centre[0] + (3 * (xs[i] - centre[0])) / 4;
-        highlightYs[i] = centre[1] + (3 * (ys[i] - centre[1])) / 4;
-      }
-    }
-
-    /** @return whether the given coordinates fall within this square. **/
-    public boolean contains(int x, int y) {
-      boolean result = false;
-      for (int i=0, j=3; i<4; j=i++) {
-        if ((ys[i] > y) != (ys[j] > y) && (x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j]-ys[i]) + xs[i])) {
-          result = !result;
-        }
-      }
-      return result;
+      BoardGeometry geometry = BoardGeometry.forSize(size);
+      xs = geometry.xs[pos.ordinal()];
+      ys = geometry.ys[pos.ordinal()];
+      highlightXs = geometry.highlightXs[pos.ordinal()];
+      highlightYs = geometry.highlightYs[pos.ordinal()];
+      centre = geometry.centres[pos.ordinal()];
+      bounds = new Polygon(xs, ys, 4).getBounds();
+      bounds.grow(2, 2);//the border stroke
+      bounds.add(new Rectangle(centre[0] - PIECE_FONTSIZE, centre[1] - PIECE_FONTSIZE, 2*PIECE_FONTSIZE, 2*PIECE_FONTSIZE));//the piece glyph
     }
 
     /** Sets the piece of the square to the specified piece, or null if square is unoccupied. **/
     public void setPiece(Piece piece){this.piece = piece;}
 
-    /** @return a colour for pieces and boards squares. **/
-    private Color getColour(Colour col, boolean piece, boolean coloured){
-      switch(col){
-        case RED: return piece? DARKRED: coloured? RED: LIGHTRED;
-        case GREEN: return piece? DARKGREEN: coloured? GREEN: LIGHTGREEN;
-        case BLUE: return piece? DARKBLUE: coloured? BLUE: LIGHTBLUE;
-        default: return null;
-      }
-    }      
+    /** @return whether the square is highlighted as a legal destination of the selected piece. **/
+    private boolean highlighted(){
+      return board.displayLegalMoves() && isLegalTarget(pos);
+    }
+
+    /** @return whether the square looks different from when it was last drawn to the frame. **/
+    private boolean changed(){
+      return !drawn || piece != drawnPiece || highlighted() != drawnHighlighted || (pos == manualMoveFrom) != drawnSelected;
+    }
+
+    /** Records that the square has been drawn to the frame as it is now. **/
+    private void setDrawn(){
+      drawn = true;
+      drawnPiece = piece;
+      drawnHighlighted = highlighted();
+      drawnSelected = pos == manualMoveFrom;
+    }
 
     /**
      * Renders the square with a black border, 
@@ -133,27 +135,62 @@ public class ThreeChessDisplay extends JFrame {
     public void draw(Graphics g){
       g.setColor(getColour(colour, false, coloured));
       g.fillPolygon(xs,ys,4);
-      if (board.displayLegalMoves() && manualMoveFrom != null && board.isLegalMove(manualMoveFrom, pos)) {
+      if (highlighted()) {
         g.setColor(Color.WHITE);
         g.drawPolygon(highlightXs, highlightYs, 4);
       }
       g.setColor(Color.BLACK);
       g.drawPolygon(xs, ys, 4);
-      if(piece!=null){
-        String pieceStr = Character.toString(piece.getType().getChar());
-        FontMetrics metrics = g.getFontMetrics();
-        int x = centre[0] - metrics.stringWidth(pieceStr) / 2;
-        int y = centre[1] - metrics.getHeight() / 2 + metrics.getAscent();
-        g.setColor(pos == manualMoveFrom ? Color.WHITE : getColour(colour, false, false));
-        for (int dx = -1; dx <= 1; ++dx) {
-          for (int dy = -1; dy <= 1; ++dy) {
-            if (dx != 0 || dy != 0) g.drawString(pieceStr, x + dx, y + dy);
-          }
-        }
-        g.setColor(getColour(piece.getColour(), true, true));
-        g.drawString(pieceStr, x, y);
+      if(piece!=null) drawPiece(g, piece, centre, pos == manualMoveFrom ? Color.WHITE : getColour(colour, false, false));
+    }
+  }
+
+  /** @return a colour for pieces and boards squares. **/
+  static Color getColour(Colour col, boolean piece, boolean coloured){
+    switch(col){
+      case RED: return piece? DARKRED: coloured? RED: LIGHTRED;
+      case GREEN: return piece? DARKGREEN: coloured? GREEN: LIGHTGREEN;
+      case BLUE: return piece? DARKBLUE: coloured? BLUE: LIGHTBLUE;
+      default: return null;
+    }
+  }
+
+  /** Renders a square of the board with a black border, and a light colour if parity is even. **/
+  static void drawEmptySquare(Graphics g, BoardGeometry geometry, Position pos){
+    int[] xs = geometry.xs[pos.ordinal()], ys = geometry.ys[pos.ordinal()];
+    g.setColor(getColour(pos.getColour(), false, pos.evenParity()));
+    g.fillPolygon(xs,ys,4);
+    g.setColor(Color.BLACK);
+    g.drawPolygon(xs, ys, 4);
+  }
+
+  /**
+   * Renders the glyph of a piece centred on a point, outlined in the given colour.
+   * The graphics object should have the piece font set.
+   * The glyphs are copied from images cached by PieceSprites, unless the graphics are rotated or sheared.
+   * **/
+  static void drawPiece(Graphics g, Piece piece, int[] centre, Color outline){
+    Graphics2D g2 = (Graphics2D) g;
+    AffineTransform t = g2.getTransform();
+    if (t.getShearX() == 0 && t.getShearY() == 0 && t.getScaleX() == t.getScaleY() && t.getScaleX() > 0
+        && PieceSprites.get(g2.getFont(), t.getScaleX(), OUTLINES).draw(g2, piece, centre, outline)) return;
+    drawGlyph(g, piece, centre, outline);
+  }
+
+  /** Renders the glyph of a piece as drawPiece does, by drawing it nine times for the outline and the piece. **/
+  static void drawGlyph(Graphics g, Piece piece, int[] centre, Color outline){
+    String pieceStr = Character.toString(piece.getType().getChar());
+    FontMetrics metrics = g.getFontMetrics();
+    int x = centre[0] - metrics.stringWidth(pieceStr) / 2;
+    int y = centre[1] - metrics.getHeight() / 2 + metrics.getAscent();
+    g.setColor(outline);
+    for (int dx = -1; dx <= 1; ++dx) {
+      for (int dy = -1; dy <= 1; ++dy) {
+        if (dx != 0 || dy != 0) g.drawString(pieceStr, x + dx, y + dy);
       }
     }
+    g.setColor(getColour(piece.getColour(), true, true));
+    g.drawString(pieceStr, x, y);
   }
 
   /**
@@ -166,6 +203,7 @@ public class ThreeChessDisplay extends JFrame {
   public ThreeChessDisplay(Board board, String bluePlayer, String greenPlayer, String redPlayer){
     super("ThreeChess");
     this.board = board;
+    history = new BoardHistory(board);
 
     canvas = new Canvas();
     setBounds(0, 0, size, size);
@@ -190,6 +228,10 @@ public class ThreeChessDisplay extends JFrame {
     };
     canvas.addMouseListener(mouseListener);
     canvas.addMouseMotionListener(mouseListener);
+    addWindowListener(new WindowAdapter(){
+      @Override
+      public void windowClosed(WindowEvent e){stopRendering();}
+    });
 
     pack();
     setLocationRelativeTo(null);
@@ -198,7 +240,6 @@ public class ThreeChessDisplay extends JFrame {
     setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     canvas.createBufferStrategy(2);
 
-    setFlanks(size);
     players = new String[3];
     squares = new Square[96];
     for(int i=0; i<96; i++) squares[i] = new Square(Position.values()[i]);
@@ -209,15 +250,8 @@ public class ThreeChessDisplay extends JFrame {
   }
 
   /** @return the state of the board before move {@param moveIndex}. **/
-  private Board getHistoryBoard(int moveIndex) {
-    CheatBoard historyBoard = new CheatBoard();
-    for (int index = 0; index < moveIndex; ++index) {
-      Position[] move = board.getMove(index);
-      try {
-        historyBoard.move(move[0], move[1]);
-      } catch (ImpossiblePositionException e) {}
-    }
-    return historyBoard;
+  private BoardSnapshot getHistoryBoard(int moveIndex) {
+    return history.get(moveIndex);
   }
 
   /** @return whether a past move is currently being displayed. **/
@@ -231,8 +265,108 @@ public class ThreeChessDisplay extends JFrame {
   }
 
   /** @return the board that should currently be rendered. **/
-  private Board getRenderedBoard() {
-    return displayingHistory() ? getHistoryBoard(historyMoveIndex) : board;
+  private synchronized BoardSnapshot getRenderedBoard() {
+    if (displayingHistory()) return getHistoryBoard(historyMoveIndex);
+    return shown != null ? shown : BoardSnapshot.of(board);
+  }
+
+  /**
+   * Queues a snapshot of the game to be shown by the render thread, starting the thread if needed.
+   * This returns immediately, so the game is not slowed down by the display.
+   * If more than MAX_BACKLOG snapshots are waiting, the older ones are dropped, so playback never falls far behind.
+   * @param snapshot the state of the board after a move.
+   * **/
+  public void publish(BoardSnapshot snapshot) {
+    synchronized (published) {
+      if (closed) return;
+      if (published.size() >= MAX_BACKLOG) published.clear();
+      published.add(snapshot);
+      if (renderThread == null) {
+        renderThread = new Thread(this::render, "ThreeChessDisplay-render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+      }
+    }
+  }
+
+  /** Called when the game has ended: the render thread plays back any moves still waiting, then stops. **/
+  @Override
+  public void finish() {
+    synchronized (published) {
+      finished = true;
+    }
+  }
+
+  /** Stops the render thread straight away, dropping any moves waiting to be played back. Called when the window is closed. **/
+  public void stopRendering() {
+    synchronized (published) {
+      closed = true;
+      published.clear();
+      if (renderThread != null) renderThread.interrupt();
+      renderThread = null;
+    }
+  }
+
+  /**
+   * Sets how long each published move is shown for before the next. 
+   * If 0, intermediate moves are skipped and the latest snapshot is always shown.
+   * @param millis the delay between moves, in milliseconds.
+   * **/
+  public void setPlaybackDelay(int millis) {
+    playbackDelay = millis;
+  }
+
+  /**
+   * Skips any moves waiting to be played back and shows the latest snapshot, 
+   * so the user sees the current position, e.g. before making a move.
+   * **/
+  public void showLatest() {
+    BoardSnapshot latest = null;
+    synchronized (published) {
+      while (!published.isEmpty()) latest = published.poll();
+    }
+    if (latest != null) show(latest);
+  }
+
+  private void show(BoardSnapshot snapshot) {
+    synchronized (this) {
+      shown = snapshot;
+    }
+    repaintCanvas();
+  }
+
+  //The render thread: each frame, shows the next snapshot due for playback, or the latest if there is no delay.
+  //It stops once the game is over and nothing is waiting, and a later publish starts a new one.
+  private void render() {
+    long frameMillis = 1000 / MAX_FPS;
+    long lastShown = 0;
+    boolean over = false;//whether the last snapshot shown was of a finished game
+    while (true) {
+      BoardSnapshot next = null;
+      long now = System.currentTimeMillis();
+      synchronized (published) {
+        if (renderThread != Thread.currentThread()) return;
+        if (published.isEmpty() && (finished || over)) {
+          renderThread = null;
+          return;
+        }
+        if (playbackDelay <= 0) {
+          while (!published.isEmpty()) next = published.poll();
+        } else if (!published.isEmpty() && now - lastShown >= playbackDelay) {
+          next = published.poll();
+        }
+      }
+      if (next != null) {
+        lastShown = now;
+        over = next.gameOver();
+        show(next);
+      }
+      try {
+        Thread.sleep(frameMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
   }
 
   /** Puts the display into a state where it expects a move to be made. **/
@@ -245,11 +379,26 @@ public class ThreeChessDisplay extends JFrame {
 
   /** @return the Square at the given coordinates, or null. */
   private Square getSquare(int x, int y) {
-    for (Square sq: squares) {
-      if (sq.contains(x, y))
-        return sq;
+    int sq = BoardGeometry.forSize(size).squareAt(x, y);
+    return sq < 0 ? null : squares[sq];
+  }
+
+  /** Selects the piece to move, or clears the selection if null, and finds the squares it can move to. **/
+  private void select(Position from) {
+    manualMoveFrom = from;
+    legalTargets0 = legalTargets1 = 0;
+    if (from == null) return;
+    for (Position to: Position.values()) {
+      if (!board.isLegalMove(from, to)) continue;
+      if (to.ordinal() < 64) legalTargets0 |= 1L << to.ordinal();
+      else legalTargets1 |= 1L << (to.ordinal() - 64);
     }
-    return null;
+  }
+
+  /** @return whether the selected piece can move to a position. **/
+  private boolean isLegalTarget(Position to) {
+    int sq = to.ordinal();
+    return ((sq < 64 ? legalTargets0 >>> sq : legalTargets1 >>> (sq - 64)) & 1) != 0;
   }
 
   /** @return whether the display is currently waiting for the user to make a move. **/
@@ -281,7 +430,7 @@ public class ThreeChessDisplay extends JFrame {
         || manualMoveFrom == square.pos
         || (manualMoveFrom == null && square.piece == null)
         || (manualMoveFrom == null && square.piece.getColour() != board.getTurn())
-        || (manualMoveFrom != null && !board.isLegalMove(manualMoveFrom, square.pos))) {
+        || (manualMoveFrom != null && !isLegalTarget(square.pos))) {
 
       canvas.setCursor(Cursor.getDefaultCursor());
     } else {
@@ -315,25 +464,25 @@ public class ThreeChessDisplay extends JFrame {
     Square square = getSquare(x, y);
     // If the user didn't click within a square, or clicked within an empty square, clear the current move.
     if (square == null || manualMoveFrom == square.pos || button != MouseEvent.BUTTON1) {
-      manualMoveFrom = null;
+      select(null);
       return;
     }
     // If the user hasn't selected a piece to move yet, then set the clicked square as the piece.
     if (manualMoveFrom == null) {
-      manualMoveFrom = (square.piece != null && square.piece.getColour() == board.getTurn() ? square.pos : null);
+      select(square.piece != null && square.piece.getColour() == board.getTurn() ? square.pos : null);
       return;
     }
     // Make sure the move the user selected is a legal move.
     if (!board.isLegalMove(manualMoveFrom, square.pos)) {
       System.err.println("Illegal move, try again.");
-      manualMoveFrom = null;
+      select(null);
       return;
     }
     // The user has selected a piece to move, and now a position to move it to, so complete the future.
     try {
       manualMoveFuture.complete(new Position[] {manualMoveFrom, square.pos});
       manualMoveFuture = null;
-      manualMoveFrom = null;
+      select(null);
     } catch (InterruptedException interruptedException) {
       interruptedException.printStackTrace();
     }
@@ -357,7 +506,7 @@ public class ThreeChessDisplay extends JFrame {
   }
 
   /** Repaints the board to the canvas. **/
-  public void repaintCanvas(){
+  public synchronized void repaintCanvas(){
     Graphics2D g = getCanvasGraphics();
     try {
       drawToCanvas(g, getRenderedBoard());
@@ -368,9 +517,15 @@ public class ThreeChessDisplay extends JFrame {
     canvas.getBufferStrategy().show();
   }
 
-  public void drawToCanvas(Graphics2D g, Board board) {
+  /**
+   * Draws the parts of the board that never change: the background, the coordinates and the empty squares.
+   * The board is drawn at the size of the geometry, and the graphics may be scaled to draw it smaller.
+   * The stroke and piece font are left set for drawing the squares and pieces.
+   * **/
+  static void drawBoardLayer(Graphics2D g, BoardGeometry geometry, int width, int height) {
+    int size = geometry.size;
     g.setColor(Color.LIGHT_GRAY);
-    g.fillRect(0, 0, getWidth(), getHeight());
+    g.fillRect(0, 0, width, height);
     g.setStroke(new BasicStroke(3));
 
     g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, LABELS_FONTSIZE));
@@ -397,14 +552,76 @@ public class ThreeChessDisplay extends JFrame {
       g.drawString(""+(i+1),(36-i)*h_unit/2,(23-2*i)*v_unit/4);
     }
 
+    g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, PIECE_FONTSIZE));
+    for(Position pos: Position.values()) drawEmptySquare(g, geometry, pos);
+  }
+
+  /** @return a graphics object for drawing to an image, with the same rendering as the canvas. **/
+  static Graphics2D getImageGraphics(BufferedImage image) {
+    Graphics2D g = image.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    return g;
+  }
+
+  /**
+   * Brings the frame up to date with the squares, redrawing only the squares that changed since they were last drawn.
+   * The area of each changed square is restored from the board layer, 
+   * then every square that could be drawn in that area is redrawn, clipped to it, in the usual order.
+   * **/
+  private void updateFrame() {
+    int width = Math.max(size, canvas.getWidth()), height = Math.max(size, canvas.getHeight());
+    if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+      GraphicsConfiguration config = canvas.getGraphicsConfiguration();
+      boardLayer = config != null ? config.createCompatibleImage(width, height) : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      frame = config != null ? config.createCompatibleImage(width, height) : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = getImageGraphics(boardLayer);
+      try {
+        drawBoardLayer(g, BoardGeometry.forSize(size), width, height);
+      } finally {
+        g.dispose();
+      }
+      for (Square sq: squares) sq.drawn = false;
+    }
+    Graphics2D g = null;
+    try {
+      for (Square changed: squares) {
+        if (!changed.changed()) continue;
+        if (g == null) {
+          g = getImageGraphics(frame);
+          g.setStroke(new BasicStroke(3));
+          g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, PIECE_FONTSIZE));
+        }
+        g.setClip(changed.bounds);
+        g.drawImage(boardLayer, 0, 0, null);
+        for (Square sq: squares) {
+          if (sq.bounds.intersects(changed.bounds)) sq.draw(g);
+        }
+      }
+    } finally {
+      if (g != null) g.dispose();
+    }
+    for (Square sq: squares) sq.setDrawn();
+  }
+
+  /**
+   * Draws a board to the canvas. 
+   * The board itself is copied from the frame, which is only redrawn where squares have changed,
+   * and the player labels, the last move in the history and the history buttons are drawn over it.
+   * @param g the graphics to draw to.
+   * @param board the board to draw.
+   * **/
+  public void drawToCanvas(Graphics2D g, BoardSnapshot board) {
+    for(Position pos: Position.values())squares[pos.ordinal()].setPiece(board.getPiece(pos));
+    updateFrame();
+    g.drawImage(frame, 0, 0, null);
+    int h_unit = size/20;
+    int v_unit =(int) (Math.sqrt(3)*h_unit);
+    g.setStroke(new BasicStroke(3));
+
     drawAgentLabel(g, board, getWidth() / 2.0, 1.25*v_unit, 0, Colour.BLUE);
     drawAgentLabel(g, board, 17*h_unit, 8.5*v_unit, -Math.PI/3, Colour.GREEN);
     drawAgentLabel(g, board, 3*h_unit, 8.5*v_unit, Math.PI/3, Colour.RED);
 
-    g.setFont(new Font(g.getFont().getFontName(), Font.PLAIN, PIECE_FONTSIZE));
-    for(Position pos: Position.values())squares[pos.ordinal()].setPiece(board.getPiece(pos));
-    for(Square sq: squares) sq.draw(g);
-
     // If we're displaying the history, we want to draw the move as well.
     if (displayingHistory()) {
       Position[] move = this.board.getMove(historyMoveIndex);
@@ -447,7 +664,7 @@ public class ThreeChessDisplay extends JFrame {
     g.drawLine(toX, toY, (int) (toX - 15*Math.cos(angle + Math.PI/6)), (int) (toY - 15*Math.sin(angle + Math.PI/6)));
   }
 
-  private void drawAgentLabel(Graphics2D g, Board board, double x, double y, double angleRads, Colour colour) {
+  private void drawAgentLabel(Graphics2D g, BoardSnapshot board, double x, double y, double angleRads, Colour colour) {
     // Get the information we want to display about the agent.
     boolean winner = (board.getWinner() == colour);
     boolean active = (!board.gameOver() && board.getTurn() == colour);
@@ -507,24 +724,8 @@ public class ThreeChessDisplay extends JFrame {
     g.setFont(previousFont);
   }
 
-  //calculates the coordinates of flanks for computing square coordinates.
-  private static void setFlanks(int size){
-    int h_unit = size/10;
-    int v_unit = (int) (h_unit*Math.sqrt(3));
-    flanks = new int[3][3][4];
-    flanks[0][0][0] = 7*h_unit; flanks[0][0][1] = v_unit; flanks[0][0][2] = 8*h_unit; flanks[0][0][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the left flank of the blue section of board
-    flanks[0][1][0] = 5*h_unit; flanks[0][1][1] = v_unit; flanks[0][1][2] = 5*h_unit; flanks[0][1][3] = 3*v_unit;// (x1,y1,x2,y2) coords of the middle line of the blue section of board
-    flanks[0][2][0] = 3*h_unit; flanks[0][2][1] = v_unit; flanks[0][2][2] = 2*h_unit; flanks[0][2][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the right flank of the blue section of board
-    flanks[1][0][0] = 7*h_unit; flanks[1][0][1] = 5*v_unit; flanks[1][0][2] = 5*h_unit; flanks[1][0][3] = 5*v_unit;// (x1,y1,x2,y2) coords of the left flank of the green section of board
-    flanks[1][1][0] = 8*h_unit; flanks[1][1][1] = 4*v_unit; flanks[1][1][2] = 5*h_unit; flanks[1][1][3] = 3*v_unit;// (x1,y1,x2,y2) coords of the middle line of the green section of board
-    flanks[1][2][0] = 9*h_unit; flanks[1][2][1] = 3*v_unit; flanks[1][2][2] = 8*h_unit; flanks[1][2][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the right flank of the green section of board
-    flanks[2][0][0] = h_unit; flanks[2][0][1] = 3*v_unit; flanks[2][0][2] = 2*h_unit; flanks[2][0][3] = 2*v_unit;// (x1,y1,x2,y2) coords of the left flank of the red section of board
-    flanks[2][1][0] = 2*h_unit; flanks[2][1][1] = 4*v_unit; flanks[2][1][2] = 5*h_unit; flanks[2][1][3] = 3*v_unit;// (x1,y1,x2,y2) coords of the middle line of the red section of board
-    flanks[2][2][0] = 3*h_unit; flanks[2][2][1] = 5*v_unit; flanks[2][2][2] = 5*h_unit; flanks[2][2][3] = 5*v_unit;// (x1,y1,x2,y2) coords of the right flank of the red section of board
-  }
-
   /** @return {@param string} if its length is below {@param length}, or else its first {@param length} characters. **/
-  private static String truncateBelowLength(String string, int length) {
+  static String truncateBelowLength(String string, int length) {
     return string.length() > length ? string.substring(0, length) : string;
   }
 }
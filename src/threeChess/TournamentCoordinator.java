@@ -0,0 +1,288 @@
+package threeChess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out the games of a tournament to TournamentWorker processes, which connect over sockets,
+ * and gathers their results, so a tournament can use many processes on many hosts.
+ * Each game is a unit of work: the class names of the agents, the time limit, the seed of the game
+ * and the rules for adjudicating it, as set with ThreeChess.setAdjudication.
+ * A worker asks for a game, plays it and sends back the scores and how it ended, then asks for another.
+ * If a worker's connection is lost while it is playing, the game is handed out again,
+ * up to MAX_ATTEMPTS times, so workers may crash or be stopped at any time.
+ * The coordinator can also start local workers, and starts them again if they crash.
+ * <p>
+ * The protocol uses DataOutputStream encoding.
+ * A worker sends MAGIC and its name, then REQUEST, to which the coordinator replies
+ * UNIT with the game id, the time limit, the seed, the move limit, whether repetition draws,
+ * and the three class names, or DONE when there are no more games.
+ * After playing, the worker sends RESULT with the game id, the three scores and the ordinal of the Termination, 
+ * or FAILED with the game id and a message if an agent could not be created or threw an exception,
+ * and then REQUEST again.
+ * **/
+public final class TournamentCoordinator{
+
+  /**The number of times a game is handed out before it is abandoned, if the workers playing it keep being lost**/
+  public static final int MAX_ATTEMPTS = 3;
+  static final int MAGIC = 0x33434857;//"3CHW"
+  static final byte REQUEST = 1, RESULT = 2, FAILED = 3;//from a worker
+  static final byte UNIT = 1, DONE = 2;//to a worker
+
+  /** 
+   * Receives the result of each game, one at a time, as workers finish them.
+   * A game that is abandoned is also reported, as UNFINISHED with scores of 0.
+   * **/
+  public interface ResultListener{
+    /**
+     * @param players the indexes of the agents playing blue, green and red, as given in the schedule.
+     * @param scores the scores for blue, green and red, as returned by ThreeChess.play.
+     * @param termination how the game ended, or UNFINISHED if it was abandoned.
+     * **/
+    void result(int[] players, int[] scores, Termination termination);
+  }
+
+  /** A game of the tournament, and how many times it has been handed out. **/
+  private static class Unit{
+    private final int id;
+    private final int[] players;
+    private final long seed;
+    private int attempts;
+
+    private Unit(int id, int[] players, long seed){
+      this.id = id;
+      this.players = players;
+      this.seed = seed;
+    }
+  }
+
+  private final String[] agentClasses;
+  private final int timeLimit;
+  private final PrintStream logger;
+  private volatile int maxMoves = 0;
+  private volatile boolean repetition = false;
+  private final ArrayDeque<Unit> pending = new ArrayDeque<Unit>();
+  private final List<Unit> units = new ArrayList<Unit>();
+  private final boolean[] finished;//indexed by unit id
+  private int remaining;
+  private ResultListener listener;
+
+  /**
+   * Creates a coordinator for a tournament.
+   * @param agentClasses the fully qualified class names of the agents, each with a no argument constructor.
+   * @param schedule for each game, the indexes of the agents playing blue, green and red.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param logger a printStream to log the progress of the tournament to.
+   * **/
+  public TournamentCoordinator(String[] agentClasses, List<int[]> schedule, int timeLimit, PrintStream logger){
+    this(agentClasses, schedule, new java.util.SplittableRandom().longs(schedule.size()).toArray(), timeLimit, logger);
+  }
+
+  /**
+   * Creates a coordinator for a tournament, as above, with the seed of each game,
+   * which the worker playing it gives to ThreeChess.seedAgents.
+   * @param agentClasses the fully qualified class names of the agents, each with a no argument constructor.
+   * @param schedule for each game, the indexes of the agents playing blue, green and red.
+   * @param seeds the seed of each game, in the order of the schedule.
+   * @param timeLimit the cumulative time each player has (in seconds). To specify an untimed game, set as less than or equal to zero.
+   * @param logger a printStream to log the progress of the tournament to.
+   * **/
+  public TournamentCoordinator(String[] agentClasses, List<int[]> schedule, long[] seeds, int timeLimit, PrintStream logger){
+    if(seeds.length!=schedule.size()) throw new IllegalArgumentException("Every game needs a seed.");
+    this.agentClasses = agentClasses.clone();
+    this.timeLimit = timeLimit;
+    this.logger = logger;
+    for(int[] players: schedule){
+      Unit unit = new Unit(units.size(), players.clone(), seeds[units.size()]);
+      units.add(unit);
+      pending.add(unit);
+    }
+    finished = new boolean[units.size()];
+    remaining = units.size();
+  }
+
+  /**
+   * Sets the rules for adjudicating the games, which each worker applies with ThreeChess.setAdjudication.
+   * Neither rule applies by default.
+   * @param moves the number of moves, over all players, after which a game is stopped and scored on material,
+   * or 0 for no limit.
+   * @param repetition whether a game is drawn when the same position occurs for the third time.
+   * **/
+  public void setAdjudication(int moves, boolean repetition){
+    maxMoves = Math.max(0, moves);
+    this.repetition = repetition;
+  }
+
+  /**
+   * Runs the tournament, returning when every game has been played or abandoned.
+   * @param port the port to listen for workers on, or 0 for any free port.
+   * @param localWorkers the number of worker processes to start on this host.
+   * @param listener receives the result of each game.
+   * @throws IOException if the port cannot be listened on.
+   * **/
+  public void run(int port, int localWorkers, ResultListener listener) throws IOException{
+    this.listener = listener;
+    List<Process> processes = new ArrayList<Process>();
+    try(ServerSocket server = new ServerSocket(port)){
+      logger.println("Coordinating "+units.size()+" games on port "+server.getLocalPort());
+      Thread acceptor = new Thread(() -> accept(server), "TournamentCoordinator-accept");
+      acceptor.setDaemon(true);
+      acceptor.start();
+      for(int w = 0; w<localWorkers; w++) startLocalWorker(server.getLocalPort(), "local-"+w, processes, 0);
+      synchronized(this){
+        while(remaining>0){
+          try{
+            wait();
+          }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+      }
+    }finally{
+      synchronized(processes){
+        for(Process p: processes) if(p.isAlive()) p.destroy();//they have been told there are no more games
+      }
+    }
+  }
+
+  //accepts workers until the server is closed
+  private void accept(ServerSocket server){
+    try{
+      while(true){
+        Socket socket = server.accept();
+        Thread handler = new Thread(() -> serve(socket), "TournamentCoordinator-worker");
+        handler.setDaemon(true);
+        handler.start();
+      }
+    }catch(IOException e){}//the server was closed at the end of the tournament
+  }
+
+  //starts a worker process on this host, which is started again if it crashes while there are games left
+  private void startLocalWorker(int port, String name, List<Process> processes, int restarts){
+    String java = System.getProperty("java.home")+File.separator+"bin"+File.separator+"java";
+    ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        TournamentWorker.class.getName(), "localhost", Integer.toString(port), name);
+    builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    try{
+      Process process = builder.start();
+      synchronized(processes){processes.add(process);}
+      process.onExit().thenAccept(p -> {
+        if(p.exitValue()!=0 && restarts<MAX_ATTEMPTS*units.size() && !isFinished()){
+          synchronized(this){logger.println("Worker "+name+" exited with "+p.exitValue()+", restarting it");}
+          startLocalWorker(port, name, processes, restarts+1);
+        }
+      });
+    }catch(IOException e){
+      synchronized(this){logger.println("Could not start worker "+name+": "+e.getMessage());}
+    }
+  }
+
+  private synchronized boolean isFinished(){return remaining==0;}
+
+  //talks to one worker until it disconnects or there are no more games
+  private void serve(Socket socket){
+    String name = socket.getRemoteSocketAddress().toString();
+    Unit current = null;
+    try(Socket s = socket){
+      s.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      if(in.readInt()!=MAGIC) return;
+      name = in.readUTF();
+      synchronized(this){logger.println("Worker "+name+" connected");}
+      while(true){
+        byte message = in.readByte();
+        if(message==REQUEST){
+          current = take();
+          if(current==null){
+            out.writeByte(DONE);
+            out.flush();
+            return;
+          }
+          out.writeByte(UNIT);
+          out.writeInt(current.id);
+          out.writeInt(timeLimit);
+          out.writeLong(current.seed);
+          out.writeInt(maxMoves);
+          out.writeBoolean(repetition);
+          for(int player: current.players) out.writeUTF(agentClasses[player]);
+          out.flush();
+        }
+        else if(message==RESULT){
+          int id = in.readInt();
+          int[] scores = {in.readInt(), in.readInt(), in.readInt()};
+          int t = in.readUnsignedByte();
+          if(t>=Termination.values().length) return;//not a worker of this version
+          complete(id, scores, Termination.values()[t], name);
+          current = null;
+        }
+        else if(message==FAILED){
+          int id = in.readInt();
+          String error = in.readUTF();
+          abandon(id, "failed on "+name+": "+error);
+          current = null;
+        }
+        else return;
+      }
+    }catch(IOException e){
+      if(current!=null) requeue(current, name);
+    }
+  }
+
+  //waits for a game to hand out, or returns null if every game is finished
+  private synchronized Unit take(){
+    while(pending.isEmpty() && remaining>0){
+      try{
+        wait();
+      }catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+    Unit unit = pending.poll();
+    if(unit!=null) unit.attempts++;
+    return unit;
+  }
+
+  private synchronized void complete(int id, int[] scores, Termination termination, String worker){
+    if(id<0 || id>=finished.length || finished[id]) return;//already played by another worker
+    finished[id] = true;
+    remaining--;
+    int[] players = units.get(id).players;
+    logger.println("Game "+id+" played by "+worker+": "+agentClasses[players[0]]+" "+scores[0]+", "
+        +agentClasses[players[1]]+" "+scores[1]+", "+agentClasses[players[2]]+" "+scores[2]+", "+termination);
+    listener.result(players.clone(), scores, termination);
+    notifyAll();
+  }
+
+  private synchronized void abandon(int id, String reason){
+    if(id<0 || id>=finished.length || finished[id]) return;
+    finished[id] = true;
+    remaining--;
+    logger.println("Game "+id+" abandoned: "+reason);
+    listener.result(units.get(id).players.clone(), new int[3], Termination.UNFINISHED);
+    notifyAll();
+  }
+
+  private synchronized void requeue(Unit unit, String worker){
+    if(finished[unit.id]) return;
+    if(unit.attempts>=MAX_ATTEMPTS) abandon(unit.id, "lost "+unit.attempts+" workers, the last "+worker);
+    else{
+      logger.println("Worker "+worker+" lost, handing out game "+unit.id+" again");
+      pending.addFirst(unit);
+      notifyAll();
+    }
+  }
+}
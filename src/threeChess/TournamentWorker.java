@@ -0,0 +1,95 @@
+package threeChess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A process that plays games for a TournamentCoordinator.
+ * It connects to the coordinator, and repeatedly asks for a game, plays it with the coordinator's rules
+ * for adjudication and sends back the scores and how the game ended, until the coordinator has no more games.
+ * The agents of each game are created afresh from their class names, with their no argument constructors,
+ * so the classes must be on the worker's class path.
+ * Run with the host and port of the coordinator.
+ * **/
+public final class TournamentWorker{
+
+  private TournamentWorker(){}
+
+  /**
+   * Creates an agent from the name of its class.
+   * @param className the fully qualified name of a subclass of Agent with a no argument constructor.
+   * @return a new agent.
+   * @throws ReflectiveOperationException if the class cannot be found or instantiated.
+   * **/
+  public static Agent newAgent(String className) throws ReflectiveOperationException{
+    return Class.forName(className).asSubclass(Agent.class).getDeclaredConstructor().newInstance();
+  }
+
+  /**
+   * Plays games for a coordinator until it has no more.
+   * @param host the host of the coordinator.
+   * @param port the port of the coordinator.
+   * @param name the name of this worker, for the coordinator's log.
+   * @return the number of games played.
+   * @throws IOException if the connection to the coordinator fails.
+   * **/
+  public static int work(String host, int port, String name) throws IOException{
+    PrintStream logger = new PrintStream(OutputStream.nullOutputStream());
+    int played = 0;
+    try(Socket socket = new Socket(host, port)){
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(TournamentCoordinator.MAGIC);
+      out.writeUTF(name);
+      while(true){
+        out.writeByte(TournamentCoordinator.REQUEST);
+        out.flush();
+        if(in.readByte()!=TournamentCoordinator.UNIT) return played;//no more games
+        int id = in.readInt();
+        int timeLimit = in.readInt();
+        long seed = in.readLong();
+        int maxMoves = in.readInt();
+        boolean repetition = in.readBoolean();
+        String[] classes = {in.readUTF(), in.readUTF(), in.readUTF()};
+        GameResult result;
+        try{
+          Agent[] game = {newAgent(classes[0]), newAgent(classes[1]), newAgent(classes[2])};
+          ThreeChess.seedAgents(game, seed);
+          ThreeChess.setAdjudication(maxMoves, repetition);
+          result = ThreeChess.playGame(game[0], game[1], game[2], timeLimit, logger, false, null, null);
+        }catch(ReflectiveOperationException | RuntimeException e){
+          out.writeByte(TournamentCoordinator.FAILED);
+          out.writeInt(id);
+          out.writeUTF(String.valueOf(e));
+          continue;
+        }
+        out.writeByte(TournamentCoordinator.RESULT);
+        out.writeInt(id);
+        for(int score: result.getScores()) out.writeInt(score);
+        out.writeByte(result.getTermination().ordinal());
+        played++;
+      }
+    }
+  }
+
+  /**
+   * Runs a worker. 
+   * Run with the host and port of the coordinator, and optionally a name for the worker.
+   * **/
+  public static void main(String[] args) throws IOException{
+    if(args.length<2){
+      System.out.println("Usage: TournamentWorker host port [name]");
+      return;
+    }
+    String name = args.length>2 ? args[2] : InetAddress.getLocalHost().getHostName()+":"+ProcessHandle.current().pid();
+    work(args[0], Integer.parseInt(args[1]), name);
+  }
+}
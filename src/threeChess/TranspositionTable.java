@@ -0,0 +1,87 @@
+package threeChess;
+
+/**
+ * A table of the results of searching positions, indexed by Zobrist hash,
+ * so a search does not search again a position it reaches by another order of moves,
+ * and tries first the move that was best when it last searched a position.
+ * Each entry is two longs: the hash exclusive-or the data, and the data, which packs the best move,
+ * the score, the depth searched and whether the score is exact or a bound.
+ * An entry is only used if its two words agree with the hash, so threads may share a table
+ * without locking: an entry torn by two threads writing it at once is ignored, as if it had been replaced.
+ * An entry is replaced by a search of the same position, by a deeper search,
+ * or by any search once it is from an earlier search.
+ * **/
+public final class TranspositionTable{
+
+  /**The score is exact**/
+  public static final int EXACT = 0;
+  /**The score is a lower bound, as a move scored at least beta**/
+  public static final int LOWER = 1;
+  /**The score is an upper bound, as no move scored more than alpha**/
+  public static final int UPPER = 2;
+  /**The move of an entry with no best move**/
+  public static final int NO_MOVE = (1<<14)-1;
+
+  private final long[] entries;//key and data of each entry, in adjacent elements
+  private final int mask;
+  private int age;
+
+  /**
+   * Creates an empty table.
+   * @param megabytes the size of the table, which is rounded down to a power of two entries of 16 bytes.
+   * **/
+  public TranspositionTable(int megabytes){
+    int size = Integer.highestOneBit(Math.max(1, megabytes)*(1<<20)/16);
+    entries = new long[2*size];
+    mask = size-1;
+  }
+
+  /**
+   * Looks up a position.
+   * @param hash the hash of the position.
+   * @return the data of the entry for the position, or 0 if there is none.
+   * **/
+  public long probe(long hash){
+    int i = 2*((int) hash & mask);
+    long data = entries[i+1];
+    return (entries[i]^data)==hash ? data : 0;
+  }
+
+  /**
+   * Stores the result of searching a position, unless the entry holds a deeper search of another position
+   * from the current search.
+   * @param hash the hash of the position.
+   * @param move the best move found, or NO_MOVE.
+   * @param score the score of the position.
+   * @param depth the depth searched, from 0 to 255.
+   * @param bound EXACT, LOWER or UPPER.
+   * **/
+  public void store(long hash, int move, int score, int depth, int bound){
+    int i = 2*((int) hash & mask);
+    long old = entries[i+1];
+    if((entries[i]^old)!=hash && age(old)==(age&0xff) && depth(old)>depth) return;
+    long data = (score & 0xffffffffL)<<32 | (long) (age&0xff)<<24 | (long) depth<<16 | (long) bound<<14 | move;
+    entries[i] = hash^data;
+    entries[i+1] = data;
+  }
+
+  /** Marks the start of a new search, so entries from earlier searches are replaced first. **/
+  public void newSearch(){age++;}
+
+  /** Empties the table. **/
+  public void clear(){java.util.Arrays.fill(entries, 0);}
+
+  /** @return the best move of an entry, or NO_MOVE. **/
+  public static int move(long data){return (int) data & NO_MOVE;}
+
+  /** @return the bound of an entry: EXACT, LOWER or UPPER. **/
+  public static int bound(long data){return (int) (data>>>14) & 3;}
+
+  /** @return the depth searched for an entry. **/
+  public static int depth(long data){return (int) (data>>>16) & 0xff;}
+
+  /** @return the score of an entry. **/
+  public static int score(long data){return (int) (data>>>32);}
+
+  private static int age(long data){return (int) (data>>>24) & 0xff;}
+}
@@ -0,0 +1,193 @@
+package threeChess;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A parallel paranoid alpha-beta search to a fixed depth, which splits the tree between the threads
+ * of a ForkJoinPool by Young Brothers Wait: at each node with at least the split depth left to search,
+ * the first move is searched on its own, and once its score has narrowed the bounds,
+ * the rest of the moves are searched at once as subtasks, which idle threads steal.
+ * Below the split depth each task searches serially, as ParanoidSearch does.
+ * <p>
+ * Scores are as given by ParanoidSearch, with a quiescence search at the leaves.
+ * Each task searches its own copy of the position with its own ParanoidSearch and MoveOrderer,
+ * ordering captures by value and static exchange, and killer moves,
+ * and no transposition table is shared, so tasks share no mutable state,
+ * and the score, the move and the number of positions searched are the same with any number of threads.
+ * **/
+public final class YoungBrothersSearch{
+
+  /**The least depth left to search at which the moves of a node are split between tasks, by default**/
+  public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+  private final ForkJoinPool pool;
+  private final int splitDepth;
+  private final boolean quiescence;
+  private long nodes;
+  private int score;
+
+  /**
+   * Creates a search with the default split depth and a quiescence search.
+   * @param pool the pool to run the tasks in.
+   * **/
+  public YoungBrothersSearch(ForkJoinPool pool){
+    this(pool, DEFAULT_SPLIT_DEPTH, true);
+  }
+
+  /**
+   * Creates a search.
+   * @param pool the pool to run the tasks in.
+   * @param splitDepth the least depth left to search at which the moves of a node are split between tasks.
+   * Deeper splits make fewer, larger tasks.
+   * @param quiescence whether to search captures beyond the depth searched, or evaluate the positions there.
+   * **/
+  public YoungBrothersSearch(ForkJoinPool pool, int splitDepth, boolean quiescence){
+    this.pool = pool;
+    this.splitDepth = Math.max(1, splitDepth);
+    this.quiescence = quiescence;
+  }
+
+  /**
+   * Searches for the best move of the player whose turn it is.
+   * @param state the position to search, which is not changed.
+   * @param depth the depth to search to, in moves.
+   * @return the encoded best move, or TranspositionTable.NO_MOVE if there is no legal move.
+   * **/
+  public int search(SearchState state, int depth){
+    Node root = new Node(new SearchState(state), state.turn(), Math.max(1, depth),
+        -ParanoidSearch.INFINITY, ParanoidSearch.INFINITY, 0);
+    score = pool.invoke(root);
+    nodes = root.nodes;
+    return root.bestMove;
+  }
+
+  /** @return the number of positions visited by the last search, over all its tasks. **/
+  public long getNodes(){return nodes;}
+
+  /** @return the score of the move returned by the last search. **/
+  public int getScore(){return score;}
+
+  //a subtree searched by one task, which owns its position and searcher
+  private final class Node extends RecursiveTask<Integer>{
+
+    private static final long serialVersionUID = 7167225787303623176L;//declared for RecursiveTask, though tasks are never serialized
+
+    private final SearchState state;
+    private final int root, depth, alpha, beta, ply;
+    private ParanoidSearch serial;
+    private MoveOrderer orderer;
+    private long nodes;//the positions visited by this task and its subtasks, valid once it is done
+    private int bestMove = TranspositionTable.NO_MOVE;//the best move of the task's position
+
+    Node(SearchState state, int root, int depth, int alpha, int beta, int ply){
+      this.state = state;
+      this.root = root;
+      this.depth = depth;
+      this.alpha = alpha;
+      this.beta = beta;
+      this.ply = ply;
+    }
+
+    protected Integer compute(){
+      orderer = new MoveOrderer(EnumSet.of(MoveOrderer.Heuristic.CAPTURES, MoveOrderer.Heuristic.EXCHANGES,
+          MoveOrderer.Heuristic.KILLERS));
+      serial = new ParanoidSearch(null, orderer, quiescence);
+      return search(depth, alpha, beta, ply);
+    }
+
+    //searches the task's position, as moves are made on it, splitting the moves of nodes deep enough
+    private int search(int depth, int alpha, int beta, int ply){
+      if((depth<splitDepth && ply>0) || state.gameOver() || ply>=SearchState.MAX_PLY-1){//the root always finds its move here
+        int v = serial.search(state, root, depth, alpha, beta, ply);
+        nodes += serial.getNodes();
+        return v;
+      }
+      nodes++;
+      int turn = state.turn();
+      int[] list = new int[MoveGenerator.MAX_MOVES];
+      int n = MoveGenerator.generate(state.squares(), Colour.values()[turn], list);
+      if(n==0) return turn==root ? -ParanoidSearch.WIN+ply : ParanoidSearch.WIN-ply;//no legal move loses
+      orderer.order(state.squares(), list, n, ply, TranspositionTable.NO_MOVE);
+      boolean maximising = turn==root;
+      int a = alpha, b = beta;
+      //the eldest brother is searched first, within this task
+      state.make(list[0]);
+      int best = search(depth-1, a, b, ply+1);
+      state.unmake();
+      int move = list[0];
+      if(maximising) a = Math.max(a, best);
+      else b = Math.min(b, best);
+      if(a<b && n>1){
+        //then the younger brothers at once, each on its own copy of the position
+        List<Node> brothers = new ArrayList<Node>(n-1);
+        for(int i = 1; i<n; i++){
+          SearchState copy = new SearchState(state);
+          copy.make(list[i]);
+          brothers.add(new Node(copy, root, depth-1, a, b, ply+1));
+        }
+        invokeAll(brothers);
+        for(int i = 1; i<n; i++){//in the order searched, so ties are broken as a serial search would
+          Node brother = brothers.get(i-1);
+          int v = brother.join();
+          nodes += brother.nodes;
+          if(maximising ? v>best : v<best){
+            best = v;
+            move = list[i];
+          }
+        }
+        if(maximising) a = Math.max(a, best);
+        else b = Math.min(b, best);
+      }
+      if(a>=b) orderer.cutoff(state.squares(), move, ply, depth);
+      if(ply==this.ply) bestMove = move;
+      return best;
+    }
+  }
+
+  /**
+   * Measures the speedup of the search with 1, 2, 4, 8 and 16 threads, or up to a given number,
+   * searching positions from games of random moves to a fixed depth,
+   * and checks every thread count finds the same scores and moves.
+   * Run with the depth, which is 4 by default, the number of positions, which is 8 by default,
+   * and the largest number of threads, which is 16 by default.
+   * **/
+  public static void main(String[] args){
+    int depth = args.length>0 ? Integer.parseInt(args[0]) : 4;
+    int count = args.length>1 ? Integer.parseInt(args[1]) : 8;
+    int maxThreads = args.length>2 ? Integer.parseInt(args[2]) : 16;
+    List<Board> positions = ParanoidSearch.randomPositions(count, new SplittableRandom(1));
+    PieceSquareTables tables = PieceSquareTables.getDefault();
+    System.out.println("Depth "+depth+", "+positions.size()+" positions, "
+        +Runtime.getRuntime().availableProcessors()+" processors");
+    ForkJoinPool warmUp = new ForkJoinPool(1);//so the compiler has compiled the search before the first time is taken
+    for(Board board: positions) new YoungBrothersSearch(warmUp).search(new SearchState(board, tables), depth);
+    warmUp.shutdown();
+    double serial = 0;
+    int[] moves = null, scores = null;
+    for(int threads = 1; threads<=maxThreads; threads *= 2){
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      YoungBrothersSearch search = new YoungBrothersSearch(pool);
+      int[] m = new int[positions.size()], s = new int[positions.size()];
+      long nodes = 0, time = System.nanoTime();
+      for(int i = 0; i<positions.size(); i++){
+        m[i] = search.search(new SearchState(positions.get(i), tables), depth);
+        s[i] = search.getScore();
+        nodes += search.getNodes();
+      }
+      time = System.nanoTime()-time;
+      pool.shutdown();
+      if(threads==1){
+        serial = time;
+        moves = m;
+        scores = s;
+      }
+      System.out.printf("%2d threads %10d nodes %8.0f ms %5.2fx speedup%s%n", threads, nodes, time/1e6, serial/time,
+          java.util.Arrays.equals(m, moves) && java.util.Arrays.equals(s, scores) ? "" : "  DIFFERENT RESULTS");
+    }
+  }
+}
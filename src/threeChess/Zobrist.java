@@ -0,0 +1,72 @@
+package threeChess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of board positions.
+ * Each piece type and colour on each square has a random 64-bit key, as does each player to move,
+ * and the hash of a position is the exclusive or of the keys of its pieces and of the player whose turn it is.
+ * A move changes the hash by the keys of the squares it changes, so the hash can be updated with each move.
+ * Castling and en passant rights need no keys, since castling only depends on the pieces on the board
+ * and there is no en passant.
+ * <p>
+ * The keys are generated from a fixed seed, so hashes are the same in every run
+ * and may be stored, as they are in a GameDatabase index.
+ * **/
+public final class Zobrist{
+
+  /**The seed the keys are generated from. Changing it invalidates every stored hash.**/
+  public static final long SEED = 0x3C4E55L;
+
+  private static final long[][][] pieces = new long[PieceType.values().length][3][96];
+  private static final long[] turns = new long[3];
+
+  static{
+    SplittableRandom random = new SplittableRandom(SEED);
+    for(long[][] type: pieces)
+      for(long[] colour: type)
+        for(int sq = 0; sq<96; sq++) colour[sq] = random.nextLong();
+    for(int c = 0; c<3; c++) turns[c] = random.nextLong();
+  }
+
+  private Zobrist(){}
+
+  /**
+   * @param type the ordinal of the type of a piece.
+   * @param colour the ordinal of the colour of the piece.
+   * @param square the ordinal of the position of the piece.
+   * @return the key of the piece on that square.
+   * **/
+  public static long piece(int type, int colour, int square){
+    return pieces[type][colour][square];
+  }
+
+  /**
+   * @param piece a piece, or null.
+   * @param position the position of the piece.
+   * @return the key of the piece on that position, or 0 if there is no piece.
+   * **/
+  public static long piece(Piece piece, Position position){
+    return piece==null ? 0 : pieces[piece.getType().ordinal()][piece.getColour().ordinal()][position.ordinal()];
+  }
+
+  /**
+   * @param colour the player to move.
+   * @return the key of that player having the move.
+   * **/
+  public static long turn(Colour colour){
+    return turns[colour.ordinal()];
+  }
+
+  /**
+   * Computes the hash of a position from scratch.
+   * Board.hash gives the same value, kept up to date as moves are made.
+   * @param board the position.
+   * @return the hash of the pieces on the board and the player whose turn it is.
+   * **/
+  public static long hash(Board board){
+    long hash = turn(board.getTurn());
+    for(Position p: Position.values()) hash ^= piece(board.getPiece(p), p);
+    return hash;
+  }
+}
@@ -0,0 +1,113 @@
+package threeChess.agents;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import threeChess.*;
+
+/**
+ * Plays from an opening book while the game is in it, and hands the rest of the
+ * game to another agent. Book moves are found in microseconds, so the other agent
+ * keeps its clock for the positions it has not seen. The other agent is given a
+ * generator split from this agent's, may ponder as this agent may, and is stopped
+ * pondering with it.
+ */
+public class BookAgent extends Agent {
+
+    static final String bookStorage = "Opening-Book";
+
+    private static OpeningBook storedBook; // The book read from disk, shared by all agents made with no arguments
+    private static boolean storedBookRead = false;
+
+    private final OpeningBook book;
+    private final Agent fallback;
+
+    /**
+     * A no argument constructor, required for tournament management. The agent
+     * plays from the stored book, if there is one, and then as a GreedyAgent.
+     */
+    public BookAgent() {
+        this(readStoredBook(), new GreedyAgent());
+    }
+
+    /**
+     * @param book     the book to play from, or null to always use the fallback agent
+     * @param fallback the agent that plays positions that are not in the book
+     */
+    public BookAgent(OpeningBook book, Agent fallback) {
+        this.book = book;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @return the book stored in the working directory, or null if there is none
+     */
+    static synchronized OpeningBook readStoredBook() {
+        if (!storedBookRead) {
+            storedBookRead = true;
+            try {
+                storedBook = OpeningBook.read(new File(bookStorage));
+            } catch (IOException e) {
+                storedBook = null;
+            }
+        }
+        return storedBook;
+    }
+
+    /**
+     * Plays a weighted random move from the book if the position is in it, and
+     * otherwise the move of the fallback agent.
+     *
+     * @param board the representation of the game state
+     * @return the start and end positions of the move
+     */
+    public Position[] playMove(Board board) {
+        if (book != null) {
+            Position[] move = book.probe(board, getRandom());
+            if (move != null) return move;
+        }
+        return fallback.playMove(board);
+    }
+
+    /**
+     * @return the name of the fallback agent, marked as playing from a book
+     */
+    public String toString() {
+        return "Book+" + fallback;
+    }
+
+    /**
+     * Gives the fallback agent a generator split from this agent's.
+     *
+     * @param random the generator given to this agent
+     */
+    protected void onRandom(SplittableRandom random) {
+        fallback.setRandom(random.split());
+    }
+
+    /**
+     * Lets the fallback agent ponder with the same number of threads.
+     *
+     * @param threads the number of threads this agent may ponder with
+     */
+    protected void onPonderThreads(int threads) {
+        fallback.setPonderThreads(threads);
+    }
+
+    /**
+     * Stops the fallback agent pondering.
+     */
+    public void stopPondering() {
+        fallback.stopPondering();
+    }
+
+    /**
+     * Passes the final board on to the fallback agent.
+     *
+     * @param finalBoard the end position of the board
+     */
+    public void finalBoard(Board finalBoard) {
+        fallback.finalBoard(finalBoard);
+    }
+}
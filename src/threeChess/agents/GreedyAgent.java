@@ -3,7 +3,6 @@ package threeChess.agents;
 import threeChess.*;
 
 import java.util.HashSet;
-import java.util.Random;
 
 /**
  * An interface for AI bots to implement.
@@ -14,7 +13,6 @@ import java.util.Random;
 public class GreedyAgent extends Agent{
   
   private static final String name = "Greedy";
-  private static final Random random = new Random();
 
 
   /**
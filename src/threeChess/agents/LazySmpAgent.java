@@ -0,0 +1,195 @@
+package threeChess.agents;
+
+import threeChess.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An agent that searches in parallel by Lazy SMP: every thread runs its own
+ * paranoid alpha-beta search (see {@link ParanoidSearch}) of the same
+ * position, with its own {@link MoveOrderer}, and they share one lockless
+ * {@link TranspositionTable}, so each thread finds much of the tree already
+ * searched by the others. Half the helper threads start a depth deeper than
+ * the calling thread, so the threads are spread over the depths rather than
+ * all searching the same one.
+ *
+ * The calling thread searches as in {@link SearchAgent}; when it finishes,
+ * the helpers are stopped, and the move of the thread that completed the
+ * deepest search is played. The helper threads are kept in a pool between
+ * moves, and end once idle for KEEP_ALIVE_SECONDS, so an agent that is no
+ * longer playing holds no threads. The nodes each thread has searched are
+ * counted.
+ */
+public class LazySmpAgent extends Agent {
+
+    private static final String name = "LazySMP";
+    private static final int MOVES_TO_GO = 40; // The number of moves the time left is shared between
+    private static final int KEEP_ALIVE_SECONDS = 1; // How long an idle helper thread is kept
+
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private final ParanoidSearch[] searches; // One per thread, the calling thread's first
+    private final long[] nodes; // The nodes searched by each thread, over all moves
+    private final ExecutorService helpers;
+
+    /**
+     * A no argument constructor, required for tournament management. The agent
+     * uses a thread for each available processor, and searches to the same
+     * depth with the same size of table as {@link SearchAgent}.
+     */
+    public LazySmpAgent() {
+        this(Runtime.getRuntime().availableProcessors(), SearchAgent.DEFAULT_DEPTH,
+                SearchAgent.DEFAULT_TABLE_MEGABYTES);
+    }
+
+    /**
+     * @param threads         the number of threads to search with, including
+     *                        the thread calling playMove
+     * @param maxDepth        the depth to search to in untimed games, and the
+     *                        greatest depth in timed games
+     * @param tableMegabytes  the size of the shared transposition table
+     */
+    public LazySmpAgent(int threads, int maxDepth, int tableMegabytes) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed.");
+        this.maxDepth = maxDepth;
+        table = new TranspositionTable(tableMegabytes);
+        searches = new ParanoidSearch[threads];
+        for (int i = 0; i < threads; i++) searches[i] = new ParanoidSearch(table, new MoveOrderer());
+        nodes = new long[threads];
+        if (threads == 1) {
+            helpers = null;
+            return;
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads - 1, threads - 1, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+            Thread t = new Thread(r, name + " helper");
+            t.setDaemon(true); // The pool must not keep the program running after the games end
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true); // Nor keep a discarded agent's threads and table
+        helpers = pool;
+    }
+
+    /**
+     * Plays the best move found by the threads.
+     *
+     * @param board the representation of the game state
+     * @return the start and end positions of the move
+     */
+    public Position[] playMove(Board board) {
+        long start = System.nanoTime();
+        int timeLeft = board.getTimeLeft(board.getTurn());
+        // An untimed game gives each player 1 millisecond that is never used
+        long deadline = timeLeft > 1 ? start + timeLeft * 1000000L / MOVES_TO_GO : Long.MAX_VALUE;
+        int move = search(new SearchState(board, PieceSquareTables.getDefault()), deadline);
+        if (move == TranspositionTable.NO_MOVE) return null;
+        return new Position[] {MoveGenerator.from(move), MoveGenerator.to(move)};
+    }
+
+    // Searches with every thread, returning the move of the deepest search completed
+    private int search(SearchState state, long deadline) {
+        table.newSearch();
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int i = 1; i < searches.length; i++) {
+            ParanoidSearch helper = searches[i];
+            SearchState copy = new SearchState(state);
+            int firstDepth = 1 + i % 2;
+            helper.resume(); // Before the task starts, so a stop is never missed
+            futures.add(helpers.submit(() -> helper.search(copy, firstDepth, maxDepth, deadline)));
+        }
+        searches[0].resume();
+        int best = searches[0].search(state, 1, maxDepth, deadline);
+        int bestDepth = searches[0].getDepth();
+        nodes[0] += searches[0].getNodes();
+        for (int i = 1; i < searches.length; i++) searches[i].stop();
+        for (int i = 1; i < searches.length; i++) {
+            try {
+                int move = futures.get(i - 1).get();
+                nodes[i] += searches[i].getNodes();
+                if (searches[i].getDepth() > bestDepth && move != TranspositionTable.NO_MOVE) {
+                    best = move;
+                    bestDepth = searches[i].getDepth();
+                }
+            } catch (InterruptedException e) {
+                // The helper's move is not needed, the calling thread has one
+            } catch (ExecutionException e) {
+                System.err.println(name + " helper " + i + " failed: " + e.getCause()); // The calling thread's move is played
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of threads the agent searches with
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * @return the number of positions each thread has searched, over all the
+     *         moves played, the calling thread's first
+     */
+    public long[] getThreadNodes() {
+        return nodes.clone();
+    }
+
+    /**
+     * @return the Agent's name, for annotating game description
+     */
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Clears the transposition table, which holds nothing of use for the next game.
+     *
+     * @param finalBoard the end position of the board
+     */
+    public void finalBoard(Board finalBoard) {
+        table.clear();
+    }
+
+    /**
+     * Measures how the nodes searched per second scale with the number of
+     * threads, searching positions from games of random moves for a fixed
+     * time each, and reports the nodes searched by each thread.
+     * Run with the largest number of threads, which is the number of available
+     * processors by default, and the milliseconds to search each position,
+     * which is 1000 by default. The thread counts measured double up to the largest.
+     *
+     * @param args the largest number of threads, and the time per position
+     */
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int millis = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        List<Board> positions = ParanoidSearch.randomPositions(8, new SplittableRandom(1));
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            LazySmpAgent agent = new LazySmpAgent(threads, SearchState.MAX_PLY, 64);
+            long time = System.nanoTime();
+            for (Board board : positions) {
+                agent.table.clear();
+                agent.search(new SearchState(board, PieceSquareTables.getDefault()),
+                        System.nanoTime() + millis * 1000000L);
+            }
+            time = System.nanoTime() - time;
+            long total = 0;
+            for (long n : agent.nodes) total += n;
+            double rate = total * 1e9 / time;
+            if (threads == 1) single = rate;
+            System.out.printf("%2d threads %10.0f nodes/s %5.2fx  per thread %s%n",
+                    threads, rate, rate / single, Arrays.toString(agent.nodes));
+            if (agent.helpers != null) agent.helpers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package threeChess.agents;
+
+import threeChess.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An agent that evaluates positions with a linear function of a small feature
+ * vector, rather than a table of board states, so what it learns about one
+ * position generalises to similar ones.
+ *
+ * The features are taken from the point of view of the agent: the number of
+ * pieces of each type it and its opponents have, the sum of its piece-position
+ * values for each type (see {@link PieceSquareTables}), how many moves
+ * attack its king and the opponents' kings, and how many moves it and its
+ * opponents have. The agent plays the move whose resulting position (the
+ * afterstate) has the highest value. All the features are updated
+ * incrementally for each move considered: material and position values by the
+ * pieces moved and taken, and attacks and mobility by generating moves again
+ * only for the pieces whose moves the squares changed by the move can affect.
+ *
+ * When training, the weights are learnt by TD(lambda) over the afterstates of
+ * the agent's moves, with a reward of 1 for a win and -1 for a loss. The weights
+ * are stored in a file of a few hundred bytes.
+ */
+public class LinearTDAgent extends Agent {
+
+    private static final String name = "LinearTD";
+    static final String weightsStorage = "Linear-Weights";
+    private static final int MAGIC = 0x4C544431; // "LTD1", marks the weights file format
+
+    private static final int TYPES = PieceType.values().length;
+    // The layout of the feature vector
+    private static final int BIAS = 0;
+    private static final int MATERIAL = 1; // Our pieces of each type
+    private static final int OPP_MATERIAL = MATERIAL + TYPES; // The opponents' pieces of each type
+    private static final int POSITION = OPP_MATERIAL + TYPES; // Our position values for each type
+    private static final int KING_ATTACKED = POSITION + TYPES; // Opponent moves that take our king
+    private static final int KING_ATTACKS = KING_ATTACKED + 1; // Our moves that take an opponent's king
+    private static final int MOBILITY = KING_ATTACKS + 1; // Our moves
+    private static final int OPP_MOBILITY = MOBILITY + 1; // The opponents' moves
+    static final int FEATURES = OPP_MOBILITY + 1;
+
+    private static final double POSITION_SCALE = 0.01;
+    private static final double MOBILITY_SCALE = 0.01;
+
+    // For each colour, type and square, the squares whose contents can change the moves of that piece there
+    private static final long[][][] DEPENDS0 = new long[3][TYPES][96], DEPENDS1 = new long[3][TYPES][96];
+
+    static {
+        Piece[] board = new Piece[96];
+        int[] targets = new int[MoveGenerator.MAX_MOVES];
+        for (Colour c : Colour.values()) {
+            Piece blocker = new Piece(PieceType.PAWN, Colour.values()[(c.ordinal() + 1) % 3]);
+            for (PieceType type : PieceType.values()) {
+                Piece piece = new Piece(type, c);
+                for (int sq = 0; sq < 96; sq++) {
+                    long d0 = 0, d1 = 0;
+                    // The moves on an empty board and on a board full of pieces to take cover every square that matters
+                    for (Piece fill : new Piece[] { null, blocker }) {
+                        Arrays.fill(board, fill);
+                        board[sq] = piece;
+                        int n = MoveGenerator.generate(board, sq, targets, 0, false);
+                        for (int i = 0; i < n; i++) {
+                            int to = targets[i] % 96;
+                            if (to < 64) d0 |= 1L << to; else d1 |= 1L << (to - 64);
+                        }
+                    }
+                    if (type == PieceType.KING && (sq & 31) == 16) { // Castling depends on the whole back rank
+                        for (int col = 0; col < 8; col++) {
+                            int r = (sq & ~31) + 4 * col;
+                            if (r < 64) d0 |= 1L << r; else d1 |= 1L << (r - 64);
+                        }
+                    }
+                    DEPENDS0[c.ordinal()][type.ordinal()][sq] = d0;
+                    DEPENDS1[c.ordinal()][type.ordinal()][sq] = d1;
+                }
+            }
+        }
+    }
+
+    private static double[] storedWeights; // The weights read from disk, shared by all untrained agents
+
+    private final double[] weights;
+    private final double alpha; // The learning rate, or 0 if not training
+    private final double lambda; // The trace decay
+    private final double epsilon; // The probability of playing a random move when training
+
+    private Colour myColour;
+    private final PieceSquareTables positionValues = PieceSquareTables.getDefault();
+    private final double[] traces = new double[FEATURES];
+    private final double[] prevFeatures = new double[FEATURES];
+    private boolean hasPrev = false;
+
+    // Buffers reused between moves
+    private final Piece[] squares = new Piece[96];
+    private final double[] features = new double[FEATURES];
+    private final double[] candidate = new double[FEATURES];
+    private final double[] best = new double[FEATURES];
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] replies = new int[MoveGenerator.MAX_MOVES];
+    // The moves of the piece on each square of the current position, and how many of them take a king it attacks
+    private final int[] pieceMoves = new int[96];
+    private final int[] kingHits = new int[96];
+    private final int[] changes = new int[4]; // The squares a candidate move changes: from, to, and a castling rook's
+    private int myMoves, oppMoves, attacks, attacked, myKing; // The totals of the current position, and our king's square
+    private long oppKings0, oppKings1; // The squares of the opponents' kings
+
+    /**
+     * A no argument constructor, required for tournament management. The agent
+     * plays with the stored weights and does not learn.
+     */
+    public LinearTDAgent() {
+        this(readStoredWeights(), 0, 0, 0);
+    }
+
+    /**
+     * Creates an agent for training. Agents given the same weights array all
+     * update it, so they must play on the same thread.
+     *
+     * @param weights the weights to play with and update
+     * @param alpha   the learning rate
+     * @param lambda  the trace decay
+     * @param epsilon the probability of playing a random move
+     */
+    public LinearTDAgent(double[] weights, double alpha, double lambda, double epsilon) {
+        this.weights = weights;
+        this.alpha = alpha;
+        this.lambda = lambda;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * @return the weights an untrained agent starts with, which just count material
+     */
+    public static double[] initialWeights() {
+        double[] w = new double[FEATURES];
+        for (PieceType type : PieceType.values()) {
+            double value = type == PieceType.KING ? 0 : type.getValue() * 0.02;
+            w[MATERIAL + type.ordinal()] = value;
+            w[OPP_MATERIAL + type.ordinal()] = -value / 2;
+        }
+        return w;
+    }
+
+    /**
+     * Plays the move with the most valuable afterstate, or a random move with
+     * probability epsilon when training.
+     *
+     * @param board the current board
+     * @return the chosen move
+     */
+    public Position[] playMove(Board board) {
+        if (myColour != board.getTurn()) {
+            myColour = board.getTurn();
+            hasPrev = false;
+        }
+        for (Position pos : Position.values()) {
+            squares[pos.ordinal()] = board.getPiece(pos);
+        }
+        staticFeatures(squares, features);
+        countMoves();
+        int n = MoveGenerator.generate(squares, myColour, moves);
+        if (n == 0) {
+            return null;
+        }
+        int chosen = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        boolean wins = false;
+        boolean explore = alpha > 0 && getRandom().nextDouble() < epsilon;
+        for (int i = 0; i < n; i++) {
+            if (explore) {
+                i = getRandom().nextInt(n);
+            }
+            int move = moves[i];
+            Piece taken = squares[move % 96];
+            if (taken != null && taken.getType() == PieceType.KING) { // Wins the game
+                chosen = move;
+                wins = true;
+                break;
+            }
+            Piece mover = squares[move / 96];
+            System.arraycopy(features, 0, candidate, 0, FEATURES);
+            int castleFrom = makeMove(move, candidate);
+            dynamicFeatures(candidate, move, castleFrom);
+            unmakeMove(move, mover, taken, castleFrom);
+            double value = value(candidate);
+            if (value > bestValue) {
+                bestValue = value;
+                chosen = move;
+                System.arraycopy(candidate, 0, best, 0, FEATURES);
+            }
+            if (explore) {
+                break;
+            }
+        }
+        if (alpha > 0 && !wins) { // A winning move ends the game, and finalBoard gives the reward
+            learn(value(best));
+            System.arraycopy(best, 0, prevFeatures, 0, FEATURES);
+            hasPrev = true;
+        }
+        return new Position[] { MoveGenerator.from(chosen), MoveGenerator.to(chosen) };
+    }
+
+    /**
+     * Applies a TD(lambda) update towards the target value for the previous afterstate.
+     */
+    private void learn(double target) {
+        if (!hasPrev) {
+            return;
+        }
+        double delta = target - value(prevFeatures);
+        for (int f = 0; f < FEATURES; f++) {
+            traces[f] = lambda * traces[f] + prevFeatures[f];
+            weights[f] += alpha * delta * traces[f];
+        }
+    }
+
+    private double value(double[] x) {
+        double v = 0;
+        for (int f = 0; f < FEATURES; f++) {
+            v += weights[f] * x[f];
+        }
+        return v;
+    }
+
+    /**
+     * Fills in the bias, material and position values of the board for our colour.
+     */
+    private void staticFeatures(Piece[] squares, double[] x) {
+        Arrays.fill(x, 0);
+        x[BIAS] = 1;
+        for (int sq = 0; sq < 96; sq++) {
+            if (squares[sq] != null) {
+                addPiece(x, squares[sq], sq, 1);
+            }
+        }
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) the contribution of a piece to the features.
+     */
+    private void addPiece(double[] x, Piece piece, int sq, int sign) {
+        int type = piece.getType().ordinal();
+        if (piece.getColour() == myColour) {
+            x[MATERIAL + type] += sign;
+            x[POSITION + type] += sign * POSITION_SCALE * positionValues.value(type, myColour.ordinal(), sq);
+        } else {
+            x[OPP_MATERIAL + type] += sign;
+        }
+    }
+
+    /**
+     * Makes a move on the squares, as Board.move would, updating the material and
+     * position features as it goes.
+     *
+     * @return the square the castling rook moved from, or -1 if the move was not castling
+     */
+    private int makeMove(int move, double[] x) {
+        int from = move / 96, to = move % 96;
+        Piece mover = squares[from];
+        Piece taken = squares[to];
+        if (taken != null) {
+            addPiece(x, taken, to, -1);
+        }
+        addPiece(x, mover, from, -1);
+        squares[from] = null;
+        Piece placed = mover;
+        if (mover.getType() == PieceType.PAWN && (to & 3) == 0 && to / 32 != mover.getColour().ordinal()) {
+            placed = new Piece(PieceType.QUEEN, mover.getColour()); // Promoted on the back rank
+        }
+        squares[to] = placed;
+        addPiece(x, placed, to, 1);
+        if (mover.getType() == PieceType.KING && (from & 3) == 0 && (from >> 2 & 7) == 4) {
+            int rank = from & ~31; // Column c of the back rank is at rank + 4c
+            int rookFrom = -1, rookTo = -1;
+            if ((to >> 2 & 7) == 2 && to / 32 == from / 32) {
+                rookFrom = rank;
+                rookTo = rank + 12;
+            } else if ((to >> 2 & 7) == 6 && to / 32 == from / 32) {
+                rookFrom = rank + 28;
+                rookTo = rank + 20;
+            }
+            if (rookFrom >= 0 && squares[rookFrom] != null) {
+                Piece rook = squares[rookFrom];
+                addPiece(x, rook, rookFrom, -1);
+                squares[rookFrom] = null;
+                squares[rookTo] = rook;
+                addPiece(x, rook, rookTo, 1);
+                return rookFrom;
+            }
+        }
+        return -1;
+    }
+
+    private void unmakeMove(int move, Piece mover, Piece taken, int castleFrom) {
+        int from = move / 96, to = move % 96;
+        if (castleFrom >= 0) {
+            int rookTo = castleFrom == (from & ~31) ? castleFrom + 12 : castleFrom - 8;
+            squares[castleFrom] = squares[rookTo];
+            squares[rookTo] = null;
+        }
+        squares[from] = mover;
+        squares[to] = taken;
+    }
+
+    /**
+     * Counts the moves of every piece of the current position, and their totals.
+     */
+    private void countMoves() {
+        myKing = -1;
+        oppKings0 = oppKings1 = 0;
+        for (int sq = 0; sq < 96; sq++) {
+            Piece p = squares[sq];
+            if (p != null && p.getType() == PieceType.KING) {
+                if (p.getColour() == myColour) {
+                    myKing = sq;
+                } else if (sq < 64) {
+                    oppKings0 |= 1L << sq;
+                } else {
+                    oppKings1 |= 1L << (sq - 64);
+                }
+            }
+        }
+        myMoves = oppMoves = attacks = attacked = 0;
+        for (int sq = 0; sq < 96; sq++) {
+            pieceMoves[sq] = kingHits[sq] = 0;
+            Piece p = squares[sq];
+            if (p == null) {
+                continue;
+            }
+            int counts = count(sq, myKing);
+            pieceMoves[sq] = counts >>> 16;
+            kingHits[sq] = counts & 0xffff;
+            if (p.getColour() == myColour) {
+                myMoves += pieceMoves[sq];
+                attacks += kingHits[sq];
+            } else {
+                oppMoves += pieceMoves[sq];
+                attacked += kingHits[sq];
+            }
+        }
+    }
+
+    /**
+     * Counts the moves of the piece on a square of the squares, and those taking
+     * a king: for our pieces, an opponent's king, and for theirs, our king.
+     *
+     * @return the number of moves shifted left 16 bits, plus the number taking a king
+     */
+    private int count(int sq, int king) {
+        int n = MoveGenerator.generate(squares, sq, replies, 0, false);
+        boolean mine = squares[sq].getColour() == myColour;
+        int hits = 0;
+        for (int i = 0; i < n; i++) {
+            int to = replies[i] % 96;
+            if (mine ? (to < 64 ? (oppKings0 >>> to & 1) != 0 : (oppKings1 >>> (to - 64) & 1) != 0) : to == king) {
+                hits++;
+            }
+        }
+        return n << 16 | hits;
+    }
+
+    /**
+     * Fills in the king attack and mobility features of the position on the
+     * squares, after a move from the current position, from the counts of the
+     * current position. Only the pieces on the squares the move changed, and
+     * those whose moves those squares can affect, are counted again.
+     *
+     * @param castleFrom the square the castling rook moved from, or -1
+     */
+    private void dynamicFeatures(double[] x, int move, int castleFrom) {
+        int from = move / 96, to = move % 96;
+        long changed0 = 0, changed1 = 0;
+        int n = 2;
+        changes[0] = from;
+        changes[1] = to;
+        if (castleFrom >= 0) {
+            changes[n++] = castleFrom;
+            changes[n++] = castleFrom == (from & ~31) ? castleFrom + 12 : castleFrom - 8;
+        }
+        for (int i = 0; i < n; i++) {
+            int sq = changes[i];
+            if (sq < 64) changed0 |= 1L << sq; else changed1 |= 1L << (sq - 64);
+        }
+        int king = squares[to].getType() == PieceType.KING ? to : myKing; // The move is ours, so only our king may move
+        int mine = myMoves, theirs = oppMoves, hits = attacks, hitsOnUs = attacked;
+        for (int sq = 0; sq < 96; sq++) {
+            Piece p = squares[sq];
+            boolean moved = sq < 64 ? (changed0 >>> sq & 1) != 0 : (changed1 >>> (sq - 64) & 1) != 0;
+            if (!moved && (p == null || ((DEPENDS0[p.getColour().ordinal()][p.getType().ordinal()][sq] & changed0) == 0
+                    && (DEPENDS1[p.getColour().ordinal()][p.getType().ordinal()][sq] & changed1) == 0))) {
+                continue; // The same piece, with the same moves
+            }
+            // Remove the counts of the piece that was there: only the square moved to can have held an opponent's piece
+            boolean wasMine = moved ? sq != to : p.getColour() == myColour;
+            if (wasMine) {
+                mine -= pieceMoves[sq];
+                hits -= kingHits[sq];
+            } else {
+                theirs -= pieceMoves[sq];
+                hitsOnUs -= kingHits[sq];
+            }
+            if (p != null) {
+                int counts = count(sq, king);
+                if (p.getColour() == myColour) {
+                    mine += counts >>> 16;
+                    hits += counts & 0xffff;
+                } else {
+                    theirs += counts >>> 16;
+                    hitsOnUs += counts & 0xffff;
+                }
+            }
+        }
+        x[KING_ATTACKED] = hitsOnUs;
+        x[KING_ATTACKS] = hits;
+        x[MOBILITY] = mine * MOBILITY_SCALE;
+        x[OPP_MOBILITY] = theirs * MOBILITY_SCALE;
+    }
+
+    /**
+     * Gives the final reward when training: 1 for a win, -1 for a loss and 0 otherwise.
+     *
+     * @param finalBoard the end position of the game
+     */
+    public void finalBoard(Board finalBoard) {
+        if (alpha > 0 && myColour != null) {
+            double reward = 0;
+            if (finalBoard.getWinner() == myColour) {
+                reward = 1;
+            } else if (finalBoard.getLoser() == myColour) {
+                reward = -1;
+            }
+            learn(reward);
+        }
+        hasPrev = false;
+        Arrays.fill(traces, 0);
+    }
+
+    /**
+     * @return the Agent's name, for annotating game description.
+     */
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * @return the stored weights, or the initial weights if none have been stored
+     */
+    static synchronized double[] readStoredWeights() {
+        if (storedWeights == null) {
+            try {
+                storedWeights = loadWeights(weightsStorage);
+            } catch (IOException e) {
+                storedWeights = initialWeights();
+            }
+        }
+        return storedWeights;
+    }
+
+    /**
+     * Reads weights written by {@link #storeWeights(String, double[])}.
+     *
+     * @param fileName the file the weights were stored in
+     * @return the weights
+     * @throws IOException if the file could not be read or holds a different feature layout
+     */
+    public static double[] loadWeights(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FEATURES) {
+                throw new IOException("Not a weights file for this feature layout: " + fileName);
+            }
+            double[] w = new double[FEATURES];
+            for (int f = 0; f < FEATURES; f++) {
+                w[f] = in.readDouble();
+            }
+            return w;
+        }
+    }
+
+    /**
+     * Writes the weights to a file.
+     *
+     * @param fileName the file to write to
+     * @param weights  the weights
+     * @throws IOException if the file could not be written
+     */
+    public static void storeWeights(String fileName, double[] weights) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(weights.length);
+            for (double w : weights) {
+                out.writeDouble(w);
+            }
+        }
+    }
+
+    /**
+     * Trains the stored weights by self-play and writes them back to disk.
+     * Arguments (all optional): number of games, maximum moves per game.
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int maxMoves = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        double[] weights = readStoredWeights().clone();
+        LinearTDAgent[] agents = new LinearTDAgent[3];
+        for (int c = 0; c < 3; c++) {
+            agents[c] = new LinearTDAgent(weights, 0.01, 0.7, 0.1);
+        }
+        long start = System.nanoTime();
+        for (int g = 1; g <= games; g++) {
+            Board board = new Board(0);
+            while (!board.gameOver() && board.getMoveCount() < maxMoves) {
+                Position[] move = agents[board.getTurn().ordinal()].playMove(board);
+                if (move == null) {
+                    break;
+                }
+                board.move(move[0], move[1]);
+            }
+            for (LinearTDAgent agent : agents) {
+                agent.finalBoard(board);
+            }
+            if (g % 100 == 0 || g == games) {
+                System.out.printf("games:%d games/sec:%.1f winner:%s%n", g, g / ((System.nanoTime() - start) / 1e9),
+                        board.getWinner());
+                storeWeights(weightsStorage, weights);
+            }
+        }
+        storeWeights(weightsStorage, weights);
+    }
+}
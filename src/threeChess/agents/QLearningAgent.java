@@ -2,48 +2,10 @@ package threeChess.agents;
 
 import threeChess.*;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Random;
-import java.util.Set;
-
-/**
- * A class to represent the state-action pairs which will be stored in the
- * qTable. Contains all board states seen and every action possible for those
- * seen board states.
- */
-class StateAction implements Serializable {
-    /**
-     * Auto generated serialVersionUID
-     */
-    private static final long serialVersionUID = 811621724494833192L;
-    
-    Set<Position> state; // Contains all positions of all pieces
-    Position[] action; // The action taken in the given state
-
-    /**
-     * Constructs a StateAction object based on the given board and action
-     * @param board the board to create the board state from
-     * @param a the action which is paired with the board state
-     */
-    public StateAction(Board board, Position[] a) {
-        try {
-            state = new HashSet<>();
-            state.addAll(board.getPositions(Colour.BLUE));
-            state.addAll(board.getPositions(Colour.GREEN));
-            state.addAll(board.getPositions(Colour.RED));
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Broke trying to create a state-action object... yikes");
-        }
-        action = a;
-    }
-}
+import java.util.LinkedHashSet;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntToDoubleFunction;
 
 /**
  * This class represents a learning agent utilizing Q-Learning to play
@@ -54,683 +16,114 @@ class StateAction implements Serializable {
 public class QLearningAgent extends Agent {
 
     private static final String name = "Q-Learning";
-    private static final Random random = new Random();
 
-    private final String qTableStorageBlue = "Q-Table-Storage-Blue"; // Q-Table-Storage file name for when the agent is BLUE
-    private final String nTimesExecutedStorageBlue = "n-Times-Executed-Storage-Blue"; // n-Times-Executed-Storage file name for when the agent is BLUE
-    private final String qTableStorageGreen = "Q-Table-Storage-Green"; // Q-Table-Storage file name for when the agent is GREEN
-    private final String nTimesExecutedStorageGreen = "n-Times-Executed-Storage-Green"; // n-Times-Executed-Storage file name for when the agent is GREEN
-    private final String qTableStorageRed = "Q-Table-Storage-Red"; // Q-Table-Storage file name for when the agent is RED
-    private final String nTimesExecutedStorageRed = "n-Times-Executed-Storage-Red"; // n-Times-Executed-Storage file name for when the agent is RED
+    private static final String qTableStorageBlue = "Q-Table-Storage-Blue"; // Q-Table-Storage file name for when the agent is BLUE
+    private static final String nTimesExecutedStorageBlue = "n-Times-Executed-Storage-Blue"; // n-Times-Executed-Storage file name for when the agent is BLUE (legacy tables only)
+    private static final String qTableStorageGreen = "Q-Table-Storage-Green"; // Q-Table-Storage file name for when the agent is GREEN
+    private static final String nTimesExecutedStorageGreen = "n-Times-Executed-Storage-Green"; // n-Times-Executed-Storage file name for when the agent is GREEN (legacy tables only)
+    private static final String qTableStorageRed = "Q-Table-Storage-Red"; // Q-Table-Storage file name for when the agent is RED
+    private static final String nTimesExecutedStorageRed = "n-Times-Executed-Storage-Red"; // n-Times-Executed-Storage file name for when the agent is RED (legacy tables only)
+
+    private static final double initLearningRate = 1.0; // The initial learning rate 1.0 == %100
+    private static final double dropChange = 0.95; // The change in the learning rate per drop
+    private static final double dropRate = 1.0; // The rate at which the learning rate drops
 
-    private final double initLearningRate = 1.0; // The initial learning rate 1.0 == %100
-    private final double dropChange = 0.95; // The change in the learning rate per drop
-    private final double dropRate = 1.0; // The rate at which the learning rate drops
-    private double epsilon = 1.0; // The probability in which we choose to utilize exploration vs exploitation
+    private final QTable[] sharedTables; // Tables shared between training agents, indexed by colour, or null to use the stored tables
+    private final DoubleSupplier epsilon; // The probability in which we choose to utilize exploration vs exploitation
+    private final IntToDoubleFunction learningRate; // Maps the number of visits of a state-action pair to its learning rate
+    private final ReplayBuffer[] replayBuffers; // Buffers to record transitions in for batched learning, indexed by colour, or null to learn online
 
 
     Position[] myLastAction; // The last action *I* made
-    Board prevBoardState; // The state of the board in the previous move
+    long prevStateKey; // The key of the state of the board in the previous move
+    boolean hasPrevState; // Whether there was a previous move in this game
     Board curBoardState; // The state of the board as it currently is
     double prevReward; // The adjusted (curRewardValue_t - prevRewardValue_t) reward of the previous action
     double curReward; // The adjusted (curRewardValue_t-1 - prevRewardValue_t-1) reward we get for being on the current state from last action
     double prevRewardValue; // The unadjusted (full reward) reward value of the previous action
 
-    HashMap<Position, Double> pawnPV; // Maps the position on the board with a pawn's relative value on that position (Pawn Position Value)
-    HashMap<Position, Double> knightPV; // Maps the position on the board with a knight's relative value on that position (Knight Position Value)
-    HashMap<Position, Double> bishopPV; // Maps the position on the board with a bishop's relative value on that position (Bishop Position Value)
-    HashMap<Position, Double> rookPV; // Maps the position on the board with a rook's relative value on that position (Rook Position Value)
-    HashMap<Position, Double> queenPV; // Maps the position on the board with a queen's relative value on that position (Queen Position Value)
-    HashMap<Position, Double> kingPV; // Maps the position on the board with a king's relative value on that position (King Position Value)
+    Evaluator evaluator; // The evaluation terms of the current board, and how our moves change them
 
     boolean hasMoved; // whether we have made our first move in the game yet or not
     Colour myColour; // My agent's colour/turn-identifier
 
-    HashMap<StateAction, Double> qTable; // The mapping of every single state-action pair to its value
-    HashMap<StateAction, Integer> nTimesExecuted; // The mapping of every single state-action pair to the number of
-                                                  // times that action has been taken in that state
+    QTable qTable; // The value of every single state-action pair, and the number of times that action
+                   // has been taken in that state
 
     /**
      * A no argument constructor, required for tournament management.
+     * The agent never explores and uses the Q-tables stored on disk.
      **/
     public QLearningAgent() {
+        this(null, () -> 0.0, stepLearningRate(initLearningRate, dropChange, dropRate));
+    }
+
+    /**
+     * Constructs an agent for training.
+     *
+     * @param sharedTables the Q-tables to read and update, indexed by colour, or
+     *                     null to use the tables stored on disk
+     * @param epsilon      supplies the current probability of exploring
+     * @param learningRate the learning rate schedule, see {@link #stepLearningRate}
+     **/
+    public QLearningAgent(QTable[] sharedTables, DoubleSupplier epsilon, IntToDoubleFunction learningRate) {
+        this(sharedTables, epsilon, learningRate, null);
+    }
+
+    /**
+     * Constructs an agent for training that records its transitions for a
+     * {@link ReplayLearner} rather than updating the Q-table itself.
+     *
+     * @param sharedTables  the Q-tables to read, indexed by colour, or null to
+     *                      use the tables stored on disk
+     * @param epsilon       supplies the current probability of exploring
+     * @param learningRate  the learning rate schedule, see {@link #stepLearningRate}
+     * @param replayBuffers the buffers to record transitions in, indexed by
+     *                      colour, or null to update the Q-table after every move
+     **/
+    public QLearningAgent(QTable[] sharedTables, DoubleSupplier epsilon, IntToDoubleFunction learningRate,
+            ReplayBuffer[] replayBuffers) {
+        this.sharedTables = sharedTables;
+        this.epsilon = epsilon;
+        this.learningRate = learningRate;
+        this.replayBuffers = replayBuffers;
         myLastAction = new Position[] { null, null };
-        prevBoardState = null;
+        hasPrevState = false;
         curBoardState = null;
         prevReward = 0.0;
         curReward = 0.0;
         prevRewardValue = 0.0;
         hasMoved = false;
         myColour = null;
+        evaluator = new Evaluator(PieceSquareTables.getDefault());
 
-        pawnPV = new HashMap<Position, Double>();
-        knightPV = new HashMap<Position, Double>();
-        bishopPV = new HashMap<Position, Double>();
-        rookPV = new HashMap<Position, Double>();
-        queenPV = new HashMap<Position, Double>();
-        kingPV = new HashMap<Position, Double>();
-
-        qTable = new HashMap<StateAction, Double>();
-        nTimesExecuted = new HashMap<StateAction, Integer>();
+        qTable = new QTable();
     }
 
     
      /* ------------------------------------------------------- Private Helper Functions -------------------------------------------------------*/
 
     /**
-     * This function determines what color we are and loads/sets the correct data
-     * sets for the agent.
-     * 
-     * Note: the reason the data is hard coded in is because for the tourny the
-     * only file of ours being used is the {agent}.java file and no support/config
-     * files. I'm sorry to whoever decides to read through all of the piece-position
-     * value population. Note: The qTable and nTimesExecuted files are so damn big 
-     * they aren't hard coded in.
+     * This function determines what color we are and loads the correct qTable
+     * for the agent. The piece-position values are shared by every colour, see
+     * {@link PieceSquareTables}.
      **/
     private void init() {
         switch (myColour) {
             case BLUE:
-                try {
-                    FileInputStream qFileIn = new FileInputStream(qTableStorageBlue);
-                    ObjectInputStream qObjectIn = new ObjectInputStream(qFileIn);
-                    qTable = (HashMap<StateAction, Double>) qObjectIn.readObject();
-                    qFileIn.close();
-                    qObjectIn.close();
-    
-                    FileInputStream nFileIn = new FileInputStream(nTimesExecutedStorageBlue);
-                    ObjectInputStream nObjectIn = new ObjectInputStream(nFileIn);
-                    nTimesExecuted = (HashMap<StateAction, Integer>) nObjectIn.readObject();
-                    nFileIn.close();
-                    nObjectIn.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.print("Q Table storage or n Times Executed Storage either do not exist or could not be opened.");
-                }
-
-                pawnPV.put(Position.BA1, 0.0); pawnPV.put(Position.BA2, 2.0); pawnPV.put(Position.BA3, 2.0); pawnPV.put(Position.BA4, 0.0);
-                pawnPV.put(Position.BB1, 0.0); pawnPV.put(Position.BB2, 3.0); pawnPV.put(Position.BB3, -2.0); pawnPV.put(Position.BB4, 0.0);
-                pawnPV.put(Position.BC1, 0.0); pawnPV.put(Position.BC2, 3.0); pawnPV.put(Position.BC3, -2.0); pawnPV.put(Position.BC4, 0.0);
-                pawnPV.put(Position.BD1, 0.0); pawnPV.put(Position.BD2, -3.5); pawnPV.put(Position.BD3, 0.0); pawnPV.put(Position.BD4, 4.5);
-                pawnPV.put(Position.BE1, 0.0); pawnPV.put(Position.BE2, -3.5); pawnPV.put(Position.BE3, 0.0); pawnPV.put(Position.BE4, 4.5);
-                pawnPV.put(Position.BF1, 0.0); pawnPV.put(Position.BF2, 3.0); pawnPV.put(Position.BF3, -2.0); pawnPV.put(Position.BF4, 0.0);
-                pawnPV.put(Position.BG1, 0.0); pawnPV.put(Position.BG2, 3.0); pawnPV.put(Position.BG3, -2.0); pawnPV.put(Position.BG4, 0.0);
-                pawnPV.put(Position.BH1, 0.0); pawnPV.put(Position.BH2, 2.0); pawnPV.put(Position.BH3, 2.0); pawnPV.put(Position.BH4, 0.0);
-
-                pawnPV.put(Position.GH4, 2.0); pawnPV.put(Position.GH3, 2.5); pawnPV.put(Position.GH2, 4.0); pawnPV.put(Position.GH1, 4.2);
-                pawnPV.put(Position.GG4, 2.0); pawnPV.put(Position.GG3, 2.5); pawnPV.put(Position.GG2, 4.0); pawnPV.put(Position.GG1, 4.2);
-                pawnPV.put(Position.GF4, 2.0); pawnPV.put(Position.GF3, 2.7); pawnPV.put(Position.GF2, 4.0); pawnPV.put(Position.GF1, 4.2);
-                pawnPV.put(Position.GE4, 2.0); pawnPV.put(Position.GE3, 3.0); pawnPV.put(Position.GE2, 4.0); pawnPV.put(Position.GE1, 4.2);
-                pawnPV.put(Position.GD4, 2.0); pawnPV.put(Position.GD3, 2.5); pawnPV.put(Position.GD2, 4.0); pawnPV.put(Position.GD1, 4.2);
-                pawnPV.put(Position.GC4, 2.0); pawnPV.put(Position.GC3, 2.7); pawnPV.put(Position.GC2, 4.0); pawnPV.put(Position.GC1, 4.2);
-                pawnPV.put(Position.GB4, 2.0); pawnPV.put(Position.GB3, 2.5); pawnPV.put(Position.GB2, 4.0); pawnPV.put(Position.GB1, 4.2);
-                pawnPV.put(Position.GA4, 2.0); pawnPV.put(Position.GA3, 2.5); pawnPV.put(Position.GA2, 4.0); pawnPV.put(Position.GA1, 4.2);
-
-                pawnPV.put(Position.RH4, 2.0); pawnPV.put(Position.RH3, 2.5); pawnPV.put(Position.RH2, 4.0); pawnPV.put(Position.RH1, 4.2);
-                pawnPV.put(Position.RG4, 2.0); pawnPV.put(Position.RG3, 2.5); pawnPV.put(Position.RG2, 4.0); pawnPV.put(Position.RG1, 4.2);
-                pawnPV.put(Position.RF4, 2.0); pawnPV.put(Position.RF3, 2.7); pawnPV.put(Position.RF2, 4.0); pawnPV.put(Position.RF1, 4.2);
-                pawnPV.put(Position.RE4, 2.0); pawnPV.put(Position.RE3, 3.0); pawnPV.put(Position.RE2, 4.0); pawnPV.put(Position.RE1, 4.2);
-                pawnPV.put(Position.RD4, 2.0); pawnPV.put(Position.RD3, 2.5); pawnPV.put(Position.RD2, 4.0); pawnPV.put(Position.RD1, 4.2);
-                pawnPV.put(Position.RC4, 2.0); pawnPV.put(Position.RC3, 2.7); pawnPV.put(Position.RC2, 4.0); pawnPV.put(Position.RC1, 4.2);
-                pawnPV.put(Position.RB4, 2.0); pawnPV.put(Position.RB3, 2.5); pawnPV.put(Position.RB2, 4.0); pawnPV.put(Position.RB1, 4.2);
-                pawnPV.put(Position.RA4, 2.0); pawnPV.put(Position.RA3, 2.5); pawnPV.put(Position.RA2, 4.0); pawnPV.put(Position.RA1, 4.2);
-
-                
-                knightPV.put(Position.BA1, -3.7); knightPV.put(Position.BA2, -3.5); knightPV.put(Position.BA3, -3.0); knightPV.put(Position.BA4, -3.0);
-                knightPV.put(Position.BB1, -3.5); knightPV.put(Position.BB2, -2.0); knightPV.put(Position.BB3, 0.8); knightPV.put(Position.BB4, 0.0);
-                knightPV.put(Position.BC1, -3.0); knightPV.put(Position.BC2, 0.0); knightPV.put(Position.BC3, 0.8); knightPV.put(Position.BC4, 1.0);
-                knightPV.put(Position.BD1, -3.0); knightPV.put(Position.BD2, 0.0); knightPV.put(Position.BD3, 0.8); knightPV.put(Position.BD4, 1.5);
-                knightPV.put(Position.BE1, -3.0); knightPV.put(Position.BE2, 0.0); knightPV.put(Position.BE3, 0.8); knightPV.put(Position.BE4, 1.5);
-                knightPV.put(Position.BF1, -3.0); knightPV.put(Position.BF2, 0.0); knightPV.put(Position.BF3, 0.8); knightPV.put(Position.BF4, 1.0);
-                knightPV.put(Position.BG1, -3.5); knightPV.put(Position.BG2, -2.0); knightPV.put(Position.BG3, -0.8); knightPV.put(Position.BG4, 0.0);
-                knightPV.put(Position.BH1, -3.7); knightPV.put(Position.BH2, -3.5); knightPV.put(Position.BH3, -3.0); knightPV.put(Position.BH4, -3.0);
-
-                knightPV.put(Position.GH4, -3.0); knightPV.put(Position.GH3, -3.0); knightPV.put(Position.GH2, -3.5); knightPV.put(Position.GH1, -3.7);
-                knightPV.put(Position.GG4, 0.8); knightPV.put(Position.GG3, 0.0); knightPV.put(Position.GG2, -2.0); knightPV.put(Position.GG1, -3.5);
-                knightPV.put(Position.GF4, 1.0); knightPV.put(Position.GF3, 0.8); knightPV.put(Position.GF2, 0.0); knightPV.put(Position.GF1, -3.0);
-                knightPV.put(Position.GE4, 1.5); knightPV.put(Position.GE3, 0.8); knightPV.put(Position.GE2, 0.0); knightPV.put(Position.GE1, -3.0);
-                knightPV.put(Position.GD4, 1.5); knightPV.put(Position.GD3, 0.8); knightPV.put(Position.GD2, 0.0); knightPV.put(Position.GD1, -3.0);
-                knightPV.put(Position.GC4, 1.0); knightPV.put(Position.GC3, 0.8); knightPV.put(Position.GC2, 0.0); knightPV.put(Position.GC1, -3.0);
-                knightPV.put(Position.GB4, 0.0); knightPV.put(Position.GB3, 0.8); knightPV.put(Position.GB2, -2.0); knightPV.put(Position.GB1, -3.5);
-                knightPV.put(Position.GA4, -3.0); knightPV.put(Position.GA3, -3.0); knightPV.put(Position.GA2, -3.5); knightPV.put(Position.GA1, -3.7);
-
-                knightPV.put(Position.RH4, -3.0); knightPV.put(Position.RH3, -3.0); knightPV.put(Position.RH2, -3.5); knightPV.put(Position.RH1, -3.7);
-                knightPV.put(Position.RG4, 0.8); knightPV.put(Position.RG3, 0.0); knightPV.put(Position.RG2, -2.0); knightPV.put(Position.RG1, -3.5);
-                knightPV.put(Position.RF4, 1.0); knightPV.put(Position.RF3, 0.8); knightPV.put(Position.RF2, 0.0); knightPV.put(Position.RF1, -3.0);
-                knightPV.put(Position.RE4, 1.5); knightPV.put(Position.RE3, 0.8); knightPV.put(Position.RE2, 0.0); knightPV.put(Position.RE1, -3.0);
-                knightPV.put(Position.RD4, 1.5); knightPV.put(Position.RD3, 0.8); knightPV.put(Position.RD2, 0.0); knightPV.put(Position.RD1, -3.0);
-                knightPV.put(Position.RC4, 1.0); knightPV.put(Position.RC3, 0.8); knightPV.put(Position.RC2, 0.0); knightPV.put(Position.RC1, -3.0);
-                knightPV.put(Position.RB4, 0.0); knightPV.put(Position.RB3, 0.8); knightPV.put(Position.RB2, -2.0); knightPV.put(Position.RB1, -3.5);
-                knightPV.put(Position.RA4, -3.0); knightPV.put(Position.RA3, -3.0); knightPV.put(Position.RA2, -3.5); knightPV.put(Position.RA1, -3.7);
-
-
-                bishopPV.put(Position.BA1, -2.0); bishopPV.put(Position.BA2, -1.0); bishopPV.put(Position.BA3, -1.0); bishopPV.put(Position.BA4, -1.0);
-                bishopPV.put(Position.BB1, -1.0); bishopPV.put(Position.BB2, 0.5); bishopPV.put(Position.BB3, 0.8); bishopPV.put(Position.BB4, 0.0);
-                bishopPV.put(Position.BC1, -1.0); bishopPV.put(Position.BC2, 0.0); bishopPV.put(Position.BC3, 0.8); bishopPV.put(Position.BC4, 0.8);
-                bishopPV.put(Position.BD1, -1.0); bishopPV.put(Position.BD2, 0.0); bishopPV.put(Position.BD3, 0.8); bishopPV.put(Position.BD4, 0.8);
-                bishopPV.put(Position.BE1, -1.0); bishopPV.put(Position.BE2, 0.0); bishopPV.put(Position.BE3, 0.8); bishopPV.put(Position.BE4, 0.8);
-                bishopPV.put(Position.BF1, -1.0); bishopPV.put(Position.BF2, 0.0); bishopPV.put(Position.BF3, 0.8); bishopPV.put(Position.BF4, 0.8);
-                bishopPV.put(Position.BG1, -1.0); bishopPV.put(Position.BG2, 0.5); bishopPV.put(Position.BG3, 0.8); bishopPV.put(Position.BG4, 0.0);
-                bishopPV.put(Position.BH1, -2.0); bishopPV.put(Position.BH2, -1.5); bishopPV.put(Position.BH3, -1.0); bishopPV.put(Position.BH4, -1.0);
-
-                bishopPV.put(Position.GH4, -1.0); bishopPV.put(Position.GH3, -1.0); bishopPV.put(Position.GH2, -1.5); bishopPV.put(Position.GH1, -2.0);
-                bishopPV.put(Position.GG4, 0.0); bishopPV.put(Position.GG3, 0.8); bishopPV.put(Position.GG2, 0.5); bishopPV.put(Position.GG1, -1.0);
-                bishopPV.put(Position.GF4, 0.8); bishopPV.put(Position.GF3, 0.8); bishopPV.put(Position.GF2, 0.0); bishopPV.put(Position.GF1, -1.0);
-                bishopPV.put(Position.GE4, 0.8); bishopPV.put(Position.GE3, 0.8); bishopPV.put(Position.GE2, 0.0); bishopPV.put(Position.GE1, -1.0);
-                bishopPV.put(Position.GD4, 0.8); bishopPV.put(Position.GD3, 0.8); bishopPV.put(Position.GD2, 0.0); bishopPV.put(Position.GD1, -1.0);
-                bishopPV.put(Position.GC4, 0.8); bishopPV.put(Position.GC3, 0.8); bishopPV.put(Position.GC2, 0.0); bishopPV.put(Position.GC1, -1.0);
-                bishopPV.put(Position.GB4, 0.0); bishopPV.put(Position.GB3, 0.8); bishopPV.put(Position.GB2, 0.5); bishopPV.put(Position.GB1, -1.0);
-                bishopPV.put(Position.GA4, -1.0); bishopPV.put(Position.GA3, -1.0); bishopPV.put(Position.GA2, -1.5); bishopPV.put(Position.GA1, -2.0);
-
-                bishopPV.put(Position.RH4, -1.0); bishopPV.put(Position.RH3, -1.0); bishopPV.put(Position.RH2, -1.5); bishopPV.put(Position.RH1, -2.0);
-                bishopPV.put(Position.RG4, 0.0); bishopPV.put(Position.RG3, 0.8); bishopPV.put(Position.RG2, 0.5); bishopPV.put(Position.RG1, -1.0);
-                bishopPV.put(Position.RF4, 0.8); bishopPV.put(Position.RF3, 0.8); bishopPV.put(Position.RF2, 0.0); bishopPV.put(Position.RF1, -1.0);
-                bishopPV.put(Position.RE4, 0.8); bishopPV.put(Position.RE3, 0.8); bishopPV.put(Position.RE2, 0.0); bishopPV.put(Position.RE1, -1.0);
-                bishopPV.put(Position.RD4, 0.8); bishopPV.put(Position.RD3, 0.8); bishopPV.put(Position.RD2, 0.0); bishopPV.put(Position.RD1, -1.0);
-                bishopPV.put(Position.RC4, 0.8); bishopPV.put(Position.RC3, 0.8); bishopPV.put(Position.RC2, 0.0); bishopPV.put(Position.RC1, -1.0);
-                bishopPV.put(Position.RB4, 0.0); bishopPV.put(Position.RB3, 0.8); bishopPV.put(Position.RB2, 0.5); bishopPV.put(Position.RB1, -1.0);
-                bishopPV.put(Position.RA4, -1.0); bishopPV.put(Position.RA3, -1.0); bishopPV.put(Position.RA2, -1.5); bishopPV.put(Position.RA1, -2.0);
-
-
-                rookPV.put(Position.BA1, 0.0); rookPV.put(Position.BA2, -0.5); rookPV.put(Position.BA3, -0.5); rookPV.put(Position.BA4, -0.5);
-                rookPV.put(Position.BB1, 0.0); rookPV.put(Position.BB2, 0.0); rookPV.put(Position.BB3, 0.0); rookPV.put(Position.BB4, 0.0);
-                rookPV.put(Position.BC1, 0.0); rookPV.put(Position.BC2, 0.0); rookPV.put(Position.BC3, 0.0); rookPV.put(Position.BC4, 0.0);
-                rookPV.put(Position.BD1, 0.5); rookPV.put(Position.BD2, 0.0); rookPV.put(Position.BD3, 0.0); rookPV.put(Position.BD4, 0.0);
-                rookPV.put(Position.BE1, 0.5); rookPV.put(Position.BE2, 0.0); rookPV.put(Position.BE3, 0.0); rookPV.put(Position.BE4, 0.0);
-                rookPV.put(Position.BF1, 0.0); rookPV.put(Position.BF2, 0.0); rookPV.put(Position.BF3, 0.0); rookPV.put(Position.BF4, 0.0);
-                rookPV.put(Position.BG1, 0.0); rookPV.put(Position.BG2, 0.0); rookPV.put(Position.BG3, 0.0); rookPV.put(Position.BG4, 0.0);
-                rookPV.put(Position.BH1, -0.0); rookPV.put(Position.BH2, -0.5); rookPV.put(Position.BH3, -0.5); rookPV.put(Position.BH4, -0.5);
-
-                rookPV.put(Position.GH4, -0.5); rookPV.put(Position.GH3, -0.5); rookPV.put(Position.GH2, 0.5); rookPV.put(Position.GH1, 0.0);
-                rookPV.put(Position.GG4, 0.0); rookPV.put(Position.GG3, 0.0); rookPV.put(Position.GG2, 1.0); rookPV.put(Position.GG1, 0.0);
-                rookPV.put(Position.GF4, 0.0); rookPV.put(Position.GF3, 0.0); rookPV.put(Position.GF2, 1.0); rookPV.put(Position.GF1, 0.0);
-                rookPV.put(Position.GE4, 0.0); rookPV.put(Position.GE3, 0.0); rookPV.put(Position.GE2, 1.0); rookPV.put(Position.GE1, 0.0);
-                rookPV.put(Position.GD4, 0.0); rookPV.put(Position.GD3, 0.0); rookPV.put(Position.GD2, 1.0); rookPV.put(Position.GD1, 0.0);
-                rookPV.put(Position.GC4, 0.0); rookPV.put(Position.GC3, 0.0); rookPV.put(Position.GC2, 1.0); rookPV.put(Position.GC1, 0.0);
-                rookPV.put(Position.GB4, 0.0); rookPV.put(Position.GB3, 0.0); rookPV.put(Position.GB2, 1.0); rookPV.put(Position.GB1, 0.0);
-                rookPV.put(Position.GA4, -0.5); rookPV.put(Position.GA3, -0.5); rookPV.put(Position.GA2, 0.5); rookPV.put(Position.GA1, 0.0);
-
-                rookPV.put(Position.RH4, -0.5); rookPV.put(Position.RH3, -0.5); rookPV.put(Position.RH2, 0.5); rookPV.put(Position.RH1, 0.0);
-                rookPV.put(Position.RG4, 0.0); rookPV.put(Position.RG3, 0.0); rookPV.put(Position.RG2, 1.0); rookPV.put(Position.RG1, 0.0);
-                rookPV.put(Position.RF4, 0.0); rookPV.put(Position.RF3, 0.0); rookPV.put(Position.RF2, 1.0); rookPV.put(Position.RF1, 0.0);
-                rookPV.put(Position.RE4, 0.0); rookPV.put(Position.RE3, 0.0); rookPV.put(Position.RE2, 1.0); rookPV.put(Position.RE1, 0.0);
-                rookPV.put(Position.RD4, 0.0); rookPV.put(Position.RD3, 0.0); rookPV.put(Position.RD2, 1.0); rookPV.put(Position.RD1, 0.0);
-                rookPV.put(Position.RC4, 0.0); rookPV.put(Position.RC3, 0.0); rookPV.put(Position.RC2, 1.0); rookPV.put(Position.RC1, 0.0);
-                rookPV.put(Position.RB4, 0.0); rookPV.put(Position.RB3, 0.0); rookPV.put(Position.RB2, 1.0); rookPV.put(Position.RB1, 0.0);
-                rookPV.put(Position.RA4, -0.5); rookPV.put(Position.RA3, -0.5); rookPV.put(Position.RA2, 0.5); rookPV.put(Position.RA1, 0.0);
-
-
-                queenPV.put(Position.BA1, -1.8); queenPV.put(Position.BA2, -0.9); queenPV.put(Position.BA3, -0.9); queenPV.put(Position.BA4, 0.0);
-                queenPV.put(Position.BB1, -0.9); queenPV.put(Position.BB2, 0.0); queenPV.put(Position.BB3, 0.6); queenPV.put(Position.BB4, 0.0);
-                queenPV.put(Position.BC1, -0.9); queenPV.put(Position.BC2, 0.6); queenPV.put(Position.BC3, 0.6); queenPV.put(Position.BC4, 0.6);
-                queenPV.put(Position.BD1, -0.6); queenPV.put(Position.BD2, 0.6); queenPV.put(Position.BD3, 0.6); queenPV.put(Position.BD4, 0.6);
-                queenPV.put(Position.BE1, -0.6); queenPV.put(Position.BE2, 0.6); queenPV.put(Position.BE3, 0.6); queenPV.put(Position.BE4, 0.6);
-                queenPV.put(Position.BF1, -0.9); queenPV.put(Position.BF2, 0.6); queenPV.put(Position.BF3, 0.6); queenPV.put(Position.BF4, 0.6);
-                queenPV.put(Position.BG1, -0.9); queenPV.put(Position.BG2, 0.0); queenPV.put(Position.BG3, 0.6); queenPV.put(Position.BG4, 0.0);
-                queenPV.put(Position.BH1, -1.8); queenPV.put(Position.BH2, -0.9); queenPV.put(Position.BH3, -0.9); queenPV.put(Position.BH4, 0.0);
-
-                queenPV.put(Position.GH4, -0.6); queenPV.put(Position.GH3, -0.9); queenPV.put(Position.GH2, -0.9); queenPV.put(Position.GH1, -1.8);
-                queenPV.put(Position.GG4, 0.6); queenPV.put(Position.GG3, 0.0); queenPV.put(Position.GG2, 0.0); queenPV.put(Position.GG1, -0.9);
-                queenPV.put(Position.GF4, 0.6); queenPV.put(Position.GF3, 0.6); queenPV.put(Position.GF2, 0.0); queenPV.put(Position.GF1, -0.9);
-                queenPV.put(Position.GE4, 0.6); queenPV.put(Position.GE3, 0.6); queenPV.put(Position.GE2, 0.0); queenPV.put(Position.GE1, -0.6);
-                queenPV.put(Position.GD4, 0.6); queenPV.put(Position.GD3, 0.6); queenPV.put(Position.GD2, 0.0); queenPV.put(Position.GD1, -0.6);
-                queenPV.put(Position.GC4, 0.6); queenPV.put(Position.GC3, 0.6); queenPV.put(Position.GC2, 0.0); queenPV.put(Position.GC1, -0.6);
-                queenPV.put(Position.GB4, 0.6); queenPV.put(Position.GB3, 0.0); queenPV.put(Position.GB2, 0.0); queenPV.put(Position.GB1, -0.9);
-                queenPV.put(Position.GA4, -0.6); queenPV.put(Position.GA3, -0.9); queenPV.put(Position.GA2, -0.9); queenPV.put(Position.GA1, -1.8);
-
-                queenPV.put(Position.RH4, -0.6); queenPV.put(Position.RH3, -0.9); queenPV.put(Position.RH2, -0.9); queenPV.put(Position.RH1, -1.8);
-                queenPV.put(Position.RG4, 0.6); queenPV.put(Position.RG3, 0.0); queenPV.put(Position.RG2, 0.0); queenPV.put(Position.RG1, -0.9);
-                queenPV.put(Position.RF4, 0.6); queenPV.put(Position.RF3, 0.6); queenPV.put(Position.RF2, 0.0); queenPV.put(Position.RF1, -0.9);
-                queenPV.put(Position.RE4, 0.6); queenPV.put(Position.RE3, 0.6); queenPV.put(Position.RE2, 0.0); queenPV.put(Position.RE1, -0.6);
-                queenPV.put(Position.RD4, 0.6); queenPV.put(Position.RD3, 0.6); queenPV.put(Position.RD2, 0.0); queenPV.put(Position.RD1, -0.6);
-                queenPV.put(Position.RC4, 0.6); queenPV.put(Position.RC3, 0.6); queenPV.put(Position.RC2, 0.0); queenPV.put(Position.RC1, -0.6);
-                queenPV.put(Position.RB4, 0.6); queenPV.put(Position.RB3, 0.0); queenPV.put(Position.RB2, 0.0); queenPV.put(Position.RB1, -0.9);
-                queenPV.put(Position.RA4, -0.6); queenPV.put(Position.RA3, -0.9); queenPV.put(Position.RA2, -0.9); queenPV.put(Position.RA1, -1.8);
-
-
-                kingPV.put(Position.BA1, 2.0); kingPV.put(Position.BA2, 2.0); kingPV.put(Position.BA3, -1.0); kingPV.put(Position.BA4, -2.0);
-                kingPV.put(Position.BB1, 3.0); kingPV.put(Position.BB2, 2.0); kingPV.put(Position.BB3, -2.0); kingPV.put(Position.BB4, -3.0);
-                kingPV.put(Position.BC1, 1.0); kingPV.put(Position.BC2, 0.0); kingPV.put(Position.BC3, -2.0); kingPV.put(Position.BC4, -3.0);
-                kingPV.put(Position.BD1, 0.0); kingPV.put(Position.BD2, 0.0); kingPV.put(Position.BD3, -2.0); kingPV.put(Position.BD4, -4.0);
-                kingPV.put(Position.BE1, 0.0); kingPV.put(Position.BE2, 0.0); kingPV.put(Position.BE3, -2.0); kingPV.put(Position.BE4, -4.0);
-                kingPV.put(Position.BF1, 1.0); kingPV.put(Position.BF2, 0.0); kingPV.put(Position.BF3, -2.0); kingPV.put(Position.BF4, -3.0);
-                kingPV.put(Position.BG1, 3.0); kingPV.put(Position.BG2, 2.0); kingPV.put(Position.BG3, -2.0); kingPV.put(Position.BG4, -3.0);
-                kingPV.put(Position.BH1, 2.0); kingPV.put(Position.BH2, 2.0); kingPV.put(Position.BH3, -1.0); kingPV.put(Position.BH4, -2.0);
-
-                kingPV.put(Position.GH4, -3.0); kingPV.put(Position.GH3, -3.0); kingPV.put(Position.GH2, -3.0); kingPV.put(Position.GH1, -3.0);
-                kingPV.put(Position.GG4, -4.0); kingPV.put(Position.GG3, -4.0); kingPV.put(Position.GG2, -4.0); kingPV.put(Position.GG1, -4.0);
-                kingPV.put(Position.GF4, -4.0); kingPV.put(Position.GF3, -4.0); kingPV.put(Position.GF2, -4.0); kingPV.put(Position.GF1, -4.0);
-                kingPV.put(Position.GE4, -5.0); kingPV.put(Position.GE3, -5.0); kingPV.put(Position.GE2, -5.0); kingPV.put(Position.GE1, -5.0);
-                kingPV.put(Position.GD4, -5.0); kingPV.put(Position.GD3, -5.0); kingPV.put(Position.GD2, -5.0); kingPV.put(Position.GD1, -5.0);
-                kingPV.put(Position.GC4, -4.0); kingPV.put(Position.GC3, -4.0); kingPV.put(Position.GC2, -4.0); kingPV.put(Position.GC1, -4.0);
-                kingPV.put(Position.GB4, -4.0); kingPV.put(Position.GB3, -4.0); kingPV.put(Position.GB2, -4.0); kingPV.put(Position.GB1, -4.0);
-                kingPV.put(Position.GA4, -3.0); kingPV.put(Position.GA3, -3.0); kingPV.put(Position.GA2, -3.0); kingPV.put(Position.GA1, -3.0);
-
-                kingPV.put(Position.RH4, -3.0); kingPV.put(Position.RH3, -3.0); kingPV.put(Position.RH2, -3.0); kingPV.put(Position.RH1, -3.0);
-                kingPV.put(Position.RG4, -4.0); kingPV.put(Position.RG3, -4.0); kingPV.put(Position.RG2, -4.0); kingPV.put(Position.RG1, -4.0);
-                kingPV.put(Position.RF4, -4.0); kingPV.put(Position.RF3, -4.0); kingPV.put(Position.RF2, -4.0); kingPV.put(Position.RF1, -4.0);
-                kingPV.put(Position.RE4, -5.0); kingPV.put(Position.RE3, -5.0); kingPV.put(Position.RE2, -5.0); kingPV.put(Position.RE1, -5.0);
-                kingPV.put(Position.RD4, -5.0); kingPV.put(Position.RD3, -5.0); kingPV.put(Position.RD2, -5.0); kingPV.put(Position.RD1, -5.0);
-                kingPV.put(Position.RC4, -4.0); kingPV.put(Position.RC3, -4.0); kingPV.put(Position.RC2, -4.0); kingPV.put(Position.RC1, -4.0);
-                kingPV.put(Position.RB4, -4.0); kingPV.put(Position.RB3, -4.0); kingPV.put(Position.RB2, -4.0); kingPV.put(Position.RB1, -4.0);
-                kingPV.put(Position.RA4, -3.0); kingPV.put(Position.RA3, -3.0); kingPV.put(Position.RA2, -3.0); kingPV.put(Position.RA1, -3.0);
-
+                qTable = loadQTable(qTableStorageBlue, nTimesExecutedStorageBlue);
                 break;
-
             case RED:
-                try {
-                    FileInputStream qFileIn = new FileInputStream(qTableStorageRed);
-                    ObjectInputStream qObjectIn = new ObjectInputStream(qFileIn);
-                    qTable = (HashMap<StateAction, Double>) qObjectIn.readObject();
-                    qFileIn.close();
-                    qObjectIn.close();
-    
-                    FileInputStream nFileIn = new FileInputStream(nTimesExecutedStorageRed);
-                    ObjectInputStream nObjectIn = new ObjectInputStream(nFileIn);
-                    nTimesExecuted = (HashMap<StateAction, Integer>) nObjectIn.readObject();
-                    nFileIn.close();
-                    nObjectIn.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.print("Q Table storage or n Times Executed Storage either do not exist or could not be opened.");
-                }
-
-                pawnPV.put(Position.RA1, 0.0); pawnPV.put(Position.RA2, 2.0); pawnPV.put(Position.RA3, 2.0); pawnPV.put(Position.RA4, 0.0);
-                pawnPV.put(Position.RB1, 0.0); pawnPV.put(Position.RB2, 3.0); pawnPV.put(Position.RB3, -2.0); pawnPV.put(Position.RB4, 0.0);
-                pawnPV.put(Position.RC1, 0.0); pawnPV.put(Position.RC2, 3.0); pawnPV.put(Position.RC3, -2.0); pawnPV.put(Position.RC4, 0.0);
-                pawnPV.put(Position.RD1, 0.0); pawnPV.put(Position.RD2, -3.5); pawnPV.put(Position.RD3, 0.0); pawnPV.put(Position.RD4, 4.5);
-                pawnPV.put(Position.RE1, 0.0); pawnPV.put(Position.RE2, -3.5); pawnPV.put(Position.RE3, 0.0); pawnPV.put(Position.RE4, 4.5);
-                pawnPV.put(Position.RF1, 0.0); pawnPV.put(Position.RF2, 3.0); pawnPV.put(Position.RF3, -2.0); pawnPV.put(Position.RF4, 0.0);
-                pawnPV.put(Position.RG1, 0.0); pawnPV.put(Position.RG2, 3.0); pawnPV.put(Position.RG3, -2.0); pawnPV.put(Position.RG4, 0.0);
-                pawnPV.put(Position.RH1, 0.0); pawnPV.put(Position.RH2, 2.0); pawnPV.put(Position.RH3, 2.0); pawnPV.put(Position.RH4, 0.0);
-
-                pawnPV.put(Position.GH4, 2.0); pawnPV.put(Position.GH3, 2.5); pawnPV.put(Position.GH2, 4.0); pawnPV.put(Position.GH1, 4.2);
-                pawnPV.put(Position.GG4, 2.0); pawnPV.put(Position.GG3, 2.5); pawnPV.put(Position.GG2, 4.0); pawnPV.put(Position.GG1, 4.2);
-                pawnPV.put(Position.GF4, 2.0); pawnPV.put(Position.GF3, 2.7); pawnPV.put(Position.GF2, 4.0); pawnPV.put(Position.GF1, 4.2);
-                pawnPV.put(Position.GE4, 2.0); pawnPV.put(Position.GE3, 3.0); pawnPV.put(Position.GE2, 4.0); pawnPV.put(Position.GE1, 4.2);
-                pawnPV.put(Position.GD4, 2.0); pawnPV.put(Position.GD3, 2.5); pawnPV.put(Position.GD2, 4.0); pawnPV.put(Position.GD1, 4.2);
-                pawnPV.put(Position.GC4, 2.0); pawnPV.put(Position.GC3, 2.7); pawnPV.put(Position.GC2, 4.0); pawnPV.put(Position.GC1, 4.2);
-                pawnPV.put(Position.GB4, 2.0); pawnPV.put(Position.GB3, 2.5); pawnPV.put(Position.GB2, 4.0); pawnPV.put(Position.GB1, 4.2);
-                pawnPV.put(Position.GA4, 2.0); pawnPV.put(Position.GA3, 2.5); pawnPV.put(Position.GA2, 4.0); pawnPV.put(Position.GA1, 4.2);
-
-                pawnPV.put(Position.BH4, 2.0); pawnPV.put(Position.BH3, 2.5); pawnPV.put(Position.BH2, 4.0); pawnPV.put(Position.BH1, 4.2);
-                pawnPV.put(Position.BG4, 2.0); pawnPV.put(Position.BG3, 2.5); pawnPV.put(Position.BG2, 4.0); pawnPV.put(Position.BG1, 4.2);
-                pawnPV.put(Position.BF4, 2.0); pawnPV.put(Position.BF3, 2.7); pawnPV.put(Position.BF2, 4.0); pawnPV.put(Position.BF1, 4.2);
-                pawnPV.put(Position.BE4, 2.0); pawnPV.put(Position.BE3, 3.0); pawnPV.put(Position.BE2, 4.0); pawnPV.put(Position.BE1, 4.2);
-                pawnPV.put(Position.BD4, 2.0); pawnPV.put(Position.BD3, 2.5); pawnPV.put(Position.BD2, 4.0); pawnPV.put(Position.BD1, 4.2);
-                pawnPV.put(Position.BC4, 2.0); pawnPV.put(Position.BC3, 2.7); pawnPV.put(Position.BC2, 4.0); pawnPV.put(Position.BC1, 4.2);
-                pawnPV.put(Position.BB4, 2.0); pawnPV.put(Position.BB3, 2.5); pawnPV.put(Position.BB2, 4.0); pawnPV.put(Position.BB1, 4.2);
-                pawnPV.put(Position.BA4, 2.0); pawnPV.put(Position.BA3, 2.5); pawnPV.put(Position.BA2, 4.0); pawnPV.put(Position.BA1, 4.2);
-
-
-                knightPV.put(Position.RA1, -3.7); knightPV.put(Position.RA2, -3.5); knightPV.put(Position.RA3, -3.0); knightPV.put(Position.RA4, -3.0);
-                knightPV.put(Position.RB1, -3.5); knightPV.put(Position.RB2, -2.0); knightPV.put(Position.RB3, 0.8); knightPV.put(Position.RB4, 0.0);
-                knightPV.put(Position.RC1, -3.0); knightPV.put(Position.RC2, 0.0); knightPV.put(Position.RC3, 0.8); knightPV.put(Position.RC4, 1.0);
-                knightPV.put(Position.RD1, -3.0); knightPV.put(Position.RD2, 0.0); knightPV.put(Position.RD3, 0.8); knightPV.put(Position.RD4, 1.5);
-                knightPV.put(Position.RE1, -3.0); knightPV.put(Position.RE2, 0.0); knightPV.put(Position.RE3, 0.8); knightPV.put(Position.RE4, 1.5);
-                knightPV.put(Position.RF1, -3.0); knightPV.put(Position.RF2, 0.0); knightPV.put(Position.RF3, 0.8); knightPV.put(Position.RF4, 1.0);
-                knightPV.put(Position.RG1, -3.5); knightPV.put(Position.RG2, -2.0); knightPV.put(Position.RG3, -0.8); knightPV.put(Position.RG4, 0.0);
-                knightPV.put(Position.RH1, -3.7); knightPV.put(Position.RH2, -3.5); knightPV.put(Position.RH3, -3.0); knightPV.put(Position.RH4, -3.0);
-
-                knightPV.put(Position.GH4, -3.0); knightPV.put(Position.GH3, -3.0); knightPV.put(Position.GH2, -3.5); knightPV.put(Position.GH1, -3.7);
-                knightPV.put(Position.GG4, 0.8); knightPV.put(Position.GG3, 0.0); knightPV.put(Position.GG2, -2.0); knightPV.put(Position.GG1, -3.5);
-                knightPV.put(Position.GF4, 1.0); knightPV.put(Position.GF3, 0.8); knightPV.put(Position.GF2, 0.0); knightPV.put(Position.GF1, -3.0);
-                knightPV.put(Position.GE4, 1.5); knightPV.put(Position.GE3, 0.8); knightPV.put(Position.GE2, 0.0); knightPV.put(Position.GE1, -3.0);
-                knightPV.put(Position.GD4, 1.5); knightPV.put(Position.GD3, 0.8); knightPV.put(Position.GD2, 0.0); knightPV.put(Position.GD1, -3.0);
-                knightPV.put(Position.GC4, 1.0); knightPV.put(Position.GC3, 0.8); knightPV.put(Position.GC2, 0.0); knightPV.put(Position.GC1, -3.0);
-                knightPV.put(Position.GB4, 0.0); knightPV.put(Position.GB3, 0.8); knightPV.put(Position.GB2, -2.0); knightPV.put(Position.GB1, -3.5);
-                knightPV.put(Position.GA4, -3.0); knightPV.put(Position.GA3, -3.0); knightPV.put(Position.GA2, -3.5); knightPV.put(Position.GA1, -3.7);
-
-                knightPV.put(Position.BH4, -3.0); knightPV.put(Position.BH3, -3.0); knightPV.put(Position.BH2, -3.5); knightPV.put(Position.BH1, -3.7);
-                knightPV.put(Position.BG4, 0.8); knightPV.put(Position.BG3, 0.0); knightPV.put(Position.BG2, -2.0); knightPV.put(Position.BG1, -3.5);
-                knightPV.put(Position.BF4, 1.0); knightPV.put(Position.BF3, 0.8); knightPV.put(Position.BF2, 0.0); knightPV.put(Position.BF1, -3.0);
-                knightPV.put(Position.BE4, 1.5); knightPV.put(Position.BE3, 0.8); knightPV.put(Position.BE2, 0.0); knightPV.put(Position.BE1, -3.0);
-                knightPV.put(Position.BD4, 1.5); knightPV.put(Position.BD3, 0.8); knightPV.put(Position.BD2, 0.0); knightPV.put(Position.BD1, -3.0);
-                knightPV.put(Position.BC4, 1.0); knightPV.put(Position.BC3, 0.8); knightPV.put(Position.BC2, 0.0); knightPV.put(Position.BC1, -3.0);
-                knightPV.put(Position.BB4, 0.0); knightPV.put(Position.BB3, 0.8); knightPV.put(Position.BB2, -2.0); knightPV.put(Position.BB1, -3.5);
-                knightPV.put(Position.BA4, -3.0); knightPV.put(Position.BA3, -3.0); knightPV.put(Position.BA2, -3.5); knightPV.put(Position.BA1, -3.7);
-
-
-                bishopPV.put(Position.RA1, -2.0); bishopPV.put(Position.RA2, -1.0); bishopPV.put(Position.RA3, -1.0); bishopPV.put(Position.RA4, -1.0);
-                bishopPV.put(Position.RB1, -1.0); bishopPV.put(Position.RB2, 0.5); bishopPV.put(Position.RB3, 0.8); bishopPV.put(Position.RB4, 0.0);
-                bishopPV.put(Position.RC1, -1.0); bishopPV.put(Position.RC2, 0.0); bishopPV.put(Position.RC3, 0.8); bishopPV.put(Position.RC4, 0.8);
-                bishopPV.put(Position.RD1, -1.0); bishopPV.put(Position.RD2, 0.0); bishopPV.put(Position.RD3, 0.8); bishopPV.put(Position.RD4, 0.8);
-                bishopPV.put(Position.RE1, -1.0); bishopPV.put(Position.RE2, 0.0); bishopPV.put(Position.RE3, 0.8); bishopPV.put(Position.RE4, 0.8);
-                bishopPV.put(Position.RF1, -1.0); bishopPV.put(Position.RF2, 0.0); bishopPV.put(Position.RF3, 0.8); bishopPV.put(Position.RF4, 0.8);
-                bishopPV.put(Position.RG1, -1.0); bishopPV.put(Position.RG2, 0.5); bishopPV.put(Position.RG3, 0.8); bishopPV.put(Position.RG4, 0.0);
-                bishopPV.put(Position.RH1, -2.0); bishopPV.put(Position.RH2, -1.5); bishopPV.put(Position.RH3, -1.0); bishopPV.put(Position.RH4, -1.0);
-
-                bishopPV.put(Position.GH4, -1.0); bishopPV.put(Position.GH3, -1.0); bishopPV.put(Position.GH2, -1.5); bishopPV.put(Position.GH1, -2.0);
-                bishopPV.put(Position.GG4, 0.0); bishopPV.put(Position.GG3, 0.8); bishopPV.put(Position.GG2, 0.5); bishopPV.put(Position.GG1, -1.0);
-                bishopPV.put(Position.GF4, 0.8); bishopPV.put(Position.GF3, 0.8); bishopPV.put(Position.GF2, 0.0); bishopPV.put(Position.GF1, -1.0);
-                bishopPV.put(Position.GE4, 0.8); bishopPV.put(Position.GE3, 0.8); bishopPV.put(Position.GE2, 0.0); bishopPV.put(Position.GE1, -1.0);
-                bishopPV.put(Position.GD4, 0.8); bishopPV.put(Position.GD3, 0.8); bishopPV.put(Position.GD2, 0.0); bishopPV.put(Position.GD1, -1.0);
-                bishopPV.put(Position.GC4, 0.8); bishopPV.put(Position.GC3, 0.8); bishopPV.put(Position.GC2, 0.0); bishopPV.put(Position.GC1, -1.0);
-                bishopPV.put(Position.GB4, 0.0); bishopPV.put(Position.GB3, 0.8); bishopPV.put(Position.GB2, 0.5); bishopPV.put(Position.GB1, -1.0);
-                bishopPV.put(Position.GA4, -1.0); bishopPV.put(Position.GA3, -1.0); bishopPV.put(Position.GA2, -1.5); bishopPV.put(Position.GA1, -2.0);
-
-                bishopPV.put(Position.BH4, -1.0); bishopPV.put(Position.BH3, -1.0); bishopPV.put(Position.BH2, -1.5); bishopPV.put(Position.BH1, -2.0);
-                bishopPV.put(Position.BG4, 0.0); bishopPV.put(Position.BG3, 0.8); bishopPV.put(Position.BG2, 0.5); bishopPV.put(Position.BG1, -1.0);
-                bishopPV.put(Position.BF4, 0.8); bishopPV.put(Position.BF3, 0.8); bishopPV.put(Position.BF2, 0.0); bishopPV.put(Position.BF1, -1.0);
-                bishopPV.put(Position.BE4, 0.8); bishopPV.put(Position.BE3, 0.8); bishopPV.put(Position.BE2, 0.0); bishopPV.put(Position.BE1, -1.0);
-                bishopPV.put(Position.BD4, 0.8); bishopPV.put(Position.BD3, 0.8); bishopPV.put(Position.BD2, 0.0); bishopPV.put(Position.BD1, -1.0);
-                bishopPV.put(Position.BC4, 0.8); bishopPV.put(Position.BC3, 0.8); bishopPV.put(Position.BC2, 0.0); bishopPV.put(Position.BC1, -1.0);
-                bishopPV.put(Position.BB4, 0.0); bishopPV.put(Position.BB3, 0.8); bishopPV.put(Position.BB2, 0.5); bishopPV.put(Position.BB1, -1.0);
-                bishopPV.put(Position.BA4, -1.0); bishopPV.put(Position.BA3, -1.0); bishopPV.put(Position.BA2, -1.5); bishopPV.put(Position.BA1, -2.0);
-
-
-                rookPV.put(Position.RA1, 0.0); rookPV.put(Position.RA2, -0.5); rookPV.put(Position.RA3, -0.5); rookPV.put(Position.RA4, -0.5);
-                rookPV.put(Position.RB1, 0.0); rookPV.put(Position.RB2, 0.0); rookPV.put(Position.RB3, 0.0); rookPV.put(Position.RB4, 0.0);
-                rookPV.put(Position.RC1, 0.0); rookPV.put(Position.RC2, 0.0); rookPV.put(Position.RC3, 0.0); rookPV.put(Position.RC4, 0.0);
-                rookPV.put(Position.RD1, 0.5); rookPV.put(Position.RD2, 0.0); rookPV.put(Position.RD3, 0.0); rookPV.put(Position.RD4, 0.0);
-                rookPV.put(Position.RE1, 0.5); rookPV.put(Position.RE2, 0.0); rookPV.put(Position.RE3, 0.0); rookPV.put(Position.RE4, 0.0);
-                rookPV.put(Position.RF1, 0.0); rookPV.put(Position.RF2, 0.0); rookPV.put(Position.RF3, 0.0); rookPV.put(Position.RF4, 0.0);
-                rookPV.put(Position.RG1, 0.0); rookPV.put(Position.RG2, 0.0); rookPV.put(Position.RG3, 0.0); rookPV.put(Position.RG4, 0.0);
-                rookPV.put(Position.RH1, -0.0); rookPV.put(Position.RH2, -0.5); rookPV.put(Position.RH3, -0.5); rookPV.put(Position.RH4, -0.5);
-
-                rookPV.put(Position.GH4, -0.5); rookPV.put(Position.GH3, -0.5); rookPV.put(Position.GH2, 0.5); rookPV.put(Position.GH1, 0.0);
-                rookPV.put(Position.GG4, 0.0); rookPV.put(Position.GG3, 0.0); rookPV.put(Position.GG2, 1.0); rookPV.put(Position.GG1, 0.0);
-                rookPV.put(Position.GF4, 0.0); rookPV.put(Position.GF3, 0.0); rookPV.put(Position.GF2, 1.0); rookPV.put(Position.GF1, 0.0);
-                rookPV.put(Position.GE4, 0.0); rookPV.put(Position.GE3, 0.0); rookPV.put(Position.GE2, 1.0); rookPV.put(Position.GE1, 0.0);
-                rookPV.put(Position.GD4, 0.0); rookPV.put(Position.GD3, 0.0); rookPV.put(Position.GD2, 1.0); rookPV.put(Position.GD1, 0.0);
-                rookPV.put(Position.GC4, 0.0); rookPV.put(Position.GC3, 0.0); rookPV.put(Position.GC2, 1.0); rookPV.put(Position.GC1, 0.0);
-                rookPV.put(Position.GB4, 0.0); rookPV.put(Position.GB3, 0.0); rookPV.put(Position.GB2, 1.0); rookPV.put(Position.GB1, 0.0);
-                rookPV.put(Position.GA4, -0.5); rookPV.put(Position.GA3, -0.5); rookPV.put(Position.GA2, 0.5); rookPV.put(Position.GA1, 0.0);
-
-                rookPV.put(Position.BH4, -0.5); rookPV.put(Position.BH3, -0.5); rookPV.put(Position.BH2, 0.5); rookPV.put(Position.BH1, 0.0);
-                rookPV.put(Position.BG4, 0.0); rookPV.put(Position.BG3, 0.0); rookPV.put(Position.BG2, 1.0); rookPV.put(Position.BG1, 0.0);
-                rookPV.put(Position.BF4, 0.0); rookPV.put(Position.BF3, 0.0); rookPV.put(Position.BF2, 1.0); rookPV.put(Position.BF1, 0.0);
-                rookPV.put(Position.BE4, 0.0); rookPV.put(Position.BE3, 0.0); rookPV.put(Position.BE2, 1.0); rookPV.put(Position.BE1, 0.0);
-                rookPV.put(Position.BD4, 0.0); rookPV.put(Position.BD3, 0.0); rookPV.put(Position.BD2, 1.0); rookPV.put(Position.BD1, 0.0);
-                rookPV.put(Position.BC4, 0.0); rookPV.put(Position.BC3, 0.0); rookPV.put(Position.BC2, 1.0); rookPV.put(Position.BC1, 0.0);
-                rookPV.put(Position.BB4, 0.0); rookPV.put(Position.BB3, 0.0); rookPV.put(Position.BB2, 1.0); rookPV.put(Position.BB1, 0.0);
-                rookPV.put(Position.BA4, -0.5); rookPV.put(Position.BA3, -0.5); rookPV.put(Position.BA2, 0.5); rookPV.put(Position.BA1, 0.0);
-
-
-                queenPV.put(Position.RA1, -1.8); queenPV.put(Position.RA2, -0.9); queenPV.put(Position.RA3, -0.9); queenPV.put(Position.RA4, 0.0);
-                queenPV.put(Position.RB1, -0.9); queenPV.put(Position.RB2, 0.0); queenPV.put(Position.RB3, 0.6); queenPV.put(Position.RB4, 0.0);
-                queenPV.put(Position.RC1, -0.9); queenPV.put(Position.RC2, 0.6); queenPV.put(Position.RC3, 0.6); queenPV.put(Position.RC4, 0.6);
-                queenPV.put(Position.RD1, -0.6); queenPV.put(Position.RD2, 0.6); queenPV.put(Position.RD3, 0.6); queenPV.put(Position.RD4, 0.6);
-                queenPV.put(Position.RE1, -0.6); queenPV.put(Position.RE2, 0.6); queenPV.put(Position.RE3, 0.6); queenPV.put(Position.RE4, 0.6);
-                queenPV.put(Position.RF1, -0.9); queenPV.put(Position.RF2, 0.6); queenPV.put(Position.RF3, 0.6); queenPV.put(Position.RF4, 0.6);
-                queenPV.put(Position.RG1, -0.9); queenPV.put(Position.RG2, 0.0); queenPV.put(Position.RG3, 0.6); queenPV.put(Position.RG4, 0.0);
-                queenPV.put(Position.RH1, -1.8); queenPV.put(Position.RH2, -0.9); queenPV.put(Position.RH3, -0.9); queenPV.put(Position.RH4, 0.0);
-
-                queenPV.put(Position.GH4, -0.6); queenPV.put(Position.GH3, -0.9); queenPV.put(Position.GH2, -0.9); queenPV.put(Position.GH1, -1.8);
-                queenPV.put(Position.GG4, 0.6); queenPV.put(Position.GG3, 0.0); queenPV.put(Position.GG2, 0.0); queenPV.put(Position.GG1, -0.9);
-                queenPV.put(Position.GF4, 0.6); queenPV.put(Position.GF3, 0.6); queenPV.put(Position.GF2, 0.0); queenPV.put(Position.GF1, -0.9);
-                queenPV.put(Position.GE4, 0.6); queenPV.put(Position.GE3, 0.6); queenPV.put(Position.GE2, 0.0); queenPV.put(Position.GE1, -0.6);
-                queenPV.put(Position.GD4, 0.6); queenPV.put(Position.GD3, 0.6); queenPV.put(Position.GD2, 0.0); queenPV.put(Position.GD1, -0.6);
-                queenPV.put(Position.GC4, 0.6); queenPV.put(Position.GC3, 0.6); queenPV.put(Position.GC2, 0.0); queenPV.put(Position.GC1, -0.6);
-                queenPV.put(Position.GB4, 0.6); queenPV.put(Position.GB3, 0.0); queenPV.put(Position.GB2, 0.0); queenPV.put(Position.GB1, -0.9);
-                queenPV.put(Position.GA4, -0.6); queenPV.put(Position.GA3, -0.9); queenPV.put(Position.GA2, -0.9); queenPV.put(Position.GA1, -1.8);
-
-                queenPV.put(Position.BH4, -0.6); queenPV.put(Position.BH3, -0.9); queenPV.put(Position.BH2, -0.9); queenPV.put(Position.BH1, -1.8);
-                queenPV.put(Position.BG4, 0.6); queenPV.put(Position.BG3, 0.0); queenPV.put(Position.BG2, 0.0); queenPV.put(Position.BG1, -0.9);
-                queenPV.put(Position.BF4, 0.6); queenPV.put(Position.BF3, 0.6); queenPV.put(Position.BF2, 0.0); queenPV.put(Position.BF1, -0.9);
-                queenPV.put(Position.BE4, 0.6); queenPV.put(Position.BE3, 0.6); queenPV.put(Position.BE2, 0.0); queenPV.put(Position.BE1, -0.6);
-                queenPV.put(Position.BD4, 0.6); queenPV.put(Position.BD3, 0.6); queenPV.put(Position.BD2, 0.0); queenPV.put(Position.BD1, -0.6);
-                queenPV.put(Position.BC4, 0.6); queenPV.put(Position.BC3, 0.6); queenPV.put(Position.BC2, 0.0); queenPV.put(Position.BC1, -0.6);
-                queenPV.put(Position.BB4, 0.6); queenPV.put(Position.BB3, 0.0); queenPV.put(Position.BB2, 0.0); queenPV.put(Position.BB1, -0.9);
-                queenPV.put(Position.BA4, -0.6); queenPV.put(Position.BA3, -0.9); queenPV.put(Position.BA2, -0.9); queenPV.put(Position.BA1, -1.8);
-
-
-                kingPV.put(Position.RA1, 2.0); kingPV.put(Position.RA2, 2.0); kingPV.put(Position.RA3, -1.0); kingPV.put(Position.RA4, -2.0);
-                kingPV.put(Position.RB1, 3.0); kingPV.put(Position.RB2, 2.0); kingPV.put(Position.RB3, -2.0); kingPV.put(Position.RB4, -3.0);
-                kingPV.put(Position.RC1, 1.0); kingPV.put(Position.RC2, 0.0); kingPV.put(Position.RC3, -2.0); kingPV.put(Position.RC4, -3.0);
-                kingPV.put(Position.RD1, 0.0); kingPV.put(Position.RD2, 0.0); kingPV.put(Position.RD3, -2.0); kingPV.put(Position.RD4, -4.0);
-                kingPV.put(Position.RE1, 0.0); kingPV.put(Position.RE2, 0.0); kingPV.put(Position.RE3, -2.0); kingPV.put(Position.RE4, -4.0);
-                kingPV.put(Position.RF1, 1.0); kingPV.put(Position.RF2, 0.0); kingPV.put(Position.RF3, -2.0); kingPV.put(Position.RF4, -3.0);
-                kingPV.put(Position.RG1, 3.0); kingPV.put(Position.RG2, 2.0); kingPV.put(Position.RG3, -2.0); kingPV.put(Position.RG4, -3.0);
-                kingPV.put(Position.RH1, 2.0); kingPV.put(Position.RH2, 2.0); kingPV.put(Position.RH3, -1.0); kingPV.put(Position.RH4, -2.0);
-
-                kingPV.put(Position.GH4, -3.0); kingPV.put(Position.GH3, -3.0); kingPV.put(Position.GH2, -3.0); kingPV.put(Position.GH1, -3.0);
-                kingPV.put(Position.GG4, -4.0); kingPV.put(Position.GG3, -4.0); kingPV.put(Position.GG2, -4.0); kingPV.put(Position.GG1, -4.0);
-                kingPV.put(Position.GF4, -4.0); kingPV.put(Position.GF3, -4.0); kingPV.put(Position.GF2, -4.0); kingPV.put(Position.GF1, -4.0);
-                kingPV.put(Position.GE4, -5.0); kingPV.put(Position.GE3, -5.0); kingPV.put(Position.GE2, -5.0); kingPV.put(Position.GE1, -5.0);
-                kingPV.put(Position.GD4, -5.0); kingPV.put(Position.GD3, -5.0); kingPV.put(Position.GD2, -5.0); kingPV.put(Position.GD1, -5.0);
-                kingPV.put(Position.GC4, -4.0); kingPV.put(Position.GC3, -4.0); kingPV.put(Position.GC2, -4.0); kingPV.put(Position.GC1, -4.0);
-                kingPV.put(Position.GB4, -4.0); kingPV.put(Position.GB3, -4.0); kingPV.put(Position.GB2, -4.0); kingPV.put(Position.GB1, -4.0);
-                kingPV.put(Position.GA4, -3.0); kingPV.put(Position.GA3, -3.0); kingPV.put(Position.GA2, -3.0); kingPV.put(Position.GA1, -3.0);
-
-                kingPV.put(Position.BH4, -3.0); kingPV.put(Position.BH3, -3.0); kingPV.put(Position.BH2, -3.0); kingPV.put(Position.BH1, -3.0);
-                kingPV.put(Position.BG4, -4.0); kingPV.put(Position.BG3, -4.0); kingPV.put(Position.BG2, -4.0); kingPV.put(Position.BG1, -4.0);
-                kingPV.put(Position.BF4, -4.0); kingPV.put(Position.BF3, -4.0); kingPV.put(Position.BF2, -4.0); kingPV.put(Position.BF1, -4.0);
-                kingPV.put(Position.BE4, -5.0); kingPV.put(Position.BE3, -5.0); kingPV.put(Position.BE2, -5.0); kingPV.put(Position.BE1, -5.0);
-                kingPV.put(Position.BD4, -5.0); kingPV.put(Position.BD3, -5.0); kingPV.put(Position.BD2, -5.0); kingPV.put(Position.BD1, -5.0);
-                kingPV.put(Position.BC4, -4.0); kingPV.put(Position.BC3, -4.0); kingPV.put(Position.BC2, -4.0); kingPV.put(Position.BC1, -4.0);
-                kingPV.put(Position.BB4, -4.0); kingPV.put(Position.BB3, -4.0); kingPV.put(Position.BB2, -4.0); kingPV.put(Position.BB1, -4.0);
-                kingPV.put(Position.BA4, -3.0); kingPV.put(Position.BA3, -3.0); kingPV.put(Position.BA2, -3.0); kingPV.put(Position.BA1, -3.0);
-
+                qTable = loadQTable(qTableStorageRed, nTimesExecutedStorageRed);
                 break;
-
             case GREEN:
-                try {
-                    FileInputStream qFileIn = new FileInputStream(qTableStorageGreen);
-                    ObjectInputStream qObjectIn = new ObjectInputStream(qFileIn);
-                    qTable = (HashMap<StateAction, Double>) qObjectIn.readObject();
-                    qFileIn.close();
-                    qObjectIn.close();
-    
-                    FileInputStream nFileIn = new FileInputStream(nTimesExecutedStorageGreen);
-                    ObjectInputStream nObjectIn = new ObjectInputStream(nFileIn);
-                    nTimesExecuted = (HashMap<StateAction, Integer>) nObjectIn.readObject();
-                    nFileIn.close();
-                    nObjectIn.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.print("Q Table storage or n Times Executed Storage either do not exist or could not be opened.");
-                }
-
-                pawnPV.put(Position.GA1, 0.0); pawnPV.put(Position.GA2, 2.0); pawnPV.put(Position.GA3, 2.0); pawnPV.put(Position.GA4, 0.0);
-                pawnPV.put(Position.GB1, 0.0); pawnPV.put(Position.GB2, 3.0); pawnPV.put(Position.GB3, -2.0); pawnPV.put(Position.GB4, 0.0);
-                pawnPV.put(Position.GC1, 0.0); pawnPV.put(Position.GC2, 3.0); pawnPV.put(Position.GC3, -2.0); pawnPV.put(Position.GC4, 0.0);
-                pawnPV.put(Position.GD1, 0.0); pawnPV.put(Position.GD2, -3.5); pawnPV.put(Position.GD3, 0.0); pawnPV.put(Position.GD4, 4.5);
-                pawnPV.put(Position.GE1, 0.0); pawnPV.put(Position.GE2, -3.5); pawnPV.put(Position.GE3, 0.0); pawnPV.put(Position.GE4, 4.5);
-                pawnPV.put(Position.GF1, 0.0); pawnPV.put(Position.GF2, 3.0); pawnPV.put(Position.GF3, -2.0); pawnPV.put(Position.GF4, 0.0);
-                pawnPV.put(Position.GG1, 0.0); pawnPV.put(Position.GG2, 3.0); pawnPV.put(Position.GG3, -2.0); pawnPV.put(Position.GG4, 0.0);
-                pawnPV.put(Position.GH1, 0.0); pawnPV.put(Position.GH2, 2.0); pawnPV.put(Position.GH3, 2.0); pawnPV.put(Position.GH4, 0.0);
-
-                pawnPV.put(Position.BH4, 2.0); pawnPV.put(Position.BH3, 2.5); pawnPV.put(Position.BH2, 4.0); pawnPV.put(Position.BH1, 4.2);
-                pawnPV.put(Position.BG4, 2.0); pawnPV.put(Position.BG3, 2.5); pawnPV.put(Position.BG2, 4.0); pawnPV.put(Position.BG1, 4.2);
-                pawnPV.put(Position.BF4, 2.0); pawnPV.put(Position.BF3, 2.7); pawnPV.put(Position.BF2, 4.0); pawnPV.put(Position.BF1, 4.2);
-                pawnPV.put(Position.BE4, 2.0); pawnPV.put(Position.BE3, 3.0); pawnPV.put(Position.BE2, 4.0); pawnPV.put(Position.BE1, 4.2);
-                pawnPV.put(Position.BD4, 2.0); pawnPV.put(Position.BD3, 2.5); pawnPV.put(Position.BD2, 4.0); pawnPV.put(Position.BD1, 4.2);
-                pawnPV.put(Position.BC4, 2.0); pawnPV.put(Position.BC3, 2.7); pawnPV.put(Position.BC2, 4.0); pawnPV.put(Position.BC1, 4.2);
-                pawnPV.put(Position.BB4, 2.0); pawnPV.put(Position.BB3, 2.5); pawnPV.put(Position.BB2, 4.0); pawnPV.put(Position.BB1, 4.2);
-                pawnPV.put(Position.BA4, 2.0); pawnPV.put(Position.BA3, 2.5); pawnPV.put(Position.BA2, 4.0); pawnPV.put(Position.BA1, 4.2);
-
-                pawnPV.put(Position.RH4, 2.0); pawnPV.put(Position.RH3, 2.5); pawnPV.put(Position.RH2, 4.0); pawnPV.put(Position.RH1, 4.2);
-                pawnPV.put(Position.RG4, 2.0); pawnPV.put(Position.RG3, 2.5); pawnPV.put(Position.RG2, 4.0); pawnPV.put(Position.RG1, 4.2);
-                pawnPV.put(Position.RF4, 2.0); pawnPV.put(Position.RF3, 2.7); pawnPV.put(Position.RF2, 4.0); pawnPV.put(Position.RF1, 4.2);
-                pawnPV.put(Position.RE4, 2.0); pawnPV.put(Position.RE3, 3.0); pawnPV.put(Position.RE2, 4.0); pawnPV.put(Position.RE1, 4.2);
-                pawnPV.put(Position.RD4, 2.0); pawnPV.put(Position.RD3, 2.5); pawnPV.put(Position.RD2, 4.0); pawnPV.put(Position.RD1, 4.2);
-                pawnPV.put(Position.RC4, 2.0); pawnPV.put(Position.RC3, 2.7); pawnPV.put(Position.RC2, 4.0); pawnPV.put(Position.RC1, 4.2);
-                pawnPV.put(Position.RB4, 2.0); pawnPV.put(Position.RB3, 2.5); pawnPV.put(Position.RB2, 4.0); pawnPV.put(Position.RB1, 4.2);
-                pawnPV.put(Position.RA4, 2.0); pawnPV.put(Position.RA3, 2.5); pawnPV.put(Position.RA2, 4.0); pawnPV.put(Position.RA1, 4.2);
-
-
-                knightPV.put(Position.GA1, -3.7); knightPV.put(Position.GA2, -3.5); knightPV.put(Position.GA3, -3.0); knightPV.put(Position.GA4, -3.0);
-                knightPV.put(Position.GB1, -3.5); knightPV.put(Position.GB2, -2.0); knightPV.put(Position.GB3, 0.8); knightPV.put(Position.GB4, 0.0);
-                knightPV.put(Position.GC1, -3.0); knightPV.put(Position.GC2, 0.0); knightPV.put(Position.GC3, 0.8); knightPV.put(Position.GC4, 1.0);
-                knightPV.put(Position.GD1, -3.0); knightPV.put(Position.GD2, 0.0); knightPV.put(Position.GD3, 0.8); knightPV.put(Position.GD4, 1.5);
-                knightPV.put(Position.GE1, -3.0); knightPV.put(Position.GE2, 0.0); knightPV.put(Position.GE3, 0.8); knightPV.put(Position.GE4, 1.5);
-                knightPV.put(Position.GF1, -3.0); knightPV.put(Position.GF2, 0.0); knightPV.put(Position.GF3, 0.8); knightPV.put(Position.GF4, 1.0);
-                knightPV.put(Position.GG1, -3.5); knightPV.put(Position.GG2, -2.0); knightPV.put(Position.GG3, -0.8); knightPV.put(Position.GG4, 0.0);
-                knightPV.put(Position.GH1, -3.7); knightPV.put(Position.GH2, -3.5); knightPV.put(Position.GH3, -3.0); knightPV.put(Position.GH4, -3.0);
-
-                knightPV.put(Position.BH4, -3.0); knightPV.put(Position.BH3, -3.0); knightPV.put(Position.BH2, -3.5); knightPV.put(Position.BH1, -3.7);
-                knightPV.put(Position.BG4, 0.8); knightPV.put(Position.BG3, 0.0); knightPV.put(Position.BG2, -2.0); knightPV.put(Position.BG1, -3.5);
-                knightPV.put(Position.BF4, 1.0); knightPV.put(Position.BF3, 0.8); knightPV.put(Position.BF2, 0.0); knightPV.put(Position.BF1, -3.0);
-                knightPV.put(Position.BE4, 1.5); knightPV.put(Position.BE3, 0.8); knightPV.put(Position.BE2, 0.0); knightPV.put(Position.BE1, -3.0);
-                knightPV.put(Position.BD4, 1.5); knightPV.put(Position.BD3, 0.8); knightPV.put(Position.BD2, 0.0); knightPV.put(Position.BD1, -3.0);
-                knightPV.put(Position.BC4, 1.0); knightPV.put(Position.BC3, 0.8); knightPV.put(Position.BC2, 0.0); knightPV.put(Position.BC1, -3.0);
-                knightPV.put(Position.BB4, 0.0); knightPV.put(Position.BB3, 0.8); knightPV.put(Position.BB2, -2.0); knightPV.put(Position.BB1, -3.5);
-                knightPV.put(Position.BA4, -3.0); knightPV.put(Position.BA3, -3.0); knightPV.put(Position.BA2, -3.5); knightPV.put(Position.BA1, -3.7);
-
-                knightPV.put(Position.RH4, -3.0); knightPV.put(Position.RH3, -3.0); knightPV.put(Position.RH2, -3.5); knightPV.put(Position.RH1, -3.7);
-                knightPV.put(Position.RG4, 0.8); knightPV.put(Position.RG3, 0.0); knightPV.put(Position.RG2, -2.0); knightPV.put(Position.RG1, -3.5);
-                knightPV.put(Position.RF4, 1.0); knightPV.put(Position.RF3, 0.8); knightPV.put(Position.RF2, 0.0); knightPV.put(Position.RF1, -3.0);
-                knightPV.put(Position.RE4, 1.5); knightPV.put(Position.RE3, 0.8); knightPV.put(Position.RE2, 0.0); knightPV.put(Position.RE1, -3.0);
-                knightPV.put(Position.RD4, 1.5); knightPV.put(Position.RD3, 0.8); knightPV.put(Position.RD2, 0.0); knightPV.put(Position.RD1, -3.0);
-                knightPV.put(Position.RC4, 1.0); knightPV.put(Position.RC3, 0.8); knightPV.put(Position.RC2, 0.0); knightPV.put(Position.RC1, -3.0);
-                knightPV.put(Position.RB4, 0.0); knightPV.put(Position.RB3, 0.8); knightPV.put(Position.RB2, -2.0); knightPV.put(Position.RB1, -3.5);
-                knightPV.put(Position.RA4, -3.0); knightPV.put(Position.RA3, -3.0); knightPV.put(Position.RA2, -3.5); knightPV.put(Position.RA1, -3.7);
-
-
-                bishopPV.put(Position.GA1, -2.0); bishopPV.put(Position.GA2, -1.0); bishopPV.put(Position.GA3, -1.0); bishopPV.put(Position.GA4, -1.0);
-                bishopPV.put(Position.GB1, -1.0); bishopPV.put(Position.GB2, 0.5); bishopPV.put(Position.GB3, 0.8); bishopPV.put(Position.GB4, 0.0);
-                bishopPV.put(Position.GC1, -1.0); bishopPV.put(Position.GC2, 0.0); bishopPV.put(Position.GC3, 0.8); bishopPV.put(Position.GC4, 0.8);
-                bishopPV.put(Position.GD1, -1.0); bishopPV.put(Position.GD2, 0.0); bishopPV.put(Position.GD3, 0.8); bishopPV.put(Position.GD4, 0.8);
-                bishopPV.put(Position.GE1, -1.0); bishopPV.put(Position.GE2, 0.0); bishopPV.put(Position.GE3, 0.8); bishopPV.put(Position.GE4, 0.8);
-                bishopPV.put(Position.GF1, -1.0); bishopPV.put(Position.GF2, 0.0); bishopPV.put(Position.GF3, 0.8); bishopPV.put(Position.GF4, 0.8);
-                bishopPV.put(Position.GG1, -1.0); bishopPV.put(Position.GG2, 0.5); bishopPV.put(Position.GG3, 0.8); bishopPV.put(Position.GG4, 0.0);
-                bishopPV.put(Position.GH1, -2.0); bishopPV.put(Position.GH2, -1.5); bishopPV.put(Position.GH3, -1.0); bishopPV.put(Position.GH4, -1.0);
-
-                bishopPV.put(Position.BH4, -1.0); bishopPV.put(Position.BH3, -1.0); bishopPV.put(Position.BH2, -1.5); bishopPV.put(Position.BH1, -2.0);
-                bishopPV.put(Position.BG4, 0.0); bishopPV.put(Position.BG3, 0.8); bishopPV.put(Position.BG2, 0.5); bishopPV.put(Position.BG1, -1.0);
-                bishopPV.put(Position.BF4, 0.8); bishopPV.put(Position.BF3, 0.8); bishopPV.put(Position.BF2, 0.0); bishopPV.put(Position.BF1, -1.0);
-                bishopPV.put(Position.BE4, 0.8); bishopPV.put(Position.BE3, 0.8); bishopPV.put(Position.BE2, 0.0); bishopPV.put(Position.BE1, -1.0);
-                bishopPV.put(Position.BD4, 0.8); bishopPV.put(Position.BD3, 0.8); bishopPV.put(Position.BD2, 0.0); bishopPV.put(Position.BD1, -1.0);
-                bishopPV.put(Position.BC4, 0.8); bishopPV.put(Position.BC3, 0.8); bishopPV.put(Position.BC2, 0.0); bishopPV.put(Position.BC1, -1.0);
-                bishopPV.put(Position.BB4, 0.0); bishopPV.put(Position.BB3, 0.8); bishopPV.put(Position.BB2, 0.5); bishopPV.put(Position.BB1, -1.0);
-                bishopPV.put(Position.BA4, -1.0); bishopPV.put(Position.BA3, -1.0); bishopPV.put(Position.BA2, -1.5); bishopPV.put(Position.BA1, -2.0);
-
-                bishopPV.put(Position.RH4, -1.0); bishopPV.put(Position.RH3, -1.0); bishopPV.put(Position.RH2, -1.5); bishopPV.put(Position.RH1, -2.0);
-                bishopPV.put(Position.RG4, 0.0); bishopPV.put(Position.RG3, 0.8); bishopPV.put(Position.RG2, 0.5); bishopPV.put(Position.RG1, -1.0);
-                bishopPV.put(Position.RF4, 0.8); bishopPV.put(Position.RF3, 0.8); bishopPV.put(Position.RF2, 0.0); bishopPV.put(Position.RF1, -1.0);
-                bishopPV.put(Position.RE4, 0.8); bishopPV.put(Position.RE3, 0.8); bishopPV.put(Position.RE2, 0.0); bishopPV.put(Position.RE1, -1.0);
-                bishopPV.put(Position.RD4, 0.8); bishopPV.put(Position.RD3, 0.8); bishopPV.put(Position.RD2, 0.0); bishopPV.put(Position.RD1, -1.0);
-                bishopPV.put(Position.RC4, 0.8); bishopPV.put(Position.RC3, 0.8); bishopPV.put(Position.RC2, 0.0); bishopPV.put(Position.RC1, -1.0);
-                bishopPV.put(Position.RB4, 0.0); bishopPV.put(Position.RB3, 0.8); bishopPV.put(Position.RB2, 0.5); bishopPV.put(Position.RB1, -1.0);
-                bishopPV.put(Position.RA4, -1.0); bishopPV.put(Position.RA3, -1.0); bishopPV.put(Position.RA2, -1.5); bishopPV.put(Position.RA1, -2.0);
-
-
-                rookPV.put(Position.GA1, 0.0); rookPV.put(Position.GA2, -0.5); rookPV.put(Position.GA3, -0.5); rookPV.put(Position.GA4, -0.5);
-                rookPV.put(Position.GB1, 0.0); rookPV.put(Position.GB2, 0.0); rookPV.put(Position.GB3, 0.0); rookPV.put(Position.GB4, 0.0);
-                rookPV.put(Position.GC1, 0.0); rookPV.put(Position.GC2, 0.0); rookPV.put(Position.GC3, 0.0); rookPV.put(Position.GC4, 0.0);
-                rookPV.put(Position.GD1, 0.5); rookPV.put(Position.GD2, 0.0); rookPV.put(Position.GD3, 0.0); rookPV.put(Position.GD4, 0.0);
-                rookPV.put(Position.GE1, 0.5); rookPV.put(Position.GE2, 0.0); rookPV.put(Position.GE3, 0.0); rookPV.put(Position.GE4, 0.0);
-                rookPV.put(Position.GF1, 0.0); rookPV.put(Position.GF2, 0.0); rookPV.put(Position.GF3, 0.0); rookPV.put(Position.GF4, 0.0);
-                rookPV.put(Position.GG1, 0.0); rookPV.put(Position.GG2, 0.0); rookPV.put(Position.GG3, 0.0); rookPV.put(Position.GG4, 0.0);
-                rookPV.put(Position.GH1, -0.0); rookPV.put(Position.GH2, -0.5); rookPV.put(Position.GH3, -0.5); rookPV.put(Position.GH4, -0.5);
-
-                rookPV.put(Position.BH4, -0.5); rookPV.put(Position.BH3, -0.5); rookPV.put(Position.BH2, 0.5); rookPV.put(Position.BH1, 0.0);
-                rookPV.put(Position.BG4, 0.0); rookPV.put(Position.BG3, 0.0); rookPV.put(Position.BG2, 1.0); rookPV.put(Position.BG1, 0.0);
-                rookPV.put(Position.BF4, 0.0); rookPV.put(Position.BF3, 0.0); rookPV.put(Position.BF2, 1.0); rookPV.put(Position.BF1, 0.0);
-                rookPV.put(Position.BE4, 0.0); rookPV.put(Position.BE3, 0.0); rookPV.put(Position.BE2, 1.0); rookPV.put(Position.BE1, 0.0);
-                rookPV.put(Position.BD4, 0.0); rookPV.put(Position.BD3, 0.0); rookPV.put(Position.BD2, 1.0); rookPV.put(Position.BD1, 0.0);
-                rookPV.put(Position.BC4, 0.0); rookPV.put(Position.BC3, 0.0); rookPV.put(Position.BC2, 1.0); rookPV.put(Position.BC1, 0.0);
-                rookPV.put(Position.BB4, 0.0); rookPV.put(Position.BB3, 0.0); rookPV.put(Position.BB2, 1.0); rookPV.put(Position.BB1, 0.0);
-                rookPV.put(Position.BA4, -0.5); rookPV.put(Position.BA3, -0.5); rookPV.put(Position.BA2, 0.5); rookPV.put(Position.BA1, 0.0);
-
-                rookPV.put(Position.RH4, -0.5); rookPV.put(Position.RH3, -0.5); rookPV.put(Position.RH2, 0.5); rookPV.put(Position.RH1, 0.0);
-                rookPV.put(Position.RG4, 0.0); rookPV.put(Position.RG3, 0.0); rookPV.put(Position.RG2, 1.0); rookPV.put(Position.RG1, 0.0);
-                rookPV.put(Position.RF4, 0.0); rookPV.put(Position.RF3, 0.0); rookPV.put(Position.RF2, 1.0); rookPV.put(Position.RF1, 0.0);
-                rookPV.put(Position.RE4, 0.0); rookPV.put(Position.RE3, 0.0); rookPV.put(Position.RE2, 1.0); rookPV.put(Position.RE1, 0.0);
-                rookPV.put(Position.RD4, 0.0); rookPV.put(Position.RD3, 0.0); rookPV.put(Position.RD2, 1.0); rookPV.put(Position.RD1, 0.0);
-                rookPV.put(Position.RC4, 0.0); rookPV.put(Position.RC3, 0.0); rookPV.put(Position.RC2, 1.0); rookPV.put(Position.RC1, 0.0);
-                rookPV.put(Position.RB4, 0.0); rookPV.put(Position.RB3, 0.0); rookPV.put(Position.RB2, 1.0); rookPV.put(Position.RB1, 0.0);
-                rookPV.put(Position.RA4, -0.5); rookPV.put(Position.RA3, -0.5); rookPV.put(Position.RA2, 0.5); rookPV.put(Position.RA1, 0.0);
-
-
-                queenPV.put(Position.GA1, -1.8); queenPV.put(Position.GA2, -0.9); queenPV.put(Position.GA3, -0.9); queenPV.put(Position.GA4, 0.0);
-                queenPV.put(Position.GB1, -0.9); queenPV.put(Position.GB2, 0.0); queenPV.put(Position.GB3, 0.6); queenPV.put(Position.GB4, 0.0);
-                queenPV.put(Position.GC1, -0.9); queenPV.put(Position.GC2, 0.6); queenPV.put(Position.GC3, 0.6); queenPV.put(Position.GC4, 0.6);
-                queenPV.put(Position.GD1, -0.6); queenPV.put(Position.GD2, 0.6); queenPV.put(Position.GD3, 0.6); queenPV.put(Position.GD4, 0.6);
-                queenPV.put(Position.GE1, -0.6); queenPV.put(Position.GE2, 0.6); queenPV.put(Position.GE3, 0.6); queenPV.put(Position.GE4, 0.6);
-                queenPV.put(Position.GF1, -0.9); queenPV.put(Position.GF2, 0.6); queenPV.put(Position.GF3, 0.6); queenPV.put(Position.GF4, 0.6);
-                queenPV.put(Position.GG1, -0.9); queenPV.put(Position.GG2, 0.0); queenPV.put(Position.GG3, 0.6); queenPV.put(Position.GG4, 0.0);
-                queenPV.put(Position.GH1, -1.8); queenPV.put(Position.GH2, -0.9); queenPV.put(Position.GH3, -0.9); queenPV.put(Position.GH4, 0.0);
-
-                queenPV.put(Position.BH4, -0.6); queenPV.put(Position.BH3, -0.9); queenPV.put(Position.BH2, -0.9); queenPV.put(Position.BH1, -1.8);
-                queenPV.put(Position.BG4, 0.6); queenPV.put(Position.BG3, 0.0); queenPV.put(Position.BG2, 0.0); queenPV.put(Position.BG1, -0.9);
-                queenPV.put(Position.BF4, 0.6); queenPV.put(Position.BF3, 0.6); queenPV.put(Position.BF2, 0.0); queenPV.put(Position.BF1, -0.9);
-                queenPV.put(Position.BE4, 0.6); queenPV.put(Position.BE3, 0.6); queenPV.put(Position.BE2, 0.0); queenPV.put(Position.BE1, -0.6);
-                queenPV.put(Position.BD4, 0.6); queenPV.put(Position.BD3, 0.6); queenPV.put(Position.BD2, 0.0); queenPV.put(Position.BD1, -0.6);
-                queenPV.put(Position.BC4, 0.6); queenPV.put(Position.BC3, 0.6); queenPV.put(Position.BC2, 0.0); queenPV.put(Position.BC1, -0.6);
-                queenPV.put(Position.BB4, 0.6); queenPV.put(Position.BB3, 0.0); queenPV.put(Position.BB2, 0.0); queenPV.put(Position.BB1, -0.9);
-                queenPV.put(Position.BA4, -0.6); queenPV.put(Position.BA3, -0.9); queenPV.put(Position.BA2, -0.9); queenPV.put(Position.BA1, -1.8);
-
-                queenPV.put(Position.RH4, -0.6); queenPV.put(Position.RH3, -0.9); queenPV.put(Position.RH2, -0.9); queenPV.put(Position.RH1, -1.8);
-                queenPV.put(Position.RG4, 0.6); queenPV.put(Position.RG3, 0.0); queenPV.put(Position.RG2, 0.0); queenPV.put(Position.RG1, -0.9);
-                queenPV.put(Position.RF4, 0.6); queenPV.put(Position.RF3, 0.6); queenPV.put(Position.RF2, 0.0); queenPV.put(Position.RF1, -0.9);
-                queenPV.put(Position.RE4, 0.6); queenPV.put(Position.RE3, 0.6); queenPV.put(Position.RE2, 0.0); queenPV.put(Position.RE1, -0.6);
-                queenPV.put(Position.RD4, 0.6); queenPV.put(Position.RD3, 0.6); queenPV.put(Position.RD2, 0.0); queenPV.put(Position.RD1, -0.6);
-                queenPV.put(Position.RC4, 0.6); queenPV.put(Position.RC3, 0.6); queenPV.put(Position.RC2, 0.0); queenPV.put(Position.RC1, -0.6);
-                queenPV.put(Position.RB4, 0.6); queenPV.put(Position.RB3, 0.0); queenPV.put(Position.RB2, 0.0); queenPV.put(Position.RB1, -0.9);
-                queenPV.put(Position.RA4, -0.6); queenPV.put(Position.RA3, -0.9); queenPV.put(Position.RA2, -0.9); queenPV.put(Position.RA1, -1.8);
-
-
-                kingPV.put(Position.GA1, 2.0); kingPV.put(Position.GA2, 2.0); kingPV.put(Position.GA3, -1.0); kingPV.put(Position.GA4, -2.0);
-                kingPV.put(Position.GB1, 3.0); kingPV.put(Position.GB2, 2.0); kingPV.put(Position.GB3, -2.0); kingPV.put(Position.GB4, -3.0);
-                kingPV.put(Position.GC1, 1.0); kingPV.put(Position.GC2, 0.0); kingPV.put(Position.GC3, -2.0); kingPV.put(Position.GC4, -3.0);
-                kingPV.put(Position.GD1, 0.0); kingPV.put(Position.GD2, 0.0); kingPV.put(Position.GD3, -2.0); kingPV.put(Position.GD4, -4.0);
-                kingPV.put(Position.GE1, 0.0); kingPV.put(Position.GE2, 0.0); kingPV.put(Position.GE3, -2.0); kingPV.put(Position.GE4, -4.0);
-                kingPV.put(Position.GF1, 1.0); kingPV.put(Position.GF2, 0.0); kingPV.put(Position.GF3, -2.0); kingPV.put(Position.GF4, -3.0);
-                kingPV.put(Position.GG1, 3.0); kingPV.put(Position.GG2, 2.0); kingPV.put(Position.GG3, -2.0); kingPV.put(Position.GG4, -3.0);
-                kingPV.put(Position.GH1, 2.0); kingPV.put(Position.GH2, 2.0); kingPV.put(Position.GH3, -1.0); kingPV.put(Position.GH4, -2.0);
-
-                kingPV.put(Position.BH4, -3.0); kingPV.put(Position.BH3, -3.0); kingPV.put(Position.BH2, -3.0); kingPV.put(Position.BH1, -3.0);
-                kingPV.put(Position.BG4, -4.0); kingPV.put(Position.BG3, -4.0); kingPV.put(Position.BG2, -4.0); kingPV.put(Position.BG1, -4.0);
-                kingPV.put(Position.BF4, -4.0); kingPV.put(Position.BF3, -4.0); kingPV.put(Position.BF2, -4.0); kingPV.put(Position.BF1, -4.0);
-                kingPV.put(Position.BE4, -5.0); kingPV.put(Position.BE3, -5.0); kingPV.put(Position.BE2, -5.0); kingPV.put(Position.BE1, -5.0);
-                kingPV.put(Position.BD4, -5.0); kingPV.put(Position.BD3, -5.0); kingPV.put(Position.BD2, -5.0); kingPV.put(Position.BD1, -5.0);
-                kingPV.put(Position.BC4, -4.0); kingPV.put(Position.BC3, -4.0); kingPV.put(Position.BC2, -4.0); kingPV.put(Position.BC1, -4.0);
-                kingPV.put(Position.BB4, -4.0); kingPV.put(Position.BB3, -4.0); kingPV.put(Position.BB2, -4.0); kingPV.put(Position.BB1, -4.0);
-                kingPV.put(Position.BA4, -3.0); kingPV.put(Position.BA3, -3.0); kingPV.put(Position.BA2, -3.0); kingPV.put(Position.BA1, -3.0);
-
-                kingPV.put(Position.RH4, -3.0); kingPV.put(Position.RH3, -3.0); kingPV.put(Position.RH2, -3.0); kingPV.put(Position.RH1, -3.0);
-                kingPV.put(Position.RG4, -4.0); kingPV.put(Position.RG3, -4.0); kingPV.put(Position.RG2, -4.0); kingPV.put(Position.RG1, -4.0);
-                kingPV.put(Position.RF4, -4.0); kingPV.put(Position.RF3, -4.0); kingPV.put(Position.RF2, -4.0); kingPV.put(Position.RF1, -4.0);
-                kingPV.put(Position.RE4, -5.0); kingPV.put(Position.RE3, -5.0); kingPV.put(Position.RE2, -5.0); kingPV.put(Position.RE1, -5.0);
-                kingPV.put(Position.RD4, -5.0); kingPV.put(Position.RD3, -5.0); kingPV.put(Position.RD2, -5.0); kingPV.put(Position.RD1, -5.0);
-                kingPV.put(Position.RC4, -4.0); kingPV.put(Position.RC3, -4.0); kingPV.put(Position.RC2, -4.0); kingPV.put(Position.RC1, -4.0);
-                kingPV.put(Position.RB4, -4.0); kingPV.put(Position.RB3, -4.0); kingPV.put(Position.RB2, -4.0); kingPV.put(Position.RB1, -4.0);
-                kingPV.put(Position.RA4, -3.0); kingPV.put(Position.RA3, -3.0); kingPV.put(Position.RA2, -3.0); kingPV.put(Position.RA1, -3.0);
-
+                qTable = loadQTable(qTableStorageGreen, nTimesExecutedStorageGreen);
                 break;
-
             default:
-                System.out.print("If you are seeing this, something is wrong. No color was given.");
                 break;
         }
     }
 
-    /**
-     * Returns a set of all availble moves for a given piece Moves are represented
-     * with the standard {start, end} position array
-     * 
-     * @param board    representation of the current game state
-     * @param position representation of where the given piece is located on the
-     *                 board
-     * @return a set containing all possible moves for a given piece
-     *
-     **/
-    private HashSet<Position[]> getAvailableMoves(Board board, Position position) {
-        Piece mover = board.getPiece(position);
-        PieceType moverType = mover.getType();
-
-        HashSet<Position[]> possibleMoves = new HashSet<Position[]>();
-        Position p;
-
-        for (Direction[] moves : moverType.getSteps()) { // iterate over every possible step a piece can make
-            p = position;
-            for (int i = 1; i <= moverType.getStepReps(); i++) { // iterate that step as many times as possible to check
-                                                                 // every possible move
-                try { // try the move
-                    p = board.step(mover, moves, p);
-                    if (board.isLegalMove(position, p)) {
-                        possibleMoves.add(new Position[] { position, p }); // move is legal, add it to the list
-                    }
-                } catch (ImpossiblePositionException e) {
-                    break; // ended up in an illegal position, abandon that step and try another
-                }
-
-            }
-        }
-        return possibleMoves;
-    }
-
     /**
      * Gets a set of all moves the given colour can possibly play on the given board
      * 
@@ -740,12 +133,14 @@ public class QLearningAgent extends Agent {
      *         given board
      */
     private HashSet<Position[]> getAllAvailableMoves(Board boardState, Colour player) {
-        HashSet<Position[]> allMoves = new HashSet<Position[]>();
-        HashSet<Position> piecePosSet = (HashSet<Position>) boardState.getPositions(player);
-        for(Position pos : piecePosSet) {
-            HashSet<Position[]> availMoves = getAvailableMoves(boardState, pos);
-            if(!availMoves.isEmpty())
-                allMoves.addAll(availMoves);
+        HashSet<Position[]> allMoves = new LinkedHashSet<Position[]>();//in a fixed order, so seeded games repeat
+        if (boardState.getTurn() != player) { // Only the player whose turn it is can move
+            return allMoves;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int n = MoveGenerator.generate(MoveGenerator.squares(boardState), player, moves);
+        for (int i = 0; i < n; i++) {
+            allMoves.add(new Position[] { MoveGenerator.from(moves[i]), MoveGenerator.to(moves[i]) });
         }
         return allMoves;
     }
@@ -760,7 +155,20 @@ public class QLearningAgent extends Agent {
      *         schedule
      */
     private double getLearningRate(int nVisited) {
-        return (initLearningRate * Math.pow(dropChange, (1 + nVisited) / dropRate));
+        return learningRate.applyAsDouble(nVisited);
+    }
+
+    /**
+     * Creates a step-based learning rate schedule, where the learning rate drops
+     * by dropChange every dropRate visits of a state-action pair.
+     * 
+     * @param initLearningRate the initial learning rate
+     * @param dropChange       the change in the learning rate per drop
+     * @param dropRate         the rate at which the learning rate drops
+     * @return a schedule mapping the number of visits to the learning rate
+     */
+    public static IntToDoubleFunction stepLearningRate(double initLearningRate, double dropChange, double dropRate) {
+        return nVisited -> (initLearningRate * Math.pow(dropChange, (1 + nVisited) / dropRate));
     }
 
     /**
@@ -768,19 +176,14 @@ public class QLearningAgent extends Agent {
      * step. Starts by favouring exploring during the early stages then transitions
      * to exploiting later on in the game
      * 
-     * In a competitive environment simply return false. If training agent, use commented out code instead
+     * In a competitive environment epsilon is always 0, so we never explore. When
+     * training, the trainer supplies a decaying epsilon schedule.
      * 
      * @return true if we should choose exploration, otherwise false
      */
     private boolean shouldExplore() {
-        /* if (random.nextDouble() < epsilon) {
-            epsilon *= 0.95;
-            return true;
-        } else {
-            epsilon *= 0.95;
-            return false;
-        } */
-        return false;
+        double e = epsilon.getAsDouble();
+        return e > 0.0 && getRandom().nextDouble() < e;
     }
 
     /**
@@ -797,25 +200,26 @@ public class QLearningAgent extends Agent {
         HashSet<Position[]> availMoves = getAllAvailableMoves(boardState, myColour);
 
         double maxEstUtility = Double.MIN_VALUE;
+        long stateKey = StateAction.stateKey(boardState);
 
         for (Position[] action : availMoves) {
-            StateAction curExaminedSA = new StateAction(boardState, action);
-            if (nTimesExecuted.containsKey(curExaminedSA)) { // If we have seen the state-action pair already use
-                                                             // its existing q-value
-                if(qTable.get(curExaminedSA) != 0.0) {
-                    if (qTable.get(curExaminedSA) > maxEstUtility) {
-                        maxEstUtility = qTable.get(curExaminedSA);
+            int a = StateAction.action(action);
+            if (qTable.contains(stateKey, a)) { // If we have seen the state-action pair already use
+                                                // its existing q-value
+                double qValue = qTable.getValue(stateKey, a);
+                if(qValue != 0.0) {
+                    if (qValue > maxEstUtility) {
+                        maxEstUtility = qValue;
                     }
                 } else {
-                    double estimatedUtil = estimateUtil(boardState, prevRewardValue, action); 
+                    double estimatedUtil = estimateUtil(prevRewardValue, action); 
                     if(estimatedUtil > maxEstUtility){
                         maxEstUtility = estimatedUtil;
                     }   
                 }
             } else { // Add the new state-action pair to the q-table and set its value to 0
-                qTable.put(curExaminedSA, 0.0);
-                nTimesExecuted.put(curExaminedSA, 0);
-                double estimatedUtil = estimateUtil(boardState, prevRewardValue, action); 
+                qTable.putIfAbsent(stateKey, a, 0.0);
+                double estimatedUtil = estimateUtil(prevRewardValue, action); 
                 if(estimatedUtil > maxEstUtility){
                     maxEstUtility = estimatedUtil;
                 }
@@ -828,208 +232,48 @@ public class QLearningAgent extends Agent {
 
     /**
      * The update function for the QLearningAgent. Uses temporal-difference learning
-     * (TDL).
+     * (TDL). When a replay buffer is in use the transition is only recorded, and a
+     * ReplayLearner applies the update later in a batch.
      */
     private void update() {
+        long curStateKey = StateAction.stateKey(curBoardState);
         if (curBoardState.gameOver()) { // If the game is over add this state to the table if it does not already exist
-            qTable.putIfAbsent(new StateAction(curBoardState, null), curReward);
+            qTable.putIfAbsent(curStateKey, StateAction.TERMINAL, curReward);
         }
-        if (prevBoardState != null) { // If we have already seen a previous state
-            StateAction curSA = new StateAction(prevBoardState, myLastAction);
-            double learningRate; // The learning rate to be used in the update function
-            double curQValue; // The current Q value of curSA
-            if (nTimesExecuted.putIfAbsent(curSA, 1) != null) { // If curSA is in nTimesExecuted update the times its been executed by one
-                int nTimesSeen = nTimesExecuted.get(curSA) + 1;
-                nTimesExecuted.put(curSA, nTimesSeen);
-                learningRate = getLearningRate(nTimesSeen);
-                curQValue = qTable.get(curSA);
-                qTable.put(curSA, (curQValue + (learningRate * (prevReward + argMaxQ(curBoardState) - curQValue))));
-            } else { // Add curSA to the q-table
-                learningRate = getLearningRate(1);
-                qTable.put(curSA, (0.0 + (learningRate) * (prevReward + argMaxQ(curBoardState) - 0.0)));
+        if (hasPrevState) { // If we have already seen a previous state
+            if (replayBuffers != null) {
+                replayBuffers[myColour.ordinal()].add(prevStateKey, StateAction.action(myLastAction), prevReward,
+                        curStateKey, curBoardState.gameOver());
+                return;
             }
-
+            // Increments the times the previous state-action pair has been executed, and moves its value
+            // towards the target using the learning rate for that number of visits
+            double target = prevReward + argMaxQ(curBoardState);
+            qTable.update(prevStateKey, StateAction.action(myLastAction), target, this::getLearningRate);
         }
     }
 
     /**
-     * Checks to see if we are currently under check and returns the negative value
-     * of it if we are. More weight given to those who can put us in check and move
-     * next turn.
+     * Returns the negative value of being under check by the given player. More
+     * weight given to those who can put us in check and move next turn.
      * 
-     * @param boardState the board in which we will exmaine
+     * @param attacker the player attacking our king
+     * @param attacks  the number of the attacker's moves which take our king
      * @return negative value if under check, otherwise 0.0
      */
-    private double amUnderCheck(Board boardState) {
-        double soln = 0.0;
-        Position kingPos = null;
-        HashSet<Position[]> availMoves = new HashSet<>();
-        for(Position pos : boardState.getPositions(myColour)) {
-            if(boardState.getPiece(pos).getType() == PieceType.KING) {
-                kingPos = pos;
-                break;
-            }
+    private double amUnderCheck(Colour attacker, int attacks) {
+        if (attacker == myColour) {
+            return 0.0;
         }
-        switch (myColour) {
-            case BLUE:
-                availMoves = getAllAvailableMoves(boardState, Colour.GREEN);
-                for (Position[] action : availMoves) {
-                    if (action[1].equals(kingPos)) {
-                        soln -= Double.MIN_VALUE;
-                    }
-                }
-                availMoves = getAllAvailableMoves(boardState, Colour.RED);
-                for (Position[] action : availMoves) {
-                    if (action[1].equals(kingPos)) {
-                        soln -= 35.0;
-                    }
-                }
-                break;
-
-            case GREEN:
-                availMoves = getAllAvailableMoves(boardState, Colour.RED);
-                for (Position[] action : availMoves) {
-                    if (action[1].equals(kingPos)) {
-                        soln -= Double.MIN_VALUE;
-                    }
-                }
-                availMoves = getAllAvailableMoves(boardState, Colour.BLUE);
-                for (Position[] action : availMoves) {
-                    if (action[1].equals(kingPos)) {
-                        soln -= 35.0;
-                    }
-                }
-                break;
-
-            case RED:
-                availMoves = getAllAvailableMoves(boardState, Colour.BLUE);
-                for (Position[] action : availMoves) {
-                    if (action[1].equals(kingPos)) {
-                        soln -= Double.MIN_VALUE;
-                    }
-                }
-                availMoves = getAllAvailableMoves(boardState, Colour.GREEN);
-                for (Position[] action : availMoves) {
-                    if (action[1].equals(kingPos)) {
-                        soln -= 35.0;
-                    }
-                }
-                break;
-        
-            default:
-                break;
-        }
-        return soln;
-    }
-    
-    /**
-     * This function checks where every single one of the agent's pieces are on the
-     * board and sums up the value each piece has in its current position
-     * 
-     * @param boardState the board state in which to examine
-     * @return the cumulative positioning value of all the agent's pieces on the
-     *         board
-     */
-    private double getPiecePositionValue(Board boardState) {
-        HashSet<Position> positions = (HashSet<Position>) boardState.getPositions(myColour);
-        double val = 0.0;
-
-        for (Position pos : positions) {
-            switch (boardState.getPiece(pos).getType()) {
-                case PAWN:
-                    val += pawnPV.get(pos);
-                    break;
-                
-                case KNIGHT:
-                    val += knightPV.get(pos);
-                    break;
-
-                case BISHOP:
-                    val += bishopPV.get(pos);
-                    break;
-
-                case ROOK:
-                    val += rookPV.get(pos);
-                    break;
-
-                case QUEEN:
-                    val += queenPV.get(pos);
-                    break;
-
-                case KING:
-                    val += kingPV.get(pos);
-                    break;
-            
-                default:
-                    break;
-            }
-        }
-
-        return val;
+        double weight = attacker == nextColour() ? Double.MIN_VALUE : 35.0;
+        return -weight * attacks;
     }
 
     /**
-     * Checks to see if any moves are available which result in a game win.
-     * 
-     * @param board the board to check
-     * @return the action which will win the game returns that action, otherwise
-     *         null
+     * @return the colour of the player who moves after us
      */
-    private Position[] canWinGame(Board board) {
-        HashSet<Position[]> availMoves = new HashSet<>();
-        switch (myColour) {
-            case BLUE:
-                availMoves = getAllAvailableMoves(board, Colour.BLUE);
-                Position greenKingPos = null;
-                for (Position pos : board.getPositions(Colour.GREEN)) {
-                    if (board.getPiece(pos).getType() == PieceType.KING) {
-                        greenKingPos = pos;
-                        break;
-                    }
-                }
-                for(Position[] pos : availMoves) {
-                    if(pos[1].equals(greenKingPos)) {
-                        return pos;
-                    }
-                }
-                break;
-
-            case GREEN:
-                availMoves = getAllAvailableMoves(board, Colour.GREEN);
-                Position redKingPos = null;
-                for (Position pos : board.getPositions(Colour.RED)) {
-                    if (board.getPiece(pos).getType() == PieceType.KING) {
-                        redKingPos = pos;
-                        break;
-                    }
-                }
-                for(Position[] pos : availMoves) {
-                    if(pos[1].equals(redKingPos)) {
-                        return pos;
-                    }
-                }
-                break;
-
-            case RED:
-                availMoves = getAllAvailableMoves(board, Colour.RED);
-                Position blueKingPos = null;
-                for (Position pos : board.getPositions(Colour.BLUE)) {
-                    if (board.getPiece(pos).getType() == PieceType.KING) {
-                        blueKingPos = pos;
-                        break;
-                    }
-                }
-                for(Position[] pos : availMoves) {
-                    if(pos[1].equals(blueKingPos)) {
-                        return pos;
-                    }
-                }
-                break;
-        
-            default:
-                break;
-        }
-        return null;
+    private Colour nextColour() {
+        return Colour.values()[(myColour.ordinal() + 1) % 3];
     }
 
     /**
@@ -1038,8 +282,11 @@ public class QLearningAgent extends Agent {
      * @return the adjust reward of being in the current state.
      */
     private double calculateCurrentReward() {
-        double curRewardValue = ( 1.105 * curBoardState.score(myColour)) + (0.95 * getPiecePositionValue(curBoardState)) + amUnderCheck(curBoardState);
-        curRewardValue += (canWinGame(curBoardState) != null) ? Double.MAX_VALUE : 0;
+        // Only the player whose turn it is can attack our king or be attacked
+        Colour turn = curBoardState.getTurn();
+        double curRewardValue = ( 1.105 * evaluator.score()) + (0.95 * evaluator.positionValue())
+                + amUnderCheck(turn, evaluator.attacks(turn, evaluator.kingSquare(myColour)));
+        curRewardValue += (evaluator.kingCapture(nextColour()) >= 0) ? Double.MAX_VALUE : 0;
         double soln = curRewardValue - prevRewardValue;
         prevRewardValue = curRewardValue;
         return soln;
@@ -1053,105 +300,130 @@ public class QLearningAgent extends Agent {
      */
     private void executeAction(Position[] action) {
         myLastAction = action.clone();
-        try {
-            prevBoardState = (Board) curBoardState.clone(); 
-        } catch (CloneNotSupportedException e) {
-            e.printStackTrace();
-            System.out.println("Could not clone curBoardState");
-        }
+        prevStateKey = StateAction.stateKey(curBoardState);
+        hasPrevState = true;
         prevReward = curReward;
     }
 
     /**
-     * Estimates the utility of taking the given action while on the current board
+     * Estimates the utility of taking the given action while on the current board.
+     * The evaluation terms are found from how the action changes those of the
+     * current board, without playing it on a copy of the board.
      * 
-     * @param board         starting board state
      * @param prevRewardVal the reward value of the previous action (in this case,
-     *                      the current reward for being in the @board position)
+     *                      the current reward for being in the current position)
      * @param action        the action to take
      * @return the estimate of the utility for taking the given action while on the
      *         current board state
      */
-    private double estimateUtil(Board board, double prevRewardVal, Position[] action) {
-        Board mBoard = null;
+    private double estimateUtil(double prevRewardVal, Position[] action) {
+        double estUtil = -prevRewardVal;
+        Colour turn = curBoardState.getTurn();
+        if (turn != myColour) { // The action can't be taken, so the board is unchanged
+            return estUtil + ((1.105 * evaluator.score()) + (0.95 * evaluator.positionValue())
+                    + amUnderCheck(turn, evaluator.attacks(turn, evaluator.kingSquare(myColour))));
+        }
+        // After the action the next player moves, so we can't win the game and only they can attack our king
+        int move = MoveGenerator.move(action[0], action[1]);
+        estUtil += (1.105 * (evaluator.score() + evaluator.scoreDelta(move)))
+                + (0.95 * (evaluator.positionValue() + evaluator.positionDelta(move)))
+                + amUnderCheck(nextColour(), evaluator.kingAttacksAfter(move, nextColour()));
+        return estUtil;
+    }
+
+    /**
+     * Returns the Q-table to use for the current colour. Training agents use the
+     * shared table, otherwise the table is read from the given storage files.
+     * 
+     * @param qFile the file the Q-table is stored in
+     * @param nFile the file the visit counts of a legacy Q-table are stored in
+     * @return the Q-table, or an empty table if it could not be read
+     */
+    private QTable loadQTable(String qFile, String nFile) {
+        if (sharedTables != null) {
+            return sharedTables[myColour.ordinal()];
+        }
         try {
-            mBoard = (Board) board.clone(); 
-        } catch (CloneNotSupportedException e) {
+            return QTable.load(qFile, nFile);
+        } catch (Exception e) {
             e.printStackTrace();
-            System.out.println("Could not clone board");
+            System.out.print("Q Table storage or n Times Executed Storage either do not exist or could not be opened.");
+            return new QTable();
+        }
+    }
+
+    /**
+     * Writes the qTable to the given file. Shared training tables are left for the
+     * trainer to store.
+     * 
+     * @param qFile the file to store the Q-table in
+     */
+    private void storeQTable(String qFile) {
+        if (sharedTables != null) {
+            return;
         }
         try {
-            mBoard.move(action[0], action[1]);
+            qTable.store(qFile);
         } catch (Exception e) {
-            
+            e.printStackTrace();
+            System.out.print("Q Table storage could not be written to disk.");
+        }
+    }
+
+    /**
+     * Reads the Q-table stored for the given colour.
+     * 
+     * @param colour the colour the table was learnt for
+     * @return the stored Q-table
+     * @throws Exception if the table does not exist or could not be read
+     */
+    static QTable readStoredQTable(Colour colour) throws Exception {
+        switch (colour) {
+            case BLUE:
+                return QTable.load(qTableStorageBlue, nTimesExecutedStorageBlue);
+            case GREEN:
+                return QTable.load(qTableStorageGreen, nTimesExecutedStorageGreen);
+            default:
+                return QTable.load(qTableStorageRed, nTimesExecutedStorageRed);
         }
-        double estUtil = -prevRewardVal;
-        estUtil += (canWinGame(mBoard) != null) ? Double.MAX_VALUE : 0;
-        estUtil += (1.105 * mBoard.score(myColour)) + (0.95 * getPiecePositionValue(mBoard)) + amUnderCheck(mBoard);
-        return estUtil;
     }
 
     /**
-     * Writes the qTable to the file qTableStorage and writes nTimesExecuted to the
-     * file nTimesExecutedStorage
+     * Writes the Q-table for the given colour to its storage file.
+     * 
+     * @param colour the colour the table was learnt for
+     * @param table  the table to store
+     * @throws Exception if the table could not be written
+     */
+    static void writeStoredQTable(Colour colour, QTable table) throws Exception {
+        switch (colour) {
+            case BLUE:
+                table.store(qTableStorageBlue);
+                break;
+            case GREEN:
+                table.store(qTableStorageGreen);
+                break;
+            default:
+                table.store(qTableStorageRed);
+                break;
+        }
+    }
+
+    /**
+     * Writes the qTable to the file qTableStorage
      */
     private void storeData() {
         switch (myColour) {
             case BLUE:
-                try {
-                    FileOutputStream qFileOut = new FileOutputStream(qTableStorageBlue);
-                    ObjectOutputStream qObjectOut = new ObjectOutputStream(qFileOut);
-                    qObjectOut.writeObject(qTable);
-                    qFileOut.close();
-                    qObjectOut.close();
-    
-                    FileOutputStream nFileOut = new FileOutputStream(nTimesExecutedStorageBlue);
-                    ObjectOutputStream nObjectOut = new ObjectOutputStream(nFileOut);
-                    nObjectOut.writeObject(nTimesExecuted);
-                    nFileOut.close();
-                    nObjectOut.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.print("Q Table storage or n Times Executed Storage could not be written to disk.");
-                }
+                storeQTable(qTableStorageBlue);
                 break;
 
             case GREEN:
-                try {
-                    FileOutputStream qFileOut = new FileOutputStream(qTableStorageGreen);
-                    ObjectOutputStream qObjectOut = new ObjectOutputStream(qFileOut);
-                    qObjectOut.writeObject(qTable);
-                    qFileOut.close();
-                    qObjectOut.close();
-    
-                    FileOutputStream nFileOut = new FileOutputStream(nTimesExecutedStorageGreen);
-                    ObjectOutputStream nObjectOut = new ObjectOutputStream(nFileOut);
-                    nObjectOut.writeObject(nTimesExecuted);
-                    nFileOut.close();
-                    nObjectOut.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.print("Q Table storage or n Times Executed Storage could not be written to disk.");
-                }
+                storeQTable(qTableStorageGreen);
                 break;
 
             case RED:
-                try {
-                    FileOutputStream qFileOut = new FileOutputStream(qTableStorageRed);
-                    ObjectOutputStream qObjectOut = new ObjectOutputStream(qFileOut);
-                    qObjectOut.writeObject(qTable);
-                    qFileOut.close();
-                    qObjectOut.close();
-    
-                    FileOutputStream nFileOut = new FileOutputStream(nTimesExecutedStorageRed);
-                    ObjectOutputStream nObjectOut = new ObjectOutputStream(nFileOut);
-                    nObjectOut.writeObject(nTimesExecuted);
-                    nFileOut.close();
-                    nObjectOut.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    System.out.print("Q Table storage or n Times Executed Storage could not be written to disk.");
-                }
+                storeQTable(qTableStorageRed);
                 break;
         
             default:
@@ -1181,27 +453,19 @@ public class QLearningAgent extends Agent {
             myColour = board.getTurn();
             // Reset relevant variables to default before init
             myLastAction = new Position[] { null, null };
-            prevBoardState = null;
+            hasPrevState = false;
             curBoardState = null;
             prevReward = 0.0;
             curReward = 0.0;
             prevRewardValue = 0.0;
 
-            pawnPV = new HashMap<Position, Double>();
-            knightPV = new HashMap<Position, Double>();
-            bishopPV = new HashMap<Position, Double>();
-            rookPV = new HashMap<Position, Double>();
-            queenPV = new HashMap<Position, Double>();
-            kingPV = new HashMap<Position, Double>();
-
-            qTable = new HashMap<StateAction, Double>();
-            nTimesExecuted = new HashMap<StateAction, Integer>();
+            qTable = new QTable();
 
             init();
         } else if(board.getMoveCount() < 4) { // A game has been completed and a new game started but we are the same colour
-            // Reset relevant variables to default, but keep qTable, nTimesExecuted, and all piece positional value maps
+            // Reset relevant variables to default, but keep qTable and all piece positional value maps
             myLastAction = new Position[] { null, null };
-            prevBoardState = null;
+            hasPrevState = false;
             curBoardState = null;
             prevReward = 0.0;
             curReward = 0.0;
@@ -1209,6 +473,7 @@ public class QLearningAgent extends Agent {
         }
 
         curBoardState = board;
+        evaluator.setPosition(board, myColour);
         curReward = calculateCurrentReward();
         update();
         if (board.gameOver()) // This should never happen... But just in case
@@ -1218,6 +483,7 @@ public class QLearningAgent extends Agent {
         boolean set = false;
 
         HashSet<Position[]> availMoves = getAllAvailableMoves(board, myColour);
+        long stateKey = StateAction.stateKey(board);
 
         if(shouldExplore()) { // If I should explore choose the state-action pair with the lowest visits, or if there is a state we haven't explored immediately choose that
             int lowestVisitedSA = Integer.MAX_VALUE;
@@ -1234,18 +500,18 @@ public class QLearningAgent extends Agent {
                     System.out.printf("A move we were going to examine is illegal... Move: %s -> %s\r\n\r\n", action[0].toString(), action[1].toString());
                     continue;
                 }
-                StateAction curExaminedSA = new StateAction(board, action);
-                if (nTimesExecuted.containsKey(curExaminedSA)) { // We have seen the state-action pair already
-                    if (nTimesExecuted.get(curExaminedSA) == 0) { // Proceed using this state-action
+                int a = StateAction.action(action);
+                if (qTable.contains(stateKey, a)) { // We have seen the state-action pair already
+                    int nVisits = qTable.getVisits(stateKey, a);
+                    if (nVisits == 0) { // Proceed using this state-action
                         executeAction(action);
                         return action.clone();
-                    } else if (nTimesExecuted.get(curExaminedSA) <= lowestVisitedSA) {
-                        lowestVisitedSA = nTimesExecuted.get(curExaminedSA);
+                    } else if (nVisits <= lowestVisitedSA) {
+                        lowestVisitedSA = nVisits;
                         chosenAction = action;
                     }
                 } else { // Add the new state-action pair to the q-table and set its value to 0
-                    qTable.put(curExaminedSA, 0.0);
-                    nTimesExecuted.put(curExaminedSA, 0);
+                    qTable.putIfAbsent(stateKey, a, 0.0);
                     executeAction(action);
                     return action.clone();
                 }
@@ -1253,8 +519,9 @@ public class QLearningAgent extends Agent {
             executeAction(chosenAction);
             return chosenAction.clone();
         } else { // Just do it normally, be greedy and take the state-action pair that has the highest utility/value/reward
-            chosenAction = canWinGame(board);
-            if(chosenAction != null) { // if we can win the game here do it
+            int win = evaluator.kingCapture(nextColour());
+            if(win >= 0) { // if we can win the game here do it
+                chosenAction = new Position[] { MoveGenerator.from(win), MoveGenerator.to(win) };
                 executeAction(chosenAction);
                 return chosenAction.clone();
             } else {
@@ -1267,11 +534,11 @@ public class QLearningAgent extends Agent {
                         chosenAction[1] = action[1];
                         set = true;
                     }
-                    StateAction curExaminedSA = new StateAction(board, action);
-                    if (nTimesExecuted.containsKey(curExaminedSA)) { // We have seen the state-action pair already set utility as its value
-                        double estUtil = qTable.get(curExaminedSA);
+                    int a = StateAction.action(action);
+                    if (qTable.contains(stateKey, a)) { // We have seen the state-action pair already set utility as its value
+                        double estUtil = qTable.getValue(stateKey, a);
                         if(estUtil == 0) {
-                            estUtil = estimateUtil(board, prevRewardValue, action);
+                            estUtil = estimateUtil(prevRewardValue, action);
                         }
                         if (estUtil >= maxEstUtility) { 
                             maxEstUtility = estUtil;
@@ -1279,9 +546,8 @@ public class QLearningAgent extends Agent {
                             chosenAction[1] = action[1];
                         }
                     } else { // Add the new state-action pair to the q-table and set its value to 0
-                        qTable.put(curExaminedSA, 0.0);
-                        nTimesExecuted.put(curExaminedSA, 0);
-                        double estUtil = estimateUtil(board, prevRewardValue, action);
+                        qTable.putIfAbsent(stateKey, a, 0.0);
+                        double estUtil = estimateUtil(prevRewardValue, action);
                         if(estUtil >= maxEstUtility) {
                             maxEstUtility = estUtil;
                             chosenAction[0] = action[0];
@@ -1308,6 +574,12 @@ public class QLearningAgent extends Agent {
      * @param finalBoard the end position of the board
      **/
     public void finalBoard(Board finalBoard) {
+        if (sharedTables != null && hasMoved) { // When training, learn from the final state of the game
+            curBoardState = finalBoard;
+            evaluator.setPosition(finalBoard, myColour);
+            curReward = calculateCurrentReward();
+            update();
+        }
         storeData();
     }
 
@@ -0,0 +1,253 @@
+package threeChess.agents;
+
+import threeChess.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * A headless self-play trainer for the QLearningAgent.
+ * Many games are played at once on a pool of threads, with every agent reading
+ * and updating the same Q-tables (one per colour). Exploration follows an epsilon
+ * schedule over the number of games played, and throughput is reported periodically.
+ * Optionally the games only record their transitions, and learner threads replay
+ * them against the tables in batches.
+ *
+ * @author: Macallister Owens - 22221724
+ */
+public class QLearningTrainer {
+
+    private final QTable[] tables; // The shared Q-tables, indexed by colour
+    private final int threads; // The number of games played at once
+    private final int maxMoves; // Games reaching this many moves are abandoned, as untimed games may never end
+    private final LongToDoubleFunction epsilonSchedule; // Maps the number of games played to the exploration probability
+    private final IntToDoubleFunction learningRate; // Maps the visits of a state-action pair to its learning rate
+    private int replayCapacity = 0; // The transitions kept per colour for replay, or 0 to learn online
+    private int replayBatchSize;
+    private int replayRatio;
+    private long seed = new SplittableRandom().nextLong(); // The seed of the agents' and learners' generators
+
+    private final AtomicLong gamesStarted = new AtomicLong();
+    private final LongAdder gamesPlayed = new LongAdder();
+    private final LongAdder movesPlayed = new LongAdder();
+
+    /**
+     * Creates a trainer.
+     *
+     * @param tables          the Q-tables to train, indexed by colour
+     * @param threads         the number of games to play at once
+     * @param maxMoves        the number of moves after which a game is abandoned
+     * @param epsilonSchedule maps the number of games played to the exploration probability
+     * @param learningRate    maps the visits of a state-action pair to its learning rate,
+     *                        see {@link QLearningAgent#stepLearningRate}
+     */
+    public QLearningTrainer(QTable[] tables, int threads, int maxMoves, LongToDoubleFunction epsilonSchedule,
+            IntToDoubleFunction learningRate) {
+        this.tables = tables;
+        this.threads = threads;
+        this.maxMoves = maxMoves;
+        this.epsilonSchedule = epsilonSchedule;
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @return a schedule that always explores with the same probability
+     */
+    public static LongToDoubleFunction constantEpsilon(double epsilon) {
+        return games -> epsilon;
+    }
+
+    /**
+     * @return a schedule that decreases linearly from start to end over the given number of games
+     */
+    public static LongToDoubleFunction linearEpsilon(double start, double end, long games) {
+        return played -> played >= games ? end : start + (end - start) * played / games;
+    }
+
+    /**
+     * @return a schedule that is multiplied by decay each game, but never drops below min
+     */
+    public static LongToDoubleFunction exponentialEpsilon(double start, double decay, double min) {
+        return played -> Math.max(min, start * Math.pow(decay, played));
+    }
+
+    /**
+     * Makes the games record their transitions in replay buffers, one per colour,
+     * which learner threads replay against the Q-tables in batches.
+     *
+     * @param capacity    the number of transitions to keep per colour
+     * @param batchSize   the number of transitions replayed per batch
+     * @param replayRatio the number of updates to apply per recorded transition
+     */
+    public void useReplay(int capacity, int batchSize, int replayRatio) {
+        this.replayCapacity = capacity;
+        this.replayBatchSize = batchSize;
+        this.replayRatio = replayRatio;
+    }
+
+    /**
+     * Sets the seed the generators of the agents and of the replay learners are
+     * split from, so the exploration and the batches sampled can be repeated.
+     * Runs with more than one game thread still interleave differently.
+     *
+     * @param seed the seed of the next training run
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /** @return the number of games completed so far */
+    public long getGamesPlayed() {
+        return gamesPlayed.sum();
+    }
+
+    /** @return the number of TD updates applied to the tables so far */
+    public long getUpdateCount() {
+        long updates = 0;
+        for (QTable table : tables) {
+            updates += table.getUpdateCount();
+        }
+        return updates;
+    }
+
+    /**
+     * Plays the given number of self-play games, reporting throughput to System.out.
+     *
+     * @param numGames     the number of games to play
+     * @param reportMillis the time between throughput reports, or 0 for no reports
+     * @throws InterruptedException if interrupted while waiting for the games to finish
+     */
+    public void train(long numGames, long reportMillis) throws InterruptedException {
+        ScheduledExecutorService reporter = null;
+        long start = System.nanoTime();
+        if (reportMillis > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "trainer-report");
+                t.setDaemon(true);
+                return t;
+            });
+            long[] last = {start, 0, 0};
+            reporter.scheduleAtFixedRate(() -> {
+                long now = System.nanoTime();
+                long games = getGamesPlayed();
+                long updates = getUpdateCount();
+                double secs = (now - last[0]) / 1e9;
+                System.out.printf("games:%d games/sec:%.1f updates/sec:%.1f moves/sec:%.1f epsilon:%.3f%n", games,
+                        (games - last[1]) / secs, (updates - last[2]) / secs, movesPlayed.sum() / ((now - start) / 1e9),
+                        epsilonSchedule.applyAsDouble(games));
+                last[0] = now;
+                last[1] = games;
+                last[2] = updates;
+            }, reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        ReplayBuffer[] buffers = null;
+        ReplayLearner[] learners = null;
+        Thread[] learnerThreads = null;
+        if (replayCapacity > 0) {
+            buffers = new ReplayBuffer[3];
+            learners = new ReplayLearner[3];
+            learnerThreads = new Thread[3];
+            for (int c = 0; c < 3; c++) {
+                buffers[c] = new ReplayBuffer(replayCapacity);
+                learners[c] = new ReplayLearner(buffers[c], tables[c], learningRate, replayBatchSize, replayRatio,
+                        random.split());
+                learnerThreads[c] = new Thread(learners[c], "replay-" + Colour.values()[c]);
+                learnerThreads[c].setDaemon(true);
+                learnerThreads[c].start();
+            }
+        }
+        ReplayBuffer[] replayBuffers = buffers;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom[] randoms = {random.split(), random.split(), random.split()};
+            pool.execute(() -> {
+                QLearningAgent[] agents = new QLearningAgent[3];
+                for (int c = 0; c < 3; c++) {
+                    agents[c] = new QLearningAgent(tables, () -> epsilonSchedule.applyAsDouble(gamesPlayed.sum()),
+                            learningRate, replayBuffers);
+                    agents[c].setRandom(randoms[c]);
+                }
+                while (gamesStarted.getAndIncrement() < numGames) {
+                    playGame(agents);
+                    gamesPlayed.increment();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (learners != null) {
+            for (int c = 0; c < 3; c++) {
+                buffers[c].close(); // The learner applies the updates still owed for the last games, then returns
+                learnerThreads[c].join();
+            }
+        }
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Trained %d games in %.1fs: %.1f games/sec, %.1f updates/sec%n", getGamesPlayed(), secs,
+                getGamesPlayed() / secs, getUpdateCount() / secs);
+    }
+
+    /**
+     * Plays one untimed game between the three agents, which keep their colours
+     * between games, then shows each of them the final board.
+     */
+    private void playGame(QLearningAgent[] agents) {
+        Board board = new Board(1);
+        while (!board.gameOver() && board.getMoveCount() < maxMoves) {
+            Agent current = agents[board.getTurn().ordinal()];
+            Position[] move = current.playMove(board.view());
+            if (move == null || move.length != 2 || !board.isLegalMove(move[0], move[1])) {
+                break;
+            }
+            try {
+                board.move(move[0], move[1]);
+            } catch (ImpossiblePositionException e) {
+                break;
+            }
+            movesPlayed.increment();
+        }
+        for (QLearningAgent agent : agents) {
+            agent.finalBoard(board.view());
+        }
+    }
+
+    /**
+     * Trains the stored Q-tables by self-play and writes them back to disk.
+     * Arguments (all optional): number of games, number of threads, maximum moves per game,
+     * replay buffer capacity per colour (0 to learn online).
+     */
+    public static void main(String[] args) throws Exception {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxMoves = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int replayCapacity = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        QTable[] tables = new QTable[3];
+        for (Colour c : Colour.values()) {
+            try {
+                tables[c.ordinal()] = QLearningAgent.readStoredQTable(c);
+            } catch (Exception e) {
+                System.out.println("No stored Q-table for " + c + ", starting from an empty table.");
+                tables[c.ordinal()] = new QTable();
+            }
+        }
+        QLearningTrainer trainer = new QLearningTrainer(tables, threads, maxMoves,
+                linearEpsilon(1.0, 0.05, games), QLearningAgent.stepLearningRate(1.0, 0.95, 1.0));
+        if (replayCapacity > 0) {
+            trainer.useReplay(replayCapacity, 256, 4);
+        }
+        trainer.train(games, 10000);
+        for (Colour c : Colour.values()) {
+            QLearningAgent.writeStoredQTable(c, tables[c.ordinal()]);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package threeChess.agents;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * A table of Q-values and visit counts for state-action pairs, which may be
+ * shared and updated by many agents playing on different threads at once.
+ *
+ * Each entry is keyed by a 64 bit state key and an action code (see
+ * {@link StateAction}). Entries live in open addressed primitive arrays that
+ * are split into lock stripes, so concurrent updates only contend when they
+ * land in the same stripe and nothing is boxed.
+ *
+ * The table also keeps an estimate of the best value of each state, so the TD
+ * target for a state can be found without generating its actions.
+ */
+public class QTable {
+
+    private static final int MAGIC_V1 = 0x51544231; // "QTB1", the binary storage format without state values, no longer read
+    private static final int MAGIC = 0x51544232; // "QTB2", marks the binary storage format
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final Stripe[] stripes;
+    private final Stripe[] stateStripes; // Best value of each state, with the best action stored as its visits
+    private final LongAdder updates = new LongAdder(); // The number of TD updates applied
+
+    /**
+     * One lock stripe of the table, an open addressed hash table with linear
+     * probing. A key of 0 marks an empty slot.
+     */
+    private static class Stripe {
+        private long[] keys = new long[64];
+        private double[] values = new double[64];
+        private int[] visits = new int[64];
+        private int size;
+
+        /** @return the slot holding key, or the empty slot where it would be inserted. */
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = (int) key & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /** @return the slot holding key, inserting a zero entry if it is absent. */
+        private int insert(long key) {
+            int i = slot(key);
+            if (keys[i] == 0) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    i = slot(key);
+                }
+                keys[i] = key;
+                size++;
+            }
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            double[] oldValues = values;
+            int[] oldVisits = visits;
+            keys = new long[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            visits = new int[oldKeys.length * 2];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = slot(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                    visits[i] = oldVisits[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty table.
+     */
+    public QTable() {
+        stripes = new Stripe[STRIPES];
+        stateStripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+            stateStripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Combines a state key and an action code into a single non-zero table key.
+     */
+    private static long key(long stateKey, int action) {
+        long z = stateKey + (action + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return z == 0 ? 1 : z;
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (key >>> (64 - STRIPE_BITS))];
+    }
+
+    private Stripe stateStripe(long key) {
+        return stateStripes[(int) (key >>> (64 - STRIPE_BITS))];
+    }
+
+    /**
+     * Records a new value of a state-action pair in the best value of its state.
+     * If the pair was the best action its value is replaced, even if it fell, so
+     * the estimate may be briefly low until the new best action is next updated.
+     */
+    private void recordStateValue(long stateKey, int action, double value) {
+        long key = key(stateKey, -1);
+        Stripe s = stateStripe(key);
+        synchronized (s) {
+            int i = s.slot(key);
+            if (s.keys[i] == 0) {
+                i = s.insert(key);
+                s.values[i] = value;
+                s.visits[i] = action;
+            } else if (value > s.values[i] || s.visits[i] == action) {
+                s.values[i] = value;
+                s.visits[i] = action;
+            }
+        }
+    }
+
+    /**
+     * @return the best value of any action seen in the state, or 0.0 if the state has not been seen
+     */
+    public double getMaxValue(long stateKey) {
+        long key = key(stateKey, -1);
+        Stripe s = stateStripe(key);
+        synchronized (s) {
+            int i = s.slot(key);
+            return s.keys[i] != 0 ? s.values[i] : 0.0;
+        }
+    }
+
+    /**
+     * @return true if the state-action pair has been seen before
+     */
+    public boolean contains(long stateKey, int action) {
+        long key = key(stateKey, action);
+        Stripe s = stripe(key);
+        synchronized (s) {
+            return s.keys[s.slot(key)] != 0;
+        }
+    }
+
+    /**
+     * @return the Q-value of the state-action pair, or 0.0 if it has not been seen
+     */
+    public double getValue(long stateKey, int action) {
+        long key = key(stateKey, action);
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int i = s.slot(key);
+            return s.keys[i] != 0 ? s.values[i] : 0.0;
+        }
+    }
+
+    /**
+     * @return the number of times the state-action pair has been executed
+     */
+    public int getVisits(long stateKey, int action) {
+        long key = key(stateKey, action);
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int i = s.slot(key);
+            return s.keys[i] != 0 ? s.visits[i] : 0;
+        }
+    }
+
+    /**
+     * Adds the state-action pair with the given value and no visits if it has
+     * not been seen before.
+     *
+     * @return true if the pair was added
+     */
+    public boolean putIfAbsent(long stateKey, int action, double value) {
+        long key = key(stateKey, action);
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int i = s.slot(key);
+            if (s.keys[i] != 0) {
+                return false;
+            }
+            i = s.insert(key);
+            s.values[i] = value;
+        }
+        if (action != StateAction.TERMINAL) {
+            recordStateValue(stateKey, action, value);
+        }
+        return true;
+    }
+
+    /**
+     * Applies one temporal-difference update to a state-action pair: the visit
+     * count is incremented and the value moved towards the target by the learning
+     * rate for the new visit count. The pair is added if it has not been seen.
+     *
+     * @param target       the TD target, reward plus the estimated value of the next state
+     * @param learningRate maps the visit count to the learning rate
+     * @return the updated value
+     */
+    public double update(long stateKey, int action, double target, IntToDoubleFunction learningRate) {
+        long key = key(stateKey, action);
+        Stripe s = stripe(key);
+        double value;
+        synchronized (s) {
+            int i = s.insert(key);
+            int n = ++s.visits[i];
+            value = s.values[i] + learningRate.applyAsDouble(n) * (target - s.values[i]);
+            s.values[i] = value;
+        }
+        if (action != StateAction.TERMINAL) {
+            recordStateValue(stateKey, action, value);
+        }
+        updates.increment();
+        return value;
+    }
+
+    /**
+     * @return the number of state-action pairs in the table
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of TD updates applied to this table since it was created
+     */
+    public long getUpdateCount() {
+        return updates.sum();
+    }
+
+    /**
+     * Writes the table to a file in a compact binary format.
+     *
+     * @param fileName the file to write to
+     * @throws IOException if the file could not be written
+     */
+    public void store(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            writeStripes(out, stripes);
+            writeStripes(out, stateStripes);
+        }
+    }
+
+    private static void writeStripes(DataOutputStream out, Stripe[] stripes) throws IOException {
+        long size = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        out.writeLong(size);
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int i = 0; i < s.keys.length && size > 0; i++) {
+                    if (s.keys[i] != 0) {
+                        out.writeLong(s.keys[i]);
+                        out.writeDouble(s.values[i]);
+                        out.writeInt(s.visits[i]);
+                        size--;
+                    }
+                }
+            }
+        }
+        while (size-- > 0) { // Not reached, as entries are never removed, but keeps the count true if any were
+            out.writeLong(0);
+            out.writeDouble(0);
+            out.writeInt(0);
+        }
+    }
+
+    private static void readStripes(DataInputStream in, Stripe[] stripes) throws IOException {
+        long n = in.readLong();
+        for (long e = 0; e < n; e++) {
+            long key = in.readLong();
+            double value = in.readDouble();
+            int visits = in.readInt();
+            if (key != 0) {
+                Stripe s = stripes[(int) (key >>> (64 - STRIPE_BITS))];
+                int i = s.insert(key);
+                s.values[i] = value;
+                s.visits[i] = visits;
+            }
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #store(String)}. Tables stored by earlier
+     * versions of the QLearningAgent, as a pair of serialized HashMaps, are
+     * converted when the first file is in that format. Tables in the first
+     * binary format cannot be read, as their keys are hashed with the action,
+     * so the best value of each state cannot be rebuilt from them.
+     *
+     * @param fileName       the file the table was stored in
+     * @param legacyVisitsFile the file holding the visit counts of a legacy table
+     * @return the table read
+     * @throws IOException            if a file could not be read, or is in the first binary format
+     * @throws ClassNotFoundException if a legacy file holds unknown classes
+     */
+    public static QTable load(String fileName, String legacyVisitsFile) throws IOException, ClassNotFoundException {
+        QTable table = new QTable();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16))) {
+            in.mark(4);
+            int magic = in.readInt();
+            if (magic == MAGIC_V1) {
+                throw new IOException(fileName + " holds no state values, so cannot be learnt from; train a new table");
+            }
+            if (magic != MAGIC) {
+                in.reset();
+                table.loadLegacy(in, legacyVisitsFile);
+                return table;
+            }
+            readStripes(in, table.stripes);
+            readStripes(in, table.stateStripes);
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadLegacy(DataInputStream qIn, String legacyVisitsFile) throws IOException, ClassNotFoundException {
+        Map<StateAction, Double> values = (HashMap<StateAction, Double>) new ObjectInputStream(qIn).readObject();
+        for (Map.Entry<StateAction, Double> e : values.entrySet()) {
+            putIfAbsent(e.getKey().stateKey(), e.getKey().action(), e.getValue());
+        }
+        try (ObjectInputStream nIn = new ObjectInputStream(new BufferedInputStream(new FileInputStream(legacyVisitsFile)))) {
+            Map<StateAction, Integer> visits = (HashMap<StateAction, Integer>) nIn.readObject();
+            for (Map.Entry<StateAction, Integer> e : visits.entrySet()) {
+                long stateKey = e.getKey().stateKey();
+                int action = e.getKey().action();
+                long key = key(stateKey, action);
+                Stripe s = stripe(key);
+                int i = s.insert(key);
+                s.visits[i] = Math.max(s.visits[i], e.getValue());
+                if (action != StateAction.TERMINAL) {
+                    recordStateValue(stateKey, action, s.values[i]);
+                }
+            }
+        }
+    }
+}
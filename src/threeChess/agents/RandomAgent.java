@@ -2,8 +2,6 @@ package threeChess.agents;
 
 import threeChess.*;
 
-import java.util.Random;
-
 /**
  * An interface for AI bots to implement.
  * They are simply given a Board object indicating the positions of all pieces, 
@@ -13,7 +11,6 @@ import java.util.Random;
 public class RandomAgent extends Agent{
   
   private static final String name = "Random";
-  private static final Random random = new Random();
 
 
   /**
@@ -39,11 +36,11 @@ public class RandomAgent extends Agent{
     Position start = pieces[0];
     Position end = pieces[0]; //dummy illegal move
     while (!board.isLegalMove(start, end)){
-      start = pieces[random.nextInt(pieces.length)];
+      start = pieces[getRandom().nextInt(pieces.length)];
       Piece mover = board.getPiece(start);
       Direction[][] steps = mover.getType().getSteps();
-      Direction[] step = steps[random.nextInt(steps.length)];
-      int reps = 1 + random.nextInt(mover.getType().getStepReps());
+      Direction[] step = steps[getRandom().nextInt(steps.length)];
+      int reps = 1 + getRandom().nextInt(mover.getType().getStepReps());
       end = start;
       try{
         for(int i = 0; i<reps; i++)
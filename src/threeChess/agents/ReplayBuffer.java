@@ -0,0 +1,137 @@
+package threeChess.agents;
+
+import java.util.SplittableRandom;
+
+/**
+ * A bounded store of Q-learning transitions, for replaying updates in batches
+ * away from the game threads.
+ * Each transition is a compact (stateKey, action, reward, nextStateKey, terminal)
+ * record held in primitive ring buffers; once the buffer is full the oldest
+ * transitions are overwritten. A learner waiting for transitions is woken as
+ * each is added, and once the buffer is closed.
+ */
+public class ReplayBuffer {
+
+    private final long[] states;
+    private final short[] actions;
+    private final double[] rewards;
+    private final long[] nextStates;
+    private final boolean[] terminals;
+    private long added; // The number of transitions ever added, the next write is at added % capacity
+    private boolean closed; // Whether no more transitions will be added
+
+    /**
+     * A batch of transitions sampled from the buffer, reused between samples to
+     * avoid allocation.
+     */
+    public static class Batch {
+        final long[] states;
+        final int[] actions;
+        final double[] rewards;
+        final long[] nextStates;
+        final boolean[] terminals;
+        int size;
+
+        /**
+         * @param capacity the largest number of transitions the batch can hold
+         */
+        public Batch(int capacity) {
+            states = new long[capacity];
+            actions = new int[capacity];
+            rewards = new double[capacity];
+            nextStates = new long[capacity];
+            terminals = new boolean[capacity];
+        }
+
+        /** @return the number of transitions in the batch */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * @param capacity the number of transitions to keep
+     */
+    public ReplayBuffer(int capacity) {
+        states = new long[capacity];
+        actions = new short[capacity];
+        rewards = new double[capacity];
+        nextStates = new long[capacity];
+        terminals = new boolean[capacity];
+    }
+
+    /**
+     * Adds a transition, overwriting the oldest one if the buffer is full.
+     *
+     * @param stateKey     the key of the state the action was taken in
+     * @param action       the action code, see {@link StateAction#action(threeChess.Position[])}
+     * @param reward       the reward received for the action
+     * @param nextStateKey the key of the state the action led to
+     * @param terminal     whether the next state ended the game
+     */
+    public synchronized void add(long stateKey, int action, double reward, long nextStateKey, boolean terminal) {
+        int i = (int) (added++ % states.length);
+        states[i] = stateKey;
+        actions[i] = (short) action;
+        rewards[i] = reward;
+        nextStates[i] = nextStateKey;
+        terminals[i] = terminal;
+        notifyAll();
+    }
+
+    /**
+     * Marks the buffer as complete, so learners waiting for more transitions
+     * stop waiting once they have learnt from those already added.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until more than the given number of transitions have been added,
+     * or the buffer is closed.
+     *
+     * @param count the number of transitions already learnt from
+     * @return true if more than count transitions have been added, false if
+     *         the buffer was closed with no more
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitAdded(long count) throws InterruptedException {
+        while (added <= count && !closed) {
+            wait();
+        }
+        return added > count;
+    }
+
+    /** @return the number of transitions currently held */
+    public synchronized int size() {
+        return (int) Math.min(added, states.length);
+    }
+
+    /** @return the number of transitions ever added */
+    public synchronized long getAddedCount() {
+        return added;
+    }
+
+    /**
+     * Fills the batch with transitions sampled uniformly from the buffer.
+     *
+     * @param batch  the batch to fill, its previous contents are discarded
+     * @param random the source of randomness for the sample
+     * @return the number of transitions sampled, 0 if the buffer is empty
+     */
+    public synchronized int sample(Batch batch, SplittableRandom random) {
+        int size = (int) Math.min(added, states.length);
+        batch.size = size == 0 ? 0 : Math.min(batch.states.length, size);
+        for (int b = 0; b < batch.size; b++) {
+            int i = random.nextInt(size);
+            batch.states[b] = states[i];
+            batch.actions[b] = actions[i];
+            batch.rewards[b] = rewards[i];
+            batch.nextStates[b] = nextStates[i];
+            batch.terminals[b] = terminals[i];
+        }
+        return batch.size;
+    }
+}
@@ -0,0 +1,74 @@
+package threeChess.agents;
+
+import java.util.SplittableRandom;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Applies batches of Q-learning updates from a replay buffer to a Q-table.
+ * Run it on its own thread so the learning step is kept off the game threads,
+ * and close the buffer when the games are over: the learner then applies the
+ * updates still owed for the last transitions, and returns. The TD target of each transition uses the table's best value for the next
+ * state, rather than generating and evaluating every action there.
+ */
+public class ReplayLearner implements Runnable {
+
+    private final ReplayBuffer buffer;
+    private final QTable table;
+    private final IntToDoubleFunction learningRate;
+    private final int batchSize;
+    private final int replayRatio; // The number of updates per new transition
+    private final SplittableRandom random; // Chooses the transitions of each batch
+
+    /**
+     * @param buffer       the transitions to learn from
+     * @param table        the Q-table to update
+     * @param learningRate maps the visits of a state-action pair to its learning rate
+     * @param batchSize    the number of transitions sampled per batch
+     * @param replayRatio  the number of updates to apply per transition added to the buffer
+     * @param random       the source of randomness for sampling batches, used only by this learner
+     */
+    public ReplayLearner(ReplayBuffer buffer, QTable table, IntToDoubleFunction learningRate, int batchSize, int replayRatio,
+            SplittableRandom random) {
+        this.buffer = buffer;
+        this.table = table;
+        this.learningRate = learningRate;
+        this.batchSize = batchSize;
+        this.replayRatio = Math.max(1, replayRatio);
+        this.random = random;
+    }
+
+    /**
+     * Applies one batch of updates.
+     *
+     * @param batch  the batch to sample into
+     * @param random the source of randomness for the sample
+     * @return the number of updates applied
+     */
+    public int learn(ReplayBuffer.Batch batch, SplittableRandom random) {
+        int n = buffer.sample(batch, random);
+        for (int b = 0; b < n; b++) {
+            double next = batch.terminals[b] ? table.getValue(batch.nextStates[b], StateAction.TERMINAL)
+                    : table.getMaxValue(batch.nextStates[b]);
+            table.update(batch.states[b], batch.actions[b], batch.rewards[b] + next, learningRate);
+        }
+        return n;
+    }
+
+    /**
+     * Learns in batches until the buffer is closed and every transition added
+     * has had its share of updates, blocking on the buffer whenever it has
+     * applied its share for those added so far. Interrupting the thread stops it.
+     */
+    public void run() {
+        ReplayBuffer.Batch batch = new ReplayBuffer.Batch(batchSize);
+        long applied = 0;
+        try {
+            // added * replayRatio > applied exactly when added > applied / replayRatio
+            while (buffer.awaitAdded(applied / replayRatio)) {
+                applied += Math.max(1, learn(batch, random));
+            }
+        } catch (InterruptedException e) {
+            // Stopped early, the updates still owed are dropped
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package threeChess.agents;
+
+import threeChess.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An agent that plays the best move found by a paranoid alpha-beta search
+ * (see {@link ParanoidSearch}), with the moves at each node ordered by a
+ * {@link MoveOrderer} and searched positions kept in a
+ * {@link TranspositionTable} across the moves of a game.
+ *
+ * In a timed game each move is given a share of the time left, and the search
+ * goes as deep as that allows; in an untimed game it searches to a fixed depth.
+ * Captures are searched beyond that depth until the position is quiet.
+ *
+ * If the game allows it (see {@link Agent#getPonderThreads()}), the agent
+ * ponders while the opponents move: it predicts each opponent's reply by a
+ * shallower search from that opponent's point of view, and then searches the
+ * position it expects to face on its next turn, all into the same table. If
+ * that position comes up, the search of it finds the deepest levels already
+ * done, and the table holds any of the pondered positions it reaches.
+ */
+public class SearchAgent extends Agent {
+
+    private static final String name = "Paranoid";
+    static final int DEFAULT_DEPTH = 4;
+    static final int DEFAULT_TABLE_MEGABYTES = 16;
+    private static final int MOVES_TO_GO = 40; // The number of moves the time left is shared between
+    private static final int KEEP_ALIVE_SECONDS = 1; // How long an idle ponderer thread is kept
+
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private final ParanoidSearch search;
+    private ExecutorService ponderer; // Created the first time the agent ponders, its thread ending when idle
+    private Future<?> pondering; // The search of the expected position, or null
+    private long ponderedHash; // The hash of the expected position
+    private int ponderHits;
+
+    /**
+     * A no argument constructor, required for tournament management. The agent
+     * searches to DEFAULT_DEPTH in untimed games, with a table of
+     * DEFAULT_TABLE_MEGABYTES.
+     */
+    public SearchAgent() {
+        this(DEFAULT_DEPTH, DEFAULT_TABLE_MEGABYTES);
+    }
+
+    /**
+     * @param maxDepth        the depth to search to in untimed games, and the
+     *                        greatest depth in timed games
+     * @param tableMegabytes  the size of the transposition table
+     */
+    public SearchAgent(int maxDepth, int tableMegabytes) {
+        this(maxDepth, tableMegabytes, true);
+    }
+
+    /**
+     * @param maxDepth        the depth to search to in untimed games, and the
+     *                        greatest depth in timed games
+     * @param tableMegabytes  the size of the transposition table
+     * @param quiescence      whether to search captures beyond the depth
+     *                        searched, rather than evaluate mid-exchange
+     */
+    public SearchAgent(int maxDepth, int tableMegabytes, boolean quiescence) {
+        this.maxDepth = maxDepth;
+        table = new TranspositionTable(tableMegabytes);
+        search = new ParanoidSearch(table, new MoveOrderer(), quiescence);
+    }
+
+    /**
+     * Plays the best move found by the search.
+     *
+     * @param board the representation of the game state
+     * @return the start and end positions of the move
+     */
+    public Position[] playMove(Board board) {
+        long start = System.nanoTime();
+        stopPondering();
+        if (board.hash() == ponderedHash) ponderHits++;
+        ponderedHash = 0;
+        int timeLeft = board.getTimeLeft(board.getTurn());
+        // An untimed game gives each player 1 millisecond that is never used
+        long deadline = timeLeft > 1 ? start + timeLeft * 1000000L / MOVES_TO_GO : Long.MAX_VALUE;
+        SearchState state = new SearchState(board, PieceSquareTables.getDefault());
+        int move = search.search(state, maxDepth, deadline);
+        if (move == TranspositionTable.NO_MOVE) return null;
+        if (getPonderThreads() > 0) ponder(state, move);
+        return new Position[] {MoveGenerator.from(move), MoveGenerator.to(move)};
+    }
+
+    // Starts predicting the opponents' replies to the move, and searching the position they lead to
+    private void ponder(SearchState state, int move) {
+        state.make(move);
+        if (ponderer == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread t = new Thread(r, name + " ponderer");
+                t.setDaemon(true);
+                return t;
+            });
+            pool.allowCoreThreadTimeOut(true); // So a discarded agent leaves no thread, nor its table, behind
+            ponderer = pool;
+        }
+        search.resume(); // Before the task starts, so a stop is never missed
+        pondering = ponderer.submit(() -> {
+            // Once stopped, each search returns at once having completed no depth
+            for (int reply = 0; reply < 2; reply++) {
+                if (state.gameOver()) return;
+                int expected = search.search(state, 1, Math.max(1, maxDepth - 1), Long.MAX_VALUE);
+                if (expected == TranspositionTable.NO_MOVE || search.getDepth() == 0) return;
+                state.make(expected);
+            }
+            if (state.gameOver()) return;
+            ponderedHash = state.hash();
+            search.search(state, 1, maxDepth, Long.MAX_VALUE);
+        });
+    }
+
+    /**
+     * Stops pondering, if the agent is, and waits for the search to return,
+     * which it does at the next position it visits.
+     */
+    public void stopPondering() {
+        if (pondering == null) return;
+        search.stop();
+        try {
+            pondering.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // The table holds whatever the search stored before it stopped
+        }
+        pondering = null;
+    }
+
+    /**
+     * @return the number of moves the agent was asked for in the position it
+     *         had pondered
+     */
+    public int getPonderHits() {
+        return ponderHits;
+    }
+
+    /**
+     * @return the Agent's name, for annotating game description
+     */
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Clears the transposition table, which holds nothing of use for the next game.
+     *
+     * @param finalBoard the end position of the board
+     */
+    public void finalBoard(Board finalBoard) {
+        stopPondering();
+        ponderedHash = 0;
+        table.clear();
+    }
+}
@@ -0,0 +1,90 @@
+package threeChess.agents;
+
+import threeChess.*;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A class to represent the state-action pairs which will be stored in the
+ * qTable. Contains all board states seen and every action possible for those
+ * seen board states.
+ */
+class StateAction implements Serializable {
+    /**
+     * Auto generated serialVersionUID
+     */
+    private static final long serialVersionUID = 811621724494833192L;
+    
+    Set<Position> state; // Contains all positions of all pieces
+    Position[] action; // The action taken in the given state
+
+    /**
+     * Constructs a StateAction object based on the given board and action
+     * @param board the board to create the board state from
+     * @param a the action which is paired with the board state
+     */
+    public StateAction(Board board, Position[] a) {
+        try {
+            state = new HashSet<>();
+            state.addAll(board.getPositions(Colour.BLUE));
+            state.addAll(board.getPositions(Colour.GREEN));
+            state.addAll(board.getPositions(Colour.RED));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Broke trying to create a state-action object... yikes");
+        }
+        action = a;
+    }
+
+    /** The action code used for terminal states, in which no action is taken. */
+    static final int TERMINAL = 96 * 96;
+
+    /**
+     * Computes a 64 bit key for the state of a board. As with the state set, only
+     * the occupied positions are considered.
+     *
+     * @param board the board to create the key from
+     * @return the state key
+     */
+    static long stateKey(Board board) {
+        long low = 0, high = 0;
+        for (Position pos : Position.values()) {
+            if (board.getPiece(pos) != null) {
+                if (pos.ordinal() < 64) low |= 1L << pos.ordinal();
+                else high |= 1L << (pos.ordinal() - 64);
+            }
+        }
+        return occupancyKey(low, high);
+    }
+
+    /**
+     * @param a the action, or null for a terminal state
+     * @return a compact code for the action, unique for each start and end position
+     */
+    static int action(Position[] a) {
+        return (a == null || a[0] == null || a[1] == null) ? TERMINAL : a[0].ordinal() * 96 + a[1].ordinal();
+    }
+
+    /** @return the state key of this state-action pair */
+    long stateKey() {
+        long low = 0, high = 0;
+        for (Position pos : state) {
+            if (pos.ordinal() < 64) low |= 1L << pos.ordinal();
+            else high |= 1L << (pos.ordinal() - 64);
+        }
+        return occupancyKey(low, high);
+    }
+
+    /** @return the action code of this state-action pair */
+    int action() {
+        return action(action);
+    }
+
+    // Mixes the 96 occupancy bits into a single 64 bit key
+    private static long occupancyKey(long low, long high) {
+        long z = low * 0xBF58476D1CE4E5B9L ^ (high + 0x9E3779B97F4A7C15L) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}